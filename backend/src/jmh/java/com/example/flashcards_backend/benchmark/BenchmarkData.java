@@ -0,0 +1,241 @@
+package com.example.flashcards_backend.benchmark;
+
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.CardHistory;
+import com.example.flashcards_backend.model.Deck;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardDeckRowProjection;
+import com.example.flashcards_backend.repository.CardExportRowProjection;
+import com.example.flashcards_backend.repository.CardExportRowProjectionImpl;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Deterministic fixtures shaped like a real subject: text of typical card length, card ids
+ * ascending, and each card in {@code decksPerCard} decks drawn from a fixed pool. Rows come out
+ * one per card and deck, as the repository queries return them.
+ */
+public final class BenchmarkData {
+
+  public static final Long SUBJECT_ID = 1L;
+  private static final int DECK_POOL = 20;
+  private static final LocalDateTime VIEWED = LocalDateTime.parse("2025-01-01T10:00:00");
+
+  public static final User USER = User.builder().id(UUID.randomUUID()).username("bench").build();
+  public static final Subject SUBJECT =
+      Subject.builder().id(SUBJECT_ID).name("Benchmark").user(USER).build();
+  private static final List<Deck> DECKS = new ArrayList<>(DECK_POOL);
+
+  static {
+    for (int d = 0; d < DECK_POOL; d++) {
+      DECKS.add(Deck.builder().id(d + 1L).name("Deck " + d).subject(SUBJECT).user(USER).build());
+    }
+  }
+
+  private BenchmarkData() {
+    // Utility class, prevent instantiation
+  }
+
+  public static List<CardDeckRowProjection> cardDeckRows(int cards, int decksPerCard) {
+    List<CardDeckRowProjection> rows = new ArrayList<>(cards * Math.max(1, decksPerCard));
+    for (int i = 0; i < cards; i++) {
+      if (decksPerCard == 0) {
+        rows.add(cardDeckRow(i, null));
+      }
+      for (Deck deck : decksOf(i, decksPerCard)) {
+        rows.add(cardDeckRow(i, deck));
+      }
+    }
+    return rows;
+  }
+
+  public static List<CardExportRowProjection> exportRows(int cards, int decksPerCard) {
+    List<CardExportRowProjection> rows = new ArrayList<>(cards * Math.max(1, decksPerCard));
+    for (int i = 0; i < cards; i++) {
+      if (decksPerCard == 0) {
+        rows.add(exportRow(i, null));
+      }
+      for (Deck deck : decksOf(i, decksPerCard)) {
+        rows.add(exportRow(i, deck.getName()));
+      }
+    }
+    return rows;
+  }
+
+  public static List<Card> cards(int cards, int decksPerCard) {
+    List<Card> result = new ArrayList<>(cards);
+    for (int i = 0; i < cards; i++) {
+      result.add(
+          Card.builder()
+              .id(i + 1L)
+              .front(front(i))
+              .back(back(i))
+              .hintFront(i % 4 == 0 ? "hint " + i : null)
+              .subject(SUBJECT)
+              .user(USER)
+              .decks(new HashSet<>(decksOf(i, decksPerCard)))
+              .build());
+    }
+    return result;
+  }
+
+  /** Histories for the given cards; every third card has never been rated. */
+  public static List<CardHistory> histories(List<Card> cards) {
+    List<CardHistory> result = new ArrayList<>(cards.size());
+    for (int i = 0; i < cards.size(); i++) {
+      result.add(
+          i % 3 == 0
+              ? null
+              : CardHistory.builder()
+                  .card(cards.get(i))
+                  .user(USER)
+                  .avgRating(1 + (i % 40) / 10.0)
+                  .viewCount(1 + i % 25)
+                  .lastViewed(VIEWED)
+                  .lastRating(1 + i % 5)
+                  .build());
+    }
+    return result;
+  }
+
+  /** An upload file in the import format, with one invalid row in every thousand. */
+  public static byte[] uploadCsv(int cards, int decksPerCard) {
+    StringBuilder csv = new StringBuilder("front,back,hint_front,hint_back,decks\n");
+    for (int i = 0; i < cards; i++) {
+      List<String> deckNames = decksOf(i, decksPerCard).stream().map(Deck::getName).toList();
+      csv.append(i % 1000 == 999 ? "" : front(i))
+          .append(',')
+          .append('"')
+          .append(back(i))
+          .append('"')
+          .append(',')
+          .append(i % 4 == 0 ? "hint " + i : "")
+          .append(",,")
+          .append(String.join(";", deckNames))
+          .append('\n');
+    }
+    return csv.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<Deck> decksOf(int card, int decksPerCard) {
+    Set<Deck> decks = new HashSet<>();
+    for (int k = 0; k < decksPerCard; k++) {
+      decks.add(DECKS.get((card + k * 7) % DECK_POOL));
+    }
+    return List.copyOf(decks);
+  }
+
+  private static CardExportRowProjection exportRow(int card, String deck) {
+    return new CardExportRowProjectionImpl(
+        card + 1L, front(card), back(card), card % 4 == 0 ? "hint " + card : null, null, deck);
+  }
+
+  private static String front(int card) {
+    return "What is the meaning of term number " + card + "?";
+  }
+
+  private static String back(int card) {
+    return "Term " + card + " means something, with a comma and a longer explanation";
+  }
+
+  private static CardDeckRowProjection cardDeckRow(int card, Deck deck) {
+    boolean rated = card % 3 != 0;
+    return new CardDeckRow(
+        card + 1L,
+        front(card),
+        back(card),
+        card % 4 == 0 ? "hint " + card : null,
+        deck == null ? null : deck.getId(),
+        deck == null ? null : deck.getName(),
+        rated ? 1 + (card % 40) / 10.0 : null,
+        rated ? 1 + card % 25 : null,
+        rated ? VIEWED : null,
+        rated ? 1 + card % 5 : null);
+  }
+
+  // Values are fixed at construction, like the rows Hibernate hands back
+  private record CardDeckRow(
+      Long cardId,
+      String front,
+      String back,
+      String hintFront,
+      Long deckId,
+      String deckName,
+      Double avgRating,
+      Integer viewCount,
+      LocalDateTime lastViewed,
+      Integer lastRating)
+      implements CardDeckRowProjection {
+
+    @Override
+    public Long getCardId() {
+      return cardId;
+    }
+
+    @Override
+    public String getFront() {
+      return front;
+    }
+
+    @Override
+    public String getBack() {
+      return back;
+    }
+
+    @Override
+    public String getHintFront() {
+      return hintFront;
+    }
+
+    @Override
+    public String getHintBack() {
+      return null;
+    }
+
+    @Override
+    public Long getDeckId() {
+      return deckId;
+    }
+
+    @Override
+    public String getDeckName() {
+      return deckName;
+    }
+
+    @Override
+    public Double getAvgRating() {
+      return avgRating;
+    }
+
+    @Override
+    public Integer getViewCount() {
+      return viewCount;
+    }
+
+    @Override
+    public LocalDateTime getLastViewed() {
+      return lastViewed;
+    }
+
+    @Override
+    public Integer getLastRating() {
+      return lastRating;
+    }
+
+    @Override
+    public String getSubjectName() {
+      return SUBJECT.getName();
+    }
+
+    @Override
+    public Long getSubjectId() {
+      return SUBJECT_ID;
+    }
+  }
+}
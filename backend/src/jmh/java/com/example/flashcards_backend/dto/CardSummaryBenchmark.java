@@ -0,0 +1,66 @@
+package com.example.flashcards_backend.dto;
+
+import com.example.flashcards_backend.benchmark.BenchmarkData;
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.CardHistory;
+import com.example.flashcards_backend.repository.CardDeckRowProjection;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Building {@link CardSummary} from entities and rows, and writing a list of them as JSON. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardSummaryBenchmark {
+
+  @Param({"100", "1000", "10000", "200000"})
+  public int cards;
+
+  @Param({"0", "1", "5"})
+  public int decksPerCard;
+
+  private List<Card> cardEntities;
+  private List<CardHistory> histories;
+  private List<CardDeckRowProjection> rows;
+  private List<CardSummary> summaries;
+  private ObjectMapper objectMapper;
+
+  @Setup
+  public void setUp() {
+    cardEntities = BenchmarkData.cards(cards, decksPerCard);
+    histories = BenchmarkData.histories(cardEntities);
+    rows = BenchmarkData.cardDeckRows(cards, decksPerCard);
+    summaries = new ArrayList<>(cards);
+    for (int i = 0; i < cards; i++) {
+      summaries.add(CardSummary.fromEntity(cardEntities.get(i), histories.get(i)));
+    }
+    objectMapper = new ObjectMapper();
+  }
+
+  @Benchmark
+  public void fromCardAndHistory(Blackhole bh) {
+    for (int i = 0; i < cards; i++) {
+      bh.consume(CardSummary.fromEntity(cardEntities.get(i), histories.get(i)));
+    }
+  }
+
+  @Benchmark
+  public void fromRow(Blackhole bh) {
+    for (CardDeckRowProjection row : rows) {
+      bh.consume(CardSummary.fromEntity(row));
+    }
+  }
+
+  @Benchmark
+  public byte[] serializeList() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(summaries);
+  }
+}
@@ -0,0 +1,45 @@
+package com.example.flashcards_backend.service;
+
+import static com.example.flashcards_backend.benchmark.BenchmarkData.SUBJECT_ID;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.example.flashcards_backend.benchmark.BenchmarkData;
+import com.example.flashcards_backend.dto.CardSummary;
+import com.example.flashcards_backend.repository.CardRepository;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Grouping card/deck rows into {@link CardSummary} lists, as GET /cards does for a subject. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardServiceBenchmark {
+
+  @Param({"100", "1000", "10000", "200000"})
+  public int cards;
+
+  @Param({"0", "1", "5"})
+  public int decksPerCard;
+
+  private CardService cardService;
+
+  @Setup
+  public void setUp() {
+    // Stub-only mocks don't record invocations, so they add nothing per call
+    CardRepository cardRepository = mock(CardRepository.class, withSettings().stubOnly());
+    when(cardRepository.findCardDeckRowsBySubjectId(SUBJECT_ID))
+        .thenReturn(BenchmarkData.cardDeckRows(cards, decksPerCard));
+    cardService = new CardService(cardRepository, null, null, null, null, null, null);
+  }
+
+  @Benchmark
+  public List<CardSummary> mapRowsToResponses() {
+    return cardService.getAllCardResponsesFromSubject(SUBJECT_ID);
+  }
+}
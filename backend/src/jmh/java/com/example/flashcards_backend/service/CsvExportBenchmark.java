@@ -0,0 +1,55 @@
+package com.example.flashcards_backend.service;
+
+import static com.example.flashcards_backend.benchmark.BenchmarkData.SUBJECT_ID;
+import static com.example.flashcards_backend.service.CsvExportService.CardSource.SUBJECT;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.example.flashcards_backend.benchmark.BenchmarkData;
+import com.example.flashcards_backend.repository.CardExportRowProjection;
+import com.example.flashcards_backend.repository.CardRepository;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Grouping export rows per card and printing the CSV, buffered and streamed. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvExportBenchmark {
+
+  @Param({"100", "1000", "10000", "200000"})
+  public int cards;
+
+  @Param({"0", "1", "5"})
+  public int decksPerCard;
+
+  private CsvExportService csvExportService;
+
+  @Setup
+  public void setUp() {
+    List<CardExportRowProjection> rows = BenchmarkData.exportRows(cards, decksPerCard);
+    CardRepository cardRepository = mock(CardRepository.class, withSettings().stubOnly());
+    when(cardRepository.findExportRowsBySubjectId(SUBJECT_ID)).thenReturn(rows);
+    when(cardRepository.streamExportRowsBySubjectId(SUBJECT_ID)).thenAnswer(i -> rows.stream());
+    SubjectService subjectService = mock(SubjectService.class, withSettings().stubOnly());
+    when(subjectService.findById(SUBJECT_ID)).thenReturn(BenchmarkData.SUBJECT);
+    csvExportService = new CsvExportServiceImpl(cardRepository, subjectService, null);
+  }
+
+  @Benchmark
+  public byte[] exportCards() throws IOException {
+    return csvExportService.exportCards(SUBJECT, SUBJECT_ID);
+  }
+
+  @Benchmark
+  public int writeCards() throws IOException {
+    return csvExportService.writeCards(SUBJECT, SUBJECT_ID, OutputStream.nullOutputStream());
+  }
+}
@@ -0,0 +1,79 @@
+package com.example.flashcards_backend.service;
+
+import static com.example.flashcards_backend.benchmark.BenchmarkData.SUBJECT_ID;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.example.flashcards_backend.benchmark.BenchmarkData;
+import com.example.flashcards_backend.dto.CardRequest;
+import com.example.flashcards_backend.dto.CreateCardResponse;
+import com.example.flashcards_backend.dto.CsvUploadResponseDto;
+import com.example.flashcards_backend.repository.CardRepository;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Parsing, validating and de-duplicating an upload file. Persistence is stubbed out, so this
+ * measures the per-row work of {@link CsvUploadServiceImpl} only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvUploadBenchmark {
+
+  @Param({"100", "1000", "10000", "200000"})
+  public int cards;
+
+  @Param({"0", "1", "5"})
+  public int decksPerCard;
+
+  private byte[] csv;
+  private CsvUploadService csvUploadService;
+
+  @Setup
+  public void setUp() {
+    csv = BenchmarkData.uploadCsv(cards, decksPerCard);
+    CardRepository cardRepository = mock(CardRepository.class, withSettings().stubOnly());
+    when(cardRepository.findCardKeysBySubjectId(any(), any(), any())).thenReturn(List.of());
+    SubjectService subjectService = mock(SubjectService.class, withSettings().stubOnly());
+    when(subjectService.findById(SUBJECT_ID)).thenReturn(BenchmarkData.SUBJECT);
+    CardService cardService = mock(CardService.class, withSettings().stubOnly());
+    when(cardService.createCards(anyList()))
+        .thenAnswer(
+            i -> {
+              List<CardRequest> requests = i.getArgument(0);
+              return requests.stream()
+                  .map(
+                      r ->
+                          CreateCardResponse.builder()
+                              .front(r.front())
+                              .back(r.back())
+                              .decks(List.of())
+                              .alreadyExisted(false)
+                              .build())
+                  .toList();
+            });
+    EntityManager entityManager = mock(EntityManager.class, withSettings().stubOnly());
+    PlatformTransactionManager transactionManager =
+        mock(PlatformTransactionManager.class, withSettings().stubOnly());
+    csvUploadService =
+        new CsvUploadServiceImpl(
+            cardRepository, subjectService, cardService, entityManager, transactionManager);
+  }
+
+  @Benchmark
+  public CsvUploadResponseDto uploadCountsOnly() throws IOException {
+    return csvUploadService.uploadCsv(new ByteArrayInputStream(csv), SUBJECT_ID, false);
+  }
+}
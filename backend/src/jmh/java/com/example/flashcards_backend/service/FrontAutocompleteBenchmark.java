@@ -0,0 +1,56 @@
+package com.example.flashcards_backend.service;
+
+import static com.example.flashcards_backend.benchmark.BenchmarkData.SUBJECT_ID;
+import static com.example.flashcards_backend.benchmark.BenchmarkData.USER;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.example.flashcards_backend.benchmark.BenchmarkData;
+import com.example.flashcards_backend.dto.FrontSuggestion;
+import com.example.flashcards_backend.repository.CardFront;
+import com.example.flashcards_backend.repository.CardRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** One keystroke against a loaded subject: a short prefix with many matches and a long one. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrontAutocompleteBenchmark {
+
+  @Param({"1000", "10000", "200000"})
+  public int cards;
+
+  private FrontAutocompleteIndex index;
+
+  @Setup
+  public void setUp() {
+    List<CardFront> fronts =
+        BenchmarkData.cards(cards, 0).stream()
+            .map(card -> new CardFront(card.getId(), card.getFront()))
+            .toList();
+    CardRepository cardRepository = mock(CardRepository.class, withSettings().stubOnly());
+    when(cardRepository.findFrontsBySubjectId(SUBJECT_ID)).thenReturn(fronts);
+    SubjectService subjectService = mock(SubjectService.class, withSettings().stubOnly());
+    when(subjectService.findById(SUBJECT_ID)).thenReturn(BenchmarkData.SUBJECT);
+    index =
+        new FrontAutocompleteIndex(cardRepository, subjectService, 1L << 30, Duration.ofHours(1));
+    index.suggest(USER, SUBJECT_ID, "w", 1);
+  }
+
+  @Benchmark
+  public List<FrontSuggestion> shortPrefix() {
+    return index.suggest(USER, SUBJECT_ID, "What", 10);
+  }
+
+  @Benchmark
+  public List<FrontSuggestion> longPrefix() {
+    return index.suggest(USER, SUBJECT_ID, "what is the meaning of term number 99", 10);
+  }
+}
@@ -0,0 +1,31 @@
+package com.example.flashcards_backend.utility;
+
+import com.example.flashcards_backend.benchmark.BenchmarkData;
+import com.example.flashcards_backend.model.Card;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardUtilsBenchmark {
+
+  @Param({"100", "1000", "10000", "200000"})
+  public int cards;
+
+  private List<Card> cardEntities;
+
+  @Setup
+  public void setUp() {
+    cardEntities = BenchmarkData.cards(cards, 1);
+  }
+
+  @Benchmark
+  public List<Card> shuffleCards() {
+    return CardUtils.shuffleCards(cardEntities);
+  }
+}
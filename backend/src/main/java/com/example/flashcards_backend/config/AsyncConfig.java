@@ -0,0 +1,13 @@
+package com.example.flashcards_backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * {@code @Async} methods run on Boot's application task executor, which uses virtual threads when
+ * {@code spring.threads.virtual.enabled} is set.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
@@ -0,0 +1,44 @@
+package com.example.flashcards_backend.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Remembers who wrote recently so their read-only transactions stay on the primary until the
+ * replica has had time to catch up. Writers are keyed by the JWT subject, which is the
+ * authentication name and the user's Auth0 id.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWrites(
+            @Value("${app.datasource.replica.enabled:false}") boolean enabled,
+            @Value("${app.datasource.replica.sticky-for:PT5S}") Duration stickyFor) {
+        this.enabled = enabled;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(stickyFor)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void markWritten(String principal) {
+        if (enabled && principal != null) {
+            recentWriters.put(principal, Boolean.TRUE);
+        }
+    }
+
+    /** Whether the caller on this thread wrote within the sticky window. */
+    public boolean isCurrentPrincipalSticky() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && recentWriters.getIfPresent(authentication.getName()) != null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.flashcards_backend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Polls the replica's replication lag. Reads go to the replica only while the last check succeeded
+ * and the lag was within {@code maxLag}; a failed check counts as too far behind.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean healthy;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag) {
+        this.replica = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        Gauge.builder("flashcards.db.replica.lag", this, m -> m.lagSeconds)
+                .description("Replication lag of the read replica at the last check")
+                .baseUnit("seconds")
+                .register(Metrics.globalRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval:PT5S}")
+    public void refresh() {
+        boolean wasHealthy = healthy;
+        try {
+            Double lag = replica.queryForObject(lagQuery, Double.class);
+            lagSeconds = lag == null ? Double.NaN : lag;
+            healthy = lag != null && lag <= maxLagSeconds;
+        } catch (DataAccessException e) {
+            lagSeconds = Double.NaN;
+            healthy = false;
+            if (wasHealthy) {
+                log.warn("Replica lag check failed", e);
+            }
+        }
+        if (wasHealthy != healthy) {
+            log.warn("Replica {} (lag {} s), read-only transactions now use the {}",
+                    healthy ? "caught up" : "behind", lagSeconds, healthy ? "replica" : "primary");
+        }
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.flashcards_backend.config;
+
+import com.example.flashcards_backend.utility.FlashcardsMetrics;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * The read-only side of the application's data source: the replica while it is caught up, the
+ * primary when it lags or the caller has just written.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWrites readYourWrites;
+
+    public ReplicaRoutingDataSource(
+            DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor, ReadYourWrites readYourWrites) {
+        this.lagMonitor = lagMonitor;
+        this.readYourWrites = readYourWrites;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean useReplica = lagMonitor.isHealthy() && !readYourWrites.isCurrentPrincipalSticky();
+        FlashcardsMetrics.readOnlyConnectionRouted(useReplica);
+        return useReplica ? Target.REPLICA : Target.PRIMARY;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.flashcards_backend.config;
 
 import com.example.flashcards_backend.security.CustomJwtAuthenticationConverter;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -31,6 +32,9 @@ public class SecurityConfig {
                                 "/swagger-resources/**",
                                 "/webjars/**"
                         ).permitAll()
+                        // health and its liveness/readiness probes stay open; metrics need a token
+                        .requestMatchers("/livez", "/readyz").permitAll()
+                        .requestMatchers(EndpointRequest.to("health")).permitAll()
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
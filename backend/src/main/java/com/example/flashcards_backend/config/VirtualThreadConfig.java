@@ -0,0 +1,75 @@
+package com.example.flashcards_backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * With {@code spring.threads.virtual.enabled=true} Boot runs Tomcat requests, {@code @Async} and
+ * {@code @Scheduled} work on virtual threads. Far more requests can then be in flight than the pool
+ * has connections, so the application's data source is put behind a
+ * {@link ConcurrencyLimitingDataSource}.
+ *
+ * <p>Only the {@code dataSource} bean that JPA uses is wrapped. With the read replica enabled that
+ * is the routing data source, so one semaphore covers both pools; the pools themselves stay plain
+ * Hikari beans.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Bean
+    static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!DATA_SOURCE_BEAN.equals(beanName) || !(bean instanceof DataSource source)) {
+                    return bean;
+                }
+                // 0 means one permit per pooled connection, so nobody waits inside Hikari
+                int maxConcurrency = environment.getProperty("app.datasource.max-concurrency", Integer.class, 0);
+                if (maxConcurrency <= 0) {
+                    maxConcurrency = primaryPoolSize(source);
+                }
+                if (maxConcurrency <= 0) {
+                    log.warn("Not limiting {}: no Hikari pool to size the limit from", beanName);
+                    return bean;
+                }
+                Duration acquireTimeout = environment.getProperty(
+                        "app.datasource.acquire-timeout", Duration.class, Duration.ofSeconds(30));
+                ConcurrencyLimitingDataSource limited =
+                        new ConcurrencyLimitingDataSource(source, maxConcurrency, acquireTimeout);
+                Gauge.builder("flashcards.db.permits.waiting", limited, ConcurrencyLimitingDataSource::getWaiting)
+                        .description("Callers parked waiting for a database permit")
+                        .tag("pool", beanName)
+                        .register(Metrics.globalRegistry);
+                return limited;
+            }
+        };
+    }
+
+    // The routing data source unwraps to the primary pool, which bounds the write traffic
+    static int primaryPoolSize(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize()
+                    : 0;
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+}
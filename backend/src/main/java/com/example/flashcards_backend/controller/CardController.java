@@ -3,8 +3,14 @@ package com.example.flashcards_backend.controller;
 import com.example.flashcards_backend.dto.*;
 import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.service.CardHistoryService;
+import com.example.flashcards_backend.service.CardSearchService;
 import com.example.flashcards_backend.service.CardService;
 import com.example.flashcards_backend.service.CurrentUserService;
+import com.example.flashcards_backend.service.FrontAutocompleteIndex;
+import com.example.flashcards_backend.service.RatingWriteBehindService;
+import com.example.flashcards_backend.service.SubjectService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,17 +19,24 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.time.Instant;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.util.StreamUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @Tag(
@@ -40,10 +53,18 @@ public class CardController {
   private final CardService cardService;
   private final CardHistoryService cardHistoryService;
   private final CurrentUserService currentUserService;
+  private final ObjectMapper objectMapper;
+  private final ObjectProvider<RatingWriteBehindService> ratingWriteBehindService;
+  private final SubjectService subjectService;
+  private final CardSearchService cardSearchService;
+  private final FrontAutocompleteIndex frontAutocompleteIndex;
 
   @Operation(
       summary = "Get all cards",
-      description = "Returns all cards, optionally with subject ID specified.")
+      description =
+          "Returns all cards in the subject. The response carries an ETag; send it back in"
+              + " If-None-Match to get 304 Not Modified while nothing in the subject, nor the"
+              + " user's ratings of its cards, has changed.")
   @ApiResponse(
       responseCode = "200",
       description = "Successful operation",
@@ -53,15 +74,165 @@ public class CardController {
               schema = @Schema(implementation = CardSummary[].class)))
   @GetMapping
   public ResponseEntity<List<CardSummary>> getAllCardResponses(
-      @RequestParam Long subjectId, @AuthenticationPrincipal Jwt jwt) {
-    log.info("GET /cards: subjectId={}", subjectId);
+      @RequestParam Long subjectId,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @AuthenticationPrincipal Jwt jwt) {
+    log.debug("GET /cards: subjectId={}", subjectId);
     User user = currentUserService.getCurrentUser(jwt);
-    Instant start = Instant.now();
+    var version = subjectService.findContentVersion(user, subjectId);
+    if (version.isEmpty()) {
+      // Not the user's subject; let the listing report it
+      return ResponseEntity.ok(cardService.getAllCardResponsesForUserAndSubject(user, subjectId));
+    }
+    String etag =
+        ETags.forSubjectContent(
+            "cards",
+            subjectId,
+            version.get(),
+            cardHistoryService.findLastUpdatedAt(user.getId(), subjectId).orElse(null));
+    if (ETags.matches(ifNoneMatch, etag)) {
+      return ETags.notModified(etag);
+    }
     var cards = cardService.getAllCardResponsesForUserAndSubject(user, subjectId);
-    Instant end = Instant.now();
-    double duration = (end.toEpochMilli() - start.toEpochMilli()) / 1000.0;
-    log.info("GET /cards: returned {} cards in {} seconds", cards.size(), duration);
-    return ResponseEntity.ok(cards);
+    log.debug("GET /cards: returned {} cards", cards.size());
+    return ETags.ok(etag, cards);
+  }
+
+  @Operation(
+      summary = "Get a page of cards",
+      description =
+          "Returns up to `limit` cards of a subject with an id greater than `after`, ordered by id."
+              + " Pass the returned `nextCursor` as `after` to fetch the next page.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Successful operation",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = CardPageResponse.class)))
+  @GetMapping("/page")
+  public ResponseEntity<CardPageResponse> getCardPage(
+      @RequestParam Long subjectId,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+      @AuthenticationPrincipal Jwt jwt) {
+    log.debug("GET /cards/page: subjectId={}, after={}, limit={}", subjectId, after, limit);
+    User user = currentUserService.getCurrentUser(jwt);
+    return ResponseEntity.ok(
+        cardService.getCardPageForUserAndSubject(user, subjectId, after, limit));
+  }
+
+  @Operation(
+      summary = "Search cards",
+      description =
+          "Searches the front, back and hints of the subject's cards. Every word must match a word"
+              + " in the card in full or as a prefix; near misses are matched fuzzily. Results are"
+              + " ranked with front and back above hints and returned a page at a time.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Successful operation",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = CardSearchResponse.class)))
+  @ApiResponse(responseCode = "404", description = "Subject not found", content = @Content)
+  @GetMapping("/search")
+  public ResponseEntity<CardSearchResponse> search(
+      @RequestParam Long subjectId,
+      @RequestParam("q") @NotBlank String query,
+      @RequestParam(defaultValue = "0") @Min(0) @Max(1000) int page,
+      @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+      @AuthenticationPrincipal Jwt jwt) {
+    log.debug("GET /cards/search: subjectId={}, page={}, size={}", subjectId, page, size);
+    User user = currentUserService.getCurrentUser(jwt);
+    return ResponseEntity.ok(cardSearchService.search(user, subjectId, query, page, size));
+  }
+
+  @Operation(
+      summary = "Autocomplete card fronts",
+      description =
+          "Returns up to `limit` cards in the subject whose front starts with `prefix`, ignoring"
+              + " case, so the client can flag a duplicate while the user types. Served from"
+              + " memory.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Successful operation",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = FrontSuggestion[].class)))
+  @ApiResponse(responseCode = "404", description = "Subject not found", content = @Content)
+  @GetMapping("/autocomplete")
+  public ResponseEntity<List<FrontSuggestion>> autocomplete(
+      @RequestParam Long subjectId,
+      @RequestParam @NotBlank String prefix,
+      @RequestParam(defaultValue = "10") @Min(1) @Max(50) int limit,
+      @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    return ResponseEntity.ok(frontAutocompleteIndex.suggest(user, subjectId, prefix, limit));
+  }
+
+  @Operation(
+      summary = "Stream all cards",
+      description =
+          "Streams all cards of a subject as a JSON array, writing each card as it is read.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Successful operation",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = CardSummary[].class)))
+  @GetMapping("/stream")
+  public ResponseEntity<StreamingResponseBody> streamCards(
+      @RequestParam Long subjectId, @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    // The only ownership check: it runs before the response is committed, so errors still map
+    // to a status code
+    cardService.checkUserOwnsSubject(user, subjectId);
+    StreamingResponseBody body =
+        out -> {
+          try (JsonGenerator generator =
+              objectMapper.getFactory().createGenerator(StreamUtils.nonClosing(out))) {
+            generator.writeStartArray();
+            int count =
+                cardService.streamCardResponsesFromSubject(
+                    subjectId,
+                    card -> {
+                      try {
+                        generator.writeObject(card);
+                      } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                      }
+                    });
+            generator.writeEndArray();
+            log.debug("GET /cards/stream: streamed {} cards for subject {}", count, subjectId);
+          }
+        };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
+  @Operation(
+      summary = "Get due cards",
+      description =
+          "Returns up to `limit` cards of a subject that are due for review, most overdue first."
+              + " Unless `includeNew` is false, the remainder is filled with cards never rated.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Successful operation",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = CardSummary[].class)))
+  @GetMapping("/due")
+  public ResponseEntity<List<CardSummary>> getDueCards(
+      @RequestParam Long subjectId,
+      @RequestParam(defaultValue = "20") @Min(1) @Max(500) int limit,
+      @RequestParam(defaultValue = "true") boolean includeNew,
+      @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    return ResponseEntity.ok(
+        cardService.getDueCardsForUserAndSubject(user, subjectId, limit, includeNew));
   }
 
   @Operation(summary = "Get card by ID", description = "Returns a card by its ID.")
@@ -138,7 +309,11 @@ public class CardController {
     return ResponseEntity.ok(response);
   }
 
-  @Operation(summary = "Rate card", description = "Rates a card by its ID.")
+  @Operation(
+      summary = "Rate card",
+      description =
+          "Rates a card by its ID. When write-behind rating is enabled the rating is queued and"
+              + " 202 is returned without a body.")
   @ApiResponse(
       responseCode = "204",
       description = "Card rated",
@@ -146,6 +321,14 @@ public class CardController {
           @Content(
               mediaType = "application/json",
               schema = @Schema(implementation = RateCardResponse.class)))
+  @ApiResponse(
+      responseCode = "202",
+      description = "Rating queued",
+      content = @Content(mediaType = "application/json"))
+  @ApiResponse(
+      responseCode = "503",
+      description = "Rating queue full, retry later",
+      content = @Content(mediaType = "application/json"))
   @ApiResponse(
       responseCode = "404",
       description = "Card not found",
@@ -160,6 +343,13 @@ public class CardController {
       @RequestParam @Min(1) @Max(5) int rating,
       @AuthenticationPrincipal Jwt jwt) {
     User currentUser = currentUserService.getCurrentUser(jwt);
+    RatingWriteBehindService writeBehind = ratingWriteBehindService.getIfAvailable();
+    if (writeBehind != null) {
+      // The write happens later, so bad ids must be refused now rather than dropped in the flush
+      cardService.checkUserOwnsCard(currentUser, id);
+      writeBehind.enqueue(currentUser.getId(), id, rating);
+      return ResponseEntity.accepted().build();
+    }
     RateCardResponse rateCardResponse = cardHistoryService.recordRatingForUser(id, rating, currentUser);
     return ResponseEntity.ok(rateCardResponse);
   }
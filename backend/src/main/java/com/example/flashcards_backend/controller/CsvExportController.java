@@ -19,6 +19,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 
@@ -55,8 +56,46 @@ public class CsvExportController {
       return createCsvResponse(CardSource.DECK, deckId, bytes);
     }
 
-    /* HELPER METHOD */
+    @Operation(
+        summary = "Streams all cards from a subject",
+        description = "Writes the CSV as rows are read, in constant memory. Gzip-compressed when the client accepts it.")
+    @ApiResponse(responseCode = "404", description = "Subject not found")
+    @GetMapping(path = "/subject/{subjectId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamSubjectCsv(@PathVariable Long subjectId, @AuthenticationPrincipal Jwt jwt) {
+        currentUserService.getCurrentUser(jwt);
+      return createCsvStreamResponse(CardSource.SUBJECT, subjectId);
+    }
+
+    @Operation(
+        summary = "Streams all cards from a deck",
+        description = "Writes the CSV as rows are read, in constant memory. Gzip-compressed when the client accepts it.")
+    @ApiResponse(responseCode = "404", description = "Deck not found")
+    @GetMapping(path = "/deck/{deckId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamDeckCsv(@PathVariable Long deckId, @AuthenticationPrincipal Jwt jwt) {
+        currentUserService.getCurrentUser(jwt);
+      return createCsvStreamResponse(CardSource.DECK, deckId);
+    }
+
+    /* HELPER METHODS */
   private ResponseEntity<byte[]> createCsvResponse(CardSource source, Long id, byte[] csv) {
+    return ResponseEntity.ok()
+        .headers(createCsvHeaders(source, id))
+        .body(csv);
+  }
+
+  private ResponseEntity<StreamingResponseBody> createCsvStreamResponse(CardSource source, Long id) {
+    // Resolving the source name first means a missing subject or deck is still a 404
+    HttpHeaders headers = createCsvHeaders(source, id);
+    StreamingResponseBody body = out -> {
+      int written = csvExportService.writeCards(source, id, out);
+      log.info("Streamed {} cards for {} {}", written, source.name().toLowerCase(), id);
+    };
+    return ResponseEntity.ok()
+        .headers(headers)
+        .body(body);
+  }
+
+  private HttpHeaders createCsvHeaders(CardSource source, Long id) {
     String sourceName = switch (source) {
       case SUBJECT -> subjectService.findDtoById(id).name();
       case DECK -> deckService.getDeckById(id).getName();
@@ -65,8 +104,6 @@ public class CsvExportController {
     HttpHeaders headers = new HttpHeaders();
     headers.setContentType(MediaType.parseMediaType("text/csv"));
     headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
-    return ResponseEntity.ok()
-        .headers(headers)
-        .body(csv);
+    return headers;
   }
 }
@@ -76,6 +76,16 @@ public class CsvUploadController {
           @RequestParam
           MultipartFile file,
       @PathVariable("subjectId") Long subjectId,
+      @Parameter(description = "Echo saved and duplicate cards back; counts are always returned")
+          @RequestParam(defaultValue = "true")
+          boolean includeCards,
+      @Parameter(
+              description =
+                  "Report rows that are nearly the same as an existing card or an earlier row,"
+                      + " such as ones differing only in case or punctuation, instead of saving"
+                      + " them")
+          @RequestParam(defaultValue = "false")
+          boolean detectNearDuplicates,
       @AuthenticationPrincipal Jwt jwt) {
     currentUserService.getCurrentUser(jwt);
     log.info("CSV upload for subject {}", subjectId);
@@ -85,7 +95,8 @@ public class CsvUploadController {
     }
 
     try (InputStream is = file.getInputStream()) {
-      CsvUploadResponseDto response = csvUploadService.uploadCsv(is, subjectId);
+      CsvUploadResponseDto response =
+          csvUploadService.uploadCsv(is, subjectId, includeCards, detectNearDuplicates);
       return ResponseEntity.ok(response);
     } catch (InvalidCsvFormatException e) {
       log.error("CSV upload failed: invalid format", e);
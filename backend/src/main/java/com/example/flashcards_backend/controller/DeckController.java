@@ -2,12 +2,17 @@ package com.example.flashcards_backend.controller;
 
 import com.example.flashcards_backend.annotations.DeckName;
 import com.example.flashcards_backend.dto.CreateDeckRequest;
+import com.example.flashcards_backend.dto.DeckDeletionStatus;
+import com.example.flashcards_backend.dto.DeckMembershipResponse;
 import com.example.flashcards_backend.dto.DeckSummary;
 import com.example.flashcards_backend.dto.UpdateDeckNameRequest;
 import com.example.flashcards_backend.model.Deck;
+import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.service.CardDeckService;
 import com.example.flashcards_backend.service.CurrentUserService;
+import com.example.flashcards_backend.service.DeckDeletionService;
 import com.example.flashcards_backend.service.DeckService;
+import com.example.flashcards_backend.service.SubjectService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,9 +20,11 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.net.URI;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -38,8 +45,13 @@ public class DeckController {
   private final DeckService deckService;
   private final CardDeckService cardDeckService;
   private final CurrentUserService currentUserService;
+  private final SubjectService subjectService;
+  private final DeckDeletionService deckDeletionService;
 
-  @Operation(summary = "Get all decks", description = "Returns all decks.")
+  @Operation(
+      summary = "Get all decks",
+      description =
+          "Returns all decks in the subject, with an ETag for conditional requests (If-None-Match).")
   @ApiResponse(
       responseCode = "200",
       description = "Successful operation",
@@ -49,10 +61,20 @@ public class DeckController {
               schema = @Schema(implementation = DeckSummary.class)))
   @GetMapping
   public ResponseEntity<Set<DeckSummary>> getAllForSubject(
-      @RequestParam Long subjectId, @AuthenticationPrincipal Jwt jwt) {
-    currentUserService.getCurrentUser(jwt);
+      @RequestParam Long subjectId,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    var version = subjectService.findContentVersion(user, subjectId);
+    if (version.isEmpty()) {
+      return ResponseEntity.ok(deckService.getDeckSummariesBySubjectId(subjectId));
+    }
+    String etag = ETags.forSubjectContent("decks", subjectId, version.get());
+    if (ETags.matches(ifNoneMatch, etag)) {
+      return ETags.notModified(etag);
+    }
     Set<DeckSummary> responses = deckService.getDeckSummariesBySubjectId(subjectId);
-    return ResponseEntity.ok(responses);
+    return ETags.ok(etag, responses);
   }
 
   @Operation(summary = "Get deck by ID", description = "Returns a deck by its ID.")
@@ -140,6 +162,54 @@ public class DeckController {
     return ResponseEntity.noContent().build();
   }
 
+  @Operation(
+      summary = "Delete deck in the background",
+      description =
+          "Starts deleting a deck with very many cards, unlinking them in batches. Poll the"
+              + " returned Location for progress.")
+  @ApiResponse(
+      responseCode = "202",
+      description = "Deletion started",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = DeckDeletionStatus.class)))
+  @ApiResponse(
+      responseCode = "404",
+      description = "Deck not found",
+      content = @Content(mediaType = "application/json"))
+  @PostMapping("/{id}/deletions")
+  public ResponseEntity<DeckDeletionStatus> startDeckDeletion(
+      @PathVariable Long id, @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    DeckDeletionStatus status = deckDeletionService.start(user, id);
+    deckDeletionService.run(status);
+    return ResponseEntity.accepted()
+        .location(URI.create(REQUEST_MAPPING + "deletions/" + status.id()))
+        .body(status);
+  }
+
+  @Operation(
+      summary = "Get deck deletion progress",
+      description = "Returns the progress of a background deck deletion.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Successful operation",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = DeckDeletionStatus.class)))
+  @ApiResponse(
+      responseCode = "404",
+      description = "Deletion not found or expired",
+      content = @Content(mediaType = "application/json"))
+  @GetMapping("/deletions/{deletionId}")
+  public ResponseEntity<DeckDeletionStatus> getDeckDeletion(
+      @PathVariable UUID deletionId, @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    return ResponseEntity.ok(deckDeletionService.get(user, deletionId));
+  }
+
   @Operation(
       summary = "Get or create decks by names",
       description = "Returns or creates decks by their names by subject ID.")
@@ -163,29 +233,43 @@ public class DeckController {
 
   @Operation(
       summary = "Add cards to a deck",
-      description = "Adds cards to a deck by their ID. Subject must match.")
-  @ApiResponse(responseCode = "204", description = "Cards added")
+      description =
+          "Adds cards to a deck by their ID. Subject must match. Returns how many cards were added"
+              + " and how many were ignored because they were already in the deck or do not exist.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Cards added",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = DeckMembershipResponse.class)))
   @ApiResponse(responseCode = "400", description = "Invalid request")
   @ApiResponse(responseCode = "404", description = "Deck not found")
   @PatchMapping("/{id}/add-cards")
-  public ResponseEntity<Void> addCardsToDeck(
+  public ResponseEntity<DeckMembershipResponse> addCardsToDeck(
       @PathVariable Long id, @RequestBody Set<Long> cardIds, @AuthenticationPrincipal Jwt jwt) {
     currentUserService.getCurrentUser(jwt);
-    cardDeckService.addDeckToCards(id, cardIds);
-    return ResponseEntity.noContent().build();
+    return ResponseEntity.ok(cardDeckService.addDeckToCards(id, cardIds));
   }
 
   @Operation(
       summary = "Remove cards from a deck",
-      description = "Removes cards from a deck by their ID.")
-  @ApiResponse(responseCode = "204", description = "Cards removed")
+      description =
+          "Removes cards from a deck by their ID. Returns how many cards were removed and how many"
+              + " were ignored because they were not in the deck.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Cards removed",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = DeckMembershipResponse.class)))
   @ApiResponse(responseCode = "400", description = "Invalid request")
   @ApiResponse(responseCode = "404", description = "Deck not found")
   @PatchMapping("/{id}/remove-cards")
-  public ResponseEntity<Void> removeCardsFromDeck(
+  public ResponseEntity<DeckMembershipResponse> removeCardsFromDeck(
       @PathVariable Long id, @RequestBody Set<Long> cardIds, @AuthenticationPrincipal Jwt jwt) {
     currentUserService.getCurrentUser(jwt);
-    cardDeckService.removeDeckFromCards(id, cardIds);
-    return ResponseEntity.noContent().build();
+    return ResponseEntity.ok(cardDeckService.removeDeckFromCards(id, cardIds));
   }
 }
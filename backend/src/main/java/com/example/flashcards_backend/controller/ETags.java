@@ -0,0 +1,78 @@
+package com.example.flashcards_backend.controller;
+
+import com.example.flashcards_backend.repository.SubjectVersion;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+/**
+ * ETags for listings derived from subject content versions, so a conditional GET can be answered
+ * before the listing is loaded. They are weak: the body is semantically the same JSON for a given
+ * tag, and Tomcat refuses to gzip responses that carry a strong one.
+ */
+final class ETags {
+
+  // Clients may keep the listing but must revalidate it on every use
+  private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+  private ETags() {
+    // Utility class, prevent instantiation
+  }
+
+  static String forSubjectContent(String listing, Long subjectId, long contentVersion) {
+    return weak(listing + "-" + subjectId + "-" + contentVersion);
+  }
+
+  /**
+   * For listings that also carry the user's card history. Ratings do not bump the subject's
+   * version, so the latest history change is part of the tag.
+   */
+  static String forSubjectContent(
+      String listing, Long subjectId, long contentVersion, LocalDateTime historyUpdatedAt) {
+    String history = historyUpdatedAt == null ? "none" : historyUpdatedAt.toString();
+    return weak(listing + "-" + subjectId + "-" + contentVersion + "-" + history);
+  }
+
+  static String forSubjects(List<SubjectVersion> versions) {
+    StringBuilder key = new StringBuilder();
+    versions.forEach(v -> key.append(v.id()).append(':').append(v.contentVersion()).append(';'));
+    return weak(
+        "subjects-" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /** Whether an {@code If-None-Match} header already names {@code etag}. */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    // Weak comparison, as RFC 9110 prescribes for If-None-Match
+    String opaque = opaque(etag);
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = opaque(candidate.trim());
+      if (tag.equals("*") || tag.equals(opaque)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static <T> ResponseEntity<T> notModified(String etag) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+  }
+
+  static <T> ResponseEntity<T> ok(String etag, T body) {
+    return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(body);
+  }
+
+  private static String weak(String value) {
+    return "W/\"" + value + "\"";
+  }
+
+  private static String opaque(String tag) {
+    return tag.startsWith("W/") ? tag.substring(2) : tag;
+  }
+}
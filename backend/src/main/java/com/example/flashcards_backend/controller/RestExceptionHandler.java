@@ -1,13 +1,17 @@
 package com.example.flashcards_backend.controller;
 
 import com.example.flashcards_backend.exception.CardNotFoundException;
+import com.example.flashcards_backend.exception.DeckDeletionNotFoundException;
 import com.example.flashcards_backend.exception.DeckNotFoundException;
 import com.example.flashcards_backend.exception.DuplicateDeckNameException;
+import com.example.flashcards_backend.exception.RatingQueueFullException;
+import com.example.flashcards_backend.exception.StudySessionNotFoundException;
 import com.example.flashcards_backend.exception.SubjectNotFoundException;
 import jakarta.validation.ConstraintViolationException;
 import java.util.Map;
 import liquibase.exception.DatabaseException;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -42,6 +46,22 @@ public class RestExceptionHandler {
         .body(Map.of(ERROR, ex.getMessage()));
   }
 
+  @ExceptionHandler(StudySessionNotFoundException.class)
+  public ResponseEntity<Map<String, String>> handleStudySessionNotFound(
+      StudySessionNotFoundException ex) {
+    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(Map.of(ERROR, ex.getMessage()));
+  }
+
+  @ExceptionHandler(DeckDeletionNotFoundException.class)
+  public ResponseEntity<Map<String, String>> handleDeckDeletionNotFound(
+      DeckDeletionNotFoundException ex) {
+    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(Map.of(ERROR, ex.getMessage()));
+  }
+
   @ExceptionHandler(DatabaseException.class)
   public ResponseEntity<Map<String, String>> handleDatabaseException(DatabaseException ex) {
     return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -72,6 +92,15 @@ public class RestExceptionHandler {
         .body(Map.of(ERROR, ex.getMessage()));
   }
 
+  @ExceptionHandler(RatingQueueFullException.class)
+  public ResponseEntity<Map<String, String>> handleRatingQueueFullException(
+      RatingQueueFullException ex) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(Map.of(ERROR, ex.getMessage()));
+  }
+
   @ExceptionHandler(ConstraintViolationException.class)
   public ResponseEntity<Map<String, String>> handleConstraintViolationException(
       ConstraintViolationException ex) {
@@ -0,0 +1,143 @@
+package com.example.flashcards_backend.controller;
+
+import com.example.flashcards_backend.dto.StudyCardResponse;
+import com.example.flashcards_backend.dto.StudySessionRequest;
+import com.example.flashcards_backend.dto.StudySessionResponse;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.service.CurrentUserService;
+import com.example.flashcards_backend.service.StudySessionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import java.net.URI;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(
+    name = "Study Session Controller",
+    description =
+        "Endpoints for studying a subject card by card from a queue held on the server.")
+@RestController
+@RequestMapping("/study-sessions")
+@Validated
+@RequiredArgsConstructor
+public class StudySessionController {
+
+  public static final String REQUEST_MAPPING = "/study-sessions/";
+  private final StudySessionService studySessionService;
+  private final CurrentUserService currentUserService;
+
+  @Operation(
+      summary = "Start a study session",
+      description =
+          "Builds the card queue for a subject once, honouring its card order and default side,"
+              + " optionally limited to the given decks.")
+  @ApiResponse(
+      responseCode = "201",
+      description = "Session started",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = StudySessionResponse.class)))
+  @PostMapping
+  public ResponseEntity<StudySessionResponse> start(
+      @Valid @RequestBody StudySessionRequest request, @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    StudySessionResponse response = studySessionService.start(user, request);
+    return ResponseEntity.created(URI.create(REQUEST_MAPPING + response.sessionId()))
+        .body(response);
+  }
+
+  @Operation(summary = "Get study session", description = "Returns the session's progress.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Successful operation",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = StudySessionResponse.class)))
+  @ApiResponse(
+      responseCode = "404",
+      description = "Session not found or expired",
+      content = @Content(mediaType = "application/json"))
+  @GetMapping("/{id}")
+  public ResponseEntity<StudySessionResponse> get(
+      @PathVariable UUID id, @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    return ResponseEntity.ok(studySessionService.get(user, id));
+  }
+
+  @Operation(
+      summary = "Get next card",
+      description = "Returns the card at the head of the queue, or 204 once the session is done.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Successful operation",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = StudyCardResponse.class)))
+  @ApiResponse(responseCode = "204", description = "No cards left")
+  @ApiResponse(
+      responseCode = "404",
+      description = "Session not found or expired",
+      content = @Content(mediaType = "application/json"))
+  @GetMapping("/{id}/next")
+  public ResponseEntity<StudyCardResponse> next(
+      @PathVariable UUID id, @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    return toResponse(studySessionService.next(user, id));
+  }
+
+  @Operation(
+      summary = "Rate and advance",
+      description =
+          "Rates the card at the head of the queue and returns the next one, or 204 once the"
+              + " session is done. Pass cardId to make retries safe: the rating is only recorded"
+              + " while that card is still at the head.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Card rated",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = StudyCardResponse.class)))
+  @ApiResponse(responseCode = "204", description = "Card rated, no cards left")
+  @ApiResponse(
+      responseCode = "404",
+      description = "Session not found or expired",
+      content = @Content(mediaType = "application/json"))
+  @PostMapping("/{id}/rate")
+  public ResponseEntity<StudyCardResponse> rate(
+      @PathVariable UUID id,
+      @RequestParam @Min(1) @Max(5) int rating,
+      @RequestParam(required = false) Long cardId,
+      @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    return toResponse(studySessionService.rateAndAdvance(user, id, rating, cardId));
+  }
+
+  @Operation(summary = "End study session", description = "Discards the session's queue.")
+  @ApiResponse(responseCode = "204", description = "Session ended")
+  @DeleteMapping("/{id}")
+  public ResponseEntity<Void> end(@PathVariable UUID id, @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    studySessionService.end(user, id);
+    return ResponseEntity.noContent().build();
+  }
+
+  private static ResponseEntity<StudyCardResponse> toResponse(Optional<StudyCardResponse> card) {
+    return card.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.noContent().build());
+  }
+}
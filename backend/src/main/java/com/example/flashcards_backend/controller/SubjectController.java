@@ -14,6 +14,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import java.net.URI;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -32,7 +33,10 @@ public class SubjectController {
   private final SubjectService subjectService;
   private final CurrentUserService currentUserService;
 
-  @Operation(summary = "Get all subjects", description = "Returns all subjects for a user.")
+  @Operation(
+      summary = "Get all subjects",
+      description =
+          "Returns all subjects for a user, with an ETag for conditional requests (If-None-Match).")
   @ApiResponse(
       responseCode = "200",
       description = "Successful operation",
@@ -41,9 +45,15 @@ public class SubjectController {
               mediaType = "application/json",
               schema = @Schema(implementation = SubjectDto.class)))
   @GetMapping
-  public ResponseEntity<List<SubjectDto>> getAllForUser(@AuthenticationPrincipal Jwt jwt) {
+  public ResponseEntity<List<SubjectDto>> getAllForUser(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @AuthenticationPrincipal Jwt jwt) {
     User currentUser = currentUserService.getCurrentUser(jwt);
-    return ResponseEntity.ok(subjectService.findForUser(currentUser));
+    String etag = ETags.forSubjects(subjectService.findVersions(currentUser));
+    if (ETags.matches(ifNoneMatch, etag)) {
+      return ETags.notModified(etag);
+    }
+    return ETags.ok(etag, subjectService.findForUser(currentUser));
   }
 
   @Operation(summary = "Get subject by ID", description = "Returns a subject by its ID.")
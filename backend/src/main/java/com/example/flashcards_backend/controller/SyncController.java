@@ -0,0 +1,53 @@
+package com.example.flashcards_backend.controller;
+
+import com.example.flashcards_backend.dto.SyncResponse;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.service.CurrentUserService;
+import com.example.flashcards_backend.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Sync Controller", description = "Delta sync for offline-capable clients.")
+@RestController
+@RequestMapping("/sync")
+@RequiredArgsConstructor
+public class SyncController {
+
+  private final SyncService syncService;
+  private final CurrentUserService currentUserService;
+
+  @Operation(
+      summary = "Get changes since a sync token",
+      description =
+          "Returns the cards, decks and the user's card history in the subject that changed since"
+              + " `since`, plus the ids of deleted cards and decks and a new token. Without `since`,"
+              + " or with an expired token, returns the whole subject with `reset` set.")
+  @ApiResponse(
+      responseCode = "200",
+      description = "Successful operation",
+      content =
+          @Content(
+              mediaType = "application/json",
+              schema = @Schema(implementation = SyncResponse.class)))
+  @ApiResponse(responseCode = "400", description = "Invalid sync token", content = @Content)
+  @ApiResponse(responseCode = "404", description = "Subject not found", content = @Content)
+  @GetMapping
+  public ResponseEntity<SyncResponse> sync(
+      @RequestParam Long subjectId,
+      @RequestParam(required = false) String since,
+      @AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    return ResponseEntity.ok(syncService.changesSince(user, subjectId, since));
+  }
+}
@@ -1,6 +1,8 @@
 package com.example.flashcards_backend.controller;
 
 import com.example.flashcards_backend.dto.UserDto;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.service.CurrentUserService;
 import com.example.flashcards_backend.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,6 +13,8 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
 @Tag(
@@ -22,6 +26,7 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
   private final UserService userService;
+  private final CurrentUserService currentUserService;
 
   @Operation(summary = "Get all users", description = "Returns all users as DTOs.")
   @ApiResponses(
@@ -38,4 +43,17 @@ public class UserController {
   public ResponseEntity<List<UserDto>> getAll() {
     return ResponseEntity.ok(userService.findAll());
   }
+
+  @Operation(
+      summary = "Deactivate own account",
+      description =
+          "Deactivates the caller's account. Later requests with the same identity are refused"
+              + " with 403.")
+  @ApiResponse(responseCode = "204", description = "Account deactivated", content = @Content)
+  @PostMapping("/me/deactivate")
+  public ResponseEntity<Void> deactivateSelf(@AuthenticationPrincipal Jwt jwt) {
+    User user = currentUserService.getCurrentUser(jwt);
+    userService.deactivate(user.getId());
+    return ResponseEntity.noContent().build();
+  }
 }
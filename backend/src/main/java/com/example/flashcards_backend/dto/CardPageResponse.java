@@ -0,0 +1,6 @@
+package com.example.flashcards_backend.dto;
+
+import java.util.List;
+
+/** A keyset page of cards. {@code nextCursor} is null once the last page has been returned. */
+public record CardPageResponse(List<CardSummary> cards, Long nextCursor) {}
@@ -0,0 +1,6 @@
+package com.example.flashcards_backend.dto;
+
+import java.util.List;
+
+/** One page of search results, best match first. */
+public record CardSearchResponse(List<CardSummary> cards, int page, boolean hasMore) {}
@@ -4,5 +4,17 @@ import lombok.Builder;
 
 import java.util.List;
 
+/**
+ * Result of a CSV import. The counts are always populated; {@code saved}, {@code duplicates} and
+ * {@code nearDuplicates} are left empty when the caller asked not to echo individual cards back.
+ * Near duplicates are only looked for when the caller asked for it.
+ */
 @Builder
-public record CsvUploadResponseDto(List<CardSummary> saved, List<CardSummary> duplicates) {}
\ No newline at end of file
+public record CsvUploadResponseDto(
+    List<CardSummary> saved,
+    List<CardSummary> duplicates,
+    int savedCount,
+    List<NearDuplicate> nearDuplicates,
+    int duplicateCount,
+    int nearDuplicateCount,
+    int invalidCount) {}
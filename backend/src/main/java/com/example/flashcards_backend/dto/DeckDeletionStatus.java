@@ -0,0 +1,30 @@
+package com.example.flashcards_backend.dto;
+
+import java.util.UUID;
+
+/** Progress of a background deck deletion. {@code error} is only set once it has failed. */
+public record DeckDeletionStatus(
+    UUID id, Long deckId, State state, long cardsTotal, long cardsUnlinked, String error) {
+
+  public enum State {
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+
+  public static DeckDeletionStatus started(Long deckId, long cardsTotal) {
+    return new DeckDeletionStatus(UUID.randomUUID(), deckId, State.RUNNING, cardsTotal, 0, null);
+  }
+
+  public DeckDeletionStatus unlinked(long cards) {
+    return new DeckDeletionStatus(id, deckId, state, cardsTotal, cards, null);
+  }
+
+  public DeckDeletionStatus completed() {
+    return new DeckDeletionStatus(id, deckId, State.COMPLETED, cardsTotal, cardsUnlinked, null);
+  }
+
+  public DeckDeletionStatus failed(String error) {
+    return new DeckDeletionStatus(id, deckId, State.FAILED, cardsTotal, cardsUnlinked, error);
+  }
+}
@@ -0,0 +1,12 @@
+package com.example.flashcards_backend.dto;
+
+/**
+ * Outcome of adding cards to or removing them from a deck. {@code ignored} counts ids that needed
+ * no change: cards already in (or not in) the deck and ids matching no card.
+ */
+public record DeckMembershipResponse(int affected, int ignored) {
+
+  public static DeckMembershipResponse of(int affected, int requested) {
+    return new DeckMembershipResponse(affected, requested - affected);
+  }
+}
@@ -0,0 +1,3 @@
+package com.example.flashcards_backend.dto;
+
+public record FrontSuggestion(Long cardId, String front) {}
@@ -0,0 +1,8 @@
+package com.example.flashcards_backend.dto;
+
+/**
+ * An imported row that was not saved because it is nearly the same as {@code similarTo}, either a
+ * card already in the subject or an earlier row of the same file. {@code similarTo.id} is null in
+ * the latter case.
+ */
+public record NearDuplicate(CardSummary card, CardSummary similarTo, double similarity) {}
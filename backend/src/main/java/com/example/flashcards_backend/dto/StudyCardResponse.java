@@ -0,0 +1,13 @@
+package com.example.flashcards_backend.dto;
+
+import com.example.flashcards_backend.model.Subject;
+
+/** The card at the head of a study session; {@code side} is the side to show first. */
+public record StudyCardResponse(
+    Long cardId,
+    String front,
+    String back,
+    String hintFront,
+    String hintBack,
+    Subject.Side side,
+    int remaining) {}
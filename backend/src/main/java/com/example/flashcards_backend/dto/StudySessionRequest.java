@@ -0,0 +1,10 @@
+package com.example.flashcards_backend.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.util.Set;
+
+/** Starts a study session over a subject, optionally limited to cards in any of {@code deckIds}. */
+public record StudySessionRequest(
+    @NotNull Long subjectId, Set<Long> deckIds, @Min(1) @Max(5000) Integer limit) {}
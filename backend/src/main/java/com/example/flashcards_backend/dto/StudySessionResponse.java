@@ -0,0 +1,5 @@
+package com.example.flashcards_backend.dto;
+
+import java.util.UUID;
+
+public record StudySessionResponse(UUID sessionId, Long subjectId, int totalCards, int remaining) {}
@@ -0,0 +1,56 @@
+package com.example.flashcards_backend.dto;
+
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.CardHistory;
+import com.example.flashcards_backend.model.Deck;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Changes to a subject since a sync token. Pass {@code token} as {@code since} on the next sync.
+ * When {@code reset} is true the client must discard its local copy of the subject and keep only
+ * what this response contains. History for a deleted card goes with the card.
+ */
+public record SyncResponse(
+    String token,
+    boolean reset,
+    List<CardChange> cards,
+    List<DeckSummary> decks,
+    List<HistoryChange> history,
+    List<Long> deletedCardIds,
+    List<Long> deletedDeckIds) {
+
+  /** A card as it is now, with the full set of decks it belongs to. */
+  public record CardChange(
+      Long id, String front, String back, String hintFront, String hintBack, Set<Long> deckIds) {
+    public static CardChange fromEntity(Card card) {
+      return new CardChange(
+          card.getId(),
+          card.getFront(),
+          card.getBack(),
+          card.getHintFront(),
+          card.getHintBack(),
+          card.getDecks().stream().map(Deck::getId).collect(Collectors.toSet()));
+    }
+  }
+
+  /** The current user's history for one card. */
+  public record HistoryChange(
+      Long cardId,
+      Double avgRating,
+      Integer viewCount,
+      String lastViewed,
+      Integer lastRating,
+      String dueAt) {
+    public static HistoryChange fromEntity(CardHistory ch) {
+      return new HistoryChange(
+          ch.getCard().getId(),
+          ch.getAvgRating(),
+          ch.getViewCount(),
+          ch.getLastViewed() != null ? ch.getLastViewed().toString() : null,
+          ch.getLastRating(),
+          ch.getDueAt() != null ? ch.getDueAt().toString() : null);
+    }
+  }
+}
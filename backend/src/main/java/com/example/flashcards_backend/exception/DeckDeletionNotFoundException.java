@@ -0,0 +1,9 @@
+package com.example.flashcards_backend.exception;
+
+import java.util.UUID;
+
+public class DeckDeletionNotFoundException extends RuntimeException {
+  public DeckDeletionNotFoundException(UUID id) {
+    super("Deck deletion not found with id: " + id);
+  }
+}
@@ -0,0 +1,7 @@
+package com.example.flashcards_backend.exception;
+
+public class RatingQueueFullException extends RuntimeException {
+  public RatingQueueFullException() {
+    super("Too many ratings waiting to be saved, please retry shortly");
+  }
+}
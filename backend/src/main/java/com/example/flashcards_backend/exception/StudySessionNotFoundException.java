@@ -0,0 +1,9 @@
+package com.example.flashcards_backend.exception;
+
+import java.util.UUID;
+
+public class StudySessionNotFoundException extends RuntimeException {
+  public StudySessionNotFoundException(UUID id) {
+    super("Study session not found with id: " + id);
+  }
+}
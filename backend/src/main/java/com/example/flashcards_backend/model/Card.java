@@ -3,11 +3,13 @@ package com.example.flashcards_backend.model;
 import com.example.flashcards_backend.annotations.CardContent;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.proxy.HibernateProxy;
 import org.hibernate.validator.constraints.Length;
 
@@ -18,10 +20,15 @@ import org.hibernate.validator.constraints.Length;
 @RequiredArgsConstructor
 @AllArgsConstructor
 @Builder(toBuilder = true)
-@Table(name = "card", uniqueConstraints = @UniqueConstraint(columnNames = {"front", "back"}))
+@Table(
+        name = "card",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"front", "back"}),
+        indexes = @Index(name = "idx_card_subject_updated_at", columnList = "subject_id, updated_at"))
 public class Card {
+    // Pooled sequence ids let Hibernate batch inserts; IDENTITY forces one INSERT per card
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_seq")
+    @SequenceGenerator(name = "card_seq", sequenceName = "card_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -57,19 +64,35 @@ public class Card {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Deck membership lives in card_deck, so changing it touches the card for delta sync
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
     public void addDeck(Deck deck) {
         if (!deck.getSubject().equals(this.subject)) {
             throw new IllegalArgumentException("Deck and Card must belong to the same Subject");
         }
-        decks.add(deck);
+        if (decks.add(deck)) {
+            touch();
+        }
     }
 
     public void removeDeck(Deck deck) {
-        decks.remove(deck);
+        if (decks.remove(deck)) {
+            touch();
+        }
     }
 
     public void removeAllDecks() {
-        decks.clear();
+        if (!decks.isEmpty()) {
+            decks.clear();
+            touch();
+        }
+    }
+
+    private void touch() {
+        updatedAt = LocalDateTime.now();
     }
 
     public void addDecks(Set<Deck> newDecks) {
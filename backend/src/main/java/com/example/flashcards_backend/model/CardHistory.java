@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.UpdateTimestamp;
 
 @Entity
 @Getter
@@ -12,7 +13,18 @@ import lombok.experimental.SuperBuilder;
 @RequiredArgsConstructor
 @SuperBuilder
 @AllArgsConstructor
-@Table(name = "card_history")
+@Table(
+    name = "card_history",
+    uniqueConstraints =
+        @UniqueConstraint(
+            name = "uq_card_history_card_user",
+            columnNames = {"card_id", "user_id"}),
+    indexes = {
+      @Index(name = "idx_card_history_user_subject_due", columnList = "user_id, subject_id, due_at"),
+      @Index(
+          name = "idx_card_history_user_subject_updated_at",
+          columnList = "user_id, subject_id, updated_at")
+    })
 public class CardHistory extends BaseEntity {
 
   @ManyToOne(fetch = FetchType.LAZY)
@@ -33,7 +45,32 @@ public class CardHistory extends BaseEntity {
   @Column(name = "last_rating")
   private Integer lastRating;
 
+  // The last rating this one replaced, so per-user stats can move the card between buckets
+  @Column(name = "previous_rating")
+  private Integer previousRating;
+
   @ManyToOne(fetch = FetchType.LAZY, optional = false)
   @JoinColumn(name = "user_id", nullable = false)
   private User user;
+
+  // Copied from the card so due cards can be read off the (user_id, subject_id, due_at) index
+  @Column(name = "subject_id")
+  private Long subjectId;
+
+  @Column(name = "ease_factor")
+  private Double easeFactor;
+
+  @Column(name = "interval_days")
+  private Integer intervalDays;
+
+  @Column(name = "repetitions")
+  private Integer repetitions;
+
+  @Column(name = "due_at")
+  private LocalDateTime dueAt;
+
+  // Native upserts set this themselves; see CardHistoryRepository.upsertRatings
+  @UpdateTimestamp
+  @Column(name = "updated_at", nullable = false)
+  private LocalDateTime updatedAt;
 }
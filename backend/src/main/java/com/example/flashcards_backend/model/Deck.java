@@ -2,9 +2,11 @@ package com.example.flashcards_backend.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Size;
+import java.time.LocalDateTime;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.UpdateTimestamp;
 
 @Slf4j
 @Entity
@@ -13,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 @AllArgsConstructor
 @SuperBuilder
+@Table(indexes = @Index(name = "idx_deck_subject_updated_at", columnList = "subject_id, updated_at"))
 public class Deck extends BaseEntity {
 
   @Column(unique = true, length = 40, nullable = false)
@@ -26,4 +29,8 @@ public class Deck extends BaseEntity {
   @ManyToOne(fetch = FetchType.LAZY, optional = false)
   @JoinColumn(name = "user_id", nullable = false)
   private User user;
+
+  @UpdateTimestamp
+  @Column(name = "updated_at", nullable = false)
+  private LocalDateTime updatedAt;
 }
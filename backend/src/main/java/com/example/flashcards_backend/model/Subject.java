@@ -36,6 +36,10 @@ public class Subject extends BaseEntity {
   @Enumerated(EnumType.STRING)
   private CardOrder cardOrder;
 
+  // Only ever changed by SubjectRepository.incrementContentVersions, never by entity flushes
+  @Column(name = "content_version", nullable = false, updatable = false)
+  private long contentVersion;
+
   @ManyToOne(fetch = FetchType.LAZY, optional = false)
   @JoinColumn(name = "user_id", nullable = false)
   @JsonBackReference
@@ -0,0 +1,38 @@
+package com.example.flashcards_backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/** Records a deleted card or deck so delta sync can tell clients to drop it. */
+@Entity
+@Getter
+@Setter
+@RequiredArgsConstructor
+@AllArgsConstructor
+@SuperBuilder
+@Table(
+    name = "sync_tombstone",
+    indexes =
+        @Index(name = "idx_sync_tombstone_subject_deleted_at", columnList = "subject_id, deleted_at"))
+public class SyncTombstone extends BaseEntity {
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "entity_type", nullable = false, length = 16)
+  private EntityType entityType;
+
+  @Column(name = "entity_id", nullable = false)
+  private Long entityId;
+
+  @Column(name = "subject_id", nullable = false)
+  private Long subjectId;
+
+  @Column(name = "deleted_at", nullable = false)
+  private LocalDateTime deletedAt;
+
+  public enum EntityType {
+    CARD,
+    DECK
+  }
+}
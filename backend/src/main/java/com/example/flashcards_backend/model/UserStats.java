@@ -0,0 +1,80 @@
+package com.example.flashcards_backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.*;
+
+/**
+ * Materialised totals behind GET /user-stats. Kept current as cards are rated and created, and
+ * recomputed from card and card_history on card deletion and by the nightly rebuild.
+ */
+@Entity
+@Table(name = "user_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserStats {
+
+  @Id
+  @Column(name = "user_id")
+  private UUID userId;
+
+  @Column(name = "total_cards", nullable = false)
+  private long totalCards;
+
+  @Column(name = "total_card_views", nullable = false)
+  private long totalCardViews;
+
+  @Column(name = "total_unviewed_cards", nullable = false)
+  private long totalUnviewedCards;
+
+  @Column(name = "total_last_rating_1", nullable = false)
+  private long totalLastRating1;
+
+  @Column(name = "total_last_rating_2", nullable = false)
+  private long totalLastRating2;
+
+  @Column(name = "total_last_rating_3", nullable = false)
+  private long totalLastRating3;
+
+  @Column(name = "total_last_rating_4", nullable = false)
+  private long totalLastRating4;
+
+  @Column(name = "total_last_rating_5", nullable = false)
+  private long totalLastRating5;
+
+  @Column(name = "most_viewed_card_id")
+  private Long mostViewedCardId;
+
+  @Column(name = "most_viewed_count")
+  private Integer mostViewedCount;
+
+  @Column(name = "hardest_card_id")
+  private Long hardestCardId;
+
+  @Column(name = "hardest_avg_rating")
+  private Double hardestAvgRating;
+
+  @Column(name = "rebuilt_at")
+  private LocalDateTime rebuiltAt;
+
+  /** Moves the count for a last rating of {@code rating} by {@code delta}; ignores other values. */
+  public void adjustLastRating(Integer rating, long delta) {
+    if (rating == null) {
+      return;
+    }
+    switch (rating) {
+      case 1 -> totalLastRating1 += delta;
+      case 2 -> totalLastRating2 += delta;
+      case 3 -> totalLastRating3 += delta;
+      case 4 -> totalLastRating4 += delta;
+      case 5 -> totalLastRating5 += delta;
+      default -> {
+        // Ratings outside the 1-5 scale are not bucketed
+      }
+    }
+  }
+}
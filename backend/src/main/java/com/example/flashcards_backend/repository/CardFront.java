@@ -0,0 +1,3 @@
+package com.example.flashcards_backend.repository;
+
+public record CardFront(Long id, String front) {}
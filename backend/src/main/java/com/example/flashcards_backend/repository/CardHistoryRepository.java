@@ -2,9 +2,12 @@ package com.example.flashcards_backend.repository;
 
 import com.example.flashcards_backend.model.CardHistory;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -15,10 +18,151 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface CardHistoryRepository extends JpaRepository<CardHistory, Long> {
 
+  /** {@code updatedAt} comes from the application's clock, like every other delta sync stamp. */
   @Procedure(procedureName = "record_card_rating")
-  void recordCardRating(@Param("p_card_id") Long cardId, @Param("p_rating") Integer rating)
+  void recordCardRating(
+      @Param("p_card_id") Long cardId,
+      @Param("p_rating") Integer rating,
+      @Param("p_updated_at") LocalDateTime updatedAt)
       throws SQLException;
 
+  /**
+   * Folds {@code ratingCount} ratings summing to {@code ratingSum} into the user's history for the
+   * card in a single statement, creating the row on first rating. Concurrent calls serialise on
+   * the (card_id, user_id) row, so no rating is lost. The replaced last rating is kept in
+   * previous_rating. Empty when the card does not exist. Sets updated_at to {@code updatedAt}, as
+   * native statements bypass {@code @UpdateTimestamp}; it is the write time from the application's
+   * clock rather than the database's, whose current timestamp is fixed at transaction start.
+   *
+   * <p>The statement also takes the SM-2 step for {@code lastRating} from the row's current
+   * schedule, as {@link com.example.flashcards_backend.utility.SpacedRepetition#next} does:
+   * intervals of 1 and 6 days for the first two recalls, then the last interval times the ease.
+   * {@code recalled} and {@code easeChange} come from the rating through that class. The returned
+   * row is therefore final and must not be modified, or Hibernate would write it again on flush.
+   */
+  @Query(
+      value =
+          """
+            INSERT INTO card_history (card_id, user_id, subject_id, avg_rating, view_count, last_viewed, last_rating, updated_at,
+                                      ease_factor, interval_days, repetitions, due_at)
+            SELECT c.id, :userId, c.subject_id, CAST(:ratingSum AS numeric) / :ratingCount, :ratingCount, :ratedAt, :lastRating, :updatedAt,
+                   GREATEST(:minEase, :initialEase + :easeChange), 1, CASE WHEN :recalled THEN 1 ELSE 0 END,
+                   :ratedAt + INTERVAL '1 day'
+            FROM card c
+            WHERE c.id = :cardId
+            ON CONFLICT (card_id, user_id) DO UPDATE SET
+                avg_rating = (COALESCE(card_history.avg_rating, 0) * COALESCE(card_history.view_count, 0) + :ratingSum)
+                             / (COALESCE(card_history.view_count, 0) + :ratingCount),
+                view_count = COALESCE(card_history.view_count, 0) + :ratingCount,
+                last_viewed = EXCLUDED.last_viewed,
+                previous_rating = card_history.last_rating,
+                last_rating = EXCLUDED.last_rating,
+                updated_at = EXCLUDED.updated_at,
+                ease_factor = GREATEST(:minEase, COALESCE(card_history.ease_factor, :initialEase) + :easeChange),
+                repetitions = CASE WHEN :recalled THEN COALESCE(card_history.repetitions, 0) + 1 ELSE 0 END,
+                interval_days = CASE
+                    WHEN NOT :recalled OR COALESCE(card_history.repetitions, 0) = 0 THEN 1
+                    WHEN card_history.repetitions = 1 THEN 6
+                    ELSE CAST(ROUND(CAST(COALESCE(card_history.interval_days, 0) AS numeric)
+                                    * CAST(COALESCE(card_history.ease_factor, :initialEase) AS numeric)) AS integer)
+                END,
+                due_at = :ratedAt + INTERVAL '1 day' * CASE
+                    WHEN NOT :recalled OR COALESCE(card_history.repetitions, 0) = 0 THEN 1
+                    WHEN card_history.repetitions = 1 THEN 6
+                    ELSE CAST(ROUND(CAST(COALESCE(card_history.interval_days, 0) AS numeric)
+                                    * CAST(COALESCE(card_history.ease_factor, :initialEase) AS numeric)) AS integer)
+                END
+            RETURNING *
+            """,
+      nativeQuery = true)
+  Optional<CardHistory> upsertRatings(
+      @Param("cardId") Long cardId,
+      @Param("userId") UUID userId,
+      @Param("ratingCount") int ratingCount,
+      @Param("ratingSum") int ratingSum,
+      @Param("lastRating") int lastRating,
+      @Param("ratedAt") LocalDateTime ratedAt,
+      @Param("updatedAt") LocalDateTime updatedAt,
+      @Param("recalled") boolean recalled,
+      @Param("easeChange") double easeChange,
+      @Param("initialEase") double initialEase,
+      @Param("minEase") double minEase);
+
+  /**
+   * First statement of a write-behind batch: creates an empty history row for every card in
+   * {@code cardIds} the user has not rated yet, so {@link #applyRatingBatch} only has to update.
+   * Cards that no longer exist get no row.
+   */
+  @Modifying
+  @Query(
+      value =
+          """
+            INSERT INTO card_history (card_id, user_id, subject_id, view_count, updated_at)
+            SELECT c.id, :userId, c.subject_id, 0, :updatedAt
+            FROM card c
+            WHERE c.id = ANY(CAST(:cardIds AS bigint[]))
+            ORDER BY c.id
+            ON CONFLICT (card_id, user_id) DO NOTHING
+            """,
+      nativeQuery = true)
+  int insertMissingHistories(
+      @Param("userId") UUID userId,
+      @Param("cardIds") Long[] cardIds,
+      @Param("updatedAt") LocalDateTime updatedAt);
+
+  /**
+   * Second statement of a write-behind batch: folds one coalesced rating per card into the user's
+   * history rows, with the arrays read position by position. The arithmetic and the SM-2 step are
+   * those of {@link #upsertRatings}, and an empty row from {@link #insertMissingHistories} comes
+   * out as a first rating would. Returns the rows written; cards without a row are skipped.
+   */
+  @Query(
+      value =
+          """
+            UPDATE card_history ch SET
+                avg_rating = (COALESCE(ch.avg_rating, 0) * COALESCE(ch.view_count, 0) + r.rating_sum)
+                             / (COALESCE(ch.view_count, 0) + r.rating_count),
+                view_count = COALESCE(ch.view_count, 0) + r.rating_count,
+                last_viewed = r.rated_at,
+                previous_rating = ch.last_rating,
+                last_rating = r.last_rating,
+                updated_at = :updatedAt,
+                ease_factor = GREATEST(:minEase, COALESCE(ch.ease_factor, :initialEase) + r.ease_change),
+                repetitions = CASE WHEN r.recalled THEN COALESCE(ch.repetitions, 0) + 1 ELSE 0 END,
+                interval_days = CASE
+                    WHEN NOT r.recalled OR COALESCE(ch.repetitions, 0) = 0 THEN 1
+                    WHEN ch.repetitions = 1 THEN 6
+                    ELSE CAST(ROUND(CAST(COALESCE(ch.interval_days, 0) AS numeric)
+                                    * CAST(COALESCE(ch.ease_factor, :initialEase) AS numeric)) AS integer)
+                END,
+                due_at = r.rated_at + INTERVAL '1 day' * CASE
+                    WHEN NOT r.recalled OR COALESCE(ch.repetitions, 0) = 0 THEN 1
+                    WHEN ch.repetitions = 1 THEN 6
+                    ELSE CAST(ROUND(CAST(COALESCE(ch.interval_days, 0) AS numeric)
+                                    * CAST(COALESCE(ch.ease_factor, :initialEase) AS numeric)) AS integer)
+                END
+            FROM unnest(CAST(:cardIds AS bigint[]), CAST(:ratingCounts AS integer[]),
+                        CAST(:ratingSums AS integer[]), CAST(:lastRatings AS integer[]),
+                        CAST(:ratedAts AS timestamp[]), CAST(:recalled AS boolean[]),
+                        CAST(:easeChanges AS double precision[]))
+                 AS r(card_id, rating_count, rating_sum, last_rating, rated_at, recalled, ease_change)
+            WHERE ch.card_id = r.card_id AND ch.user_id = :userId
+            RETURNING ch.*
+            """,
+      nativeQuery = true)
+  List<CardHistory> applyRatingBatch(
+      @Param("userId") UUID userId,
+      @Param("cardIds") Long[] cardIds,
+      @Param("ratingCounts") Integer[] ratingCounts,
+      @Param("ratingSums") Integer[] ratingSums,
+      @Param("lastRatings") Integer[] lastRatings,
+      @Param("ratedAts") LocalDateTime[] ratedAts,
+      @Param("recalled") Boolean[] recalled,
+      @Param("easeChanges") Double[] easeChanges,
+      @Param("updatedAt") LocalDateTime updatedAt,
+      @Param("initialEase") double initialEase,
+      @Param("minEase") double minEase);
+
   @Modifying
   @Query("DELETE FROM CardHistory ch WHERE ch.card.id IN :cardIds")
   void deleteByCardIds(@Param("cardIds") List<Long> cardIds);
@@ -43,4 +187,48 @@ public interface CardHistoryRepository extends JpaRepository<CardHistory, Long>
 
   @Query("SELECT ch FROM CardHistory ch WHERE ch.card.id = :cardId AND ch.user.id = :userId")
   Optional<CardHistory> findByCardIdAndUserId(Long cardId, UUID userId);
+
+  @Query(
+      "SELECT ch FROM CardHistory ch WHERE ch.user.id = :userId AND ch.card.id IN :cardIds")
+  List<CardHistory> findByUserIdAndCardIdIn(
+      @Param("userId") UUID userId, @Param("cardIds") Collection<Long> cardIds);
+
+  @Query(
+      """
+            SELECT ch
+            FROM CardHistory ch
+            WHERE ch.user.id = :userId
+              AND ch.subjectId = :subjectId
+              AND ch.updatedAt > :since
+            """)
+  List<CardHistory> findChangedSince(
+      @Param("userId") UUID userId,
+      @Param("subjectId") Long subjectId,
+      @Param("since") LocalDateTime since);
+
+  /** When the user's history in the subject last changed; served by the updated_at index. */
+  @Query(
+      """
+            SELECT MAX(ch.updatedAt)
+            FROM CardHistory ch
+            WHERE ch.user.id = :userId
+              AND ch.subjectId = :subjectId
+            """)
+  Optional<LocalDateTime> findLastUpdatedAt(
+      @Param("userId") UUID userId, @Param("subjectId") Long subjectId);
+
+  @Query(
+      """
+            SELECT ch.card.id
+            FROM CardHistory ch
+            WHERE ch.user.id = :userId
+              AND ch.subjectId = :subjectId
+              AND ch.dueAt <= :now
+            ORDER BY ch.dueAt
+            """)
+  List<Long> findDueCardIds(
+      @Param("userId") UUID userId,
+      @Param("subjectId") Long subjectId,
+      @Param("now") LocalDateTime now,
+      Pageable pageable);
 }
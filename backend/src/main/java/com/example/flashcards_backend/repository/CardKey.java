@@ -0,0 +1,4 @@
+package com.example.flashcards_backend.repository;
+
+/** The (front, back) pair that identifies a card within a subject. */
+public record CardKey(String front, String back) {}
@@ -1,14 +1,21 @@
 package com.example.flashcards_backend.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 import com.example.flashcards_backend.model.Card;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 public interface CardRepository extends JpaRepository<Card, Long> {
@@ -19,6 +26,27 @@ public interface CardRepository extends JpaRepository<Card, Long> {
 
   Optional<Card> findBySubjectIdAndFrontAndBack(Long subjectId, String front, String back);
 
+  @Query("SELECT COUNT(c) > 0 FROM Card c WHERE c.id = :id AND c.subject.user.id = :userId")
+  boolean existsByIdAndSubjectUserId(@Param("id") Long id, @Param("userId") UUID userId);
+
+  /**
+   * Matches every front against every back, so callers get a superset of the pairs they asked
+   * for and must look up exact keys in the result.
+   */
+  List<Card> findBySubjectIdAndFrontInAndBackIn(
+      Long subjectId, Collection<String> fronts, Collection<String> backs);
+
+  @Query(
+      """
+            SELECT new com.example.flashcards_backend.repository.CardKey(c.front, c.back)
+            FROM Card c
+            WHERE c.subject.id = :subjectId AND c.front IN :fronts AND c.back IN :backs
+            """)
+  List<CardKey> findCardKeysBySubjectId(
+      @Param("subjectId") Long subjectId,
+      @Param("fronts") Collection<String> fronts,
+      @Param("backs") Collection<String> backs);
+
   @Query(
       """
             SELECT
@@ -54,6 +82,172 @@ public interface CardRepository extends JpaRepository<Card, Long> {
     return findCardDeckRows(null, cardId);
   }
 
+  @Query(
+      """
+            SELECT
+                c.id AS cardId,
+                c.front AS front,
+                c.back AS back,
+                c.hintFront AS hintFront,
+                c.hintBack AS hintBack,
+                d.id AS deckId,
+                d.name AS deckName,
+                ch.avgRating AS avgRating,
+                ch.viewCount AS viewCount,
+                ch.lastViewed AS lastViewed,
+                ch.lastRating AS lastRating,
+                s.name AS subjectName,
+                s.id AS subjectId
+            FROM Card c
+            LEFT JOIN c.decks d
+            LEFT JOIN CardHistory ch ON ch.card = c
+            LEFT JOIN c.subject s
+            WHERE c.id IN :cardIds
+            ORDER BY c.id
+            """)
+  List<CardDeckRowProjection> findCardDeckRowsByCardIds(@Param("cardIds") Collection<Long> cardIds);
+
+  // Keyset page of card ids: range scan on (subject_id, id) instead of OFFSET
+  @Query(
+      """
+            SELECT c.id
+            FROM Card c
+            WHERE c.subject.id = :subjectId
+              AND c.id > :afterId
+            ORDER BY c.id
+            """)
+  List<Long> findCardIdsBySubjectIdAfter(
+      @Param("subjectId") Long subjectId, @Param("afterId") Long afterId, Pageable pageable);
+
+  @Query(
+      """
+            SELECT c.id
+            FROM Card c
+            WHERE c.subject.id = :subjectId
+              AND NOT EXISTS (
+                  SELECT 1 FROM CardHistory ch WHERE ch.card = c AND ch.user.id = :userId)
+            ORDER BY c.id
+            """)
+  List<Long> findUnseenCardIds(
+      @Param("subjectId") Long subjectId, @Param("userId") UUID userId, Pageable pageable);
+
+  @Query(
+      """
+            SELECT c.id AS id, c.front AS front, c.back AS back,
+                   c.hintFront AS hintFront, c.hintBack AS hintBack
+            FROM Card c
+            WHERE c.subject.id = :subjectId
+            ORDER BY c.id
+            """)
+  List<StudyCardProjection> findStudyCardsBySubjectId(@Param("subjectId") Long subjectId);
+
+  // Order and limit come from the pageable, so a study session fetches only the cards it queues
+  @Query(
+      """
+            SELECT c.id AS id, c.front AS front, c.back AS back,
+                   c.hintFront AS hintFront, c.hintBack AS hintBack
+            FROM Card c
+            WHERE c.subject.id = :subjectId
+            """)
+  List<StudyCardProjection> findStudyCardsBySubjectId(
+      @Param("subjectId") Long subjectId, Pageable pageable);
+
+  @Query(
+      """
+            SELECT new com.example.flashcards_backend.repository.CardFront(c.id, c.front)
+            FROM Card c
+            WHERE c.subject.id = :subjectId
+            """)
+  List<CardFront> findFrontsBySubjectId(@Param("subjectId") Long subjectId);
+
+  @Query(
+      """
+            SELECT new com.example.flashcards_backend.repository.CardText(c.id, c.front, c.back)
+            FROM Card c
+            WHERE c.subject.id = :subjectId
+            """)
+  List<CardText> findCardTextsBySubjectId(@Param("subjectId") Long subjectId);
+
+  @Query(
+      """
+            SELECT c.id AS id, c.front AS front, c.back AS back,
+                   c.hintFront AS hintFront, c.hintBack AS hintBack
+            FROM Card c
+            WHERE c.subject.id = :subjectId
+              AND EXISTS (
+                  SELECT 1 FROM Card c2 JOIN c2.decks d WHERE c2 = c AND d.id IN :deckIds)
+            """)
+  List<StudyCardProjection> findStudyCardsBySubjectIdAndDeckIds(
+      @Param("subjectId") Long subjectId,
+      @Param("deckIds") Collection<Long> deckIds,
+      Pageable pageable);
+
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+  @Query(
+      """
+            SELECT
+                c.id AS cardId,
+                c.front AS front,
+                c.back AS back,
+                c.hintFront AS hintFront,
+                c.hintBack AS hintBack,
+                d.id AS deckId,
+                d.name AS deckName,
+                ch.avgRating AS avgRating,
+                ch.viewCount AS viewCount,
+                ch.lastViewed AS lastViewed,
+                ch.lastRating AS lastRating,
+                s.name AS subjectName,
+                s.id AS subjectId
+            FROM Card c
+            LEFT JOIN c.decks d
+            LEFT JOIN CardHistory ch ON ch.card = c
+            LEFT JOIN c.subject s
+            WHERE s.id = :subjectId
+            ORDER BY c.id
+            """)
+  Stream<CardDeckRowProjection> streamCardDeckRowsBySubjectId(@Param("subjectId") Long subjectId);
+
+  // Range scan on (subject_id, updated_at); deck links come along for each changed card
+  @Query(
+      """
+            SELECT DISTINCT c
+            FROM Card c
+            LEFT JOIN FETCH c.decks
+            WHERE c.subject.id = :subjectId
+              AND c.updatedAt > :since
+            ORDER BY c.id
+            """)
+  List<Card> findChangedSince(
+      @Param("subjectId") Long subjectId, @Param("since") LocalDateTime since);
+
+  /**
+   * Ranked search over the generated search_vector and search_text columns and their GIN indexes
+   * (changeset 015). PostgreSQL only.
+   */
+  @Query(
+      value =
+          """
+            SELECT c.id
+            FROM card c
+            WHERE c.user_id = :userId
+              AND c.subject_id = :subjectId
+              AND (c.search_vector @@ to_tsquery('simple', :tsQuery) OR :text <% c.search_text)
+            ORDER BY ts_rank(c.search_vector, to_tsquery('simple', :tsQuery))
+                         + word_similarity(:text, c.search_text) DESC,
+                     c.id
+            OFFSET :offset
+            LIMIT :limit
+            """,
+      nativeQuery = true)
+  List<Long> searchCardIds(
+      @Param("userId") UUID userId,
+      @Param("subjectId") Long subjectId,
+      @Param("tsQuery") String tsQuery,
+      @Param("text") String text,
+      @Param("offset") int offset,
+      @Param("limit") int limit);
+
   @Query(
       """
             SELECT COUNT(c)
@@ -94,7 +288,158 @@ public interface CardRepository extends JpaRepository<Card, Long> {
   @Query(value = "DELETE FROM card_deck WHERE card_id IN :cardIds", nativeQuery = true)
   void deleteDeckAssociationsByCardIds(@Param("cardIds") List<Long> cardIds);
 
-  boolean existsByFrontAndBackAndSubjectId(String front, String back, Long subjectId);
+  @Query("SELECT COUNT(c) FROM Card c WHERE c.id IN :cardIds AND c.subject.id <> :subjectId")
+  long countByIdInAndSubjectIdNot(
+      @Param("cardIds") Collection<Long> cardIds, @Param("subjectId") Long subjectId);
+
+  // Deck membership reaches delta sync through the card's timestamp, so these touch the cards
+  // they are about to link or unlink. The time is passed in because the database's current
+  // timestamp is fixed at the start of the transaction, which can predate a sync token.
+  @Modifying
+  @Query(
+      value =
+          """
+            UPDATE card SET updated_at = :now
+            WHERE id IN :cardIds AND subject_id = :subjectId
+              AND NOT EXISTS (
+                SELECT 1 FROM card_deck cd WHERE cd.card_id = card.id AND cd.deck_id = :deckId)
+            """,
+      nativeQuery = true)
+  int touchCardsOutsideDeck(
+      @Param("deckId") Long deckId,
+      @Param("subjectId") Long subjectId,
+      @Param("cardIds") Collection<Long> cardIds,
+      @Param("now") LocalDateTime now);
+
+  @Modifying
+  @Query(
+      value =
+          """
+            UPDATE card SET updated_at = :now
+            WHERE id IN (
+              SELECT card_id FROM card_deck WHERE deck_id = :deckId AND card_id IN :cardIds)
+            """,
+      nativeQuery = true)
+  int touchCardsInDeck(
+      @Param("deckId") Long deckId,
+      @Param("cardIds") Collection<Long> cardIds,
+      @Param("now") LocalDateTime now);
+
+  /** Links the subject's cards among {@code cardIds} that are not yet in the deck. */
+  @Modifying(clearAutomatically = true)
+  @Query(
+      value =
+          """
+            INSERT INTO card_deck (card_id, deck_id)
+            SELECT c.id, :deckId FROM card c
+            WHERE c.id IN :cardIds AND c.subject_id = :subjectId
+              AND NOT EXISTS (
+                SELECT 1 FROM card_deck cd WHERE cd.card_id = c.id AND cd.deck_id = :deckId)
+            """,
+      nativeQuery = true)
+  int addCardsToDeck(
+      @Param("deckId") Long deckId,
+      @Param("subjectId") Long subjectId,
+      @Param("cardIds") Collection<Long> cardIds);
+
+  @Modifying(clearAutomatically = true)
+  @Query(
+      value = "DELETE FROM card_deck WHERE deck_id = :deckId AND card_id IN :cardIds",
+      nativeQuery = true)
+  int removeCardsFromDeck(
+      @Param("deckId") Long deckId, @Param("cardIds") Collection<Long> cardIds);
+
+  // PostgreSQL variants of the membership statements above. The ids travel as one array
+  // parameter rather than one bind parameter each, so there is no limit on how many a request
+  // carries, and links inserted concurrently for the same card and deck are skipped, not errors.
+  @Query(
+      value =
+          """
+            SELECT COUNT(*) FROM card
+            WHERE id = ANY(CAST(:cardIds AS bigint[])) AND subject_id <> :subjectId
+            """,
+      nativeQuery = true)
+  long countByIdInArrayAndSubjectIdNot(
+      @Param("cardIds") Long[] cardIds, @Param("subjectId") Long subjectId);
+
+  @Modifying
+  @Query(
+      value =
+          """
+            UPDATE card SET updated_at = :now
+            WHERE id = ANY(CAST(:cardIds AS bigint[])) AND subject_id = :subjectId
+              AND NOT EXISTS (
+                SELECT 1 FROM card_deck cd WHERE cd.card_id = card.id AND cd.deck_id = :deckId)
+            """,
+      nativeQuery = true)
+  int touchCardsOutsideDeckByArray(
+      @Param("deckId") Long deckId,
+      @Param("subjectId") Long subjectId,
+      @Param("cardIds") Long[] cardIds,
+      @Param("now") LocalDateTime now);
+
+  @Modifying
+  @Query(
+      value =
+          """
+            UPDATE card SET updated_at = :now
+            FROM card_deck cd
+            WHERE cd.card_id = card.id AND cd.deck_id = :deckId
+              AND cd.card_id = ANY(CAST(:cardIds AS bigint[]))
+            """,
+      nativeQuery = true)
+  int touchCardsInDeckByArray(
+      @Param("deckId") Long deckId,
+      @Param("cardIds") Long[] cardIds,
+      @Param("now") LocalDateTime now);
+
+  @Modifying(clearAutomatically = true)
+  @Query(
+      value =
+          """
+            INSERT INTO card_deck (card_id, deck_id)
+            SELECT c.id, :deckId FROM card c
+            WHERE c.id = ANY(CAST(:cardIds AS bigint[])) AND c.subject_id = :subjectId
+            ON CONFLICT (card_id, deck_id) DO NOTHING
+            """,
+      nativeQuery = true)
+  int addCardsToDeckByArray(
+      @Param("deckId") Long deckId,
+      @Param("subjectId") Long subjectId,
+      @Param("cardIds") Long[] cardIds);
+
+  @Modifying(clearAutomatically = true)
+  @Query(
+      value =
+          """
+            DELETE FROM card_deck
+            WHERE deck_id = :deckId AND card_id = ANY(CAST(:cardIds AS bigint[]))
+            """,
+      nativeQuery = true)
+  int removeCardsFromDeckByArray(@Param("deckId") Long deckId, @Param("cardIds") Long[] cardIds);
+
+  @Modifying
+  @Query(
+      value =
+          """
+            UPDATE card SET updated_at = :now
+            WHERE id IN (SELECT card_id FROM card_deck WHERE deck_id = :deckId)
+            """,
+      nativeQuery = true)
+  int touchAllCardsInDeck(@Param("deckId") Long deckId, @Param("now") LocalDateTime now);
+
+  @Modifying(clearAutomatically = true)
+  @Query(value = "DELETE FROM card_deck WHERE deck_id = :deckId", nativeQuery = true)
+  int removeAllCardsFromDeck(@Param("deckId") Long deckId);
+
+  @Query(value = "SELECT COUNT(*) FROM card_deck WHERE deck_id = :deckId", nativeQuery = true)
+  long countByDeckId(@Param("deckId") Long deckId);
+
+  @Query(
+      value =
+          "SELECT card_id FROM card_deck WHERE deck_id = :deckId ORDER BY card_id LIMIT :limit",
+      nativeQuery = true)
+  List<Long> findCardIdsByDeckId(@Param("deckId") Long deckId, @Param("limit") int limit);
 
   @Query(
       """
@@ -128,6 +473,23 @@ public interface CardRepository extends JpaRepository<Card, Long> {
             """)
   List<CardExportRowProjection> findExportRowsBySubjectId(@Param("subjectId") Long subjectId);
 
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+  @Query(
+      """
+            SELECT c.id AS cardId,
+                   c.front AS front,
+                   c.back AS back,
+                   c.hintFront AS hintFront,
+                   c.hintBack AS hintBack,
+                   d.name AS deck
+            FROM Card c
+            LEFT JOIN c.decks d
+            WHERE c.subject.id = :subjectId
+            ORDER BY c.id
+            """)
+  Stream<CardExportRowProjection> streamExportRowsBySubjectId(
+      @Param("subjectId") Long subjectId);
+
   @Query(
       """
             SELECT c.id AS cardId,
@@ -143,4 +505,21 @@ public interface CardRepository extends JpaRepository<Card, Long> {
             ORDER BY c.id
             """)
   List<CardExportRowProjection> findExportRowsByDeckId(@Param("deckId") Long deckId);
+
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+  @Query(
+      """
+            SELECT c.id AS cardId,
+                   c.front AS front,
+                   c.back AS back,
+                   c.hintFront AS hintFront,
+                   c.hintBack AS hintBack,
+                   d.name AS deck
+            FROM Card c
+            LEFT JOIN c.decks d
+            WHERE d.id = :deckId
+            GROUP BY c.id, c.front, c.back, c.hintFront, c.hintBack, d.name
+            ORDER BY c.id
+            """)
+  Stream<CardExportRowProjection> streamExportRowsByDeckId(@Param("deckId") Long deckId);
 }
@@ -0,0 +1,3 @@
+package com.example.flashcards_backend.repository;
+
+public record CardText(Long id, String front, String back) {}
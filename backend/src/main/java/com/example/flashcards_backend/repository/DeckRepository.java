@@ -5,6 +5,7 @@ import com.example.flashcards_backend.model.Subject;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -18,4 +19,6 @@ public interface DeckRepository extends JpaRepository<Deck, Long> {
     List<Deck> findBySubjectId(Long subjectId);
 
     boolean existsByNameAndSubject(String name, Subject subject);
+
+    List<Deck> findBySubjectIdAndUpdatedAtAfter(Long subjectId, LocalDateTime since);
 }
@@ -0,0 +1,9 @@
+package com.example.flashcards_backend.repository;
+
+public interface StudyCardProjection {
+    Long getId();
+    String getFront();
+    String getBack();
+    String getHintFront();
+    String getHintBack();
+}
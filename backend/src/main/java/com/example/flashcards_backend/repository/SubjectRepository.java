@@ -2,10 +2,12 @@ package com.example.flashcards_backend.repository;
 
 import com.example.flashcards_backend.model.Subject;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,4 +20,18 @@ public interface SubjectRepository extends JpaRepository<Subject, Long> {
   Optional<Subject> findByIdWithUser(@Param("id") Long id);
 
   Optional<Subject> findByName(String name);
+
+  @Query("select s.contentVersion from Subject s where s.id = :id and s.user.id = :userId")
+  Optional<Long> findContentVersion(@Param("id") Long id, @Param("userId") UUID userId);
+
+  @Query(
+      "select new com.example.flashcards_backend.repository.SubjectVersion(s.id, s.contentVersion)"
+          + " from Subject s where s.user.id = :userId order by s.id")
+  List<SubjectVersion> findVersionsByUserId(@Param("userId") UUID userId);
+
+  @Modifying
+  @Query(
+      value = "UPDATE subject SET content_version = content_version + 1 WHERE id IN (:ids)",
+      nativeQuery = true)
+  int incrementContentVersions(@Param("ids") Collection<Long> ids);
 }
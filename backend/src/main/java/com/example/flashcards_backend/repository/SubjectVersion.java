@@ -0,0 +1,4 @@
+package com.example.flashcards_backend.repository;
+
+/** A subject's id with its current content version. */
+public record SubjectVersion(Long id, long contentVersion) {}
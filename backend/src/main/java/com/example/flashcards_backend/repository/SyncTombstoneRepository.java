@@ -0,0 +1,58 @@
+package com.example.flashcards_backend.repository;
+
+import com.example.flashcards_backend.model.SyncTombstone;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+  // One INSERT ... SELECT for the whole batch; must run before the cards are deleted
+  @Modifying
+  @Query(
+      value =
+          """
+            INSERT INTO sync_tombstone (entity_type, entity_id, subject_id, deleted_at)
+            SELECT 'CARD', c.id, c.subject_id, :deletedAt
+            FROM card c
+            WHERE c.id IN :cardIds
+            """,
+      nativeQuery = true)
+  int recordCardDeletions(
+      @Param("cardIds") Collection<Long> cardIds, @Param("deletedAt") LocalDateTime deletedAt);
+
+  List<SyncTombstone> findBySubjectIdAndDeletedAtAfter(Long subjectId, LocalDateTime since);
+
+  /**
+   * When the oldest transaction still open on this database, other than the caller's, began. Only
+   * transactions that have written anything (hold an xid) and are not idle count, and ones that
+   * began before {@code notBefore} are ignored, so a stuck session cannot hold tokens back for
+   * good. The cast uses the session time zone, which the driver sets to the JVM's, so the result
+   * compares with the application's timestamps. Only sessions of the same role are visible to a
+   * non-superuser. PostgreSQL only.
+   */
+  @Query(
+      value =
+          """
+            SELECT CAST(MIN(xact_start) AS timestamp)
+            FROM pg_stat_activity
+            WHERE datname = current_database()
+              AND backend_type = 'client backend'
+              AND pid <> pg_backend_pid()
+              AND state <> 'idle'
+              AND backend_xid IS NOT NULL
+              AND CAST(xact_start AS timestamp) >= :notBefore
+            """,
+      nativeQuery = true)
+  Optional<LocalDateTime> findOldestOpenTransactionStart(
+      @Param("notBefore") LocalDateTime notBefore);
+
+  @Modifying
+  @Query("DELETE FROM SyncTombstone t WHERE t.deletedAt < :cutoff")
+  int deleteByDeletedAtBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -21,4 +21,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<UserDto> findAllUsersAsDtos();
 
     Optional<User> findByAuth0Id(String auth0Id);
+
+    @Query("SELECT u.id FROM User u")
+    List<UUID> findAllIds();
 }
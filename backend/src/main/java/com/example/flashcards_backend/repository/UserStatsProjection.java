@@ -0,0 +1,16 @@
+package com.example.flashcards_backend.repository;
+
+public interface UserStatsProjection {
+    Long getTotalCards();
+    Long getTotalCardViews();
+    Long getTotalUnviewedCards();
+    Long getTotalLastRating1();
+    Long getTotalLastRating2();
+    Long getTotalLastRating3();
+    Long getTotalLastRating4();
+    Long getTotalLastRating5();
+    Long getHardestCardId();
+    Double getHardestAvgRating();
+    Long getMostViewedCardId();
+    Integer getMostViewedCount();
+}
@@ -0,0 +1,106 @@
+package com.example.flashcards_backend.repository;
+
+import com.example.flashcards_backend.model.UserStats;
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface UserStatsRepository extends JpaRepository<UserStats, UUID> {
+
+  /** Locks the row so concurrent ratings by the same user apply their deltas one at a time. */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT us FROM UserStats us WHERE us.userId = :userId")
+  Optional<UserStats> findByUserIdForUpdate(@Param("userId") UUID userId);
+
+  /**
+   * Reads the user's stats row together with its hardest and most-viewed cards in one statement,
+   * one row per deck of each card. Empty when the user has no stats row yet.
+   */
+  @Query(
+      """
+            SELECT
+                s.totalCards AS totalCards,
+                s.totalCardViews AS totalCardViews,
+                s.totalUnviewedCards AS totalUnviewedCards,
+                s.totalLastRating1 AS totalLastRating1,
+                s.totalLastRating2 AS totalLastRating2,
+                s.totalLastRating3 AS totalLastRating3,
+                s.totalLastRating4 AS totalLastRating4,
+                s.totalLastRating5 AS totalLastRating5,
+                s.hardestCardId AS hardestCardId,
+                s.mostViewedCardId AS mostViewedCardId,
+                c.id AS cardId,
+                c.front AS front,
+                c.back AS back,
+                c.hintFront AS hintFront,
+                c.hintBack AS hintBack,
+                d.id AS deckId,
+                d.name AS deckName,
+                ch.avgRating AS avgRating,
+                ch.viewCount AS viewCount,
+                ch.lastViewed AS lastViewed,
+                ch.lastRating AS lastRating,
+                sub.name AS subjectName,
+                sub.id AS subjectId
+            FROM UserStats s
+            LEFT JOIN Card c ON c.id = s.hardestCardId OR c.id = s.mostViewedCardId
+            LEFT JOIN c.decks d
+            LEFT JOIN CardHistory ch ON ch.card = c AND ch.user.id = s.userId
+            LEFT JOIN c.subject sub
+            WHERE s.userId = :userId
+            ORDER BY c.id
+            """)
+  List<UserStatsRowProjection> findRowsByUserId(@Param("userId") UUID userId);
+
+  /**
+   * Creates an all-zero row unless one exists, so two transactions rebuilding a new user's stats
+   * at once both go on to lock the same row instead of one failing on the primary key.
+   */
+  @Modifying
+  @Query(
+      value = "INSERT INTO user_stats (user_id) VALUES (:userId) ON CONFLICT (user_id) DO NOTHING",
+      nativeQuery = true)
+  void insertIfAbsent(@Param("userId") UUID userId);
+
+  /**
+   * Computes every stats figure for the user in one pass over their cards. The two window ranks
+   * pick the hardest and most-viewed cards while the same rows are being totalled.
+   */
+  @Query(
+      value =
+          """
+            WITH ranked AS (
+                SELECT c.id AS card_id,
+                       ch.view_count,
+                       CAST(ch.avg_rating AS DOUBLE PRECISION) AS avg_rating,
+                       ch.last_rating,
+                       ch.last_viewed,
+                       ROW_NUMBER() OVER (ORDER BY ch.avg_rating DESC NULLS LAST, c.id) AS hardest_rank,
+                       ROW_NUMBER() OVER (ORDER BY ch.view_count DESC NULLS LAST, c.id) AS viewed_rank
+                FROM card c
+                LEFT JOIN card_history ch ON ch.card_id = c.id AND ch.user_id = :userId
+                WHERE c.user_id = :userId
+            )
+            SELECT COUNT(*) AS "totalCards",
+                   COALESCE(SUM(view_count), 0) AS "totalCardViews",
+                   COALESCE(SUM(CASE WHEN last_viewed IS NULL THEN 1 ELSE 0 END), 0) AS "totalUnviewedCards",
+                   COALESCE(SUM(CASE WHEN last_rating = 1 THEN 1 ELSE 0 END), 0) AS "totalLastRating1",
+                   COALESCE(SUM(CASE WHEN last_rating = 2 THEN 1 ELSE 0 END), 0) AS "totalLastRating2",
+                   COALESCE(SUM(CASE WHEN last_rating = 3 THEN 1 ELSE 0 END), 0) AS "totalLastRating3",
+                   COALESCE(SUM(CASE WHEN last_rating = 4 THEN 1 ELSE 0 END), 0) AS "totalLastRating4",
+                   COALESCE(SUM(CASE WHEN last_rating = 5 THEN 1 ELSE 0 END), 0) AS "totalLastRating5",
+                   MAX(CASE WHEN hardest_rank = 1 AND avg_rating IS NOT NULL THEN card_id END) AS "hardestCardId",
+                   MAX(CASE WHEN hardest_rank = 1 THEN avg_rating END) AS "hardestAvgRating",
+                   MAX(CASE WHEN viewed_rank = 1 AND view_count IS NOT NULL THEN card_id END) AS "mostViewedCardId",
+                   MAX(CASE WHEN viewed_rank = 1 THEN view_count END) AS "mostViewedCount"
+            FROM ranked
+            """,
+      nativeQuery = true)
+  UserStatsProjection computeByUserId(@Param("userId") UUID userId);
+}
@@ -0,0 +1,18 @@
+package com.example.flashcards_backend.repository;
+
+/**
+ * A user_stats row joined to one deck row of its hardest or most-viewed card. The stats columns
+ * repeat on every row; the card columns are null when the user has neither card yet.
+ */
+public interface UserStatsRowProjection extends CardDeckRowProjection {
+    Long getTotalCards();
+    Long getTotalCardViews();
+    Long getTotalUnviewedCards();
+    Long getTotalLastRating1();
+    Long getTotalLastRating2();
+    Long getTotalLastRating3();
+    Long getTotalLastRating4();
+    Long getTotalLastRating5();
+    Long getHardestCardId();
+    Long getMostViewedCardId();
+}
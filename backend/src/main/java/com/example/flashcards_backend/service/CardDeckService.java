@@ -5,17 +5,20 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 import com.example.flashcards_backend.dto.CreateDeckRequest;
+import com.example.flashcards_backend.dto.DeckMembershipResponse;
 import com.example.flashcards_backend.exception.DeckNotFoundException;
 import com.example.flashcards_backend.exception.DuplicateDeckNameException;
 import com.example.flashcards_backend.model.Card;
 import com.example.flashcards_backend.model.Deck;
 import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.SyncTombstone;
 import com.example.flashcards_backend.repository.CardRepository;
 import com.example.flashcards_backend.repository.DeckRepository;
+import com.example.flashcards_backend.repository.SyncTombstoneRepository;
 import jakarta.transaction.Transactional;
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,10 +31,12 @@ public class CardDeckService {
   private final DeckRepository deckRepository;
   private final CardRepository cardRepository;
   private final SubjectService subjectService;
+  private final SyncTombstoneRepository syncTombstoneRepository;
+  private final DeckMembershipStatements deckMembershipStatements;
 
   @Transactional
   public Set<Deck> getOrCreateDecksByNamesAndSubjectId(Set<String> names, Long subjectId) {
-    log.info("Creating or getting decks for subject with id {}", subjectId);
+    log.debug("Creating or getting decks for subject with id {}", subjectId);
     Subject subject = subjectService.findById(subjectId);
     Set<Deck> existingDecks = deckRepository.findByNameInAndSubjectId(names, subjectId);
     Set<String> existingNames = existingDecks.stream().map(Deck::getName).collect(toSet());
@@ -47,6 +52,7 @@ public class CardDeckService {
               .collect(toList());
       deckRepository.saveAll(newDecks);
       allDecks.addAll(newDecks);
+      subjectService.recordContentChange(subjectId);
     }
     return allDecks;
   }
@@ -67,50 +73,93 @@ public class CardDeckService {
       Deck finalDeck = deck;
       cards.forEach(card -> card.addDeck(finalDeck));
     }
+    subjectService.recordContentChange(subject.getId());
 
     return deck;
   }
 
+  /**
+   * Adds the deck to the cards with set-based statements rather than loading each card, so the
+   * cost barely grows with the number of cards. Cards already in the deck and unknown ids are
+   * ignored.
+   */
   @Transactional
-  public void addDeckToCards(Long id, Set<Long> cardIds) {
+  public DeckMembershipResponse addDeckToCards(Long id, Set<Long> cardIds) {
     log.info("Adding deck with id {} to {} cards", id, cardIds.size());
     Deck deck = findDeckById(id);
-    List<Card> cards = cardRepository.findAllById(cardIds);
-    if (cards.stream()
-        .anyMatch(card -> !Objects.equals(card.getSubject().getId(), deck.getSubject().getId()))) {
+    if (cardIds.isEmpty()) {
+      return DeckMembershipResponse.of(0, 0);
+    }
+    Long subjectId = deck.getSubject().getId();
+    if (deckMembershipStatements.countOutsideSubject(cardIds, subjectId) > 0) {
       throw new IllegalArgumentException("Card ids must belong to the same subject as the deck");
     }
-    cards.forEach(card -> card.addDeck(deck));
+    deckMembershipStatements.touchCardsOutsideDeck(id, subjectId, cardIds, LocalDateTime.now());
+    int added = deckMembershipStatements.addCardsToDeck(id, subjectId, cardIds);
+    log.debug("Added deck {} to {} cards, {} ignored", id, added, cardIds.size() - added);
+    if (added > 0) {
+      subjectService.recordContentChange(subjectId);
+    }
+    return DeckMembershipResponse.of(added, cardIds.size());
   }
 
+  /** Removes the deck from the cards in one statement. Cards not in the deck are ignored. */
   @Transactional
-  public void removeDeckFromCards(Long id, Set<Long> cardIds) {
+  public DeckMembershipResponse removeDeckFromCards(Long id, Set<Long> cardIds) {
     log.info("Removing deck with id {} from {} cards", id, cardIds.size());
     Deck deck = findDeckById(id);
-    List<Card> cards = cardRepository.findAllById(cardIds);
-    HashSet<Long> cardIdsNotWithDeck = new HashSet<>();
-    cards.forEach(
-        card -> {
-          if (!card.getDecks().contains(deck)) {
-            cardIdsNotWithDeck.add(card.getId());
-          } else {
-            card.removeDeck(deck);
-          }
-        });
-    if (!cardIdsNotWithDeck.isEmpty()) {
-      log.info("These cards did not have deck {} and were ignored: {}", id, cardIdsNotWithDeck);
+    if (cardIds.isEmpty()) {
+      return DeckMembershipResponse.of(0, 0);
+    }
+    Long subjectId = deck.getSubject().getId();
+    deckMembershipStatements.touchCardsInDeck(id, cardIds, LocalDateTime.now());
+    int removed = deckMembershipStatements.removeCardsFromDeck(id, cardIds);
+    if (removed < cardIds.size()) {
+      log.info("{} cards did not have deck {} and were ignored", cardIds.size() - removed, id);
     }
+    if (removed > 0) {
+      subjectService.recordContentChange(subjectId);
+    }
+    return DeckMembershipResponse.of(removed, cardIds.size());
   }
 
+  /**
+   * Unlinks the deck's cards and deletes it with one statement each, plus one to touch the cards
+   * for delta sync, without loading any card. Decks with very many cards can be deleted in batches
+   * by {@link DeckDeletionService} instead, which keeps each transaction short.
+   */
   @Transactional
   public void deleteDeck(Long id) {
     log.info("Deleting deck with id {}", id);
 
     Deck deck = findDeckById(id);
-    List<Card> cards = cardRepository.findByDeckId(id);
-    cards.forEach(card -> card.removeDeck(deck));
+    Long subjectId = deck.getSubject().getId();
+    cardRepository.touchAllCardsInDeck(id, LocalDateTime.now());
+    int unlinked = cardRepository.removeAllCardsFromDeck(id);
+    deckRepository.deleteAllByIdInBatch(List.of(id));
+    log.debug("Deleted deck {} and unlinked {} cards", id, unlinked);
+
+    syncTombstoneRepository.save(
+        SyncTombstone.builder()
+            .entityType(SyncTombstone.EntityType.DECK)
+            .entityId(id)
+            .subjectId(subjectId)
+            .deletedAt(LocalDateTime.now())
+            .build());
+    subjectService.recordContentChange(subjectId);
+  }
 
-    deckRepository.delete(deck);
+  @Transactional
+  public long countCardsInDeck(Long id) {
+    findDeckById(id);
+    return cardRepository.countByDeckId(id);
+  }
+
+  /** Unlinks up to {@code limit} of the deck's cards and returns how many, 0 once none are left. */
+  @Transactional
+  public int unlinkCards(Long id, int limit) {
+    List<Long> cardIds = cardRepository.findCardIdsByDeckId(id, limit);
+    return cardIds.isEmpty() ? 0 : removeDeckFromCards(id, new HashSet<>(cardIds)).affected();
   }
 
   /* Helpers */
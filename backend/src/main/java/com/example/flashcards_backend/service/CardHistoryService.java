@@ -1,5 +1,6 @@
 package com.example.flashcards_backend.service;
 
+import com.example.flashcards_backend.config.ReadYourWrites;
 import com.example.flashcards_backend.dto.RateCardResponse;
 import com.example.flashcards_backend.exception.CardHistoryNotFoundException;
 import com.example.flashcards_backend.exception.CardNotFoundException;
@@ -8,28 +9,52 @@ import com.example.flashcards_backend.model.CardHistory;
 import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.repository.CardHistoryRepository;
 import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.UserRepository;
+import com.example.flashcards_backend.service.UserStatsService.RatedHistory;
+import com.example.flashcards_backend.utility.FlashcardsMetrics;
+import com.example.flashcards_backend.utility.SpacedRepetition;
+import com.example.flashcards_backend.utility.SpacedRepetition.Schedule;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import lombok.AllArgsConstructor;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Slf4j
 public class CardHistoryService {
   private final CardHistoryRepository cardHistoryRepository;
   private final CardRepository cardRepository;
+  private final UserRepository userRepository;
+  private final UserStatsService userStatsService;
+  private final ReadYourWrites readYourWrites;
+
+  // Single-statement INSERT ... ON CONFLICT path; PostgreSQL only, so off for the H2 test profile
+  @Value("${app.ratings.atomic-upsert:true}")
+  private boolean atomicUpsert;
 
   @Transactional
   public RateCardResponse recordRating(Long cardId, int rating, User user)
       throws DataAccessException, CardNotFoundException {
     try {
-      log.info("Recording rating {} for card with id {}", rating, cardId);
-      cardHistoryRepository.recordCardRating(cardId, rating);
+      log.debug("Recording rating {} for card with id {}", rating, cardId);
+      cardHistoryRepository.recordCardRating(cardId, rating, LocalDateTime.now());
+      FlashcardsMetrics.ratingsRecorded(1);
+      readYourWrites.markWritten(user.getAuth0Id());
       CardHistory cardHistory = getCardHistory(cardId, user);
       return RateCardResponse.fromHistory(cardHistory);
 
@@ -46,35 +71,217 @@ public class CardHistoryService {
 
   @Transactional
   public RateCardResponse recordRatingForUser(Long cardId, int rating, User user) {
-    log.info("Recording rating {} for card with id {} for user {}", rating, cardId, user.getId());
+    log.debug("Recording rating {} for card with id {} for user {}", rating, cardId, user.getId());
+    // The rater's next reads (due cards, stats) should see this rating even if the replica lags
+    readYourWrites.markWritten(user.getAuth0Id());
+    if (atomicUpsert) {
+      CardHistory ch =
+          upsert(user.getId(), CoalescedRating.single(cardId, rating, LocalDateTime.now()))
+              .orElseThrow(() -> new CardNotFoundException(cardId));
+      return RateCardResponse.fromHistory(ch);
+    }
     Card card = getCard(cardId);
     CardHistory ch = getOrCreateCardHistoryForUser(user, card);
+    ch.setPreviousRating(ch.getLastRating());
     ch.setLastRating(rating);
     ch.setViewCount(ch.getViewCount() + 1);
     ch.setAvgRating((ch.getAvgRating() * (ch.getViewCount() - 1) + rating) / ch.getViewCount());
     ch.setLastViewed(LocalDateTime.now());
+    applySchedule(ch, rating, ch.getLastViewed());
     cardHistoryRepository.save(ch);
+    FlashcardsMetrics.ratingsRecorded(1);
+    userStatsService.recordRatings(user.getId(), ch, ch.getPreviousRating(), 1);
     return RateCardResponse.fromHistory(ch);
   }
 
+  /**
+   * Applies ratings queued by the write-behind pipeline for one user. Ratings for cards that no
+   * longer exist are dropped. Returns the number of history rows written.
+   */
+  @Transactional
+  public int applyCoalescedRatings(UUID userId, Collection<CoalescedRating> ratings) {
+    if (atomicUpsert) {
+      return upsertBatch(userId, List.copyOf(ratings));
+    }
+    Optional<User> user = userRepository.findById(userId);
+    if (user.isEmpty()) {
+      log.warn("Dropping {} queued ratings for unknown user {}", ratings.size(), userId);
+      return 0;
+    }
+    List<Long> cardIds = ratings.stream().map(CoalescedRating::cardId).toList();
+    Map<Long, CardHistory> histories =
+        cardHistoryRepository.findByUserIdAndCardIdIn(userId, cardIds).stream()
+            .collect(Collectors.toMap(ch -> ch.getCard().getId(), Function.identity()));
+    List<Long> withoutHistory = cardIds.stream().filter(id -> !histories.containsKey(id)).toList();
+    Map<Long, Card> cards =
+        withoutHistory.isEmpty()
+            ? Map.of()
+            : cardRepository.findAllById(withoutHistory).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+
+    List<CardHistory> toSave = new ArrayList<>(ratings.size());
+    Map<Long, Integer> ratingCounts = new HashMap<>();
+    for (CoalescedRating rating : ratings) {
+      CardHistory ch = histories.get(rating.cardId());
+      if (ch == null) {
+        Card card = cards.get(rating.cardId());
+        if (card == null) {
+          log.warn("Dropping queued rating for missing card {}", rating.cardId());
+          continue;
+        }
+        ch =
+            CardHistory.builder()
+                .user(user.get())
+                .subjectId(card.getSubject().getId())
+                .viewCount(0)
+                .build();
+        ch.setCard(card);
+      }
+      int previousCount = ch.getViewCount();
+      ch.setViewCount(previousCount + rating.count());
+      ch.setAvgRating((ch.getAvgRating() * previousCount + rating.sum()) / ch.getViewCount());
+      ch.setPreviousRating(ch.getLastRating());
+      ch.setLastRating(rating.lastRating());
+      ch.setLastViewed(rating.lastViewed());
+      applySchedule(ch, rating.lastRating(), rating.lastViewed());
+      toSave.add(ch);
+      ratingCounts.put(rating.cardId(), rating.count());
+    }
+    cardHistoryRepository.saveAll(toSave);
+    List<RatedHistory> rated = new ArrayList<>(toSave.size());
+    for (CardHistory ch : toSave) {
+      int count = ratingCounts.get(ch.getCard().getId());
+      FlashcardsMetrics.ratingsRecorded(count);
+      rated.add(new RatedHistory(ch, ch.getPreviousRating(), count));
+    }
+    userStatsService.recordRatings(userId, rated);
+    log.debug("Applied {} queued ratings for user {}", toSave.size(), userId);
+    return toSave.size();
+  }
+
+  /** Ids of the user's cards in the subject that are due now, most overdue first. */
+  @Transactional(readOnly = true)
+  public List<Long> findDueCardIds(UUID userId, Long subjectId, int limit) {
+    return cardHistoryRepository.findDueCardIds(
+        userId, subjectId, LocalDateTime.now(), PageRequest.of(0, limit));
+  }
+
+  @Transactional(readOnly = true)
+  public Optional<LocalDateTime> findLastUpdatedAt(UUID userId, Long subjectId) {
+    return cardHistoryRepository.findLastUpdatedAt(userId, subjectId);
+  }
+
   @Transactional
   public void deleteByCardIds(List<Long> ids) {
-    log.info("Deleting card history for cards with ids {}", ids);
+    log.info("Deleting card history for {} cards", ids.size());
+    log.debug("Deleting card history for cards with ids {}", ids);
     cardHistoryRepository.deleteByCardIds(ids);
   }
 
   /* HELPERS */
 
+  /**
+   * Writes a whole batch with two statements, whatever its size: one creates the rows of cards
+   * rated for the first time, the other folds every rating in from parallel arrays.
+   */
+  private int upsertBatch(UUID userId, List<CoalescedRating> ratings) {
+    int size = ratings.size();
+    Long[] cardIds = new Long[size];
+    Integer[] counts = new Integer[size];
+    Integer[] sums = new Integer[size];
+    Integer[] lastRatings = new Integer[size];
+    LocalDateTime[] ratedAts = new LocalDateTime[size];
+    Boolean[] recalled = new Boolean[size];
+    Double[] easeChanges = new Double[size];
+    Map<Long, CoalescedRating> byCard = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      CoalescedRating rating = ratings.get(i);
+      cardIds[i] = rating.cardId();
+      counts[i] = rating.count();
+      sums[i] = rating.sum();
+      lastRatings[i] = rating.lastRating();
+      ratedAts[i] = rating.lastViewed();
+      recalled[i] = SpacedRepetition.recalled(rating.lastRating());
+      easeChanges[i] = SpacedRepetition.easeChange(rating.lastRating());
+      byCard.put(rating.cardId(), rating);
+    }
+    LocalDateTime now = LocalDateTime.now();
+    cardHistoryRepository.insertMissingHistories(userId, cardIds, now);
+    // The statement schedules the cards too, so the returned rows are left as they are
+    List<CardHistory> written =
+        cardHistoryRepository.applyRatingBatch(
+            userId,
+            cardIds,
+            counts,
+            sums,
+            lastRatings,
+            ratedAts,
+            recalled,
+            easeChanges,
+            now,
+            SpacedRepetition.INITIAL_EASE,
+            SpacedRepetition.MIN_EASE);
+
+    List<RatedHistory> rated = new ArrayList<>(written.size());
+    for (CardHistory ch : written) {
+      CoalescedRating rating = byCard.remove(ch.getCard().getId());
+      FlashcardsMetrics.ratingsRecorded(rating.count());
+      rated.add(new RatedHistory(ch, ch.getPreviousRating(), rating.count()));
+    }
+    if (!byCard.isEmpty()) {
+      log.warn("Dropping queued ratings for missing cards {}", byCard.keySet());
+    }
+    userStatsService.recordRatings(userId, rated);
+    return written.size();
+  }
+
+  private Optional<CardHistory> upsert(UUID userId, CoalescedRating rating) {
+    Optional<CardHistory> history =
+        cardHistoryRepository.upsertRatings(
+            rating.cardId(),
+            userId,
+            rating.count(),
+            rating.sum(),
+            rating.lastRating(),
+            rating.lastViewed(),
+            LocalDateTime.now(),
+            SpacedRepetition.recalled(rating.lastRating()),
+            SpacedRepetition.easeChange(rating.lastRating()),
+            SpacedRepetition.INITIAL_EASE,
+            SpacedRepetition.MIN_EASE);
+    // The statement schedules the card too, so the returned row is left as it is: changing it
+    // would make Hibernate write the row a second time on flush
+    history.ifPresent(
+        ch -> {
+          FlashcardsMetrics.ratingsRecorded(rating.count());
+          userStatsService.recordRatings(userId, ch, ch.getPreviousRating(), rating.count());
+        });
+    return history;
+  }
+
+  private static void applySchedule(CardHistory ch, int rating, LocalDateTime ratedAt) {
+    Schedule next =
+        SpacedRepetition.next(
+            Schedule.of(ch.getEaseFactor(), ch.getIntervalDays(), ch.getRepetitions()),
+            rating,
+            ratedAt);
+    ch.setEaseFactor(next.easeFactor());
+    ch.setIntervalDays(next.intervalDays());
+    ch.setRepetitions(next.repetitions());
+    ch.setDueAt(next.dueAt());
+  }
+
   private CardHistory getOrCreateCardHistoryForUser(User user, Card card) {
-    log.info(
+    log.debug(
         "Getting or creating card history for user {} and card {}", user.getId(), card.getId());
     var cardHistory = cardHistoryRepository.findByCardIdAndUserId(card.getId(), user.getId());
     if (cardHistory.isPresent()) {
-      log.info("Existing history found");
+      log.debug("Existing history found");
       return cardHistory.get();
     }
-    log.info("No existing history found, creating new one");
-    var ch = CardHistory.builder().user(user).viewCount(0).build();
+    log.debug("No existing history found, creating new one");
+    var ch =
+        CardHistory.builder().user(user).subjectId(card.getSubject().getId()).viewCount(0).build();
     ch.setCard(card);
     return ch;
   }
@@ -86,7 +293,7 @@ public class CardHistoryService {
   }
 
   private Card getCard(Long cardId) {
-    log.info("Fetching card with id {}", cardId);
+    log.debug("Fetching card with id {}", cardId);
     return cardRepository.findById(cardId).orElseThrow(() -> new CardNotFoundException(cardId));
   }
 }
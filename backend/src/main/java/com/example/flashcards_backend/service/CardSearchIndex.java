@@ -0,0 +1,32 @@
+package com.example.flashcards_backend.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Ranked search over card front, back and hints. A card matches when every query word matches one
+ * of its words in full or as a prefix, or, to tolerate typos, when the words are close enough by
+ * trigram similarity. Front and back rank above hints.
+ */
+public interface CardSearchIndex {
+
+  /**
+   * Ids of the user's matching cards in the subject, best match first, skipping {@code offset}
+   * and returning at most {@code limit}. {@code contentVersion} changes whenever the subject's
+   * cards do, so indexes kept outside the database know when to refresh.
+   */
+  List<Long> search(
+      UUID userId, Long subjectId, long contentVersion, List<String> terms, int offset, int limit);
+
+  /** Lower-cased letter and digit runs, the unit both indexes match on. */
+  static List<String> terms(String text) {
+    if (text == null) {
+      return List.of();
+    }
+    return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+        .filter(term -> !term.isEmpty())
+        .toList();
+  }
+}
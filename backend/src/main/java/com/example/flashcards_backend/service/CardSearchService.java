@@ -0,0 +1,41 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.dto.CardSearchResponse;
+import com.example.flashcards_backend.dto.CardSummary;
+import com.example.flashcards_backend.exception.SubjectNotFoundException;
+import com.example.flashcards_backend.model.User;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CardSearchService {
+  private final CardSearchIndex cardSearchIndex;
+  private final SubjectService subjectService;
+  private final CardService cardService;
+
+  @Transactional(readOnly = true)
+  public CardSearchResponse search(User user, Long subjectId, String query, int page, int size) {
+    long contentVersion =
+        subjectService
+            .findContentVersion(user, subjectId)
+            .orElseThrow(() -> new SubjectNotFoundException(subjectId));
+    List<String> terms = CardSearchIndex.terms(query);
+    if (terms.isEmpty()) {
+      return new CardSearchResponse(List.of(), page, false);
+    }
+    // Fetch one extra id to know whether another page follows without a count query
+    List<Long> ids =
+        cardSearchIndex.search(
+            user.getId(), subjectId, contentVersion, terms, page * size, size + 1);
+    boolean hasMore = ids.size() > size;
+    List<CardSummary> cards =
+        cardService.getCardSummariesInOrder(hasMore ? ids.subList(0, size) : ids);
+    log.debug("Search of subject {} for {} matched {} cards", subjectId, terms, cards.size());
+    return new CardSearchResponse(cards, page, hasMore);
+  }
+}
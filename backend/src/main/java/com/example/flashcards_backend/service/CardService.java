@@ -7,13 +7,20 @@ import com.example.flashcards_backend.model.Deck;
 import com.example.flashcards_backend.model.Subject;
 import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.repository.CardDeckRowProjection;
+import com.example.flashcards_backend.repository.CardKey;
 import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.SyncTombstoneRepository;
+import com.example.flashcards_backend.utility.FlashcardsMetrics;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.logging.log4j.util.Strings;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +32,9 @@ public class CardService {
   private final CardHistoryService cardHistoryService;
   private final CardDeckService cardDeckService;
   private final SubjectService subjectService;
+  private final UserStatsService userStatsService;
+  private final SyncTombstoneRepository syncTombstoneRepository;
+  private final FrontAutocompleteIndex frontAutocompleteIndex;
 
   protected List<CardSummary> getAllCardResponsesFromSubject(Long subjectId) {
     List<CardDeckRowProjection> rows = cardRepository.findCardDeckRowsBySubjectId(subjectId);
@@ -33,16 +43,89 @@ public class CardService {
 
   @Transactional(readOnly = true)
   public List<CardSummary> getAllCardResponsesForUserAndSubject(User user, Long subjectId) {
+    checkUserOwnsSubject(user, subjectId);
+    return getAllCardResponsesFromSubject(subjectId);
+  }
+
+  @Transactional(readOnly = true)
+  public CardPageResponse getCardPageForUserAndSubject(
+      User user, Long subjectId, Long after, int limit) {
+    checkUserOwnsSubject(user, subjectId);
+    // Fetch one extra id to know whether another page follows without a count query
+    List<Long> ids =
+        cardRepository.findCardIdsBySubjectIdAfter(
+            subjectId, after == null ? 0L : after, PageRequest.of(0, limit + 1));
+    boolean hasMore = ids.size() > limit;
+    List<Long> pageIds = hasMore ? ids.subList(0, limit) : ids;
+    List<CardSummary> cards =
+        pageIds.isEmpty()
+            ? List.of()
+            : mapRowsToResponses(cardRepository.findCardDeckRowsByCardIds(pageIds));
+    return new CardPageResponse(cards, hasMore ? pageIds.getLast() : null);
+  }
+
+  /**
+   * Returns up to {@code limit} cards that are due for review, most overdue first. When fewer are
+   * due and {@code includeNew} is set, the rest is filled with cards the user has never rated.
+   */
+  @Transactional(readOnly = true)
+  public List<CardSummary> getDueCardsForUserAndSubject(
+      User user, Long subjectId, int limit, boolean includeNew) {
+    checkUserOwnsSubject(user, subjectId);
+    List<Long> ids =
+        new ArrayList<>(cardHistoryService.findDueCardIds(user.getId(), subjectId, limit));
+    if (includeNew && ids.size() < limit) {
+      ids.addAll(
+          cardRepository.findUnseenCardIds(
+              subjectId, user.getId(), PageRequest.of(0, limit - ids.size())));
+    }
+    return getCardSummariesInOrder(ids);
+  }
+
+  /** Summaries of the given cards in the order of {@code ids}, skipping any that do not exist. */
+  @Transactional(readOnly = true)
+  public List<CardSummary> getCardSummariesInOrder(List<Long> ids) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    Map<Long, CardSummary> byId =
+        mapRowsToResponses(cardRepository.findCardDeckRowsByCardIds(ids)).stream()
+            .collect(Collectors.toMap(CardSummary::id, c -> c));
+    return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+  }
+
+  /**
+   * Streams the subject's cards to {@code consumer} in id order, holding at most one card in
+   * memory. Returns the number of cards emitted. Ownership is not checked here: callers check it
+   * with {@link #checkUserOwnsSubject} before they start writing a response.
+   */
+  @Transactional(readOnly = true)
+  public int streamCardResponsesFromSubject(Long subjectId, Consumer<CardSummary> consumer) {
+    try (Stream<CardDeckRowProjection> rows =
+        cardRepository.streamCardDeckRowsBySubjectId(subjectId)) {
+      return emitGroupedRows(rows.iterator(), consumer);
+    }
+  }
+
+  @Transactional(readOnly = true)
+  public void checkUserOwnsSubject(User user, Long subjectId) {
     Subject subject = subjectService.findById(subjectId);
-    if (!subject.getUser().equals(user)) {
+    if (!subject.getUser().getId().equals(user.getId())) {
       throw new IllegalArgumentException("User does not own subject");
     }
-    return getAllCardResponsesFromSubject(subjectId);
+  }
+
+  /** Reports a card in someone else's subject as not found, like a missing one. */
+  @Transactional(readOnly = true)
+  public void checkUserOwnsCard(User user, Long cardId) {
+    if (!cardRepository.existsByIdAndSubjectUserId(cardId, user.getId())) {
+      throw new CardNotFoundException(cardId);
+    }
   }
 
   @Transactional(readOnly = true)
   public CardSummary getCardResponseById(Long id) {
-    log.info("Getting card response for id {}", id);
+    log.debug("Getting card response for id {}", id);
     List<CardDeckRowProjection> rows = cardRepository.findCardDeckRowsByCardId(id);
     if (rows.isEmpty()) {
       throw new CardNotFoundException(id);
@@ -52,10 +135,10 @@ public class CardService {
 
   @Transactional
   public CreateCardResponse createCard(CardRequest request) {
-    log.info("Creating card with front: '{}'", request.front());
+    log.debug("Creating card with front: '{}'", request.front());
     Optional<Card> exists = getExistingCard(request);
     if (exists.isPresent()) {
-      log.info("Card already exists with id: {}", exists.get().getId());
+      log.debug("Card already exists with id: {}", exists.get().getId());
       return mapCardToCreateCardResponse(exists.get(), true);
     }
     Subject subject = subjectService.findById(request.subjectId());
@@ -69,14 +152,17 @@ public class CardService {
             .user(subject.getUser())
             .build();
     Card saved = cardRepository.saveAndFlush(cardToCreate);
-    log.info("Saved card with id {}", saved.getId());
+    log.debug("Saved card with id {}", saved.getId());
+    recordCardsCreated(List.of(saved));
     addDecksIfPresent(request, saved);
+    subjectService.recordContentChange(subject.getId());
+    frontAutocompleteIndex.cardsSaved(subject.getId(), List.of(saved));
     return mapCardToCreateCardResponse(saved, false);
   }
 
   @Transactional
   public List<CreateCardResponse> createCards(@NonNull List<CardRequest> requests) {
-    log.info("Creating cards from {} requests", requests.size());
+    log.debug("Creating cards from {} requests", requests.size());
     if (requests.isEmpty()) {
       log.error("No card requests provided");
       throw new IllegalArgumentException("No card requests provided");
@@ -84,10 +170,7 @@ public class CardService {
 
     List<CardCreationTask> cardCreationTasks = processCardRequests(requests);
 
-    List<Card> newCards = persistNewCards(cardCreationTasks);
-
-    // Link decks
-    boolean decksNeedUpdating = false;
+    // Link decks before persisting so cards and card_deck rows go out in one batched flush
     Map<String, Deck> decksByName = fetchOrCreateDecks(requests);
     for (CardCreationTask p : cardCreationTasks) {
       if (!p.existed && p.req.deckNames() != null && !p.req.deckNames().isEmpty()) {
@@ -97,18 +180,18 @@ public class CardService {
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
         p.card.addDecks(resolved);
-        decksNeedUpdating = true;
       }
     }
-    if (decksNeedUpdating) {
-      log.info("Updating decks");
-      cardRepository.saveAllAndFlush(newCards);
-    }
+
+    persistNewCards(cardCreationTasks);
 
     // Map at the very end (entities still managed here)
-    log.info(
-        "createCards complete: {} cards created. Returning results as CreateCardResponses...",
-        cardCreationTasks.size());
+    long existed = cardCreationTasks.stream().filter(p -> p.existed).count();
+    log.debug(
+        "createCards complete: {} requests, {} created, {} already existed",
+        cardCreationTasks.size(),
+        cardCreationTasks.size() - existed,
+        existed);
     return cardCreationTasks.stream()
         .map(p -> mapCardToCreateCardResponse(p.card, p.existed))
         .toList();
@@ -117,7 +200,7 @@ public class CardService {
   @Transactional
   public CardResponse updateCard(Long id, CardRequest request) {
     // Completely replace the card's front and back text and set its decks to those of the request.
-    log.info("Updating card {}", id);
+    log.debug("Updating card {}", id);
     Card card = fetchCardById(id);
     card.setFront(request.front());
     card.setBack(request.back());
@@ -125,7 +208,7 @@ public class CardService {
     card.setHintBack(request.hintBack());
     boolean decksDiffer = !card.getDeckNames().equals(getDeckNames(request));
     if (decksDiffer) {
-      log.info("Decks differ, updating card decks");
+      log.debug("Decks differ, updating card decks");
       card.removeAllDecks();
       if (request.deckNames() != null && !request.deckNames().isEmpty()) {
         Set<Deck> decks =
@@ -135,13 +218,15 @@ public class CardService {
       }
     }
     cardRepository.saveAndFlush(card);
-    log.info("Card {} successfully updated", id);
+    subjectService.recordContentChange(card.getSubject().getId());
+    frontAutocompleteIndex.cardsSaved(card.getSubject().getId(), List.of(card));
+    log.debug("Card {} successfully updated", id);
     return CardResponse.fromEntity(card);
   }
 
   @Transactional
   public void deleteCards(List<Long> ids) throws CardNotFoundException {
-    log.info("Deleting {} cards", ids.size());
+    log.debug("Deleting {} cards", ids.size());
     if (ids.isEmpty()) {
       return;
     }
@@ -149,46 +234,64 @@ public class CardService {
     // Fetch to check existence (future-proof for partial failures)
     List<Card> cards = fetchCardsByIds(ids);
     if (cards.size() != ids.size()) {
-      log.info("Found {} cards, expected {}", cards.size(), ids.size());
+      log.debug("Found {} cards, expected {}", cards.size(), ids.size());
       Set<Long> foundIds = cards.stream().map(Card::getId).collect(Collectors.toSet());
       List<Long> missingIds = ids.stream().filter(id -> !foundIds.contains(id)).toList();
       throw new CardNotFoundException(missingIds);
     }
 
+    syncTombstoneRepository.recordCardDeletions(ids, LocalDateTime.now());
     cardHistoryService.deleteByCardIds(ids);
 
-    log.info("Deleting associations between cards and decks");
+    log.debug("Deleting associations between cards and decks");
     cardRepository.deleteDeckAssociationsByCardIds(ids);
 
-    log.info("Deleting cards");
+    log.debug("Deleting cards");
     cardRepository.deleteByIds(
         ids); // Or cardRepository.deleteAllById(ids) if using Spring Data's built-in
+
+    // Deleted cards may have held the hardest or most-viewed spot, so recompute rather than adjust
+    cards.stream()
+        .map(Card::getUser)
+        .filter(Objects::nonNull)
+        .map(User::getId)
+        .distinct()
+        .forEach(userStatsService::rebuild);
+    subjectService.recordContentChanges(
+        cards.stream().map(card -> card.getSubject().getId()).toList());
+    cards.stream()
+        .collect(
+            Collectors.groupingBy(
+                card -> card.getSubject().getId(),
+                Collectors.mapping(Card::getId, Collectors.toList())))
+        .forEach(frontAutocompleteIndex::cardsDeleted);
   }
 
   @Transactional
   public CardResponse setHints(HintRequest request, Long id) {
-    log.info("Setting hints for card {}", id);
+    log.debug("Setting hints for card {}", id);
     Card card = fetchCardById(id);
     card.setHintFront(Strings.trimToNull(request.hintFront()));
     card.setHintBack(Strings.trimToNull(request.hintBack()));
+    subjectService.recordContentChange(card.getSubject().getId());
     return CardResponse.fromEntity(card);
   }
 
   /* Helpers */
   private Card fetchCardById(Long id) {
-    log.info("Fetching card with id {}", id);
+    log.debug("Fetching card with id {}", id);
     return cardRepository.findById(id).orElseThrow(() -> new CardNotFoundException(id));
   }
 
   private List<Card> fetchCardsByIds(List<Long> ids) {
-    log.info("Fetching {} cards by id", ids.size());
+    log.debug("Fetching {} cards by id", ids.size());
     return cardRepository.findAllById(ids);
   }
 
   private void addDecksIfPresent(CardRequest request, Card cardToCreate) {
-    log.info("Checking for decks to add...");
+    log.debug("Checking for decks to add...");
     if (request.deckNames() != null && !request.deckNames().isEmpty()) {
-      log.info("Adding decks {} to card {}", request.deckNames(), cardToCreate.getId());
+      log.debug("Adding decks {} to card {}", request.deckNames(), cardToCreate.getId());
       cardToCreate.addDecks(
           cardDeckService.getOrCreateDecksByNamesAndSubjectId(
               getDeckNames(request), request.subjectId()));
@@ -205,7 +308,8 @@ public class CardService {
   }
 
   private List<CardSummary> mapRowsToResponses(List<CardDeckRowProjection> rows) {
-    log.info("Mapping {} projection rows to CardResponses", rows.size());
+    log.debug("Mapping {} projection rows to CardResponses", rows.size());
+    FlashcardsMetrics.cardRowsFetched(rows.size());
     Map<Long, CardSummary> cardMap = new LinkedHashMap<>();
     for (CardDeckRowProjection row : rows) {
       CardSummary existing = cardMap.get(row.getCardId());
@@ -220,6 +324,31 @@ public class CardService {
     return new ArrayList<>(cardMap.values());
   }
 
+  // Rows arrive ordered by card id, so a card is complete as soon as the id changes
+  private static int emitGroupedRows(
+      Iterator<CardDeckRowProjection> rows, Consumer<CardSummary> consumer) {
+    int emitted = 0;
+    CardSummary current = null;
+    while (rows.hasNext()) {
+      CardDeckRowProjection row = rows.next();
+      if (current == null || !current.id().equals(row.getCardId())) {
+        if (current != null) {
+          consumer.accept(current);
+          emitted++;
+        }
+        current = CardSummary.fromEntity(row);
+      }
+      if (row.getDeckId() != null) {
+        current.decks().add(new DeckSummary(row.getDeckId(), row.getDeckName()));
+      }
+    }
+    if (current != null) {
+      consumer.accept(current);
+      emitted++;
+    }
+    return emitted;
+  }
+
   protected CreateCardResponse mapCardToCreateCardResponse(Card card, boolean alreadyExisted) {
     return CreateCardResponse.builder()
         .id(card.getId())
@@ -235,17 +364,23 @@ public class CardService {
   private List<CardCreationTask> processCardRequests(List<CardRequest> requests) {
     Subject subject = subjectService.findById(enforceSingleSubjectId(requests).iterator().next());
     List<CardCreationTask> cardCreationTasks = new ArrayList<>();
-    log.info("Processing requests into existing or new");
+    log.debug("Processing requests into existing or new");
 
+    Map<CardKey, Card> existingCards = findExistingCards(subject.getId(), requests);
+    Map<CardKey, Card> newCards = new HashMap<>();
     for (CardRequest req : requests) {
-      Optional<Card> existing = getExistingCard(req);
-      if (existing.isPresent()) {
-        log.info(
+      CardKey key = new CardKey(req.front(), req.back());
+      Card existing = existingCards.get(key);
+      if (existing != null) {
+        log.debug(
             "Card '{} : {}'  already exists in subject '{}'",
             req.front(),
             req.back(),
             subject.getName());
-        cardCreationTasks.add(new CardCreationTask(req, true, existing.get()));
+        cardCreationTasks.add(new CardCreationTask(req, true, existing));
+      } else if (newCards.containsKey(key)) {
+        log.debug("Card '{} : {}' repeated in request, creating it once", req.front(), req.back());
+        cardCreationTasks.add(new CardCreationTask(req, true, newCards.get(key)));
       } else {
         Card card =
             Card.builder()
@@ -256,25 +391,66 @@ public class CardService {
                 .subject(subject)
                 .user(subject.getUser())
                 .build();
+        newCards.put(key, card);
         cardCreationTasks.add(new CardCreationTask(req, false, card));
       }
     }
     return cardCreationTasks;
   }
 
-  private List<Card> persistNewCards(List<CardCreationTask> cardCreationTask) {
+  /**
+   * Looks up all requested cards that already exist in the subject. The front/back superset is
+   * checked as {@link CardKey} projections, and only exact matches are then loaded as entities, so
+   * a batch of new cards costs one narrow query.
+   */
+  protected Map<CardKey, Card> findExistingCards(Long subjectId, List<CardRequest> requests) {
+    Set<CardKey> requested =
+        requests.stream().map(r -> new CardKey(r.front(), r.back())).collect(Collectors.toSet());
+    Set<String> fronts = requested.stream().map(CardKey::front).collect(Collectors.toSet());
+    Set<String> backs = requested.stream().map(CardKey::back).collect(Collectors.toSet());
+    Set<CardKey> existing =
+        cardRepository.findCardKeysBySubjectId(subjectId, fronts, backs).stream()
+            .filter(requested::contains)
+            .collect(Collectors.toSet());
+    if (existing.isEmpty()) {
+      return Map.of();
+    }
+    return cardRepository
+        .findBySubjectIdAndFrontInAndBackIn(
+            subjectId,
+            existing.stream().map(CardKey::front).collect(Collectors.toSet()),
+            existing.stream().map(CardKey::back).collect(Collectors.toSet()))
+        .stream()
+        .filter(c -> existing.contains(new CardKey(c.getFront(), c.getBack())))
+        .collect(
+            Collectors.toMap(c -> new CardKey(c.getFront(), c.getBack()), c -> c, (a, b) -> a));
+  }
+
+  private void persistNewCards(List<CardCreationTask> cardCreationTask) {
     // Persist new cards
     List<Card> newCards =
         cardCreationTask.stream().filter(p -> !p.existed).map(p -> p.card).toList();
     cardRepository.saveAllAndFlush(newCards);
-    log.info("Created {} new cards", newCards.size());
-    return newCards;
+    log.debug("Created {} new cards", newCards.size());
+    recordCardsCreated(newCards);
+    if (!newCards.isEmpty()) {
+      Long subjectId = newCards.getFirst().getSubject().getId();
+      subjectService.recordContentChange(subjectId);
+      frontAutocompleteIndex.cardsSaved(subjectId, newCards);
+    }
+  }
+
+  private void recordCardsCreated(List<Card> newCards) {
+    // All cards in a request belong to the subject's owner
+    if (!newCards.isEmpty() && newCards.getFirst().getUser() != null) {
+      userStatsService.recordCardsCreated(newCards.getFirst().getUser().getId(), newCards.size());
+    }
   }
 
   private Map<String, Deck> fetchOrCreateDecks(List<CardRequest> requests) {
     Long subjectId = requests.getFirst().subjectId();
     // 1️⃣ Collect all deck names from *new* card requests
-    log.info("Collating deck names from {} card requests", requests.size());
+    log.debug("Collating deck names from {} card requests", requests.size());
     Set<String> allDeckNames =
         requests.stream()
             .map(CardRequest::deckNames)
@@ -288,12 +464,12 @@ public class CardService {
             ? Collections.emptyMap()
             : cardDeckService.getOrCreateDecksByNamesAndSubjectId(allDeckNames, subjectId).stream()
                 .collect(Collectors.toMap(Deck::getName, d -> d));
-    log.info("Fetched {} decks from card selection: {}", decksByName.size(), decksByName.keySet());
+    log.debug("Fetched {} decks from card selection: {}", decksByName.size(), decksByName.keySet());
     return decksByName;
   }
 
   private static Set<Long> enforceSingleSubjectId(List<CardRequest> requests) {
-    log.info("Enforcing single subjectId for {} card requests", requests.size());
+    log.debug("Enforcing single subjectId for {} card requests", requests.size());
     Set<Long> subjectIds =
         requests.stream().map(CardRequest::subjectId).collect(Collectors.toSet());
 
@@ -302,7 +478,7 @@ public class CardService {
       throw new IllegalArgumentException(
           "All CardRequests must share the same subjectId. Found: " + subjectIds);
     }
-    log.info("Found single subjectId: {}", subjectIds.iterator().next());
+    log.debug("Found single subjectId: {}", subjectIds.iterator().next());
     return subjectIds;
   }
 
@@ -0,0 +1,18 @@
+package com.example.flashcards_backend.service;
+
+import java.time.LocalDateTime;
+
+/** One or more ratings of the same card by the same user, folded into a count and a sum. */
+public record CoalescedRating(
+    Long cardId, int count, int sum, int lastRating, LocalDateTime lastViewed) {
+
+  public static CoalescedRating single(Long cardId, int rating, LocalDateTime ratedAt) {
+    return new CoalescedRating(cardId, 1, rating, rating, ratedAt);
+  }
+
+  /** Folds in ratings made after this one; the later ratings win for last rating and time. */
+  public CoalescedRating plus(CoalescedRating later) {
+    return new CoalescedRating(
+        cardId, count + later.count, sum + later.sum, later.lastRating, later.lastViewed);
+  }
+}
@@ -1,10 +1,14 @@
 package com.example.flashcards_backend.service;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 public interface CsvExportService {
     byte[] exportCards(CardSource cardSource, Long id) throws IOException;
 
+    /** Writes the CSV to {@code out} as rows are read and returns the number of cards written. */
+    int writeCards(CardSource cardSource, Long id, OutputStream out) throws IOException;
+
     enum CardSource {
         SUBJECT, DECK
     }
@@ -7,18 +7,25 @@ import com.example.flashcards_backend.model.Deck;
 import com.example.flashcards_backend.model.Subject;
 import com.example.flashcards_backend.repository.CardExportRowProjection;
 import com.example.flashcards_backend.repository.CardRepository;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
 
 @Service
 @Slf4j
@@ -26,6 +33,11 @@ import org.springframework.stereotype.Service;
 public class CsvExportServiceImpl implements CsvExportService {
 
   private static final char DECK_SEPARATOR = ';';
+  private static final CSVFormat CSV_FORMAT =
+      CSVFormat.DEFAULT
+          .builder()
+          .setHeader("front", "back", "hint_front", "hint_back", "decks")
+          .get();
 
   private final CardRepository cardRepository;
   private final SubjectService subjectService;
@@ -47,6 +59,34 @@ public class CsvExportServiceImpl implements CsvExportService {
     }
   }
 
+  /**
+   * Streams the export straight to {@code out}. Rows are read through a forward-only cursor and
+   * grouped per card as they arrive, so memory use does not depend on the number of cards.
+   */
+  @Transactional(readOnly = true)
+  @Override
+  public int writeCards(CardSource cardSource, Long id, OutputStream out)
+      throws IOException, SubjectNotFoundException, DeckNotFoundException {
+    Deck deck = null;
+    Stream<CardExportRowProjection> rows;
+    if (cardSource == CardSource.SUBJECT) {
+      log.info("Streaming all cards for subject '{}'", getSubject(id).getName());
+      rows = cardRepository.streamExportRowsBySubjectId(id);
+    } else {
+      deck = getDeck(id);
+      log.info("Streaming all cards for deck '{}'", deck.getName());
+      rows = cardRepository.streamExportRowsByDeckId(id);
+    }
+    try (rows) {
+      int written = writeCsv(rows.iterator(), deck, out);
+      logCardsFound(written);
+      return written;
+    } catch (IOException e) {
+      log.error("Error streaming CSV", e);
+      throw e;
+    }
+  }
+
   private byte[] generateCsvForSubject(Long subjectId)
       throws SubjectNotFoundException, IOException {
     Subject subject = getSubject(subjectId);
@@ -54,71 +94,77 @@ public class CsvExportServiceImpl implements CsvExportService {
     log.info("Exporting all cards for subject '{}'", subject.getName());
     List<CardExportRowProjection> rawRows = cardRepository.findExportRowsBySubjectId(subjectId);
 
-    List<CardExport> exports = groupCardExports(rawRows);
-
-    logCardsFound(exports);
-    return generateCsvFromCardExports(exports);
+    return generateCsv(rawRows, null);
   }
 
-
   private byte[] generateCsvForDeck(Long deckId) throws DeckNotFoundException, IOException {
     Deck deck = getDeck(deckId);
 
     log.info("Exporting all cards for deck '{}'", deck.getName());
     List<CardExportRowProjection> cards = cardRepository.findExportRowsByDeckId(deckId);
 
-    List<CardExport> exports = groupCardExports(cards);
-
-    logCardsFound(exports);
-    return generateCsvFromCardExports(exports, deck);
+    return generateCsv(cards, deck);
   }
 
-  private byte[] generateCsvFromCardExports(List<CardExport> cards) throws IOException {
-    return generateCsvFromCardExports(cards, null);
+  private static byte[] generateCsv(List<CardExportRowProjection> rows, Deck deck)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    logCardsFound(writeCsv(rows.iterator(), deck, out));
+    return out.toByteArray();
   }
 
-  private byte[] generateCsvFromCardExports(List<CardExport> cards, Deck deck)
+  /**
+   * Writes one record per card. Rows must arrive ordered by card id; consecutive rows of the same
+   * card are merged into its deck list. When exporting a deck only that deck's name is listed.
+   */
+  private static int writeCsv(Iterator<CardExportRowProjection> rows, Deck deck, OutputStream out)
       throws IOException {
-    StringWriter out = new StringWriter();
-    CSVFormat format =
-        CSVFormat.DEFAULT
-            .builder()
-            .setHeader("front", "back", "hint_front", "hint_back", "decks")
-            .get();
-
-    try (CSVPrinter printer = new CSVPrinter(out, format)) {
-      for (CardExport card : cards) {
-        String decksJoined =
-            deck != null
-                ? deck.getName()
-                : String.join(String.valueOf(DECK_SEPARATOR), card.deckNames());
-        printer.printRecord(
-            card.front(), card.back(), card.hintFront(), card.hintBack(), decksJoined);
+    int written = 0;
+    Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(StreamUtils.nonClosing(out), StandardCharsets.UTF_8));
+    try (CSVPrinter printer = new CSVPrinter(writer, CSV_FORMAT)) {
+      CardExportRowProjection current = null;
+      SortedSet<String> deckNames = new TreeSet<>();
+      while (rows.hasNext()) {
+        CardExportRowProjection row = rows.next();
+        if (current != null && !current.getCardId().equals(row.getCardId())) {
+          printCard(printer, toCardExport(current, deckNames), deck);
+          written++;
+          deckNames.clear();
+        }
+        if (current == null || !current.getCardId().equals(row.getCardId())) {
+          current = row;
+        }
+        if (row.getDeck() != null) {
+          deckNames.add(row.getDeck());
+        }
+      }
+      if (current != null) {
+        printCard(printer, toCardExport(current, deckNames), deck);
+        written++;
       }
     }
+    return written;
+  }
 
-    return out.toString().getBytes(StandardCharsets.UTF_8);
+  private static CardExport toCardExport(CardExportRowProjection row, SortedSet<String> decks) {
+    return new CardExport(
+        row.getCardId(),
+        row.getFront(),
+        row.getBack(),
+        row.getHintFront(),
+        row.getHintBack(),
+        List.copyOf(decks));
   }
 
-  private static List<CardExport> groupCardExports(List<CardExportRowProjection> rawRows) {
-    Map<Long, List<CardExportRowProjection>> grouped = rawRows.stream()
-        .collect(Collectors.groupingBy(CardExportRowProjection::getCardId));
-
-    return grouped.values().stream()
-        .map(group -> new CardExport(
-            group.getFirst().getCardId(),
-            group.getFirst().getFront(),
-            group.getFirst().getBack(),
-            group.getFirst().getHintFront(),
-            group.getFirst().getHintBack(),
-            group.stream()
-                .map(CardExportRowProjection::getDeck)
-                .filter(Objects::nonNull)
-                .distinct()
-                .sorted()
-                .toList()
-        ))
-        .toList();
+  private static void printCard(CSVPrinter printer, CardExport card, Deck deck)
+      throws IOException {
+    String decksJoined =
+        deck != null
+            ? deck.getName()
+            : String.join(String.valueOf(DECK_SEPARATOR), card.deckNames());
+    printer.printRecord(card.front(), card.back(), card.hintFront(), card.hintBack(), decksJoined);
   }
 
   private Subject getSubject(Long subjectId) {
@@ -129,7 +175,7 @@ public class CsvExportServiceImpl implements CsvExportService {
     return deckService.getDeckById(deckId);
   }
 
-  private static void logCardsFound(List<CardExport> cards) {
-    log.info("{} cards found", cards.size());
+  private static void logCardsFound(int cards) {
+    log.info("{} cards found", cards);
   }
 }
@@ -7,4 +7,11 @@ import java.io.InputStream;
 
 public interface CsvUploadService {
     CsvUploadResponseDto uploadCsv(InputStream csvStream, Long subjectId) throws IOException;
-}
\ No newline at end of file
+
+    CsvUploadResponseDto uploadCsv(InputStream csvStream, Long subjectId, boolean includeCards)
+        throws IOException;
+
+    CsvUploadResponseDto uploadCsv(
+        InputStream csvStream, Long subjectId, boolean includeCards, boolean detectNearDuplicates)
+        throws IOException;
+}
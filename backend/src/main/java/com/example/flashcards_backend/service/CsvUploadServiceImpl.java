@@ -2,19 +2,28 @@ package com.example.flashcards_backend.service;
 
 import com.example.flashcards_backend.dto.CardRequest;
 import com.example.flashcards_backend.dto.CardSummary;
+import com.example.flashcards_backend.dto.CreateCardResponse;
 import com.example.flashcards_backend.dto.CsvUploadResponseDto;
+import com.example.flashcards_backend.dto.NearDuplicate;
 import com.example.flashcards_backend.exception.InvalidCsvFormatException;
 import com.example.flashcards_backend.exception.SubjectNotFoundException;
 import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.repository.CardKey;
 import com.example.flashcards_backend.repository.CardRepository;
-import jakarta.transaction.Transactional;
+import com.example.flashcards_backend.repository.CardText;
+import com.example.flashcards_backend.utility.FlashcardsMetrics;
+import com.example.flashcards_backend.utility.MinHashIndex;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.logging.log4j.util.Strings;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -31,69 +40,164 @@ public class CsvUploadServiceImpl implements CsvUploadService {
   public static final String DECKS = "decks";
   public static final String HINT_FRONT = "hint_front";
   public static final String HINT_BACK = "hint_back";
+  public static final int DEFAULT_CHUNK_SIZE = 500;
+  // Invalid rows logged individually per upload; the rest only show up at DEBUG and in the totals
+  public static final int DEFAULT_INVALID_ROWS_LOGGED = 10;
+  public static final double DEFAULT_NEAR_DUPLICATE_THRESHOLD = 0.8;
   private final CardRepository cardRepository;
   private final SubjectService subjectService;
   private final CardService cardService;
+  private final EntityManager entityManager;
+  private final PlatformTransactionManager transactionManager;
+
+  @Value("${app.csv-upload.chunk-size:" + DEFAULT_CHUNK_SIZE + "}")
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+  @Value("${app.csv-upload.invalid-rows-logged:" + DEFAULT_INVALID_ROWS_LOGGED + "}")
+  private int invalidRowsLogged = DEFAULT_INVALID_ROWS_LOGGED;
+
+  @Value("${app.csv-upload.near-duplicate-threshold:" + DEFAULT_NEAR_DUPLICATE_THRESHOLD + "}")
+  private double nearDuplicateThreshold = DEFAULT_NEAR_DUPLICATE_THRESHOLD;
 
-  @Transactional
   @Override
   public CsvUploadResponseDto uploadCsv(InputStream csvStream, Long subjectId)
       throws IOException, SubjectNotFoundException {
+    return uploadCsv(csvStream, subjectId, true);
+  }
+
+  @Override
+  public CsvUploadResponseDto uploadCsv(InputStream csvStream, Long subjectId, boolean includeCards)
+      throws IOException, SubjectNotFoundException {
+    return uploadCsv(csvStream, subjectId, includeCards, false);
+  }
+
+  /**
+   * Reads the CSV one record at a time and saves new cards in chunks of {@code chunkSize}. Each
+   * chunk commits in its own transaction and the persistence context is cleared after it, so
+   * neither memory use nor how long locks are held grows with the file. The import is therefore not
+   * all-or-nothing: if the file fails part way, the chunks before the failure stay saved, and
+   * uploading it again skips them as duplicates. With {@code detectNearDuplicates}, rows nearly
+   * the same as an existing card or an earlier row are reported instead of saved; see {@link
+   * MinHashIndex}.
+   */
+  @Override
+  public CsvUploadResponseDto uploadCsv(
+      InputStream csvStream, Long subjectId, boolean includeCards, boolean detectNearDuplicates)
+      throws IOException, SubjectNotFoundException {
 
     log.info("Starting CSV upload for subject with id: {}", subjectId);
 
     Subject subject = fetchSubject(subjectId);
-    log.info("Subject '{}' found", subject.getName());
+    log.debug("Subject '{}' found", subject.getName());
 
     try (Reader reader =
-        new BufferedReader(new InputStreamReader(csvStream, StandardCharsets.UTF_8))) {
-      log.info("Parsing CSV with");
+            new BufferedReader(new InputStreamReader(csvStream, StandardCharsets.UTF_8));
+        CSVParser parser = CSVParser.parse(reader, csvFormat())) {
+      log.debug("Parsing CSV");
 
-      List<CSVRecord> all = parseAllRecords(reader);
-      log.info("{} rows found", all.size());
-      if (all.isEmpty()) {
-        log.info("No rows found, skipping upload");
-        throw new InvalidCsvFormatException("No rows found in CSV");
+      UploadTally tally =
+          new UploadTally(includeCards, detectNearDuplicates ? indexCards(subjectId) : null);
+      TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager);
+      List<CSVRecord> chunk = new ArrayList<>(chunkSize);
+      for (CSVRecord r : parser) {
+        tally.rows++;
+        if (!isValid(r)) {
+          logInvalid(r, tally.invalid++);
+          continue;
+        }
+        chunk.add(r);
+        if (chunk.size() >= chunkSize) {
+          chunkTransaction.executeWithoutResult(status -> importChunk(chunk, subjectId, tally));
+          chunk.clear();
+        }
       }
-      List<CSVRecord> valid = filterValid(all);
-      logInvalid(all, valid);
-
-      if (valid.isEmpty()) {
-        log.info("No valid rows found, skipping upload");
-        return CsvUploadResponseDto.builder().build();
+      if (!chunk.isEmpty()) {
+        chunkTransaction.executeWithoutResult(status -> importChunk(chunk, subjectId, tally));
       }
 
-      Map<Boolean, List<CSVRecord>> recordsGroupedByDuplication =
-          partitionByDuplicate(valid, subjectId);
-
-      List<CardSummary> duplicates = buildDuplicateResponses(recordsGroupedByDuplication);
-      List<CardRequest> toSave = buildNewCardRequests(subjectId, recordsGroupedByDuplication);
+      log.debug("{} rows found", tally.rows);
+      if (tally.rows == 0) {
+        log.info("No rows found, skipping upload");
+        throw new InvalidCsvFormatException("No rows found in CSV");
+      }
       log.info(
-          "Final report: Valid: {}, Invalid: {}, Duplicates: {}, To save: {}",
-          valid.size(),
-          all.size() - valid.size(),
-          recordsGroupedByDuplication.get(true).size(),
-          toSave.size());
-
-      log.info("Saving {} cards", toSave.size());
-      List<CardSummary> saved =
-          cardService.createCards(toSave).stream().map(CardSummary::fromEntity).toList();
-      log.info("Cards saved");
+          "Final report for subject {}: Valid: {}, Invalid: {}, Duplicates: {},"
+              + " Near duplicates: {}, Saved: {}",
+          subjectId,
+          tally.rows - tally.invalid,
+          tally.invalid,
+          tally.duplicateCount,
+          tally.nearDuplicateCount,
+          tally.savedCount);
+      if (tally.invalid > invalidRowsLogged) {
+        log.info(
+            "{} further invalid rows not logged individually", tally.invalid - invalidRowsLogged);
+      }
+      FlashcardsMetrics.csvUploaded(
+          tally.rows, tally.savedCount, tally.duplicateCount, tally.invalid);
 
-      log.info("CSV upload complete. Building response.");
-      return CsvUploadResponseDto.builder().saved(saved).duplicates(duplicates).build();
+      log.debug("CSV upload complete. Building response.");
+      return CsvUploadResponseDto.builder()
+          .saved(tally.saved)
+          .duplicates(tally.duplicates)
+          .nearDuplicates(tally.nearDuplicates)
+          .savedCount(tally.savedCount)
+          .duplicateCount(tally.duplicateCount)
+          .nearDuplicateCount(tally.nearDuplicateCount)
+          .invalidCount(tally.invalid)
+          .build();
 
+    } catch (UncheckedIOException e) {
+      // Raised by the parser's iterator when a read fails mid-file
+      log.error("CSV processing error", e);
+      throw e.getCause();
     } catch (IOException e) {
       log.error("CSV processing error", e);
       throw e;
     }
   }
 
-  private List<CardRequest> buildNewCardRequests(
-      Long subjectId, Map<Boolean, List<CSVRecord>> recordsGroupedByDuplication) {
-    // Handle new cards
-    List<CardRequest> toSave = new ArrayList<>();
-    for (CSVRecord r : recordsGroupedByDuplication.get(false)) {
+  private void importChunk(List<CSVRecord> chunk, Long subjectId, UploadTally tally) {
+    Map<Boolean, List<CSVRecord>> recordsGroupedByDuplication =
+        partitionByDuplicate(chunk, subjectId);
+
+    List<CSVRecord> duplicates = recordsGroupedByDuplication.get(true);
+    tally.duplicateCount += duplicates.size();
+    if (tally.includeCards) {
+      tally.duplicates.addAll(buildDuplicateResponses(duplicates));
+    }
+
+    List<CSVRecord> newRecords = recordsGroupedByDuplication.get(false);
+    if (tally.similar != null) {
+      newRecords = dropNearDuplicates(newRecords, tally);
+    }
+    List<CardRequest> toSave = buildNewCardRequests(subjectId, newRecords);
+    if (toSave.isEmpty()) {
+      return;
+    }
+    log.debug("Saving chunk of {} cards", toSave.size());
+    List<CreateCardResponse> created = cardService.createCards(toSave);
+    tally.savedCount += created.size();
+    if (tally.includeCards) {
+      created.stream().map(CardSummary::fromEntity).forEach(tally.saved::add);
+    }
+    // Saved cards are not needed again; don't let the persistence context grow with the file
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  /** Logs the first few invalid rows of an upload at WARN and any after that at DEBUG. */
+  private void logInvalid(CSVRecord r, int invalidSoFar) {
+    if (invalidSoFar < invalidRowsLogged) {
+      log.warn("Skipping invalid row: {}", r);
+    } else {
+      log.debug("Skipping invalid row: {}", r);
+    }
+  }
+
+  private List<CardRequest> buildNewCardRequests(Long subjectId, List<CSVRecord> records) {
+    List<CardRequest> toSave = new ArrayList<>(records.size());
+    for (CSVRecord r : records) {
       Set<String> deckNames = parseDecks(r.get(DECKS));
 
       CardRequest request =
@@ -110,9 +214,8 @@ public class CsvUploadServiceImpl implements CsvUploadService {
     return toSave;
   }
 
-  private static List<CardSummary> buildDuplicateResponses(
-      Map<Boolean, List<CSVRecord>> recordsGroupedByDuplication) {
-    return recordsGroupedByDuplication.get(true).stream()
+  private static List<CardSummary> buildDuplicateResponses(List<CSVRecord> duplicates) {
+    return duplicates.stream()
         .map(r -> CardSummary.builder().front(r.get(FRONT)).back(r.get(BACK)).build())
         .toList();
   }
@@ -121,46 +224,86 @@ public class CsvUploadServiceImpl implements CsvUploadService {
     return subjectService.findById(subjectId);
   }
 
-  private List<CSVRecord> parseAllRecords(Reader reader) throws IOException {
-    CSVFormat format =
-        CSVFormat.DEFAULT
-            .builder()
-            .setHeader()
-            .setSkipHeaderRecord(true)
-            .setIgnoreHeaderCase(true)
-            .setTrim(true)
-            .get();
+  private static CSVFormat csvFormat() {
+    return CSVFormat.DEFAULT
+        .builder()
+        .setHeader()
+        .setSkipHeaderRecord(true)
+        .setIgnoreHeaderCase(true)
+        .setTrim(true)
+        .get();
+  }
+
+  private static boolean isValid(CSVRecord r) {
+    String f = r.get(FRONT);
+    String b = r.get(BACK);
+    return f != null && !f.isBlank() && b != null && !b.isBlank();
+  }
+
+  /**
+   * Splits a chunk into new rows and duplicates with a single query. A row is a duplicate if the
+   * subject already has the card or if it repeats an earlier row of the same chunk; repeats across
+   * chunks are caught by the query because earlier chunks are already saved.
+   */
+  private Map<Boolean, List<CSVRecord>> partitionByDuplicate(List<CSVRecord> rows, Long subjectId) {
+    Set<String> fronts = new HashSet<>();
+    Set<String> backs = new HashSet<>();
+    for (CSVRecord r : rows) {
+      fronts.add(r.get(FRONT));
+      backs.add(r.get(BACK));
+    }
+    Set<CardKey> existing =
+        new HashSet<>(cardRepository.findCardKeysBySubjectId(subjectId, fronts, backs));
 
-    try (CSVParser parser = CSVParser.parse(reader, format)) {
-      return parser.getRecords();
+    Map<Boolean, List<CSVRecord>> partitioned =
+        Map.of(true, new ArrayList<>(), false, new ArrayList<>());
+    Set<CardKey> seen = new HashSet<>();
+    for (CSVRecord r : rows) {
+      CardKey key = new CardKey(r.get(FRONT), r.get(BACK));
+      boolean duplicate = existing.contains(key) || !seen.add(key);
+      partitioned.get(duplicate).add(r);
     }
+    return partitioned;
   }
 
-  private List<CSVRecord> filterValid(List<CSVRecord> rows) {
-    return rows.stream()
-        .filter(
-            r -> {
-              String f = r.get(FRONT);
-              String b = r.get(BACK);
-              return f != null && !f.isBlank() && b != null && !b.isBlank();
-            })
-        .toList();
+  /** Indexes the subject's cards once so each row is checked against them in near-constant time. */
+  private MinHashIndex<CardSummary> indexCards(Long subjectId) {
+    MinHashIndex<CardSummary> index = new MinHashIndex<>(nearDuplicateThreshold);
+    for (CardText card : cardRepository.findCardTextsBySubjectId(subjectId)) {
+      index.add(
+          CardSummary.builder().id(card.id()).front(card.front()).back(card.back()).build(),
+          similarityText(card.front(), card.back()));
+    }
+    log.debug("Indexed {} cards of subject {} for near-duplicate checks", index.size(), subjectId);
+    return index;
   }
 
-  private void logInvalid(List<CSVRecord> all, List<CSVRecord> valid) {
-    var validSet = new HashSet<>(valid);
-    all.stream()
-        .filter(r -> !validSet.contains(r))
-        .forEach(r -> log.warn("Skipping invalid row: {}", r));
+  /**
+   * Reports rows that are nearly the same as an indexed card and returns the rest, which are
+   * indexed in turn so later rows of the file are checked against them too.
+   */
+  private static List<CSVRecord> dropNearDuplicates(List<CSVRecord> rows, UploadTally tally) {
+    List<CSVRecord> kept = new ArrayList<>(rows.size());
+    for (CSVRecord r : rows) {
+      CardSummary row = CardSummary.builder().front(r.get(FRONT)).back(r.get(BACK)).build();
+      String text = similarityText(row.front(), row.back());
+      Optional<MinHashIndex.Match<CardSummary>> match = tally.similar.findSimilar(text);
+      if (match.isEmpty()) {
+        tally.similar.add(row, text);
+        kept.add(r);
+        continue;
+      }
+      tally.nearDuplicateCount++;
+      if (tally.includeCards) {
+        tally.nearDuplicates.add(
+            new NearDuplicate(row, match.get().item(), match.get().similarity()));
+      }
+    }
+    return kept;
   }
 
-  private Map<Boolean, List<CSVRecord>> partitionByDuplicate(List<CSVRecord> rows, Long subjectId) {
-    return rows.stream()
-        .collect(
-            Collectors.partitioningBy(
-                r ->
-                    cardRepository.existsByFrontAndBackAndSubjectId(
-                        r.get(FRONT), r.get(BACK), subjectId)));
+  private static String similarityText(String front, String back) {
+    return front + "\n" + back;
   }
 
   private Set<String> parseDecks(String raw) {
@@ -170,4 +313,23 @@ public class CsvUploadServiceImpl implements CsvUploadService {
         .filter(s -> !s.isEmpty())
         .collect(Collectors.toSet());
   }
+
+  private static final class UploadTally {
+    private final boolean includeCards;
+    // Null unless near duplicates were asked for
+    private final MinHashIndex<CardSummary> similar;
+    private final List<CardSummary> saved = new ArrayList<>();
+    private final List<CardSummary> duplicates = new ArrayList<>();
+    private final List<NearDuplicate> nearDuplicates = new ArrayList<>();
+    private int rows;
+    private int invalid;
+    private int savedCount;
+    private int duplicateCount;
+    private int nearDuplicateCount;
+
+    private UploadTally(boolean includeCards, MinHashIndex<CardSummary> similar) {
+      this.includeCards = includeCards;
+      this.similar = similar;
+    }
+  }
 }
@@ -3,15 +3,57 @@ package com.example.flashcards_backend.service;
 import com.example.flashcards_backend.exception.UserNotFoundException;
 import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManager;
+import java.time.Duration;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class CurrentUserService {
 
+    static final String CACHE_NAME = "currentUser";
+
     private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final Cache<String, CachedUser> usersByAuth0Id;
+
+    /**
+     * What is cached per subject. Entities are not shared between requests: each call gets its
+     * own reference from the current persistence context.
+     */
+    record CachedUser(UUID id, String auth0Id, boolean active) {
+        static CachedUser of(User user) {
+            return new CachedUser(user.getId(), user.getAuth0Id(), user.isActive());
+        }
+    }
+
+    public CurrentUserService(
+            UserRepository userRepository,
+            EntityManager entityManager,
+            @Value("${app.current-user-cache.max-size:10000}") long maxSize,
+            @Value("${app.current-user-cache.ttl:PT5M}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.usersByAuth0Id = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // Exposes cache.gets{result=hit|miss}, cache.evictions etc. once a registry is configured
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, usersByAuth0Id, CACHE_NAME);
+    }
 
     public User getCurrentUser(Jwt jwt) {
         String auth0Id = jwt.getClaim("sub");
@@ -19,8 +61,39 @@ public class CurrentUserService {
             throw new IllegalArgumentException("JWT is missing 'sub' claim");
         }
 
-        return userRepository.findByAuth0Id(auth0Id)
+        // Misses are not cached: the exception propagates out of the loader
+        CachedUser cached = usersByAuth0Id.get(auth0Id, id -> userRepository.findByAuth0Id(id)
+                .map(CachedUser::of)
                 // Throwing exception while we don't want to be able to create new user
-                .orElseThrow(() -> new UserNotFoundException(auth0Id));
+                .orElseThrow(() -> new UserNotFoundException(id)));
+        if (!cached.active()) {
+            throw new AccessDeniedException("User " + cached.id() + " is deactivated");
+        }
+        return entityManager.getReference(User.class, cached.id());
+    }
+
+    /**
+     * Drops the cached user for {@code auth0Id}. Inside a transaction it is evicted again once the
+     * transaction completes, so a concurrent request cannot re-cache the row as it was before the
+     * change.
+     */
+    public void evict(String auth0Id) {
+        if (auth0Id == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    usersByAuth0Id.invalidate(auth0Id);
+                }
+            });
+        }
+        usersByAuth0Id.invalidate(auth0Id);
+        log.debug("Evicted cached user {}", auth0Id);
+    }
+
+    public CacheStats cacheStats() {
+        return usersByAuth0Id.stats();
     }
 }
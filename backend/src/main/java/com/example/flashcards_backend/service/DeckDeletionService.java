@@ -0,0 +1,82 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.dto.DeckDeletionStatus;
+import com.example.flashcards_backend.exception.DeckDeletionNotFoundException;
+import com.example.flashcards_backend.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+/**
+ * Deletes very large decks in the background, unlinking their cards in batches of {@code
+ * app.decks.deletion-batch-size}, each in its own transaction, and then deleting the deck. Progress
+ * is kept in memory on the instance that runs the deletion for {@code app.decks.deletion-retention}
+ * after its last update. A deletion cut short by a restart leaves the deck with fewer cards and can
+ * simply be started again.
+ */
+@Slf4j
+@Service
+public class DeckDeletionService {
+
+  private final CardDeckService cardDeckService;
+  private final int batchSize;
+  private final Cache<UUID, Deletion> deletions;
+
+  public DeckDeletionService(
+      CardDeckService cardDeckService,
+      @Value("${app.decks.deletion-batch-size:5000}") int batchSize,
+      @Value("${app.decks.deletion-retention:PT1H}") Duration retention) {
+    this.cardDeckService = cardDeckService;
+    this.batchSize = batchSize;
+    this.deletions = Caffeine.newBuilder().expireAfterWrite(retention).build();
+  }
+
+  private record Deletion(UUID userId, DeckDeletionStatus status) {}
+
+  /** Registers the deletion; pass the result to {@link #run} to carry it out. */
+  public DeckDeletionStatus start(User user, Long deckId) {
+    DeckDeletionStatus status =
+        DeckDeletionStatus.started(deckId, cardDeckService.countCardsInDeck(deckId));
+    deletions.put(status.id(), new Deletion(user.getId(), status));
+    log.info(
+        "Deletion {} of deck {} with {} cards started", status.id(), deckId, status.cardsTotal());
+    return status;
+  }
+
+  @Async
+  public void run(DeckDeletionStatus started) {
+    DeckDeletionStatus status = started;
+    try {
+      long unlinked = 0;
+      int batch;
+      while ((batch = cardDeckService.unlinkCards(started.deckId(), batchSize)) > 0) {
+        unlinked += batch;
+        status = update(status.unlinked(unlinked));
+      }
+      cardDeckService.deleteDeck(started.deckId());
+      update(status.completed());
+      log.info("Deletion {} of deck {} completed", started.id(), started.deckId());
+    } catch (RuntimeException e) {
+      log.error("Deletion {} of deck {} failed", started.id(), started.deckId(), e);
+      update(status.failed(e.getMessage()));
+    }
+  }
+
+  public DeckDeletionStatus get(User user, UUID id) {
+    Deletion deletion = deletions.getIfPresent(id);
+    if (deletion == null || !deletion.userId().equals(user.getId())) {
+      throw new DeckDeletionNotFoundException(id);
+    }
+    return deletion.status();
+  }
+
+  private DeckDeletionStatus update(DeckDeletionStatus status) {
+    deletions.asMap().computeIfPresent(status.id(), (id, d) -> new Deletion(d.userId(), status));
+    return status;
+  }
+}
@@ -0,0 +1,27 @@
+package com.example.flashcards_backend.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Set-based statements that link and unlink many cards and a deck without loading the cards.
+ * Cards are touched for delta sync in the same transaction as the link or unlink, with {@code now}
+ * passed in because the database's current timestamp is fixed at the start of the transaction.
+ */
+public interface DeckMembershipStatements {
+
+  /** How many of {@code cardIds} belong to a subject other than {@code subjectId}. */
+  long countOutsideSubject(Collection<Long> cardIds, Long subjectId);
+
+  /** Touches the subject's cards among {@code cardIds} that are not yet in the deck. */
+  void touchCardsOutsideDeck(
+      Long deckId, Long subjectId, Collection<Long> cardIds, LocalDateTime now);
+
+  /** Links the subject's cards among {@code cardIds} that are not yet in the deck. */
+  int addCardsToDeck(Long deckId, Long subjectId, Collection<Long> cardIds);
+
+  /** Touches the cards among {@code cardIds} that are in the deck. */
+  void touchCardsInDeck(Long deckId, Collection<Long> cardIds, LocalDateTime now);
+
+  int removeCardsFromDeck(Long deckId, Collection<Long> cardIds);
+}
@@ -20,16 +20,17 @@ import java.util.stream.Collectors;
 public class DeckService {
 
   private final DeckRepository deckRepository;
+  private final SubjectService subjectService;
 
   public Set<DeckSummary> getDeckSummariesBySubjectId(Long subjectId) {
-    log.info("Getting deck summaries for subject with id {}", subjectId);
+    log.debug("Getting deck summaries for subject with id {}", subjectId);
     return deckRepository.findBySubjectId(subjectId).stream()
         .map(DeckSummary::fromEntity)
         .collect(Collectors.toSet());
   }
 
   public Deck getDeckById(Long id) {
-    log.info("Getting deck with id {}", id);
+    log.debug("Getting deck with id {}", id);
     return deckRepository.findById(id).orElseThrow(() -> new DeckNotFoundException(id));
   }
 
@@ -45,6 +46,7 @@ public class DeckService {
       throw new DuplicateDeckNameException(name, deck.getSubject().getName());
     }
     deck.setName(name.trim());
+    subjectService.recordContentChange(deck.getSubject().getId());
     return deck;
   }
 }
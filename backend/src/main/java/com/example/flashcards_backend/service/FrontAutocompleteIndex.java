@@ -0,0 +1,204 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.dto.FrontSuggestion;
+import com.example.flashcards_backend.exception.SubjectNotFoundException;
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardFront;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Card fronts per subject in sorted arrays, so typeahead is a binary search with no database
+ * round trip. A subject is loaded on first use and patched after each committed card change made
+ * through this instance. It is reloaded at most {@code app.autocomplete.ttl} after loading, which
+ * bounds how long changes made by other instances go unseen. Once the estimated size of all
+ * loaded subjects passes {@code app.autocomplete.max-bytes}, the coldest subjects are evicted.
+ */
+@Slf4j
+@Component
+public class FrontAutocompleteIndex {
+
+  private final CardRepository cardRepository;
+  private final SubjectService subjectService;
+  private final LoadingCache<Long, Fronts> subjects;
+
+  public FrontAutocompleteIndex(
+      CardRepository cardRepository,
+      SubjectService subjectService,
+      @Value("${app.autocomplete.max-bytes:67108864}") long maxBytes,
+      @Value("${app.autocomplete.ttl:PT10M}") Duration ttl) {
+    this.cardRepository = cardRepository;
+    this.subjectService = subjectService;
+    this.subjects =
+        Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Long subjectId, Fronts fronts) -> fronts.estimatedBytes())
+            // Patches keep the original deadline, so every subject is reloaded within the ttl
+            .expireAfter(Expiry.creating((Long subjectId, Fronts fronts) -> ttl))
+            .build(this::load);
+  }
+
+  /** Up to {@code limit} of the subject's cards whose front starts with {@code prefix}. */
+  public List<FrontSuggestion> suggest(User user, Long subjectId, String prefix, int limit) {
+    Fronts fronts = subjects.get(subjectId);
+    if (!fronts.ownerId.equals(user.getId())) {
+      throw new SubjectNotFoundException(subjectId);
+    }
+    return fronts.startingWith(normalize(prefix), limit);
+  }
+
+  /** Adds or replaces the cards' fronts once the current transaction commits. */
+  public void cardsSaved(Long subjectId, Collection<Card> cards) {
+    if (cards.isEmpty()) {
+      return;
+    }
+    List<CardFront> saved =
+        cards.stream().map(card -> new CardFront(card.getId(), card.getFront())).toList();
+    afterCommit(
+        () -> subjects.asMap().computeIfPresent(subjectId, (id, fronts) -> fronts.with(saved)));
+  }
+
+  /** Drops the cards once the current transaction commits. */
+  public void cardsDeleted(Long subjectId, Collection<Long> cardIds) {
+    Set<Long> deleted = new HashSet<>(cardIds);
+    afterCommit(
+        () ->
+            subjects.asMap().computeIfPresent(subjectId, (id, fronts) -> fronts.without(deleted)));
+  }
+
+  /* HELPERS */
+
+  private Fronts load(Long subjectId) {
+    UUID ownerId = subjectService.findById(subjectId).getUser().getId();
+    List<CardFront> fronts = cardRepository.findFrontsBySubjectId(subjectId);
+    log.debug("Loaded {} card fronts for subject {}", fronts.size(), subjectId);
+    return Fronts.of(ownerId, fronts);
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+
+  static String normalize(String text) {
+    return text.strip().toLowerCase(Locale.ROOT);
+  }
+
+  /** Immutable; changes build a new instance. */
+  static final class Fronts {
+    private static final Comparator<CardFront> ORDER =
+        Comparator.comparing((CardFront f) -> normalize(f.front())).thenComparing(CardFront::id);
+
+    private final UUID ownerId;
+    // keys[i] is the normalized form of fronts[i]; both sorted by key, then card id
+    private final String[] keys;
+    private final String[] fronts;
+    private final long[] cardIds;
+
+    private Fronts(UUID ownerId, List<CardFront> sorted) {
+      this.ownerId = ownerId;
+      int size = sorted.size();
+      keys = new String[size];
+      fronts = new String[size];
+      cardIds = new long[size];
+      for (int i = 0; i < size; i++) {
+        CardFront f = sorted.get(i);
+        String key = normalize(f.front());
+        // Share the string when normalizing changes nothing
+        keys[i] = key.equals(f.front()) ? f.front() : key;
+        fronts[i] = f.front();
+        cardIds[i] = f.id();
+      }
+    }
+
+    static Fronts of(UUID ownerId, Collection<CardFront> fronts) {
+      List<CardFront> sorted = new ArrayList<>(fronts);
+      sorted.sort(ORDER);
+      return new Fronts(ownerId, sorted);
+    }
+
+    List<FrontSuggestion> startingWith(String prefix, int limit) {
+      List<FrontSuggestion> matches = new ArrayList<>(Math.min(limit, 16));
+      for (int i = lowerBound(prefix);
+          i < keys.length && matches.size() < limit && keys[i].startsWith(prefix);
+          i++) {
+        matches.add(new FrontSuggestion(cardIds[i], fronts[i]));
+      }
+      return matches;
+    }
+
+    Fronts with(Collection<CardFront> saved) {
+      Set<Long> ids = new HashSet<>();
+      saved.forEach(f -> ids.add(f.id()));
+      List<CardFront> merged = entriesExcept(ids);
+      merged.addAll(saved);
+      return of(ownerId, merged);
+    }
+
+    Fronts without(Set<Long> ids) {
+      return new Fronts(ownerId, entriesExcept(ids));
+    }
+
+    int estimatedBytes() {
+      long bytes = 64;
+      for (int i = 0; i < keys.length; i++) {
+        // Array slots plus a string header and its Latin-1 bytes; keys are often the same string
+        bytes += 24 + 40 + fronts[i].length();
+        if (keys[i] != fronts[i]) {
+          bytes += 40 + keys[i].length();
+        }
+      }
+      return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private List<CardFront> entriesExcept(Set<Long> ids) {
+      List<CardFront> entries = new ArrayList<>(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        if (!ids.contains(cardIds[i])) {
+          entries.add(new CardFront(cardIds[i], fronts[i]));
+        }
+      }
+      return entries;
+    }
+
+    private int lowerBound(String prefix) {
+      int low = 0;
+      int high = keys.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (keys[mid].compareTo(prefix) < 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
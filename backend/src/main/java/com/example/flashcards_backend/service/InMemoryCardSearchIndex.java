@@ -0,0 +1,147 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.StudyCardProjection;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Inverted index per subject, held in memory for databases without full-text search such as the
+ * H2 test profile. A subject's index is rebuilt from its cards when its content version moves.
+ * Callers check subject ownership; every card in a subject belongs to its owner.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "memory")
+public class InMemoryCardSearchIndex implements CardSearchIndex {
+
+  private static final double HINT_WEIGHT = 0.4;
+  private static final double PREFIX_FACTOR = 0.8;
+  private static final double FUZZY_FACTOR = 0.5;
+  private static final double FUZZY_THRESHOLD = 0.4;
+
+  private final CardRepository cardRepository;
+  private final Cache<Long, SubjectIndex> subjects;
+
+  public InMemoryCardSearchIndex(
+      CardRepository cardRepository,
+      @Value("${app.search.memory.max-subjects:100}") int maxSubjects) {
+    this.cardRepository = cardRepository;
+    this.subjects = Caffeine.newBuilder().maximumSize(maxSubjects).build();
+  }
+
+  @Override
+  public List<Long> search(
+      UUID userId, Long subjectId, long contentVersion, List<String> terms, int offset, int limit) {
+    SubjectIndex index = subjects.getIfPresent(subjectId);
+    if (index == null || index.version != contentVersion) {
+      List<StudyCardProjection> cards = cardRepository.findStudyCardsBySubjectId(subjectId);
+      log.debug(
+          "Indexing {} cards of subject {} at version {}", cards.size(), subjectId, contentVersion);
+      index = new SubjectIndex(contentVersion, cards);
+      subjects.put(subjectId, index);
+    }
+    return index.search(terms).stream().skip(offset).limit(limit).toList();
+  }
+
+  /** Trigram similarity as pg_trgm computes it: shared trigrams over all distinct trigrams. */
+  static double similarity(String a, String b) {
+    Set<String> left = trigrams(a);
+    Set<String> right = trigrams(b);
+    int total = left.size() + right.size();
+    left.retainAll(right);
+    return (double) left.size() / (total - left.size());
+  }
+
+  private static Set<String> trigrams(String word) {
+    String padded = "  " + word + " ";
+    Set<String> trigrams = new HashSet<>();
+    for (int i = 0; i + 3 <= padded.length(); i++) {
+      trigrams.add(padded.substring(i, i + 3));
+    }
+    return trigrams;
+  }
+
+  private static final class SubjectIndex {
+    private final long version;
+    // term -> card id -> best field weight the term appears in
+    private final NavigableMap<String, Map<Long, Double>> postings = new TreeMap<>();
+
+    SubjectIndex(long version, List<StudyCardProjection> cards) {
+      this.version = version;
+      for (StudyCardProjection card : cards) {
+        add(card.getId(), card.getFront(), 1.0);
+        add(card.getId(), card.getBack(), 1.0);
+        add(card.getId(), card.getHintFront(), HINT_WEIGHT);
+        add(card.getId(), card.getHintBack(), HINT_WEIGHT);
+      }
+    }
+
+    private void add(Long cardId, String text, double weight) {
+      for (String term : CardSearchIndex.terms(text)) {
+        postings.computeIfAbsent(term, t -> new HashMap<>()).merge(cardId, weight, Math::max);
+      }
+    }
+
+    List<Long> search(List<String> terms) {
+      Map<Long, Double> scores = null;
+      for (String term : terms) {
+        Map<Long, Double> matches = matches(term);
+        if (scores == null) {
+          scores = matches;
+        } else {
+          scores.keySet().retainAll(matches.keySet());
+          scores.replaceAll((cardId, score) -> score + matches.get(cardId));
+        }
+        if (scores.isEmpty()) {
+          return List.of();
+        }
+      }
+      if (scores == null) {
+        return List.of();
+      }
+      return scores.entrySet().stream()
+          .sorted(
+              Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                  .thenComparing(Map.Entry.comparingByKey()))
+          .map(Map.Entry::getKey)
+          .toList();
+    }
+
+    private Map<Long, Double> matches(String term) {
+      Map<Long, Double> matches = new HashMap<>();
+      postings
+          .subMap(term, true, term + Character.MAX_VALUE, true)
+          .forEach(
+              (word, cards) -> {
+                double factor = word.equals(term) ? 1.0 : PREFIX_FACTOR;
+                cards.forEach((cardId, weight) -> matches.merge(cardId, weight * factor, Math::max));
+              });
+      if (matches.isEmpty()) {
+        postings.forEach(
+            (word, cards) -> {
+              double similarity = similarity(term, word);
+              if (similarity >= FUZZY_THRESHOLD) {
+                cards.forEach(
+                    (cardId, weight) ->
+                        matches.merge(cardId, weight * similarity * FUZZY_FACTOR, Math::max));
+              }
+            });
+      }
+      return matches;
+    }
+  }
+}
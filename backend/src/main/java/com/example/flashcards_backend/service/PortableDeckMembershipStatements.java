@@ -0,0 +1,66 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.repository.CardRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the statements with an {@code IN} list per {@value #CHUNK_SIZE} ids, so large requests
+ * stay under the database's bind-parameter limit. Two requests linking the same card to the same
+ * deck at once can still collide on the card_deck primary key (H2).
+ */
+@Component
+@ConditionalOnProperty(name = "app.decks.membership-sql", havingValue = "portable")
+@RequiredArgsConstructor
+public class PortableDeckMembershipStatements implements DeckMembershipStatements {
+
+  static final int CHUNK_SIZE = 1000;
+
+  private final CardRepository cardRepository;
+
+  @Override
+  public long countOutsideSubject(Collection<Long> cardIds, Long subjectId) {
+    return sumOverChunks(
+        cardIds, chunk -> cardRepository.countByIdInAndSubjectIdNot(chunk, subjectId));
+  }
+
+  @Override
+  public void touchCardsOutsideDeck(
+      Long deckId, Long subjectId, Collection<Long> cardIds, LocalDateTime now) {
+    sumOverChunks(
+        cardIds, chunk -> cardRepository.touchCardsOutsideDeck(deckId, subjectId, chunk, now));
+  }
+
+  @Override
+  public int addCardsToDeck(Long deckId, Long subjectId, Collection<Long> cardIds) {
+    return (int)
+        sumOverChunks(cardIds, chunk -> cardRepository.addCardsToDeck(deckId, subjectId, chunk));
+  }
+
+  @Override
+  public void touchCardsInDeck(Long deckId, Collection<Long> cardIds, LocalDateTime now) {
+    sumOverChunks(cardIds, chunk -> cardRepository.touchCardsInDeck(deckId, chunk, now));
+  }
+
+  @Override
+  public int removeCardsFromDeck(Long deckId, Collection<Long> cardIds) {
+    return (int)
+        sumOverChunks(cardIds, chunk -> cardRepository.removeCardsFromDeck(deckId, chunk));
+  }
+
+  private static long sumOverChunks(
+      Collection<Long> cardIds, ToLongFunction<List<Long>> statement) {
+    List<Long> ids = new ArrayList<>(cardIds);
+    long total = 0;
+    for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+      total += statement.applyAsLong(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())));
+    }
+    return total;
+  }
+}
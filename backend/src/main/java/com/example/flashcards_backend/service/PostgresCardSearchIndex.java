@@ -0,0 +1,27 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.repository.CardRepository;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/** Searches the card table's tsvector and trigram GIN indexes. */
+@Component
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "postgres", matchIfMissing = true)
+@RequiredArgsConstructor
+public class PostgresCardSearchIndex implements CardSearchIndex {
+
+  private final CardRepository cardRepository;
+
+  @Override
+  public List<Long> search(
+      UUID userId, Long subjectId, long contentVersion, List<String> terms, int offset, int limit) {
+    // Terms are letters and digits only, so they can go into tsquery syntax as they are
+    String tsQuery = terms.stream().map(term -> term + ":*").collect(Collectors.joining(" & "));
+    return cardRepository.searchCardIds(
+        userId, subjectId, tsQuery, String.join(" ", terms), offset, limit);
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.repository.CardRepository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binds the card ids as a single array, so one statement covers any number of them, and links
+ * with {@code ON CONFLICT DO NOTHING}, so two requests adding the same card to the same deck do
+ * not fail on the card_deck primary key.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "app.decks.membership-sql",
+    havingValue = "postgres",
+    matchIfMissing = true)
+@RequiredArgsConstructor
+public class PostgresDeckMembershipStatements implements DeckMembershipStatements {
+
+  private final CardRepository cardRepository;
+
+  @Override
+  public long countOutsideSubject(Collection<Long> cardIds, Long subjectId) {
+    return cardRepository.countByIdInArrayAndSubjectIdNot(toArray(cardIds), subjectId);
+  }
+
+  @Override
+  public void touchCardsOutsideDeck(
+      Long deckId, Long subjectId, Collection<Long> cardIds, LocalDateTime now) {
+    cardRepository.touchCardsOutsideDeckByArray(deckId, subjectId, toArray(cardIds), now);
+  }
+
+  @Override
+  public int addCardsToDeck(Long deckId, Long subjectId, Collection<Long> cardIds) {
+    return cardRepository.addCardsToDeckByArray(deckId, subjectId, toArray(cardIds));
+  }
+
+  @Override
+  public void touchCardsInDeck(Long deckId, Collection<Long> cardIds, LocalDateTime now) {
+    cardRepository.touchCardsInDeckByArray(deckId, toArray(cardIds), now);
+  }
+
+  @Override
+  public int removeCardsFromDeck(Long deckId, Collection<Long> cardIds) {
+    return cardRepository.removeCardsFromDeckByArray(deckId, toArray(cardIds));
+  }
+
+  private static Long[] toArray(Collection<Long> cardIds) {
+    return cardIds.toArray(Long[]::new);
+  }
+}
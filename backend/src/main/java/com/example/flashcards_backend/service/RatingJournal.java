@@ -0,0 +1,242 @@
+package com.example.flashcards_backend.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only segment files holding accepted ratings until they have been written to the
+ * database. Appends go to the active segment; a flush seals it and deletes it once the ratings it
+ * holds are committed.
+ *
+ * <p>With fsync on, appends are made durable by group commit. {@link #append} only writes the
+ * entry, under a lock held for the write alone, and {@link #awaitDurable} then waits for a force
+ * to cover it. The first waiter forces the segment on behalf of every entry written so far while
+ * later ones wait for it, so one fsync serves as many ratings as arrived during the previous one.
+ */
+@Slf4j
+class RatingJournal implements Closeable {
+
+  private static final String PREFIX = "ratings-";
+  private static final String SUFFIX = ".log";
+  // Not a segment, so never replayed; entries are moved back by hand once their cause is fixed
+  static final String PARKED = "parked-ratings.log";
+
+  private final Path directory;
+  private final boolean fsync;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition forced = lock.newCondition();
+  private long nextSegment;
+  private Path activePath;
+  private FileChannel active;
+  // Entries written so far, and how many of them a completed force covers
+  private long written;
+  private long durable;
+  private boolean forcing;
+
+  RatingJournal(Path directory, boolean fsync) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.fsync = fsync;
+    this.nextSegment =
+        segments().stream().mapToLong(RatingJournal::segmentNumber).max().orElse(0L) + 1;
+  }
+
+  /** Segments currently on disk, oldest first. */
+  List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(p -> p.getFileName().toString().startsWith(PREFIX))
+          .filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+          .sorted(Comparator.comparingLong(RatingJournal::segmentNumber))
+          .toList();
+    }
+  }
+
+  static List<Entry> read(Path segment) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    for (String line : Files.readAllLines(segment, UTF_8)) {
+      if (line.isBlank()) {
+        continue;
+      }
+      try {
+        entries.add(Entry.parse(line));
+      } catch (RuntimeException e) {
+        // Most likely a write torn by a crash; everything before it is intact
+        log.warn("Skipping unreadable rating journal line in {}: '{}'", segment, line);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Writes the entry to the active segment and returns its position for {@link #awaitDurable}. The
+   * entry may still be only in the page cache when this returns.
+   */
+  long append(Entry entry) throws IOException {
+    ByteBuffer buffer = UTF_8.encode(entry.toLine() + "\n");
+    lock.lock();
+    try {
+      if (active == null) {
+        activePath = directory.resolve(PREFIX + nextSegment++ + SUFFIX);
+        active =
+            FileChannel.open(
+                activePath,
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+      }
+      while (buffer.hasRemaining()) {
+        active.write(buffer);
+      }
+      return ++written;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Returns once the entry at {@code position}, and every one before it, is on disk. */
+  void awaitDurable(long position) throws IOException {
+    if (!fsync) {
+      return;
+    }
+    lock.lock();
+    try {
+      while (durable < position) {
+        if (forcing) {
+          forced.awaitUninterruptibly();
+          continue;
+        }
+        // Lead a force covering everything written so far; appends carry on meanwhile
+        forcing = true;
+        long covered = written;
+        FileChannel channel = active;
+        boolean done = false;
+        lock.unlock();
+        try {
+          channel.force(false);
+          done = true;
+        } finally {
+          lock.lock();
+          forcing = false;
+          if (done) {
+            durable = Math.max(durable, covered);
+          }
+          forced.signalAll();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Seals the active segment so that later appends start a new one. */
+  Optional<Path> rotate() throws IOException {
+    lock.lock();
+    try {
+      if (active == null) {
+        return Optional.empty();
+      }
+      while (forcing) {
+        forced.awaitUninterruptibly();
+      }
+      Path sealed = activePath;
+      if (fsync) {
+        active.force(false);
+      }
+      active.close();
+      active = null;
+      activePath = null;
+      // Everything written went to the segment just forced
+      durable = written;
+      forced.signalAll();
+      return Optional.of(sealed);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void delete(Path segment) throws IOException {
+    Files.deleteIfExists(segment);
+  }
+
+  /** Appends entries that kept failing to the parked file, durably, so they are not lost. */
+  void park(List<Entry> entries) throws IOException {
+    StringBuilder lines = new StringBuilder();
+    entries.forEach(entry -> lines.append(entry.toLine()).append('\n'));
+    ByteBuffer buffer = UTF_8.encode(lines.toString());
+    try (FileChannel parked =
+        FileChannel.open(
+            directory.resolve(PARKED),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND)) {
+      while (buffer.hasRemaining()) {
+        parked.write(buffer);
+      }
+      parked.force(false);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    rotate();
+  }
+
+  private static long segmentNumber(Path path) {
+    String name = path.getFileName().toString();
+    return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+  }
+
+  /** {@code attempts} counts the failed writes of the rating so far. */
+  record Entry(UUID userId, CoalescedRating rating, int attempts) {
+
+    Entry(UUID userId, CoalescedRating rating) {
+      this(userId, rating, 0);
+    }
+
+    String toLine() {
+      return String.join(
+          ",",
+          userId.toString(),
+          rating.cardId().toString(),
+          Integer.toString(rating.count()),
+          Integer.toString(rating.sum()),
+          Integer.toString(rating.lastRating()),
+          rating.lastViewed().toString(),
+          Integer.toString(attempts));
+    }
+
+    static Entry parse(String line) {
+      String[] parts = line.split(",");
+      // Entries journaled before attempts were counted have 6 fields
+      if (parts.length != 6 && parts.length != 7) {
+        throw new IllegalArgumentException("Expected 6 or 7 fields but found " + parts.length);
+      }
+      return new Entry(
+          UUID.fromString(parts[0]),
+          new CoalescedRating(
+              Long.valueOf(parts[1]),
+              Integer.parseInt(parts[2]),
+              Integer.parseInt(parts[3]),
+              Integer.parseInt(parts[4]),
+              LocalDateTime.parse(parts[5])),
+          parts.length == 7 ? Integer.parseInt(parts[6]) : 0);
+    }
+  }
+}
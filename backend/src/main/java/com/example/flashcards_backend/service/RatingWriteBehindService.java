@@ -0,0 +1,335 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.exception.RatingQueueFullException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+/**
+ * Opt-in asynchronous rating pipeline. Ratings are journaled to disk and acknowledged straight
+ * away, coalesced per user and card in memory, and written to {@code card_history} in batches when
+ * enough are pending or the flush interval elapses.
+ *
+ * <p>Delivery is at least once. A segment is deleted only after the batch holding its ratings has
+ * committed, so a crash between the two replays those ratings on the next start and they are
+ * counted twice in {@code card_history}.
+ *
+ * <p>A batch that fails is retried rating by rating, so one bad rating cannot hold back the rest.
+ * Ratings that keep failing for reasons other than the database being unreachable are parked in
+ * {@value RatingJournal#PARKED} after {@code max-attempts} tries instead of being retried forever.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.ratings.write-behind.enabled", havingValue = "true")
+public class RatingWriteBehindService {
+
+  private final CardHistoryService cardHistoryService;
+  private final RatingJournal journal;
+  private final Duration flushInterval;
+  private final int batchSize;
+  private final int maxPending;
+  private final int maxPendingPerUser;
+  private final int maxAttempts;
+
+  private final Map<UUID, Map<Long, CoalescedRating>> queues = new ConcurrentHashMap<>();
+  private final AtomicInteger pending = new AtomicInteger();
+  // Enqueuers share the read lock; a flush takes the write lock to seal the journal and drain the
+  // queues as one step, so every drained rating lives in a sealed segment
+  private final ReadWriteLock drainLock = new ReentrantReadWriteLock();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final List<Path> sealedSegments = new ArrayList<>();
+  // Failed writes per user and card; only touched by the flush, under flushLock
+  private final Map<UUID, Map<Long, Integer>> attempts = new HashMap<>();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private final ScheduledExecutorService flusher =
+      Executors.newSingleThreadScheduledExecutor(
+          Thread.ofPlatform().name("rating-flush").daemon().factory());
+
+  public RatingWriteBehindService(
+      CardHistoryService cardHistoryService,
+      @Value("${app.ratings.write-behind.journal-dir:./data/rating-journal}") Path journalDir,
+      @Value("${app.ratings.write-behind.fsync:true}") boolean fsync,
+      @Value("${app.ratings.write-behind.flush-interval:PT1S}") Duration flushInterval,
+      @Value("${app.ratings.write-behind.batch-size:500}") int batchSize,
+      @Value("${app.ratings.write-behind.max-pending:50000}") int maxPending,
+      @Value("${app.ratings.write-behind.max-pending-per-user:2000}") int maxPendingPerUser,
+      @Value("${app.ratings.write-behind.max-attempts:10}") int maxAttempts)
+      throws IOException {
+    this.cardHistoryService = cardHistoryService;
+    this.journal = new RatingJournal(journalDir, fsync);
+    this.flushInterval = flushInterval;
+    this.batchSize = batchSize;
+    this.maxPending = maxPending;
+    this.maxPendingPerUser = maxPendingPerUser;
+    this.maxAttempts = maxAttempts;
+  }
+
+  @PostConstruct
+  void start() throws IOException {
+    replayJournal();
+    long intervalMillis = flushInterval.toMillis();
+    flusher.scheduleWithFixedDelay(
+        this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void stop() throws IOException, InterruptedException {
+    flusher.shutdown();
+    if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+      log.warn("Rating flusher did not stop in time");
+    }
+    flush();
+    journal.close();
+  }
+
+  /**
+   * Records a rating durably and queues it for the database. Throws {@link
+   * RatingQueueFullException} when the queue is full and the caller should retry later.
+   */
+  public void enqueue(UUID userId, Long cardId, int rating) {
+    CoalescedRating coalesced = CoalescedRating.single(cardId, rating, LocalDateTime.now());
+    long position;
+    drainLock.readLock().lock();
+    try {
+      Map<Long, CoalescedRating> queue =
+          queues.computeIfAbsent(userId, id -> new LinkedHashMap<>());
+      synchronized (queue) {
+        boolean newCard = !queue.containsKey(cardId);
+        if (newCard && (queue.size() >= maxPendingPerUser || pending.get() >= maxPending)) {
+          throw new RatingQueueFullException();
+        }
+        position = journal.append(new RatingJournal.Entry(userId, coalesced));
+        queue.merge(cardId, coalesced, CoalescedRating::plus);
+        if (newCard) {
+          pending.incrementAndGet();
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not journal rating for card " + cardId, e);
+    } finally {
+      drainLock.readLock().unlock();
+    }
+    // Wait for the fsync outside the locks so that concurrent ratings share it
+    try {
+      journal.awaitDurable(position);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not journal rating for card " + cardId, e);
+    }
+    if (pending.get() >= batchSize && flushRequested.compareAndSet(false, true)) {
+      flusher.execute(this::flushQuietly);
+    }
+  }
+
+  public int pendingCount() {
+    return pending.get();
+  }
+
+  /** Writes everything queued so far. Returns the number of history rows written. */
+  public int flush() throws IOException {
+    flushLock.lock();
+    try {
+      flushRequested.set(false);
+      Map<UUID, List<CoalescedRating>> drained = new HashMap<>();
+      drainLock.writeLock().lock();
+      try {
+        journal.rotate().ifPresent(sealedSegments::add);
+        queues.forEach(
+            (userId, queue) -> {
+              if (!queue.isEmpty()) {
+                drained.put(userId, new ArrayList<>(queue.values()));
+              }
+            });
+        queues.clear();
+        pending.set(0);
+      } finally {
+        drainLock.writeLock().unlock();
+      }
+
+      int written = 0;
+      Map<UUID, List<CoalescedRating>> failed = new HashMap<>();
+      List<RatingJournal.Entry> parked = new ArrayList<>();
+      for (Map.Entry<UUID, List<CoalescedRating>> entry : drained.entrySet()) {
+        UUID userId = entry.getKey();
+        List<CoalescedRating> ratings = entry.getValue();
+        for (int from = 0; from < ratings.size(); from += batchSize) {
+          List<CoalescedRating> batch =
+              ratings.subList(from, Math.min(from + batchSize, ratings.size()));
+          try {
+            written += cardHistoryService.applyCoalescedRatings(userId, batch);
+            batch.forEach(rating -> clearAttempts(userId, rating));
+          } catch (RuntimeException e) {
+            log.error("Failed to write {} queued ratings for user {}", batch.size(), userId, e);
+            if (isOutage(e)) {
+              // No fault of the ratings, so they are retried indefinitely
+              failed.computeIfAbsent(userId, id -> new ArrayList<>()).addAll(batch);
+              continue;
+            }
+            if (batch.size() == 1) {
+              recordFailure(userId, batch.getFirst(), e, failed, parked);
+              continue;
+            }
+            // Isolate the ratings that cause the failure
+            for (CoalescedRating rating : batch) {
+              try {
+                written += cardHistoryService.applyCoalescedRatings(userId, List.of(rating));
+                clearAttempts(userId, rating);
+              } catch (RuntimeException single) {
+                recordFailure(userId, rating, single, failed, parked);
+              }
+            }
+          }
+        }
+      }
+      if (!failed.isEmpty()) {
+        // Re-journal only what failed so the batches that succeeded cannot be replayed twice
+        requeue(failed);
+      }
+      if (!parked.isEmpty()) {
+        journal.park(parked);
+        log.error(
+            "Parked {} ratings that failed {} times in {}",
+            parked.size(),
+            maxAttempts,
+            RatingJournal.PARKED);
+      }
+      for (Path segment : sealedSegments) {
+        journal.delete(segment);
+      }
+      sealedSegments.clear();
+      if (written > 0) {
+        log.info("Flushed {} queued ratings to card history", written);
+      }
+      return written;
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (Exception e) {
+      log.error("Rating flush failed", e);
+    }
+  }
+
+  private static boolean isOutage(RuntimeException e) {
+    return e instanceof TransientDataAccessException
+        || e instanceof DataAccessResourceFailureException
+        || e instanceof CannotCreateTransactionException;
+  }
+
+  /** Requeues the rating, or parks it once it has failed {@code maxAttempts} times. */
+  private void recordFailure(
+      UUID userId,
+      CoalescedRating rating,
+      RuntimeException cause,
+      Map<UUID, List<CoalescedRating>> failed,
+      List<RatingJournal.Entry> parked) {
+    if (isOutage(cause)) {
+      failed.computeIfAbsent(userId, id -> new ArrayList<>()).add(rating);
+      return;
+    }
+    int tries =
+        attempts
+            .computeIfAbsent(userId, id -> new HashMap<>())
+            .merge(rating.cardId(), 1, Integer::sum);
+    if (tries >= maxAttempts) {
+      log.debug("Parking rating of card {} for user {}", rating.cardId(), userId, cause);
+      parked.add(new RatingJournal.Entry(userId, rating, tries));
+      clearAttempts(userId, rating);
+    } else {
+      failed.computeIfAbsent(userId, id -> new ArrayList<>()).add(rating);
+    }
+  }
+
+  private int attemptsOf(UUID userId, Long cardId) {
+    return attempts.getOrDefault(userId, Map.of()).getOrDefault(cardId, 0);
+  }
+
+  private void clearAttempts(UUID userId, CoalescedRating rating) {
+    Map<Long, Integer> forUser = attempts.get(userId);
+    if (forUser != null) {
+      forUser.remove(rating.cardId());
+      if (forUser.isEmpty()) {
+        attempts.remove(userId);
+      }
+    }
+  }
+
+  private void requeue(Map<UUID, List<CoalescedRating>> failed) throws IOException {
+    long position = 0;
+    drainLock.readLock().lock();
+    try {
+      for (Map.Entry<UUID, List<CoalescedRating>> entry : failed.entrySet()) {
+        Map<Long, CoalescedRating> queue =
+            queues.computeIfAbsent(entry.getKey(), id -> new LinkedHashMap<>());
+        synchronized (queue) {
+          for (CoalescedRating older : entry.getValue()) {
+            position =
+                journal.append(
+                    new RatingJournal.Entry(
+                        entry.getKey(), older, attemptsOf(entry.getKey(), older.cardId())));
+            if (queue.merge(older.cardId(), older, (newer, old) -> old.plus(newer)) == older) {
+              pending.incrementAndGet();
+            }
+          }
+        }
+      }
+    } finally {
+      drainLock.readLock().unlock();
+    }
+    // The segments these came from are deleted next
+    journal.awaitDurable(position);
+  }
+
+  private void replayJournal() throws IOException {
+    int replayed = 0;
+    for (Path segment : journal.segments()) {
+      for (RatingJournal.Entry entry : RatingJournal.read(segment)) {
+        Map<Long, CoalescedRating> queue =
+            queues.computeIfAbsent(entry.userId(), id -> new LinkedHashMap<>());
+        CoalescedRating rating = entry.rating();
+        if (queue.merge(rating.cardId(), rating, CoalescedRating::plus) == rating) {
+          pending.incrementAndGet();
+        }
+        if (entry.attempts() > 0) {
+          attempts
+              .computeIfAbsent(entry.userId(), id -> new HashMap<>())
+              .merge(rating.cardId(), entry.attempts(), Math::max);
+        }
+        replayed++;
+      }
+      sealedSegments.add(segment);
+    }
+    if (replayed > 0) {
+      log.info("Replayed {} journaled ratings from a previous run", replayed);
+    }
+  }
+}
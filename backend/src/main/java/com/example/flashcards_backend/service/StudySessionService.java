@@ -0,0 +1,262 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.dto.StudyCardResponse;
+import com.example.flashcards_backend.dto.StudySessionRequest;
+import com.example.flashcards_backend.dto.StudySessionResponse;
+import com.example.flashcards_backend.exception.StudySessionNotFoundException;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.Subject.Side;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.StudyCardProjection;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Builds a study queue once per session and serves it from memory. Sessions expire after being
+ * idle, and the store is capped by the total number of queued cards. A single session holds at
+ * most {@code max-session-cards} of them, and always less than the store's cap, or it would be
+ * evicted as soon as it was stored.
+ */
+@Slf4j
+@Service
+public class StudySessionService {
+
+  private final CardRepository cardRepository;
+  private final SubjectService subjectService;
+  private final CardHistoryService cardHistoryService;
+  private final ObjectProvider<RatingWriteBehindService> ratingWriteBehindService;
+  private final Cache<UUID, StudySession> sessions;
+  private final int maxSessionCards;
+
+  public StudySessionService(
+      CardRepository cardRepository,
+      SubjectService subjectService,
+      CardHistoryService cardHistoryService,
+      ObjectProvider<RatingWriteBehindService> ratingWriteBehindService,
+      @Value("${app.study-sessions.idle-timeout:PT30M}") Duration idleTimeout,
+      @Value("${app.study-sessions.max-queued-cards:500000}") long maxQueuedCards,
+      @Value("${app.study-sessions.max-session-cards:5000}") int maxSessionCards) {
+    this.cardRepository = cardRepository;
+    this.subjectService = subjectService;
+    this.cardHistoryService = cardHistoryService;
+    this.ratingWriteBehindService = ratingWriteBehindService;
+    // A session weighs its queue plus one
+    this.maxSessionCards = (int) Math.min(maxSessionCards, maxQueuedCards - 1);
+    this.sessions =
+        Caffeine.newBuilder()
+            .expireAfterAccess(idleTimeout)
+            .maximumWeight(maxQueuedCards)
+            .<UUID, StudySession>weigher((id, session) -> session.size() + 1)
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(Metrics.globalRegistry, sessions, "studySessions");
+  }
+
+  @Transactional(readOnly = true)
+  public StudySessionResponse start(User user, StudySessionRequest request) {
+    Subject subject = subjectService.findById(request.subjectId());
+    if (!subject.getUser().getId().equals(user.getId())) {
+      throw new IllegalArgumentException("User does not own subject");
+    }
+    Subject.CardOrder cardOrder =
+        subject.getCardOrder() == null ? Subject.CardOrder.NEWEST : subject.getCardOrder();
+    int limit =
+        request.limit() == null ? maxSessionCards : Math.min(request.limit(), maxSessionCards);
+    Pageable page = page(cardOrder, limit);
+    List<StudyCardProjection> cards =
+        request.deckIds() == null || request.deckIds().isEmpty()
+            ? cardRepository.findStudyCardsBySubjectId(subject.getId(), page)
+            : cardRepository.findStudyCardsBySubjectIdAndDeckIds(
+                subject.getId(), request.deckIds(), page);
+
+    List<QueuedCard> queue = new ArrayList<>(cards.size());
+    for (StudyCardProjection card : cards) {
+      queue.add(
+          new QueuedCard(
+              card.getId(),
+              card.getFront(),
+              card.getBack(),
+              card.getHintFront(),
+              card.getHintBack(),
+              resolveSide(subject.getDefaultSide())));
+    }
+    if (cardOrder == Subject.CardOrder.RANDOM) {
+      Collections.shuffle(queue);
+      if (queue.size() > limit) {
+        queue = queue.subList(0, limit);
+      }
+    }
+
+    UUID id = UUID.randomUUID();
+    StudySession session = new StudySession(user.getId(), subject.getId(), queue);
+    sessions.put(id, session);
+    log.info(
+        "Started study session {} for subject {} with {} cards", id, subject.getId(), queue.size());
+    return new StudySessionResponse(id, subject.getId(), queue.size(), queue.size());
+  }
+
+  public StudySessionResponse get(User user, UUID sessionId) {
+    StudySession session = find(user, sessionId);
+    return new StudySessionResponse(
+        sessionId, session.subjectId(), session.total(), session.size());
+  }
+
+  /** The card at the head of the queue, or empty once the session is finished. */
+  public Optional<StudyCardResponse> next(User user, UUID sessionId) {
+    return find(user, sessionId).peek();
+  }
+
+  /**
+   * Rates the card at the head of the queue and returns the card after it. With {@code cardId}
+   * the rating only applies while that card is still at the head, so a retried call records
+   * nothing and returns the current head; without it, whichever card is at the head is rated.
+   * Either way, of several calls racing for the same head, only one records a rating.
+   */
+  public Optional<StudyCardResponse> rateAndAdvance(
+      User user, UUID sessionId, int rating, Long cardId) {
+    StudySession session = find(user, sessionId);
+    Long headId =
+        cardId != null
+            ? cardId
+            : session
+                .peek()
+                .map(StudyCardResponse::cardId)
+                .orElseThrow(() -> new IllegalArgumentException("Study session has no cards left"));
+    Optional<QueuedCard> claimed = session.pollIfHead(headId);
+    if (claimed.isEmpty()) {
+      log.debug("Card {} is no longer at the head of study session {}", headId, sessionId);
+      return session.peek();
+    }
+    try {
+      RatingWriteBehindService writeBehind = ratingWriteBehindService.getIfAvailable();
+      if (writeBehind != null) {
+        writeBehind.enqueue(user.getId(), headId, rating);
+      } else {
+        cardHistoryService.recordRatingForUser(headId, rating, user);
+      }
+    } catch (RuntimeException e) {
+      // Not rated, so the card goes back to be rated again
+      session.pushFirst(claimed.get());
+      throw e;
+    }
+    return session.peek();
+  }
+
+  public void end(User user, UUID sessionId) {
+    find(user, sessionId);
+    sessions.invalidate(sessionId);
+  }
+
+  private StudySession find(User user, UUID sessionId) {
+    StudySession session = sessions.getIfPresent(sessionId);
+    // Another user's session is reported as missing rather than forbidden
+    if (session == null || !session.userId().equals(user.getId())) {
+      throw new StudySessionNotFoundException(sessionId);
+    }
+    return session;
+  }
+
+  private static Side resolveSide(Side defaultSide) {
+    if (defaultSide == null) {
+      return Side.FRONT;
+    }
+    if (defaultSide == Side.ANY) {
+      return ThreadLocalRandom.current().nextBoolean() ? Side.FRONT : Side.BACK;
+    }
+    return defaultSide;
+  }
+
+  // Ordered by id (creation order) with the limit in the query; a shuffle needs every card first
+  private static Pageable page(Subject.CardOrder cardOrder, int limit) {
+    return switch (cardOrder) {
+      case NEWEST -> PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "id"));
+      case OLDEST -> PageRequest.of(0, limit, Sort.by(Sort.Direction.ASC, "id"));
+      case RANDOM -> Pageable.unpaged();
+    };
+  }
+
+  private record QueuedCard(
+      Long id, String front, String back, String hintFront, String hintBack, Side side) {}
+
+  private static final class StudySession {
+    private final UUID userId;
+    private final Long subjectId;
+    private final int total;
+    private final Deque<QueuedCard> queue;
+
+    StudySession(UUID userId, Long subjectId, List<QueuedCard> cards) {
+      this.userId = userId;
+      this.subjectId = subjectId;
+      this.total = cards.size();
+      this.queue = new ArrayDeque<>(cards);
+    }
+
+    UUID userId() {
+      return userId;
+    }
+
+    Long subjectId() {
+      return subjectId;
+    }
+
+    int total() {
+      return total;
+    }
+
+    synchronized int size() {
+      return queue.size();
+    }
+
+    synchronized Optional<StudyCardResponse> peek() {
+      QueuedCard head = queue.peekFirst();
+      return Optional.ofNullable(head).map(card -> toResponse(card, queue.size()));
+    }
+
+    /**
+     * Removes and returns the head if it is {@code cardId}. Of several calls for the same card,
+     * only the first gets it, so only that caller may record a rating.
+     */
+    synchronized Optional<QueuedCard> pollIfHead(Long cardId) {
+      QueuedCard head = queue.peekFirst();
+      if (head == null || !head.id().equals(cardId)) {
+        return Optional.empty();
+      }
+      return Optional.of(queue.pollFirst());
+    }
+
+    synchronized void pushFirst(QueuedCard card) {
+      queue.addFirst(card);
+    }
+
+    private static StudyCardResponse toResponse(QueuedCard card, int remaining) {
+      return new StudyCardResponse(
+          card.id(),
+          card.front(),
+          card.back(),
+          card.hintFront(),
+          card.hintBack(),
+          card.side(),
+          remaining);
+    }
+  }
+}
@@ -6,8 +6,15 @@ import com.example.flashcards_backend.exception.SubjectNotFoundException;
 import com.example.flashcards_backend.model.Subject;
 import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.repository.SubjectRepository;
+import com.example.flashcards_backend.repository.SubjectVersion;
 import jakarta.transaction.Transactional;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,9 +28,9 @@ public class SubjectService {
   private final SubjectRepository repository;
 
   public List<SubjectDto> findForUser(User user) {
-    log.info("Finding subjects for user {}", user.getId());
+    log.debug("Finding subjects for user {}", user.getId());
     List<Subject> subjects = repository.findByUserId(user.getId());
-    log.info("Found {} subjects for user {}", subjects.size(), user.getId());
+    log.debug("Found {} subjects for user {}", subjects.size(), user.getId());
     return subjects.stream().map(SubjectDto::fromEntity).toList();
   }
 
@@ -49,6 +56,7 @@ public class SubjectService {
     subject.setDefaultSide(updated.defaultSide());
     subject.setDisplayDeckNames(updated.displayDeckNames());
     subject.setCardOrder(updated.cardOrder());
+    recordContentChange(id);
     return SubjectDto.fromEntity(subject);
   }
 
@@ -57,8 +65,34 @@ public class SubjectService {
     repository.deleteById(id);
   }
 
+  /** The subject's content version, if it exists and belongs to the user. */
+  public Optional<Long> findContentVersion(User user, Long subjectId) {
+    return repository.findContentVersion(subjectId, user.getId());
+  }
+
+  public List<SubjectVersion> findVersions(User user) {
+    return repository.findVersionsByUserId(user.getId());
+  }
+
+  /**
+   * Bumps the content version of a subject whose cards, decks or card history changed, so cached
+   * listings of it are revalidated.
+   */
+  @Transactional
+  public void recordContentChange(Long subjectId) {
+    recordContentChanges(Collections.singleton(subjectId));
+  }
+
+  @Transactional
+  public void recordContentChanges(Collection<Long> subjectIds) {
+    Set<Long> ids = subjectIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+    if (!ids.isEmpty()) {
+      repository.incrementContentVersions(ids);
+    }
+  }
+
   protected Subject findById(Long id) {
-    log.info("Finding subject with id {}", id);
+    log.debug("Finding subject with id {}", id);
     return repository.findById(id).orElseThrow(() -> new SubjectNotFoundException(id));
   }
 }
@@ -0,0 +1,156 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.dto.DeckSummary;
+import com.example.flashcards_backend.dto.SyncResponse;
+import com.example.flashcards_backend.dto.SyncResponse.CardChange;
+import com.example.flashcards_backend.dto.SyncResponse.HistoryChange;
+import com.example.flashcards_backend.exception.SubjectNotFoundException;
+import com.example.flashcards_backend.model.SyncTombstone;
+import com.example.flashcards_backend.model.SyncTombstone.EntityType;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardHistoryRepository;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.DeckRepository;
+import com.example.flashcards_backend.repository.SyncTombstoneRepository;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SyncService {
+  private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+  private final CardRepository cardRepository;
+  private final DeckRepository deckRepository;
+  private final CardHistoryRepository cardHistoryRepository;
+  private final SyncTombstoneRepository syncTombstoneRepository;
+  private final SubjectService subjectService;
+
+  // Timestamps are taken before commit, so a token never passes the start of a transaction that
+  // is still open and could yet commit rows stamped after it; PostgreSQL only, so off for H2
+  @Value("${app.sync.hold-back-for-open-transactions:true}")
+  private boolean holdBackForOpenTransactions;
+
+  // Transactions open longer than this no longer hold tokens back
+  @Value("${app.sync.max-hold-back:PT15M}")
+  private Duration maxHoldBack;
+
+  // Margin for clock skew between application instances, which stamp the rows, and the database
+  @Value("${app.sync.overlap:PT10S}")
+  private Duration overlap;
+
+  @Value("${app.sync.tombstone-retention:P30D}")
+  private Duration tombstoneRetention;
+
+  /**
+   * Everything in the subject changed or deleted since {@code token}, or the whole subject when
+   * the token is absent or older than tombstones are kept. Runs on the primary: a lagging replica
+   * could hand out a token past rows it has not received yet.
+   *
+   * <p>The returned token stops at the start of the oldest open writing transaction, so a long
+   * one holds every client's token back until it commits and they see the same changes again
+   * meanwhile. Transactions older than {@code app.sync.max-hold-back} are
+   * ignored. Without the hold-back, or for a write that outlasts that bound, a write that commits
+   * more than the overlap after its timestamp is missed until the row next changes.
+   */
+  @Transactional
+  public SyncResponse changesSince(User user, Long subjectId, String token) {
+    if (subjectService.findContentVersion(user, subjectId).isEmpty()) {
+      throw new SubjectNotFoundException(subjectId);
+    }
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime since = token == null || token.isBlank() ? null : decode(token);
+    boolean reset = since == null || since.isBefore(now.minus(tombstoneRetention));
+    if (reset) {
+      since = BEGINNING;
+    }
+
+    List<CardChange> cards =
+        cardRepository.findChangedSince(subjectId, since).stream()
+            .map(CardChange::fromEntity)
+            .toList();
+    List<DeckSummary> decks =
+        deckRepository.findBySubjectIdAndUpdatedAtAfter(subjectId, since).stream()
+            .map(DeckSummary::fromEntity)
+            .toList();
+    List<HistoryChange> history =
+        cardHistoryRepository.findChangedSince(user.getId(), subjectId, since).stream()
+            .map(HistoryChange::fromEntity)
+            .toList();
+    List<SyncTombstone> tombstones =
+        reset
+            ? List.of()
+            : syncTombstoneRepository.findBySubjectIdAndDeletedAtAfter(subjectId, since);
+
+    log.debug(
+        "Sync of subject {} for user {}: {} cards, {} decks, {} history rows, {} deletions",
+        subjectId,
+        user.getId(),
+        cards.size(),
+        decks.size(),
+        history.size(),
+        tombstones.size());
+    return new SyncResponse(
+        encode(horizon(now).minus(overlap)),
+        reset,
+        cards,
+        decks,
+        history,
+        idsOf(tombstones, EntityType.CARD),
+        idsOf(tombstones, EntityType.DECK));
+  }
+
+  @Scheduled(cron = "${app.sync.tombstone-purge-cron:0 0 4 * * *}")
+  @Transactional
+  public void purgeTombstones() {
+    LocalDateTime cutoff = LocalDateTime.now().minus(tombstoneRetention);
+    int purged = syncTombstoneRepository.deleteByDeletedAtBefore(cutoff);
+    log.info("Purged {} sync tombstones", purged);
+  }
+
+  /* HELPERS */
+
+  private LocalDateTime horizon(LocalDateTime now) {
+    if (!holdBackForOpenTransactions) {
+      return now;
+    }
+    return syncTombstoneRepository
+        .findOldestOpenTransactionStart(now.minus(maxHoldBack))
+        .filter(now::isAfter)
+        .orElse(now);
+  }
+
+  private static List<Long> idsOf(List<SyncTombstone> tombstones, EntityType type) {
+    return tombstones.stream()
+        .filter(t -> t.getEntityType() == type)
+        .map(SyncTombstone::getEntityId)
+        .distinct()
+        .toList();
+  }
+
+  private static String encode(LocalDateTime since) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(since.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static LocalDateTime decode(String token) {
+    try {
+      return LocalDateTime.parse(
+          new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid sync token: " + token, e);
+    }
+  }
+}
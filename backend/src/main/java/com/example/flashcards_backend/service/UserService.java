@@ -1,19 +1,31 @@
 package com.example.flashcards_backend.service;
 
 import com.example.flashcards_backend.dto.UserDto;
+import com.example.flashcards_backend.exception.UserNotFoundException;
+import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
+    private final CurrentUserService currentUserService;
 
     public List<UserDto> findAll() {
         return userRepository.findAllUsersAsDtos();
     }
+
+    @Transactional
+    public void deactivate(UUID userId) {
+        User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
+        user.setActive(false);
+        currentUserService.evict(user.getAuth0Id());
+    }
 }
@@ -0,0 +1,39 @@
+package com.example.flashcards_backend.service;
+
+import com.example.flashcards_backend.repository.UserRepository;
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recomputes every user's stats row overnight, correcting drift from changes that bypass the
+ * incremental updates, such as subject deletion.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserStatsRebuildJob {
+
+  private final UserRepository userRepository;
+  private final UserStatsService userStatsService;
+
+  @Scheduled(cron = "${app.user-stats.rebuild-cron:0 30 3 * * *}")
+  public void rebuildAll() {
+    List<UUID> userIds = userRepository.findAllIds();
+    log.info("Rebuilding stats for {} users", userIds.size());
+    int failed = 0;
+    for (UUID userId : userIds) {
+      // One transaction per user, so a failure only skips that user
+      try {
+        userStatsService.rebuild(userId);
+      } catch (RuntimeException e) {
+        failed++;
+        log.error("Failed to rebuild stats for user {}", userId, e);
+      }
+    }
+    log.info("Rebuilt stats for {} users, {} failed", userIds.size() - failed, failed);
+  }
+}
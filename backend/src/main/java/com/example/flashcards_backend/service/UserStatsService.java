@@ -1,63 +1,264 @@
 package com.example.flashcards_backend.service;
 
 import com.example.flashcards_backend.dto.CardSummary;
+import com.example.flashcards_backend.dto.DeckSummary;
 import com.example.flashcards_backend.dto.UserStatsResponse;
-import com.example.flashcards_backend.model.Card;
 import com.example.flashcards_backend.model.CardHistory;
+import com.example.flashcards_backend.model.UserStats;
+import com.example.flashcards_backend.repository.CardDeckRowProjection;
 import com.example.flashcards_backend.repository.CardHistoryRepository;
 import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.UserStatsProjection;
+import com.example.flashcards_backend.repository.UserStatsRepository;
+import com.example.flashcards_backend.repository.UserStatsRowProjection;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Serves GET /user-stats from the materialised {@link UserStats} row and keeps that row current.
+ * Writers call in from their own transaction, so a rating or card change and its stats update
+ * commit together. Rows are created by the rebuild; until then reads compute the figures without
+ * storing them.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserStatsService {
 
   private final CardRepository cardRepository;
   private final CardHistoryRepository cardHistoryRepository;
+  private final UserStatsRepository userStatsRepository;
 
+  // One aggregate statement per rebuild; false falls back to a query per figure
+  @Value("${app.user-stats.single-query:true}")
+  private boolean singleQuery;
+
+  // Rebuild creates the row with INSERT ... ON CONFLICT; PostgreSQL only, so off for H2 tests
+  @Value("${app.user-stats.atomic-insert:true}")
+  private boolean atomicInsert;
+
+  /**
+   * Reads the user's row and both card summaries in one statement. A user without a row yet gets
+   * figures computed on the fly; the row itself is left to the next rebuild, so this stays a
+   * read-only transaction.
+   */
   @Transactional(readOnly = true)
   public UserStatsResponse getForUserId(UUID userId) {
+    List<UserStatsRowProjection> rows = userStatsRepository.findRowsByUserId(userId);
+    if (rows.isEmpty()) {
+      return computeForUserId(userId);
+    }
+
+    UserStatsRowProjection row = rows.getFirst();
+    UserStats stats =
+        UserStats.builder()
+            .totalCards(row.getTotalCards())
+            .totalCardViews(row.getTotalCardViews())
+            .totalUnviewedCards(row.getTotalUnviewedCards())
+            .totalLastRating1(row.getTotalLastRating1())
+            .totalLastRating2(row.getTotalLastRating2())
+            .totalLastRating3(row.getTotalLastRating3())
+            .totalLastRating4(row.getTotalLastRating4())
+            .totalLastRating5(row.getTotalLastRating5())
+            .hardestCardId(row.getHardestCardId())
+            .mostViewedCardId(row.getMostViewedCardId())
+            .build();
+    return toResponse(stats, toSummaries(rows));
+  }
 
-    Long totalCards = cardRepository.countByUserId(userId);
-    Long totalCardViews = cardHistoryRepository.totalViewCountByUserId(userId);
-    Optional<Card> mostViewedCard = cardRepository.findMostViewedByUserId(userId);
-    Optional<Card> hardestCard = cardRepository.findHardestByUserId(userId);
-    Map<Integer, Long> countsForEachLastViewedRating = getCountsForEachLastViewedRating(userId);
-    Long totalUnviewedCards = cardRepository.countUnviewedByUserId(userId);
-    CardHistory hardestCardHistory = hardestCard.map(card -> getHistory(userId, card)).orElse(null);
-    CardHistory mostViewedCardHistory =
-        mostViewedCard.map(card -> getHistory(userId, card)).orElse(null);
+  private UserStatsResponse computeForUserId(UUID userId) {
+    UserStats stats = new UserStats();
+    compute(stats, userId);
+    List<Long> cardIds =
+        Stream.of(stats.getHardestCardId(), stats.getMostViewedCardId())
+            .filter(Objects::nonNull)
+            .distinct()
+            .toList();
+    List<CardDeckRowProjection> cardRows =
+        cardIds.isEmpty() ? List.of() : cardRepository.findCardDeckRowsByCardIds(cardIds);
+    return toResponse(stats, toSummaries(cardRows));
+  }
 
+  private static UserStatsResponse toResponse(UserStats stats, Map<Long, CardSummary> summaries) {
     return UserStatsResponse.builder()
-        .totalCards(totalCards)
-        .hardestCard(
-            hardestCard.map(card -> CardSummary.fromEntity(card, hardestCardHistory)).orElse(null))
-        .mostViewedCard(
-            mostViewedCard
-                .map(card -> CardSummary.fromEntity(card, mostViewedCardHistory))
-                .orElse(null))
-        .totalCardViews(totalCardViews)
-        .totalLastRating1(countsForEachLastViewedRating.getOrDefault(1, 0L))
-        .totalLastRating2(countsForEachLastViewedRating.getOrDefault(2, 0L))
-        .totalLastRating3(countsForEachLastViewedRating.getOrDefault(3, 0L))
-        .totalLastRating4(countsForEachLastViewedRating.getOrDefault(4, 0L))
-        .totalLastRating5(countsForEachLastViewedRating.getOrDefault(5, 0L))
-        .totalUnviewedCards(totalUnviewedCards)
+        .totalCards(stats.getTotalCards())
+        .hardestCard(summaries.get(stats.getHardestCardId()))
+        .mostViewedCard(summaries.get(stats.getMostViewedCardId()))
+        .totalCardViews(stats.getTotalCardViews())
+        .totalLastRating1(stats.getTotalLastRating1())
+        .totalLastRating2(stats.getTotalLastRating2())
+        .totalLastRating3(stats.getTotalLastRating3())
+        .totalLastRating4(stats.getTotalLastRating4())
+        .totalLastRating5(stats.getTotalLastRating5())
+        .totalUnviewedCards(stats.getTotalUnviewedCards())
         .build();
   }
 
-  private CardHistory getHistory(UUID userId, Card card) {
-    return cardHistoryRepository.findByCardIdAndUserId(card.getId(), userId).orElse(null);
+  /**
+   * A history row just written by {@code ratingCount} ratings. {@code previousRating} is the last
+   * rating the history held before the write.
+   */
+  public record RatedHistory(CardHistory history, Integer previousRating, int ratingCount) {}
+
+  /** Folds {@code ratingCount} ratings that were just written to {@code history} into the stats. */
+  @Transactional
+  public void recordRatings(
+      UUID userId, CardHistory history, Integer previousRating, int ratingCount) {
+    recordRatings(userId, List.of(new RatedHistory(history, previousRating, ratingCount)));
+  }
+
+  /** Folds a batch of written history rows into the user's stats, locking the row once. */
+  @Transactional
+  public void recordRatings(UUID userId, List<RatedHistory> rated) {
+    if (rated.isEmpty()) {
+      return;
+    }
+    Optional<UserStats> row = userStatsRepository.findByUserIdForUpdate(userId);
+    if (row.isEmpty()) {
+      // Built from scratch by the next rebuild
+      return;
+    }
+    for (RatedHistory r : rated) {
+      apply(row.get(), userId, r.history(), r.previousRating(), r.ratingCount());
+    }
+  }
+
+  private void apply(
+      UserStats stats, UUID userId, CardHistory history, Integer previousRating, int ratingCount) {
+    boolean firstRating = history.getViewCount() == ratingCount;
+    stats.setTotalCardViews(stats.getTotalCardViews() + ratingCount);
+    if (firstRating) {
+      stats.setTotalUnviewedCards(Math.max(0, stats.getTotalUnviewedCards() - 1));
+    } else {
+      stats.adjustLastRating(previousRating, -1);
+    }
+    stats.adjustLastRating(history.getLastRating(), 1);
+
+    Long cardId = history.getCard().getId();
+    // View counts only grow, so the rated card either keeps or takes the most-viewed spot
+    if (cardId.equals(stats.getMostViewedCardId())
+        || stats.getMostViewedCount() == null
+        || history.getViewCount() > stats.getMostViewedCount()) {
+      stats.setMostViewedCardId(cardId);
+      stats.setMostViewedCount(history.getViewCount());
+    }
+    if (cardId.equals(stats.getHardestCardId())
+        && history.getAvgRating() < stats.getHardestAvgRating()) {
+      // The hardest card got easier, so another card may now be the hardest
+      setHardest(stats, userId);
+    } else if (stats.getHardestAvgRating() == null
+        || cardId.equals(stats.getHardestCardId())
+        || history.getAvgRating() > stats.getHardestAvgRating()) {
+      stats.setHardestCardId(cardId);
+      stats.setHardestAvgRating(history.getAvgRating());
+    }
+  }
+
+  /** New cards start out unviewed. */
+  @Transactional
+  public void recordCardsCreated(UUID userId, int count) {
+    userStatsRepository
+        .findByUserIdForUpdate(userId)
+        .ifPresent(
+            stats -> {
+              stats.setTotalCards(stats.getTotalCards() + count);
+              stats.setTotalUnviewedCards(stats.getTotalUnviewedCards() + count);
+            });
+  }
+
+  /** Recomputes the user's stats from card and card_history, creating the row if needed. */
+  @Transactional
+  public UserStats rebuild(UUID userId) {
+    if (atomicInsert) {
+      userStatsRepository.insertIfAbsent(userId);
+    }
+    UserStats stats =
+        userStatsRepository.findByUserIdForUpdate(userId).orElseGet(UserStats::new);
+    stats.setUserId(userId);
+    compute(stats, userId);
+    stats.setRebuiltAt(LocalDateTime.now());
+    log.debug("Rebuilt stats for user {}", userId);
+    return userStatsRepository.save(stats);
+  }
+
+  private void compute(UserStats stats, UUID userId) {
+    if (singleQuery) {
+      applyAggregates(stats, userStatsRepository.computeByUserId(userId));
+    } else {
+      computePerQuery(stats, userId);
+    }
+  }
+
+  private static void applyAggregates(UserStats stats, UserStatsProjection aggregates) {
+    stats.setTotalCards(aggregates.getTotalCards());
+    stats.setTotalCardViews(aggregates.getTotalCardViews());
+    stats.setTotalUnviewedCards(aggregates.getTotalUnviewedCards());
+    stats.setTotalLastRating1(aggregates.getTotalLastRating1());
+    stats.setTotalLastRating2(aggregates.getTotalLastRating2());
+    stats.setTotalLastRating3(aggregates.getTotalLastRating3());
+    stats.setTotalLastRating4(aggregates.getTotalLastRating4());
+    stats.setTotalLastRating5(aggregates.getTotalLastRating5());
+    stats.setHardestCardId(aggregates.getHardestCardId());
+    stats.setHardestAvgRating(aggregates.getHardestAvgRating());
+    stats.setMostViewedCardId(aggregates.getMostViewedCardId());
+    stats.setMostViewedCount(aggregates.getMostViewedCount());
+  }
+
+  private void computePerQuery(UserStats stats, UUID userId) {
+    stats.setTotalCards(cardRepository.countByUserId(userId));
+    stats.setTotalCardViews(cardHistoryRepository.totalViewCountByUserId(userId));
+    stats.setTotalUnviewedCards(cardRepository.countUnviewedByUserId(userId));
+    stats.setTotalLastRating1(0);
+    stats.setTotalLastRating2(0);
+    stats.setTotalLastRating3(0);
+    stats.setTotalLastRating4(0);
+    stats.setTotalLastRating5(0);
+    for (Object[] row : cardHistoryRepository.countByLastRatingForUser(userId)) {
+      stats.adjustLastRating((Integer) row[0], (Long) row[1]);
+    }
+
+    Optional<CardHistory> mostViewed =
+        cardRepository
+            .findMostViewedByUserId(userId)
+            .flatMap(card -> cardHistoryRepository.findByCardIdAndUserId(card.getId(), userId));
+    stats.setMostViewedCardId(mostViewed.map(ch -> ch.getCard().getId()).orElse(null));
+    stats.setMostViewedCount(mostViewed.map(CardHistory::getViewCount).orElse(null));
+    setHardest(stats, userId);
+  }
+
+  private void setHardest(UserStats stats, UUID userId) {
+    Optional<CardHistory> hardest =
+        cardRepository
+            .findHardestByUserId(userId)
+            .flatMap(card -> cardHistoryRepository.findByCardIdAndUserId(card.getId(), userId));
+    stats.setHardestCardId(hardest.map(ch -> ch.getCard().getId()).orElse(null));
+    stats.setHardestAvgRating(hardest.map(CardHistory::getAvgRating).orElse(null));
   }
 
-  private Map<Integer, Long> getCountsForEachLastViewedRating(UUID userId) {
-    return cardHistoryRepository.countByLastRatingForUser(userId).stream()
-        .collect(Collectors.toMap(row -> (Integer) row[0], row -> (Long) row[1]));
+  // Rows arrive one per deck of each card, so a card's decks are gathered under its id
+  private static Map<Long, CardSummary> toSummaries(List<? extends CardDeckRowProjection> rows) {
+    Map<Long, CardSummary> summaries = new HashMap<>();
+    for (CardDeckRowProjection row : rows) {
+      if (row.getCardId() == null) {
+        continue;
+      }
+      CardSummary summary =
+          summaries.computeIfAbsent(row.getCardId(), id -> CardSummary.fromEntity(row));
+      if (row.getDeckId() != null) {
+        summary.decks().add(new DeckSummary(row.getDeckId(), row.getDeckName()));
+      }
+    }
+    return summaries;
   }
 }
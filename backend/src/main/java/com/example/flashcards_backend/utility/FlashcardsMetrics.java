@@ -0,0 +1,74 @@
+package com.example.flashcards_backend.utility;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Application meters, registered on the global registry like the cache metrics so services can
+ * record without extra wiring. Actuator adds its registries to the global one, so these are
+ * scraped with the rest.
+ */
+public final class FlashcardsMetrics {
+
+  private static final DistributionSummary CARD_ROWS_FETCHED =
+      DistributionSummary.builder("flashcards.cards.rows.fetched")
+          .description("Card/deck rows returned per card listing query")
+          .baseUnit("rows")
+          .register(Metrics.globalRegistry);
+
+  private static final DistributionSummary CSV_UPLOAD_ROWS =
+      DistributionSummary.builder("flashcards.csv.upload.rows")
+          .description("Rows read per CSV upload")
+          .baseUnit("rows")
+          .register(Metrics.globalRegistry);
+
+  private static final Counter CSV_CARDS_SAVED = csvCards("saved");
+  private static final Counter CSV_CARDS_DUPLICATE = csvCards("duplicate");
+  private static final Counter CSV_CARDS_INVALID = csvCards("invalid");
+
+  private static final Counter RATINGS_RECORDED =
+      Counter.builder("flashcards.ratings.recorded")
+          .description("Ratings written to card history")
+          .register(Metrics.globalRegistry);
+
+  private static final Counter READS_ON_REPLICA = readOnlyConnections("replica");
+  private static final Counter READS_ON_PRIMARY = readOnlyConnections("primary");
+
+  private FlashcardsMetrics() {
+    // Utility class, prevent instantiation
+  }
+
+  public static void cardRowsFetched(int rows) {
+    CARD_ROWS_FETCHED.record(rows);
+  }
+
+  public static void csvUploaded(int rows, int saved, int duplicates, int invalid) {
+    CSV_UPLOAD_ROWS.record(rows);
+    CSV_CARDS_SAVED.increment(saved);
+    CSV_CARDS_DUPLICATE.increment(duplicates);
+    CSV_CARDS_INVALID.increment(invalid);
+  }
+
+  public static void ratingsRecorded(int ratings) {
+    RATINGS_RECORDED.increment(ratings);
+  }
+
+  public static void readOnlyConnectionRouted(boolean replica) {
+    (replica ? READS_ON_REPLICA : READS_ON_PRIMARY).increment();
+  }
+
+  private static Counter csvCards(String outcome) {
+    return Counter.builder("flashcards.csv.upload.cards")
+        .description("CSV rows by import outcome")
+        .tag("outcome", outcome)
+        .register(Metrics.globalRegistry);
+  }
+
+  private static Counter readOnlyConnections(String target) {
+    return Counter.builder("flashcards.db.readonly.connections")
+        .description("Read-only transaction connections by the database that served them")
+        .tag("target", target)
+        .register(Metrics.globalRegistry);
+  }
+}
@@ -0,0 +1,134 @@
+package com.example.flashcards_backend.utility;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Finds an indexed text that is nearly the same as a new one without comparing every pair. Texts
+ * are normalized and cut into character trigrams, and each is reduced to a MinHash signature of
+ * {@value #HASHES} values split into {@value #BANDS} bands. Only texts sharing a whole band are
+ * compared, by the share of signature values they agree on, which estimates the Jaccard similarity
+ * of their trigrams. With bands of {@value #ROWS} a pair at 0.8 similarity shares a band 98% of the
+ * time and one at 0.3 about 6%, so lookups stay close to constant time as the index grows.
+ */
+public final class MinHashIndex<T> {
+
+  static final int BANDS = 8;
+  static final int ROWS = 4;
+  static final int HASHES = BANDS * ROWS;
+  private static final long[] SEEDS = new SplittableRandom(0x5EEDL).longs(HASHES).toArray();
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private final double threshold;
+  private final List<T> items = new ArrayList<>();
+  private final List<int[]> signatures = new ArrayList<>();
+  // Item indexes per band key; the key mixes in the band number, so one map serves every band
+  private final Map<Long, List<Integer>> buckets = new HashMap<>();
+
+  public MinHashIndex(double threshold) {
+    if (threshold <= 0 || threshold > 1) {
+      throw new IllegalArgumentException("Threshold must be in (0, 1] but was " + threshold);
+    }
+    this.threshold = threshold;
+  }
+
+  public record Match<T>(T item, double similarity) {}
+
+  public int size() {
+    return items.size();
+  }
+
+  public void add(T item, String text) {
+    int[] signature = signature(text);
+    int index = items.size();
+    items.add(item);
+    signatures.add(signature);
+    for (int band = 0; band < BANDS; band++) {
+      buckets.computeIfAbsent(bandKey(signature, band), key -> new ArrayList<>()).add(index);
+    }
+  }
+
+  /** The most similar indexed item whose similarity to {@code text} reaches the threshold. */
+  public Optional<Match<T>> findSimilar(String text) {
+    int[] signature = signature(text);
+    Set<Integer> compared = new HashSet<>();
+    int best = -1;
+    double bestSimilarity = 0;
+    for (int band = 0; band < BANDS; band++) {
+      for (int candidate : buckets.getOrDefault(bandKey(signature, band), List.of())) {
+        if (!compared.add(candidate)) {
+          continue;
+        }
+        double similarity = similarity(signature, signatures.get(candidate));
+        if (similarity >= threshold && similarity > bestSimilarity) {
+          best = candidate;
+          bestSimilarity = similarity;
+        }
+      }
+    }
+    return best < 0 ? Optional.empty() : Optional.of(new Match<>(items.get(best), bestSimilarity));
+  }
+
+  /** Lower-cased with runs of anything but letters and digits collapsed to one space. */
+  static String normalize(String text) {
+    String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    return SEPARATORS.matcher(folded).replaceAll(" ").strip();
+  }
+
+  static int[] signature(String text) {
+    // Padding gives word boundaries their own trigrams and very short texts at least one
+    String padded = " " + normalize(text) + " ";
+    int[] signature = new int[HASHES];
+    Arrays.fill(signature, Integer.MAX_VALUE);
+    for (int i = 0; i + 3 <= Math.max(padded.length(), 3); i++) {
+      long shingle = 0;
+      for (int j = i; j < Math.min(i + 3, padded.length()); j++) {
+        shingle = shingle << 16 | padded.charAt(j);
+      }
+      for (int h = 0; h < HASHES; h++) {
+        int value = (int) (mix(shingle ^ SEEDS[h]) >>> 32);
+        if (value < signature[h]) {
+          signature[h] = value;
+        }
+      }
+    }
+    return signature;
+  }
+
+  static double similarity(int[] a, int[] b) {
+    int same = 0;
+    for (int i = 0; i < HASHES; i++) {
+      if (a[i] == b[i]) {
+        same++;
+      }
+    }
+    return (double) same / HASHES;
+  }
+
+  /* HELPERS */
+
+  private static long bandKey(int[] signature, int band) {
+    long key = band + 1L;
+    for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+      key = mix(key * 0x9E3779B97F4A7C15L + signature[row]);
+    }
+    return key;
+  }
+
+  // SplitMix64 finalizer
+  private static long mix(long z) {
+    z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+    z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return z ^ (z >>> 33);
+  }
+}
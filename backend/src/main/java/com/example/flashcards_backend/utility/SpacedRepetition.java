@@ -0,0 +1,70 @@
+package com.example.flashcards_backend.utility;
+
+import java.time.LocalDateTime;
+
+/**
+ * SM-2 scheduling. Our ratings run from 1 (Easy) to 5 (Impossible), so they map onto SM-2
+ * response quality as {@code q = 6 - rating}: ratings 1-3 count as recalled, 4-5 as lapses.
+ */
+public final class SpacedRepetition {
+
+  public static final double INITIAL_EASE = 2.5;
+  public static final double MIN_EASE = 1.3;
+
+  private SpacedRepetition() {
+    // Utility class, prevent instantiation
+  }
+
+  public record Schedule(double easeFactor, int intervalDays, int repetitions, LocalDateTime dueAt) {
+
+    public static Schedule initial() {
+      return new Schedule(INITIAL_EASE, 0, 0, null);
+    }
+
+    /** Builds a schedule from nullable persisted columns, treating missing values as unseen. */
+    public static Schedule of(Double easeFactor, Integer intervalDays, Integer repetitions) {
+      return new Schedule(
+          easeFactor == null ? INITIAL_EASE : easeFactor,
+          intervalDays == null ? 0 : intervalDays,
+          repetitions == null ? 0 : repetitions,
+          null);
+    }
+  }
+
+  public static Schedule next(Schedule previous, int rating, LocalDateTime ratedAt) {
+    int repetitions;
+    int intervalDays;
+    if (recalled(rating)) {
+      repetitions = previous.repetitions() + 1;
+      intervalDays =
+          switch (repetitions) {
+            case 1 -> 1;
+            case 2 -> 6;
+            default -> (int) Math.round(previous.intervalDays() * previous.easeFactor());
+          };
+    } else {
+      repetitions = 0;
+      intervalDays = 1;
+    }
+    double easeFactor = Math.max(MIN_EASE, previous.easeFactor() + easeChange(rating));
+    return new Schedule(easeFactor, intervalDays, repetitions, ratedAt.plusDays(intervalDays));
+  }
+
+  /** Whether the card counts as recalled, which extends its interval rather than resetting it. */
+  public static boolean recalled(int rating) {
+    return quality(rating) >= 3;
+  }
+
+  /** How far the rating moves the ease factor, before it is held at {@link #MIN_EASE}. */
+  public static double easeChange(int rating) {
+    int miss = 5 - quality(rating);
+    return 0.1 - miss * (0.08 + miss * 0.02);
+  }
+
+  private static int quality(int rating) {
+    if (rating < 1 || rating > 5) {
+      throw new IllegalArgumentException("Rating must be between 1 and 5 but was " + rating);
+    }
+    return 6 - rating;
+  }
+}
@@ -1,11 +1,13 @@
 CREATE OR REPLACE PROCEDURE record_card_rating(
-  IN p_card_id BIGINT,
-  IN p_rating  INT
+  IN p_card_id    BIGINT,
+  IN p_rating     INT,
+  IN p_updated_at TIMESTAMP
 )
 LANGUAGE plpgsql
 AS $$
 DECLARE
   v_user_id UUID;
+  v_subject_id BIGINT;
 BEGIN
   -- Try to update existing history
   UPDATE card_history
@@ -13,13 +15,14 @@ BEGIN
     view_count  = view_count + 1,
     last_viewed = NOW(),
     last_rating = p_rating,
-    avg_rating  = ROUND(((avg_rating * (view_count::numeric)) + p_rating) / (view_count + 1), 1)
+    avg_rating  = ROUND(((avg_rating * (view_count::numeric)) + p_rating) / (view_count + 1), 1),
+    updated_at  = p_updated_at
   WHERE card_id = p_card_id;
 
   -- If no existing history row, fetch the user_id for this card
   IF NOT FOUND THEN
-    SELECT user_id
-    INTO v_user_id
+    SELECT user_id, subject_id
+    INTO v_user_id, v_subject_id
     FROM card
     WHERE id = p_card_id;
 
@@ -30,8 +33,8 @@ BEGIN
         USING ERRCODE = '23502';
     END IF;
 
-    INSERT INTO card_history(card_id, user_id, avg_rating, view_count, last_viewed, last_rating)
-    VALUES (p_card_id, v_user_id, ROUND(p_rating::numeric, 1), 1, NOW(), p_rating);
+    INSERT INTO card_history(card_id, user_id, subject_id, avg_rating, view_count, last_viewed, last_rating, updated_at)
+    VALUES (p_card_id, v_user_id, v_subject_id, ROUND(p_rating::numeric, 1), 1, NOW(), p_rating, p_updated_at);
   END IF;
 END;
 $$;
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.example.flashcards_backend.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class ConcurrencyLimitingDataSourceTest {
+
+  @Mock private DataSource pool;
+  @Mock private Connection first;
+  @Mock private Connection second;
+
+  private ConcurrencyLimitingDataSource dataSource;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    when(pool.getConnection()).thenReturn(first, second);
+    dataSource = new ConcurrencyLimitingDataSource(pool, 1, Duration.ofMillis(50));
+  }
+
+  @Test
+  void getConnection_waitsForAPermitAndTimesOut() throws SQLException {
+    Connection held = dataSource.getConnection();
+
+    assertThatThrownBy(dataSource::getConnection)
+        .isInstanceOf(SQLTransientConnectionException.class);
+    assertThat(dataSource.getAvailablePermits()).isZero();
+
+    held.close();
+    verify(first).close();
+    assertThat(dataSource.getConnection()).isNotNull();
+  }
+
+  @Test
+  void close_releasesThePermitOnlyOnce() throws SQLException {
+    Connection held = dataSource.getConnection();
+    held.close();
+    held.close();
+
+    assertThat(dataSource.getAvailablePermits()).isEqualTo(1);
+  }
+
+  @Test
+  void getConnection_releasesThePermitWhenThePoolFails() throws SQLException {
+    DataSource failing = mock(DataSource.class);
+    when(failing.getConnection()).thenThrow(new SQLException("pool exhausted"));
+    ConcurrencyLimitingDataSource limited =
+        new ConcurrencyLimitingDataSource(failing, 1, Duration.ofMillis(50));
+
+    assertThatThrownBy(limited::getConnection).hasMessage("pool exhausted");
+    assertThat(limited.getAvailablePermits()).isEqualTo(1);
+  }
+
+  @Test
+  void unwrap_reachesThePooledConnection() throws SQLException {
+    when(first.unwrap(String.class)).thenReturn("driver connection");
+
+    assertThat(dataSource.getConnection().unwrap(String.class)).isEqualTo("driver connection");
+  }
+
+  @Test
+  void unwrap_reachesThePool() throws SQLException {
+    try (HikariDataSource hikari = new HikariDataSource()) {
+      ConcurrencyLimitingDataSource limited =
+          new ConcurrencyLimitingDataSource(hikari, 1, Duration.ofMillis(50));
+
+      assertThat(limited.isWrapperFor(HikariDataSource.class)).isTrue();
+      assertThat(limited.unwrap(HikariDataSource.class)).isSameAs(hikari);
+      assertThat(limited.unwrap(ConcurrencyLimitingDataSource.class)).isSameAs(limited);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.example.flashcards_backend.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Routes between two local H2 databases, each holding a marker row naming itself. */
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+      "spring.jpa.show-sql=false",
+      "app.datasource.replica.enabled=true",
+      "app.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+      "app.datasource.replica.username=sa",
+      "app.datasource.replica.password=",
+      "app.datasource.replica.lag-query=SELECT lag_seconds FROM replica_lag",
+      "app.datasource.replica.lag-check-interval=PT1H",
+      "app.datasource.replica.max-lag=PT5S"
+    })
+@ActiveProfiles("test")
+class ReplicaRoutingTest {
+
+  private static final String RATER = "auth0|rater";
+
+  @Autowired private DataSource dataSource;
+
+  @Autowired
+  @Qualifier("primaryPool")
+  private DataSource primaryPool;
+
+  @Autowired
+  @Qualifier("replicaPool")
+  private DataSource replicaPool;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+  @Autowired private ReplicaLagMonitor lagMonitor;
+  @Autowired private ReadYourWrites readYourWrites;
+
+  @BeforeEach
+  void setUp() {
+    mark(new JdbcTemplate(primaryPool), "primary");
+    JdbcTemplate replica = new JdbcTemplate(replicaPool);
+    mark(replica, "replica");
+    replica.execute("CREATE TABLE IF NOT EXISTS replica_lag (lag_seconds DOUBLE PRECISION)");
+    replica.update("DELETE FROM replica_lag");
+    replica.update("INSERT INTO replica_lag VALUES (0)");
+    lagMonitor.refresh();
+  }
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void readOnlyTransaction_isServedByTheReplica() {
+    assertThat(servedBy(true)).isEqualTo("replica");
+  }
+
+  @Test
+  void readWriteTransaction_isServedByThePrimary() {
+    assertThat(servedBy(false)).isEqualTo("primary");
+  }
+
+  @Test
+  void laggingReplica_fallsBackToThePrimary() {
+    new JdbcTemplate(replicaPool).update("UPDATE replica_lag SET lag_seconds = 60");
+    lagMonitor.refresh();
+
+    assertThat(lagMonitor.isHealthy()).isFalse();
+    assertThat(servedBy(true)).isEqualTo("primary");
+  }
+
+  @Test
+  void failedLagCheck_fallsBackToThePrimary() {
+    new JdbcTemplate(replicaPool).execute("DROP TABLE replica_lag");
+    lagMonitor.refresh();
+
+    assertThat(servedBy(true)).isEqualTo("primary");
+  }
+
+  @Test
+  void recentWriter_readsTheirWritesFromThePrimary() {
+    readYourWrites.markWritten(RATER);
+
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(RATER, null));
+    assertThat(servedBy(true)).isEqualTo("primary");
+
+    SecurityContextHolder.getContext()
+        .setAuthentication(new TestingAuthenticationToken("auth0|someone-else", null));
+    assertThat(servedBy(true)).isEqualTo("replica");
+  }
+
+  private String servedBy(boolean readOnly) {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setReadOnly(readOnly);
+    return transaction.execute(
+        status ->
+            new JdbcTemplate(dataSource).queryForObject("SELECT name FROM db_marker", String.class));
+  }
+
+  private static void mark(JdbcTemplate database, String name) {
+    database.execute("CREATE TABLE IF NOT EXISTS db_marker (name VARCHAR(16))");
+    database.update("DELETE FROM db_marker");
+    database.update("INSERT INTO db_marker VALUES (?)", name);
+  }
+}
@@ -0,0 +1,41 @@
+package com.example.flashcards_backend.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.SQLException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.env.MockEnvironment;
+
+class VirtualThreadConfigTest {
+
+  private final HikariDataSource pool = new HikariDataSource();
+  private final BeanPostProcessor postProcessor =
+      VirtualThreadConfig.concurrencyLimitingDataSourcePostProcessor(new MockEnvironment());
+
+  @AfterEach
+  void tearDown() {
+    pool.close();
+  }
+
+  @Test
+  void leavesPoolsOtherThanTheApplicationDataSourceAlone() {
+    assertThat(postProcessor.postProcessAfterInitialization(pool, "replicaPool")).isSameAs(pool);
+  }
+
+  @Test
+  void limitsTheRoutingDataSourceByThePrimaryPoolSize() throws SQLException {
+    pool.setMaximumPoolSize(7);
+    LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(pool);
+
+    Object processed = postProcessor.postProcessAfterInitialization(routing, "dataSource");
+
+    assertThat(processed).isInstanceOf(ConcurrencyLimitingDataSource.class);
+    ConcurrencyLimitingDataSource limited = (ConcurrencyLimitingDataSource) processed;
+    assertThat(limited.getAvailablePermits()).isEqualTo(7);
+    assertThat(limited.unwrap(HikariDataSource.class)).isSameAs(pool);
+  }
+}
@@ -1,6 +1,7 @@
 package com.example.flashcards_backend.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -19,6 +20,7 @@ import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -73,6 +75,220 @@ class CardControllerTest extends AbstractIntegrationTest {
         .andExpect(jsonPath("$.error").value("Card not found with id: 99"));
   }
 
+  @Test
+  void getCardPage_firstPage_returnsCardsAndCursor() throws Exception {
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/page")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cards.length()").value(1))
+        .andExpect(jsonPath("$.cards[0].id").value(c1.getId()))
+        .andExpect(jsonPath("$.cards[0].viewCount").value(2))
+        .andExpect(jsonPath("$.nextCursor").value(c1.getId()));
+  }
+
+  @Test
+  void getCardPage_afterCursor_returnsRemainingCards() throws Exception {
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/page")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("after", c1.getId().toString())
+                .param("limit", "10"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cards.length()").value(1))
+        .andExpect(jsonPath("$.cards[0].id").value(c2.getId()))
+        .andExpect(jsonPath("$.nextCursor").isEmpty());
+  }
+
+  @Test
+  void getCardPage_limitOutOfRange_returnsBadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/page")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("limit", "0"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void getDueCards_returnsOverdueCardsThenUnseenCards() throws Exception {
+    makeC1Due();
+
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/due").with(jwt).param("subjectId", subject1.getId().toString()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].id").value(c1.getId()))
+        .andExpect(jsonPath("$[1].id").value(c2.getId()));
+  }
+
+  @Test
+  void getDueCards_excludingNew_returnsOnlyOverdueCards() throws Exception {
+    makeC1Due();
+
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/due")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("includeNew", "false"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].id").value(c1.getId()));
+  }
+
+  @Test
+  void rate_schedulesNextReview_soCardIsNoLongerDue() throws Exception {
+    mockMvc
+        .perform(patch(ENDPOINT + "/" + c2.getId() + "/rate").with(jwt).param("rating", "2"))
+        .andExpect(status().isOk());
+
+    CardHistory history =
+        cardHistoryRepository.findByCardIdAndUserId(c2.getId(), testUser.getId()).orElseThrow();
+    assertThat(history.getRepetitions()).isEqualTo(1);
+    assertThat(history.getIntervalDays()).isEqualTo(1);
+    assertThat(history.getDueAt()).isAfter(LocalDateTime.now());
+    assertThat(history.getSubjectId()).isEqualTo(subject1.getId());
+
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/due")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("includeNew", "false"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+  }
+
+  @Test
+  void search_returnsMatchingCards() throws Exception {
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/search")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("q", "F1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cards.length()").value(1))
+        .andExpect(jsonPath("$.cards[0].id").value(c1.getId()))
+        .andExpect(jsonPath("$.cards[0].front").value("f1"))
+        .andExpect(jsonPath("$.hasMore").value(false));
+  }
+
+  @Test
+  void search_pagesThroughPrefixMatches() throws Exception {
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/search")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("q", "f")
+                .param("size", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cards.length()").value(1))
+        .andExpect(jsonPath("$.cards[0].id").value(c1.getId()))
+        .andExpect(jsonPath("$.hasMore").value(true));
+
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/search")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("q", "f")
+                .param("size", "1")
+                .param("page", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cards[0].id").value(c2.getId()))
+        .andExpect(jsonPath("$.hasMore").value(false));
+  }
+
+  @Test
+  void search_blankQuery_returnsBadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/search")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("q", " "))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void autocomplete_returnsFrontsStartingWithPrefix() throws Exception {
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/autocomplete")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("prefix", "F"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].cardId").value(c1.getId()))
+        .andExpect(jsonPath("$[0].front").value("f1"))
+        .andExpect(jsonPath("$[1].cardId").value(c2.getId()));
+
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/autocomplete")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("prefix", "f2")
+                .param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].cardId").value(c2.getId()));
+  }
+
+  @Test
+  void autocomplete_blankPrefix_returnsBadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get(ENDPOINT + "/autocomplete")
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("prefix", " "))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void getAll_withCurrentETag_isNotModifiedUntilTheSubjectChanges() throws Exception {
+    String subjectId = subject1.getId().toString();
+    String etag =
+        mockMvc
+            .perform(get(ENDPOINT).with(jwt).param("subjectId", subjectId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+    assertThat(etag).isNotBlank();
+
+    mockMvc
+        .perform(
+            get(ENDPOINT).with(jwt).param("subjectId", subjectId).header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andExpect(content().string(""));
+
+    mockMvc
+        .perform(patch(ENDPOINT + "/" + c1.getId() + "/rate").with(jwt).param("rating", "4"))
+        .andExpect(status().isOk());
+
+    mockMvc
+        .perform(
+            get(ENDPOINT).with(jwt).param("subjectId", subjectId).header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+        .andExpect(jsonPath("$.length()").value(2));
+  }
+
   @Test
   void create_Card_validDto_returnsCreatedWithLocationAndBody() throws Exception {
     CardRequest request = CardRequest.of("f", "b", subject1.getId());
@@ -236,4 +452,12 @@ class CardControllerTest extends AbstractIntegrationTest {
         .andExpect(jsonPath("$.hintFront").value("f"))
         .andExpect(jsonPath("$.hintBack").value("b"));
   }
+
+  private void makeC1Due() {
+    CardHistory history =
+        cardHistoryRepository.findByCardIdAndUserId(c1.getId(), testUser.getId()).orElseThrow();
+    history.setSubjectId(subject1.getId());
+    history.setDueAt(LocalDateTime.parse(PAST_TIMESTAMP));
+    cardHistoryRepository.saveAndFlush(history);
+  }
 }
@@ -20,6 +20,7 @@ import java.util.Set;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class CsvExportControllerTest extends AbstractIntegrationTest {
@@ -96,4 +97,21 @@ class CsvExportControllerTest extends AbstractIntegrationTest {
             .trim();
     assertThat(content).isEqualTo(expectedContents);
   }
+
+  @Test
+  void streamSubjectCsv_startsStreamingWithCsvHeaders() throws Exception {
+    mockMvc
+        .perform(get(PATH + "/subject/" + subject1.getId() + "/stream").with(jwt))
+        .andExpect(request().asyncStarted())
+        .andExpect(
+            header().string("Content-Disposition", "attachment; filename=\"subject_Subject 1.csv\""))
+        .andExpect(header().string("Content-Type", "text/csv"));
+  }
+
+  @Test
+  void streamDeckCsv_unknownDeck_returnsNotFoundBeforeStreaming() throws Exception {
+    mockMvc
+        .perform(get(PATH + "/deck/" + (deck2.getId() + 1000) + "/stream").with(jwt))
+        .andExpect(status().isNotFound());
+  }
 }
@@ -68,6 +68,7 @@ class CsvUploadControllerTest extends AbstractIntegrationTest {
         objectMapper.readValue(responseBody, CsvUploadResponseDto.class);
     assertThat(responseDto.saved()).hasSize(3);
     assertThat(responseDto.duplicates()).isEmpty();
+    assertThat(responseDto.savedCount()).isEqualTo(3);
     assertThat(responseDto.saved())
         .extracting("front")
         .containsExactlyInAnyOrder("a", "c", "withHintF");
@@ -97,4 +98,51 @@ class CsvUploadControllerTest extends AbstractIntegrationTest {
     assertThat(c.get().decks()).singleElement().extracting("name").isEqualTo("d1");
   }
 
+  @Test
+  void uploadCsv_withoutCards_returnsCountsOnly() throws Exception {
+    String csvContents =
+        """
+        front,back,hint_front,hint_back,decks
+        a,b,,,
+        ,missing front,,,
+        """;
+    MockMultipartFile file =
+        new MockMultipartFile("file", "test.csv", "text/csv", csvContents.getBytes());
+    mockMvc
+        .perform(
+            multipart(PATH + "/" + subject1.getId())
+                .file(file)
+                .param("includeCards", "false")
+                .with(jwt)
+                .contentType(MediaType.MULTIPART_FORM_DATA))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.saved").isEmpty())
+        .andExpect(jsonPath("$.savedCount").value(1))
+        .andExpect(jsonPath("$.invalidCount").value(1));
+  }
+
+  @Test
+  void uploadCsv_detectingNearDuplicates_savesOnlyTheFirstOfThem() throws Exception {
+    String csvContents =
+        """
+        front,back,hint_front,hint_back,decks
+        das Haus,house,,,
+        Das Haus!,House,,,
+        """;
+    MockMultipartFile file =
+        new MockMultipartFile("file", "test.csv", "text/csv", csvContents.getBytes());
+    mockMvc
+        .perform(
+            multipart(PATH + "/" + subject1.getId())
+                .file(file)
+                .param("detectNearDuplicates", "true")
+                .with(jwt)
+                .contentType(MediaType.MULTIPART_FORM_DATA))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.savedCount").value(1))
+        .andExpect(jsonPath("$.nearDuplicateCount").value(1))
+        .andExpect(jsonPath("$.nearDuplicates[0].card.front").value("Das Haus!"))
+        .andExpect(jsonPath("$.nearDuplicates[0].similarTo.front").value("das Haus"))
+        .andExpect(jsonPath("$.nearDuplicates[0].similarity").value(1.0));
+  }
 }
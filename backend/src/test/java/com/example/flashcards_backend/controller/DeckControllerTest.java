@@ -18,9 +18,11 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -122,6 +124,45 @@ class DeckControllerTest extends AbstractIntegrationTest {
                 .value("A deck with the name 'Deck 1' already exists in subject Subject 1"));
   }
 
+  @Test
+  void getAllForSubject_withCurrentETag_isNotModifiedUntilADeckIsRenamed() throws Exception {
+    String subjectId = subject1.getId().toString();
+    String etag =
+        mockMvc
+            .perform(get(ENDPOINT).param("subjectId", subjectId).with(jwt))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+    assertThat(etag).isNotBlank();
+
+    mockMvc
+        .perform(
+            get(ENDPOINT).param("subjectId", subjectId).header(HttpHeaders.IF_NONE_MATCH, etag).with(jwt))
+        .andExpect(status().isNotModified());
+
+    mockMvc
+        .perform(
+            put(ENDPOINT + "/" + deck1.getId())
+                .contentType("application/json")
+                .content("{\"newName\": \"Renamed Deck\"}")
+                .with(jwt))
+        .andExpect(status().isOk());
+
+    String newEtag =
+        mockMvc
+            .perform(
+                get(ENDPOINT)
+                    .param("subjectId", subjectId)
+                    .header(HttpHeaders.IF_NONE_MATCH, etag)
+                    .with(jwt))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+    assertThat(newEtag).isNotEqualTo(etag);
+  }
+
   @Test
   void updateDeckName() throws Exception {
     String content = "{\"newName\": \"Updated Deck\"}";
@@ -152,6 +193,39 @@ class DeckControllerTest extends AbstractIntegrationTest {
         .andExpect(status().isNoContent());
   }
 
+  @Test
+  void deleteDeck_withCards_unlinksThemAndKeepsThem() throws Exception {
+    card1.addDecks(Set.of(deck1, deck2));
+    cardRepository.saveAndFlush(card1);
+
+    mockMvc
+        .perform(delete(ENDPOINT + "/" + deck1.getId()).with(jwt))
+        .andExpect(status().isNoContent());
+
+    assertThat(deckRepository.findById(deck1.getId())).isEmpty();
+    assertThat(cardRepository.findByDeckId(deck1.getId())).isEmpty();
+    assertThat(cardRepository.findByDeckId(deck2.getId()))
+        .extracting(Card::getId)
+        .containsExactly(card1.getId());
+  }
+
+  @Test
+  void startDeckDeletion_NotFound() throws Exception {
+    mockMvc
+        .perform(post(ENDPOINT + "/999/deletions").with(jwt))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.error").value("Deck not found with id: 999"));
+  }
+
+  @Test
+  void getDeckDeletion_NotFound() throws Exception {
+    UUID id = UUID.randomUUID();
+    mockMvc
+        .perform(get(ENDPOINT + "/deletions/" + id).with(jwt))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.error").value("Deck deletion not found with id: " + id));
+  }
+
   @Test
   void deleteDeck_NotFound() throws Exception {
     mockMvc
@@ -202,26 +276,48 @@ class DeckControllerTest extends AbstractIntegrationTest {
 
   @Test
   void addCardsToDeck() throws Exception {
-    Set<Long> cardIds = Set.of(1L, 2L);
+    Set<Long> cardIds = Set.of(card1.getId(), card2.getId(), Long.MAX_VALUE);
     mockMvc
         .perform(
             patch(ENDPOINT + "/" + deck1.getId() + "/add-cards")
                 .with(jwt)
                 .contentType("application/json")
                 .content(objectMapper.writeValueAsString(cardIds)))
-        .andExpect(status().isNoContent());
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.affected").value(2))
+        .andExpect(jsonPath("$.ignored").value(1));
+
+    assertThat(cardRepository.findByDeckId(deck1.getId()))
+        .extracting(Card::getId)
+        .containsExactlyInAnyOrder(card1.getId(), card2.getId());
+
+    mockMvc
+        .perform(
+            patch(ENDPOINT + "/" + deck1.getId() + "/add-cards")
+                .with(jwt)
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(cardIds)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.affected").value(0))
+        .andExpect(jsonPath("$.ignored").value(3));
   }
 
   @Test
   void removeCardsFromDeck() throws Exception {
-    Set<Long> cardIds = Set.of(1L, 2L);
+    card1.addDeck(deck1);
+    cardRepository.saveAndFlush(card1);
+    Set<Long> cardIds = Set.of(card1.getId(), card2.getId());
     mockMvc
         .perform(
             patch(ENDPOINT + "/" + deck1.getId() + "/remove-cards")
                 .with(jwt)
                 .contentType("application/json")
                 .content(objectMapper.writeValueAsString(cardIds)))
-        .andExpect(status().isNoContent());
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.affected").value(1))
+        .andExpect(jsonPath("$.ignored").value(1));
+
+    assertThat(cardRepository.findByDeckId(deck1.getId())).isEmpty();
   }
 
   /* Helpers */
@@ -0,0 +1,48 @@
+package com.example.flashcards_backend.controller;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.flashcards_backend.integration.AbstractIntegrationTest;
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.repository.CardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+
+@AutoConfigureObservability
+class MetricsEndpointTest extends AbstractIntegrationTest {
+
+  @Autowired private CardRepository cardRepository;
+
+  @Test
+  void readinessAndLivenessProbes_areOpenOnTheMainPort() throws Exception {
+    mockMvc.perform(get("/readyz")).andExpect(status().isOk());
+    mockMvc.perform(get("/livez")).andExpect(status().isOk());
+  }
+
+  @Test
+  void actuatorHealth_isOpenButMetricsRequireAuthentication() throws Exception {
+    mockMvc.perform(get("/actuator/health/readiness")).andExpect(status().isOk());
+    mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+    mockMvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void prometheusScrape_includesRequestAndApplicationMeters() throws Exception {
+    cardRepository.saveAndFlush(
+        Card.builder().subject(subject1).front("front").back("back").user(testUser).build());
+    mockMvc
+        .perform(get("/cards").param("subjectId", subject1.getId().toString()).with(jwt))
+        .andExpect(status().isOk());
+
+    mockMvc
+        .perform(get("/actuator/prometheus").with(jwt))
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString("http_server_requests_seconds")))
+        .andExpect(content().string(containsString("spring_data_repository_invocations")))
+        .andExpect(content().string(containsString("flashcards_cards_rows_fetched_rows")));
+  }
+}
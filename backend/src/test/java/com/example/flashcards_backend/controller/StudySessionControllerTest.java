@@ -0,0 +1,127 @@
+package com.example.flashcards_backend.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.flashcards_backend.dto.StudySessionRequest;
+import com.example.flashcards_backend.integration.AbstractIntegrationTest;
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+class StudySessionControllerTest extends AbstractIntegrationTest {
+
+  @Autowired private CardRepository cardRepository;
+
+  private Card c1;
+  private Card c2;
+
+  @BeforeEach
+  void setUp() {
+    subject1.setCardOrder(Subject.CardOrder.OLDEST);
+    subjectRepository.saveAndFlush(subject1);
+    c1 =
+        cardRepository.saveAndFlush(
+            Card.builder().subject(subject1).front("f1").back("b1").user(testUser).build());
+    c2 =
+        cardRepository.saveAndFlush(
+            Card.builder().subject(subject1).front("f2").back("b2").user(testUser).build());
+  }
+
+  @Test
+  void studySession_servesCardsInOrder_andFinishesWith204() throws Exception {
+    String id = startSession();
+
+    mockMvc
+        .perform(get("/study-sessions/{id}/next", id).with(jwt))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cardId").value(c1.getId()))
+        .andExpect(jsonPath("$.side").value("FRONT"))
+        .andExpect(jsonPath("$.remaining").value(2));
+
+    mockMvc
+        .perform(post("/study-sessions/{id}/rate", id).param("rating", "2").with(jwt))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cardId").value(c2.getId()))
+        .andExpect(jsonPath("$.remaining").value(1));
+
+    mockMvc
+        .perform(post("/study-sessions/{id}/rate", id).param("rating", "1").with(jwt))
+        .andExpect(status().isNoContent());
+
+    mockMvc
+        .perform(get("/study-sessions/{id}", id).with(jwt))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.totalCards").value(2))
+        .andExpect(jsonPath("$.remaining").value(0));
+  }
+
+  @Test
+  void rate_withCardNoLongerAtHead_returnsCurrentHead() throws Exception {
+    String id = startSession();
+
+    for (int attempt = 0; attempt < 2; attempt++) {
+      mockMvc
+          .perform(
+              post("/study-sessions/{id}/rate", id)
+                  .param("rating", "3")
+                  .param("cardId", c1.getId().toString())
+                  .with(jwt))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.cardId").value(c2.getId()))
+          .andExpect(jsonPath("$.remaining").value(1));
+    }
+  }
+
+  @Test
+  void rate_rejectsRatingOutsideScale() throws Exception {
+    String id = startSession();
+
+    mockMvc
+        .perform(post("/study-sessions/{id}/rate", id).param("rating", "6").with(jwt))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void endedOrUnknownSession_returns404() throws Exception {
+    String id = startSession();
+
+    mockMvc.perform(delete("/study-sessions/{id}", id).with(jwt)).andExpect(status().isNoContent());
+    mockMvc
+        .perform(get("/study-sessions/{id}/next", id).with(jwt))
+        .andExpect(status().isNotFound());
+    mockMvc
+        .perform(get("/study-sessions/{id}", UUID.randomUUID()).with(jwt))
+        .andExpect(status().isNotFound());
+  }
+
+  private String startSession() throws Exception {
+    String body =
+        mockMvc
+            .perform(
+                post("/study-sessions")
+                    .with(jwt)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        objectMapper.writeValueAsString(
+                            new StudySessionRequest(subject1.getId(), null, null))))
+            .andExpect(status().isCreated())
+            .andExpect(header().exists("Location"))
+            .andExpect(jsonPath("$.totalCards").value(2))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    JsonNode json = objectMapper.readTree(body);
+    return json.get("sessionId").asText();
+  }
+}
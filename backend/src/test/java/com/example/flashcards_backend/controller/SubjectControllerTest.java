@@ -7,6 +7,7 @@ import com.example.flashcards_backend.repository.SubjectRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -33,6 +34,45 @@ class SubjectControllerTest extends AbstractIntegrationTest {
         .andExpect(jsonPath("$[1].name").value("Subject 2"));
   }
 
+  @Test
+  void getAllForUserSubjects_withCurrentETag_isNotModifiedUntilASubjectChanges() throws Exception {
+    String etag =
+        mockMvc
+            .perform(get("/subjects").with(jwt))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+    assertThat(etag).isNotBlank();
+
+    mockMvc
+        .perform(get("/subjects").header(HttpHeaders.IF_NONE_MATCH, etag).with(jwt))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+    String content =
+        objectMapper.writeValueAsString(
+            SubjectRequest.builder()
+                .name("Renamed")
+                .defaultSide(Subject.Side.FRONT)
+                .displayDeckNames(false)
+                .cardOrder(Subject.CardOrder.RANDOM)
+                .build());
+    mockMvc
+        .perform(
+            put("/subjects/" + subject1.getId())
+                .with(jwt)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(content))
+        .andExpect(status().isOk());
+
+    mockMvc
+        .perform(get("/subjects").header(HttpHeaders.IF_NONE_MATCH, etag).with(jwt))
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString("Renamed")));
+  }
+
   @Test
   void createSubject() throws Exception {
     SubjectRequest request = SubjectRequest.builder().name("New Subject").build();
@@ -0,0 +1,150 @@
+package com.example.flashcards_backend.controller;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.example.flashcards_backend.integration.AbstractIntegrationTest;
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.Deck;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.DeckRepository;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+class SyncControllerTest extends AbstractIntegrationTest {
+
+  public static final String ENDPOINT = "/sync";
+
+  @Autowired private DeckRepository deckRepository;
+  @Autowired private CardRepository cardRepository;
+
+  private Deck deck;
+  private Card c1;
+  private Card c2;
+
+  @BeforeEach
+  void setUp() {
+    deck =
+        deckRepository.saveAndFlush(
+            Deck.builder().name("Deck 1").subject(subject1).user(testUser).build());
+    c1 = Card.builder().front("f1").back("b1").subject(subject1).user(testUser).build();
+    c1.addDeck(deck);
+    c2 = Card.builder().front("f2").back("b2").subject(subject1).user(testUser).build();
+    cardRepository.saveAndFlush(c1);
+    cardRepository.saveAndFlush(c2);
+  }
+
+  @Test
+  void sync_withoutToken_returnsWholeSubject() throws Exception {
+    mockMvc
+        .perform(get(ENDPOINT).with(jwt).param("subjectId", subject1.getId().toString()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.reset").value(true))
+        .andExpect(jsonPath("$.token").isNotEmpty())
+        .andExpect(jsonPath("$.cards[*].id").value(contains(id(c1), id(c2))))
+        .andExpect(jsonPath("$.cards[0].deckIds[0]").value(deck.getId()))
+        .andExpect(jsonPath("$.cards[1].deckIds").isEmpty())
+        .andExpect(jsonPath("$.decks[*].id").value(contains(deck.getId().intValue())))
+        .andExpect(jsonPath("$.history").isEmpty())
+        .andExpect(jsonPath("$.deletedCardIds").isEmpty());
+  }
+
+  @Test
+  void sync_sinceToken_returnsOnlyChangesAndDeletions() throws Exception {
+    String token = initialToken();
+
+    mockMvc
+        .perform(patch("/cards/" + c1.getId() + "/rate").with(jwt).param("rating", "3"))
+        .andExpect(status().isOk());
+    mockMvc
+        .perform(
+            delete("/cards")
+                .with(jwt)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + c2.getId() + "]"))
+        .andExpect(status().isNoContent());
+
+    mockMvc
+        .perform(
+            get(ENDPOINT)
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("since", token))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.reset").value(false))
+        .andExpect(jsonPath("$.cards").isEmpty())
+        .andExpect(jsonPath("$.decks").isEmpty())
+        .andExpect(jsonPath("$.history[*].cardId").value(contains(id(c1))))
+        .andExpect(jsonPath("$.history[0].lastRating").value(3))
+        .andExpect(jsonPath("$.deletedCardIds").value(contains(id(c2))));
+  }
+
+  @Test
+  void sync_afterDeckDeleted_returnsTombstoneAndCardsThatLostTheDeck() throws Exception {
+    String token = initialToken();
+
+    mockMvc.perform(delete("/decks/" + deck.getId()).with(jwt)).andExpect(status().isNoContent());
+
+    mockMvc
+        .perform(
+            get(ENDPOINT)
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("since", token))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cards[*].id").value(contains(id(c1))))
+        .andExpect(jsonPath("$.cards[0].deckIds").isEmpty())
+        .andExpect(jsonPath("$.deletedDeckIds").value(contains(deck.getId().intValue())));
+  }
+
+  @Test
+  void sync_invalidToken_returnsBadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get(ENDPOINT)
+                .with(jwt)
+                .param("subjectId", subject1.getId().toString())
+                .param("since", "not-a-token"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void sync_otherUsersSubject_returnsNotFound() throws Exception {
+    User other =
+        userRepository.save(
+            User.builder()
+                .id(UUID.randomUUID())
+                .username("other")
+                .auth0Id("auth0|other-user")
+                .isActive(true)
+                .build());
+    Subject otherSubject =
+        subjectRepository.save(Subject.builder().name("Other subject").user(other).build());
+
+    mockMvc
+        .perform(get(ENDPOINT).with(jwt).param("subjectId", otherSubject.getId().toString()))
+        .andExpect(status().isNotFound());
+  }
+
+  private String initialToken() throws Exception {
+    String body =
+        mockMvc
+            .perform(get(ENDPOINT).with(jwt).param("subjectId", subject1.getId().toString()))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    return objectMapper.readTree(body).get("token").asText();
+  }
+
+  // JSON numbers this small come back from JsonPath as Integer
+  private static int id(Card card) {
+    return card.getId().intValue();
+  }
+}
@@ -1,6 +1,8 @@
 package com.example.flashcards_backend.controller;
 
 import com.example.flashcards_backend.dto.UserDto;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.service.CurrentUserService;
 import com.example.flashcards_backend.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,8 +14,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.List;
 import java.util.UUID;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -29,6 +34,9 @@ class UserControllerTest {
     @MockitoBean
     UserService userService;
 
+    @MockitoBean
+    CurrentUserService currentUserService;
+
     @Test
     void getUsers_returnsUsers() throws Exception {
         UserDto user1 = UserDto.builder()
@@ -49,4 +57,13 @@ class UserControllerTest {
                 .andExpect(jsonPath("$[1].username").value("user2"));
     }
 
-}
\ No newline at end of file
+    @Test
+    void deactivateSelf_deactivatesTheCaller() throws Exception {
+        UUID id = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        when(currentUserService.getCurrentUser(any())).thenReturn(User.builder().id(id).build());
+
+        mockMvc.perform(post(ENDPOINT + "/me/deactivate")).andExpect(status().isNoContent());
+
+        verify(userService).deactivate(id);
+    }
+}
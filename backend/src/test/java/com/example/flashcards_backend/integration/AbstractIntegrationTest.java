@@ -52,11 +52,14 @@ public abstract class AbstractIntegrationTest {
   }
 
   protected RequestPostProcessor jwtForTestUser() {
+    return jwtFor(testUser);
+  }
+
+  protected static RequestPostProcessor jwtFor(User user) {
     return jwt()
         .jwt(
             jwtB ->
-                jwtB.claim(
-                        "sub", testUser.getAuth0Id()) // match how CurrentUserService resolves user
-                    .claim("preferred_username", testUser.getUsername()));
+                jwtB.claim("sub", user.getAuth0Id()) // match how CurrentUserService resolves user
+                    .claim("preferred_username", user.getUsername()));
   }
 }
@@ -0,0 +1,103 @@
+package com.example.flashcards_backend.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.flashcards_backend.dto.CardRequest;
+import com.example.flashcards_backend.dto.CreateCardResponse;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.SubjectRepository;
+import com.example.flashcards_backend.repository.UserRepository;
+import com.example.flashcards_backend.service.CardService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Times a 10k card import through {@link CardService#createCards} against a real PostgreSQL. Run
+ * with {@code -Dbenchmarks=true}; the bound can be raised with {@code -Dbenchmarks.max-millis}.
+ */
+@Slf4j
+@SpringBootTest(
+    properties = {
+      "spring.datasource.driver-class-name=org.postgresql.Driver",
+      "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+      "spring.jpa.hibernate.ddl-auto=none",
+      "spring.jpa.show-sql=false",
+      "spring.liquibase.enabled=true"
+    })
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@Testcontainers(disabledWithoutDocker = true)
+class CardBulkInsertBenchmarkIT {
+
+  private static final int CARDS = 10_000;
+  private static final Set<String> DECKS = Set.of("Bulk A", "Bulk B");
+
+  @Container @ServiceConnection
+  static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @Autowired private CardService cardService;
+  @Autowired private CardRepository cardRepository;
+  @Autowired private SubjectRepository subjectRepository;
+  @Autowired private UserRepository userRepository;
+
+  private Subject subject;
+
+  @BeforeEach
+  void setUp() {
+    User user =
+        userRepository.saveAndFlush(
+            User.builder()
+                .id(UUID.randomUUID())
+                .username("bulk-importer")
+                .auth0Id("auth0|bulk-importer-" + UUID.randomUUID())
+                .isActive(true)
+                .build());
+    subject = subjectRepository.saveAndFlush(Subject.builder().name("Bulk").user(user).build());
+  }
+
+  @Test
+  void createCards_tenThousandCardsWithDecks() {
+    // Warm up the JIT, the sequence and the deck lookup before timing
+    cardService.createCards(requests("warmup", 500));
+
+    List<CardRequest> requests = requests("card", CARDS);
+    long start = System.nanoTime();
+    List<CreateCardResponse> created = cardService.createCards(requests);
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+    log.info("Inserted {} cards with deck links in {} ms", created.size(), elapsed.toMillis());
+    assertThat(created).hasSize(CARDS).noneMatch(CreateCardResponse::alreadyExisted);
+    assertThat(cardRepository.count()).isEqualTo(CARDS + 500L);
+    assertThat(elapsed.toMillis()).isLessThan(Long.getLong("benchmarks.max-millis", 1000L));
+  }
+
+  private List<CardRequest> requests(String prefix, int count) {
+    List<CardRequest> requests = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      requests.add(
+          CardRequest.builder()
+              .front(prefix + " front " + i)
+              .back(prefix + " back " + i)
+              .subjectId(subject.getId())
+              .deckNames(DECKS)
+              .build());
+    }
+    return requests;
+  }
+}
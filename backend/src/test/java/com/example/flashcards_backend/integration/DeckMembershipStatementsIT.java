@@ -0,0 +1,187 @@
+package com.example.flashcards_backend.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.flashcards_backend.model.Deck;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.DeckRepository;
+import com.example.flashcards_backend.repository.SubjectRepository;
+import com.example.flashcards_backend.repository.UserRepository;
+import com.example.flashcards_backend.service.DeckMembershipStatements;
+import com.example.flashcards_backend.service.PostgresDeckMembershipStatements;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the PostgreSQL deck membership statements against a real PostgreSQL, with more card ids
+ * than a statement can carry as separate bind parameters and with concurrent links of the same
+ * cards.
+ */
+@SpringBootTest(
+    properties = {
+      "spring.datasource.driver-class-name=org.postgresql.Driver",
+      "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+      "spring.jpa.hibernate.ddl-auto=none",
+      "spring.jpa.show-sql=false",
+      "spring.liquibase.enabled=true",
+      "app.decks.membership-sql=postgres"
+    })
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class DeckMembershipStatementsIT {
+
+  // PostgreSQL's wire protocol allows at most 65535 bind parameters per statement
+  private static final int CARDS = 70_000;
+  private static final int THREADS = 4;
+
+  @Container @ServiceConnection
+  static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @Autowired private DeckMembershipStatements deckMembershipStatements;
+  @Autowired private CardRepository cardRepository;
+  @Autowired private DeckRepository deckRepository;
+  @Autowired private SubjectRepository subjectRepository;
+  @Autowired private UserRepository userRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private User user;
+  private Subject subject;
+  private Deck deck;
+  private List<Long> cardIds;
+
+  @BeforeEach
+  void setUp() {
+    user =
+        userRepository.saveAndFlush(
+            User.builder()
+                .id(UUID.randomUUID())
+                .username("deck-member")
+                .auth0Id("auth0|deck-member")
+                .isActive(true)
+                .build());
+    subject =
+        subjectRepository.saveAndFlush(Subject.builder().name("Membership").user(user).build());
+    deck =
+        deckRepository.saveAndFlush(
+            Deck.builder().name("Members").subject(subject).user(user).build());
+    jdbcTemplate.update(
+        """
+        INSERT INTO card (id, front, back, subject_id, user_id)
+        SELECT nextval('card_seq'), 'front ' || g, 'back ' || g, ?, ?
+        FROM generate_series(1, ?) g
+        """,
+        subject.getId(),
+        user.getId(),
+        CARDS);
+    cardIds =
+        jdbcTemplate.queryForList(
+            "SELECT id FROM card WHERE subject_id = ?", Long.class, subject.getId());
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.update("DELETE FROM card WHERE subject_id = ?", subject.getId());
+    deckRepository.delete(deck);
+    subjectRepository.delete(subject);
+    userRepository.delete(user);
+  }
+
+  @Test
+  void postgresStatementsAreSelected() {
+    assertThat(deckMembershipStatements).isInstanceOf(PostgresDeckMembershipStatements.class);
+  }
+
+  @Test
+  void moreIdsThanBindParameters_areLinkedAndUnlinkedInOneStatementEach() {
+    Long deckId = deck.getId();
+    Long subjectId = subject.getId();
+    LocalDateTime touchedAt = LocalDateTime.now().plusDays(1);
+
+    long outside =
+        transactionTemplate.execute(
+            status -> deckMembershipStatements.countOutsideSubject(cardIds, subjectId));
+    int added =
+        transactionTemplate.execute(
+            status -> {
+              deckMembershipStatements.touchCardsOutsideDeck(deckId, subjectId, cardIds, touchedAt);
+              return deckMembershipStatements.addCardsToDeck(deckId, subjectId, cardIds);
+            });
+
+    assertThat(outside).isZero();
+    assertThat(added).isEqualTo(CARDS);
+    assertThat(cardRepository.countByDeckId(deckId)).isEqualTo(CARDS);
+    assertThat(countTouchedSince(touchedAt)).isEqualTo(CARDS);
+
+    int readded =
+        transactionTemplate.execute(
+            status -> deckMembershipStatements.addCardsToDeck(deckId, subjectId, cardIds));
+    int removed =
+        transactionTemplate.execute(
+            status -> {
+              deckMembershipStatements.touchCardsInDeck(deckId, cardIds, touchedAt.plusDays(1));
+              return deckMembershipStatements.removeCardsFromDeck(deckId, cardIds);
+            });
+
+    assertThat(readded).isZero();
+    assertThat(removed).isEqualTo(CARDS);
+    assertThat(cardRepository.countByDeckId(deckId)).isZero();
+    assertThat(countTouchedSince(touchedAt.plusDays(1))).isEqualTo(CARDS);
+  }
+
+  @Test
+  void concurrentLinksOfSameCards_skipExistingRows() throws Exception {
+    Long deckId = deck.getId();
+    Long subjectId = subject.getId();
+    List<Long> ids = cardIds.subList(0, 1_000);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Integer>> futures = new ArrayList<>();
+    try (ExecutorService pool = Executors.newFixedThreadPool(THREADS)) {
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  return transactionTemplate.execute(
+                      status -> deckMembershipStatements.addCardsToDeck(deckId, subjectId, ids));
+                }));
+      }
+      start.countDown();
+      int added = 0;
+      for (Future<Integer> future : futures) {
+        added += future.get();
+      }
+      assertThat(added).isEqualTo(ids.size());
+    }
+
+    assertThat(cardRepository.countByDeckId(deckId)).isEqualTo(ids.size());
+  }
+
+  private long countTouchedSince(LocalDateTime time) {
+    return jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM card WHERE subject_id = ? AND updated_at >= ?",
+        Long.class,
+        subject.getId(),
+        time);
+  }
+}
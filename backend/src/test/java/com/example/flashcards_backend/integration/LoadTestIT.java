@@ -0,0 +1,324 @@
+package com.example.flashcards_backend.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import com.example.flashcards_backend.dto.CardRequest;
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.service.UserStatsService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Drives mixed traffic through the full MVC and security stack against the in-memory test
+ * database and reports throughput and latency per endpoint. Runs offline with {@code
+ * -Dloadtest=true}; size and load are set with {@code loadtest.users}, {@code loadtest.subjects},
+ * {@code loadtest.cards}, {@code loadtest.concurrency}, {@code loadtest.warmup} and {@code
+ * loadtest.duration}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@TestPropertySource(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+      "spring.jpa.show-sql=false",
+      "logging.level.com.example.flashcards_backend.controller=WARN",
+      "logging.level.com.example.flashcards_backend.service=WARN"
+    })
+// Workers run on their own threads, so seeded data has to be committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoadTestIT extends AbstractIntegrationTest {
+
+  private static final int USERS = Integer.getInteger("loadtest.users", 5);
+  private static final int SUBJECTS_PER_USER = Integer.getInteger("loadtest.subjects", 2);
+  private static final int CARDS_PER_SUBJECT = Integer.getInteger("loadtest.cards", 200);
+  private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 8);
+  private static final Duration WARMUP =
+      Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+  private static final Duration DURATION =
+      Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+  private static final double MAX_ERROR_RATE =
+      Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+  private static final int CSV_ROWS = 20;
+  private static final Duration[] BUCKETS = {
+    Duration.ofMillis(5),
+    Duration.ofMillis(10),
+    Duration.ofMillis(25),
+    Duration.ofMillis(50),
+    Duration.ofMillis(100),
+    Duration.ofMillis(250),
+    Duration.ofMillis(500),
+    Duration.ofSeconds(1)
+  };
+
+  /** Traffic mix; weights are relative. */
+  private enum Operation {
+    LIST_CARDS(35),
+    RATE(30),
+    CREATE(8),
+    CSV_UPLOAD(2),
+    CSV_EXPORT(10),
+    STATS(15);
+
+    private final int weight;
+
+    Operation(int weight) {
+      this.weight = weight;
+    }
+  }
+
+  private record Tenant(RequestPostProcessor jwt, List<Long> subjectIds, List<Long> cardIds) {}
+
+  @Autowired private CardRepository cardRepository;
+  @Autowired private UserStatsService userStatsService;
+
+  // New cards need globally unique text
+  private final AtomicLong sequence = new AtomicLong();
+  private final List<Tenant> tenants = new ArrayList<>();
+
+  @Test
+  void mixedTraffic() throws Exception {
+    seed();
+    log.info(
+        "Seeded {} users x {} subjects x {} cards; warming up for {}",
+        USERS,
+        SUBJECTS_PER_USER,
+        CARDS_PER_SUBJECT,
+        WARMUP);
+    drive(WARMUP, null);
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    Map<Operation, Timer> timers = new EnumMap<>(Operation.class);
+    for (Operation op : Operation.values()) {
+      timers.put(
+          op,
+          Timer.builder("loadtest.request")
+              .tag("operation", op.name())
+              .publishPercentiles(0.5, 0.9, 0.99)
+              .serviceLevelObjectives(BUCKETS)
+              .distributionStatisticExpiry(DURATION.multipliedBy(2))
+              .register(registry));
+    }
+    Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    for (Operation op : Operation.values()) {
+      errors.put(op, new LongAdder());
+    }
+
+    long start = System.nanoTime();
+    drive(DURATION, new Recorder(timers, errors));
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    report(timers, errors, seconds);
+    long total = timers.values().stream().mapToLong(Timer::count).sum();
+    long failed = errors.values().stream().mapToLong(LongAdder::sum).sum();
+    assertThat(total).isPositive();
+    assertThat((double) failed / total).isLessThanOrEqualTo(MAX_ERROR_RATE);
+  }
+
+  private record Recorder(Map<Operation, Timer> timers, Map<Operation, LongAdder> errors) {
+    void record(Operation op, long nanos, int status) {
+      timers.get(op).record(nanos, TimeUnit.NANOSECONDS);
+      if (status >= 400) {
+        errors.get(op).increment();
+      }
+    }
+  }
+
+  private void drive(Duration duration, Recorder recorder) throws Exception {
+    long deadline = System.nanoTime() + duration.toNanos();
+    ExecutorService workers = Executors.newFixedThreadPool(CONCURRENCY);
+    try {
+      List<Future<?>> running = new ArrayList<>();
+      for (int i = 0; i < CONCURRENCY; i++) {
+        running.add(
+            workers.submit(
+                () -> {
+                  while (System.nanoTime() < deadline) {
+                    Operation op = pick();
+                    Tenant tenant = tenants.get(ThreadLocalRandom.current().nextInt(USERS));
+                    long started = System.nanoTime();
+                    int status = perform(op, tenant);
+                    if (recorder != null) {
+                      recorder.record(op, System.nanoTime() - started, status);
+                    }
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> worker : running) {
+        worker.get();
+      }
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+  private int perform(Operation op, Tenant tenant) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Long subjectId = tenant.subjectIds().get(random.nextInt(tenant.subjectIds().size()));
+    try {
+      RequestBuilder request =
+          switch (op) {
+            case LIST_CARDS ->
+                get("/cards").param("subjectId", subjectId.toString()).with(tenant.jwt());
+            case RATE ->
+                patch(
+                        "/cards/{id}/rate",
+                        tenant.cardIds().get(random.nextInt(tenant.cardIds().size())))
+                    .param("rating", String.valueOf(random.nextInt(1, 6)))
+                    .with(tenant.jwt());
+            case CREATE -> {
+              long n = sequence.incrementAndGet();
+              yield post("/cards")
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(
+                      objectMapper.writeValueAsString(
+                          CardRequest.of("load front " + n, "load back " + n, subjectId)))
+                  .with(tenant.jwt());
+            }
+            case CSV_UPLOAD ->
+                multipart("/csv/{subjectId}", subjectId)
+                    .file(new MockMultipartFile("file", "load.csv", "text/csv", uploadCsv()))
+                    .param("includeCards", "false")
+                    .with(tenant.jwt());
+            case CSV_EXPORT -> get("/export/subject/{subjectId}", subjectId).with(tenant.jwt());
+            case STATS -> get("/user-stats").with(tenant.jwt());
+          };
+      return mockMvc.perform(request).andReturn().getResponse().getStatus();
+    } catch (Exception e) {
+      // Unhandled exceptions surface here rather than as a response; count them as server errors
+      log.debug("{} failed", op, e);
+      return 500;
+    }
+  }
+
+  private Operation pick() {
+    int total = 0;
+    for (Operation op : Operation.values()) {
+      total += op.weight;
+    }
+    int roll = ThreadLocalRandom.current().nextInt(total);
+    for (Operation op : Operation.values()) {
+      roll -= op.weight;
+      if (roll < 0) {
+        return op;
+      }
+    }
+    throw new IllegalStateException("Weights changed while picking");
+  }
+
+  private byte[] uploadCsv() {
+    StringBuilder csv = new StringBuilder("front,back,hint_front,hint_back,decks\n");
+    for (int i = 0; i < CSV_ROWS; i++) {
+      long n = sequence.incrementAndGet();
+      csv.append("upload front ").append(n).append(",upload back ").append(n).append(",,,\n");
+    }
+    return csv.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void seed() {
+    for (int u = 0; u < USERS; u++) {
+      User user =
+          userRepository.save(
+              User.builder()
+                  .id(UUID.randomUUID())
+                  .username("load-" + u)
+                  .auth0Id("auth0|load-" + u)
+                  .isActive(true)
+                  .build());
+      List<Long> subjectIds = new ArrayList<>();
+      List<Long> cardIds = new ArrayList<>();
+      for (int s = 0; s < SUBJECTS_PER_USER; s++) {
+        Subject subject =
+            subjectRepository.save(
+                Subject.builder().name("Load " + u + "-" + s).user(user).build());
+        subjectIds.add(subject.getId());
+        List<Card> cards = new ArrayList<>(CARDS_PER_SUBJECT);
+        for (int c = 0; c < CARDS_PER_SUBJECT; c++) {
+          long n = sequence.incrementAndGet();
+          cards.add(
+              Card.builder()
+                  .front("seed front " + n)
+                  .back("seed back " + n)
+                  .subject(subject)
+                  .user(user)
+                  .build());
+        }
+        cardRepository.saveAll(cards).forEach(card -> cardIds.add(card.getId()));
+      }
+      // Built up front so concurrent first reads don't race to create the row
+      userStatsService.rebuild(user.getId());
+      tenants.add(new Tenant(jwtFor(user), subjectIds, cardIds));
+    }
+  }
+
+  private static void report(
+      Map<Operation, Timer> timers, Map<Operation, LongAdder> errors, double seconds) {
+    StringBuilder out = new StringBuilder("\nLoad test: ").append(CONCURRENCY);
+    out.append(" workers for ").append(String.format("%.1f", seconds)).append(" s\n");
+    out.append(
+        String.format(
+            "%-11s %9s %7s %9s %9s %9s %9s %9s%n",
+            "operation", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+    for (Map.Entry<Operation, Timer> entry : timers.entrySet()) {
+      HistogramSnapshot snapshot = entry.getValue().takeSnapshot();
+      ValueAtPercentile[] percentiles = snapshot.percentileValues();
+      out.append(
+          String.format(
+              "%-11s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+              entry.getKey(),
+              snapshot.count(),
+              errors.get(entry.getKey()).sum(),
+              snapshot.count() / seconds,
+              percentiles[0].value(TimeUnit.MILLISECONDS),
+              percentiles[1].value(TimeUnit.MILLISECONDS),
+              percentiles[2].value(TimeUnit.MILLISECONDS),
+              snapshot.max(TimeUnit.MILLISECONDS)));
+    }
+    out.append("\nLatency histogram (requests at or under each bound)\n");
+    for (Map.Entry<Operation, Timer> entry : timers.entrySet()) {
+      out.append(String.format("%-11s", entry.getKey()));
+      for (CountAtBucket bucket : entry.getValue().takeSnapshot().histogramCounts()) {
+        out.append(
+            String.format(
+                " %6.0fms:%-7.0f", bucket.bucket(TimeUnit.MILLISECONDS), bucket.count()));
+      }
+      out.append('\n');
+    }
+    log.info(out.toString());
+  }
+}
@@ -0,0 +1,181 @@
+package com.example.flashcards_backend.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.CardHistory;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardHistoryRepository;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.SubjectRepository;
+import com.example.flashcards_backend.repository.UserRepository;
+import com.example.flashcards_backend.service.CardHistoryService;
+import com.example.flashcards_backend.service.CoalescedRating;
+import com.example.flashcards_backend.utility.SpacedRepetition;
+import com.example.flashcards_backend.utility.SpacedRepetition.Schedule;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/** Hammers one card from many threads through the atomic upsert against a real PostgreSQL. */
+@SpringBootTest(
+    properties = {
+      "spring.datasource.driver-class-name=org.postgresql.Driver",
+      "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+      "spring.jpa.hibernate.ddl-auto=none",
+      "spring.liquibase.enabled=true",
+      "spring.datasource.hikari.maximum-pool-size=10",
+      "app.ratings.atomic-upsert=true"
+    })
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class RatingUpsertConcurrencyIT {
+
+  private static final int THREADS = 8;
+  private static final int RATINGS_PER_THREAD = 50;
+
+  @Container @ServiceConnection
+  static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @Autowired private CardHistoryService cardHistoryService;
+  @Autowired private CardHistoryRepository cardHistoryRepository;
+  @Autowired private CardRepository cardRepository;
+  @Autowired private SubjectRepository subjectRepository;
+  @Autowired private UserRepository userRepository;
+
+  private User user;
+  private Subject subject;
+  private Card card;
+
+  @BeforeEach
+  void setUp() {
+    user =
+        userRepository.saveAndFlush(
+            User.builder()
+                .id(UUID.randomUUID())
+                .username("concurrent-rater")
+                .auth0Id("auth0|concurrent-rater")
+                .isActive(true)
+                .build());
+    subject =
+        subjectRepository.saveAndFlush(Subject.builder().name("Concurrency").user(user).build());
+    card =
+        cardRepository.saveAndFlush(
+            Card.builder().front("f").back("b").subject(subject).user(user).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    cardHistoryRepository.deleteAll();
+    cardRepository.delete(card);
+    subjectRepository.delete(subject);
+    userRepository.delete(user);
+  }
+
+  @Test
+  void concurrentRatingsOfSameCard_areAllCounted() throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    try (ExecutorService pool = Executors.newFixedThreadPool(THREADS)) {
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  for (int i = 0; i < RATINGS_PER_THREAD; i++) {
+                    cardHistoryService.recordRatingForUser(card.getId(), 4, user);
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+
+    CardHistory history =
+        cardHistoryRepository.findByCardIdAndUserId(card.getId(), user.getId()).orElseThrow();
+    assertThat(history.getViewCount()).isEqualTo(THREADS * RATINGS_PER_THREAD);
+    assertThat(history.getAvgRating()).isEqualTo(4.0);
+    assertThat(history.getLastRating()).isEqualTo(4);
+    assertThat(cardHistoryRepository.count()).isEqualTo(1);
+  }
+
+  @Test
+  void coalescedBatch_matchesRatingsAppliedOneByOne() {
+    Card other =
+        cardRepository.saveAndFlush(
+            Card.builder().front("f2").back("b2").subject(subject).user(user).build());
+    LocalDateTime ratedAt = LocalDateTime.now().withNano(0);
+    cardHistoryService.recordRatingForUser(card.getId(), 2, user);
+
+    int written =
+        cardHistoryService.applyCoalescedRatings(
+            user.getId(),
+            List.of(
+                new CoalescedRating(card.getId(), 2, 3, 1, ratedAt),
+                new CoalescedRating(other.getId(), 3, 9, 4, ratedAt),
+                CoalescedRating.single(Long.MAX_VALUE, 3, ratedAt)));
+
+    assertThat(written).isEqualTo(2);
+    CardHistory rated =
+        cardHistoryRepository.findByCardIdAndUserId(card.getId(), user.getId()).orElseThrow();
+    assertThat(rated.getViewCount()).isEqualTo(3);
+    assertThat(rated.getAvgRating()).isCloseTo(5.0 / 3, within(0.01));
+    assertThat(rated.getPreviousRating()).isEqualTo(2);
+    assertThat(rated.getLastRating()).isEqualTo(1);
+    Schedule expected =
+        SpacedRepetition.next(
+            SpacedRepetition.next(Schedule.initial(), 2, ratedAt), 1, ratedAt);
+    assertThat(rated.getEaseFactor()).isCloseTo(expected.easeFactor(), within(1e-9));
+    assertThat(rated.getIntervalDays()).isEqualTo(expected.intervalDays());
+    assertThat(rated.getRepetitions()).isEqualTo(expected.repetitions());
+    assertThat(rated.getDueAt()).isEqualTo(expected.dueAt());
+
+    CardHistory first =
+        cardHistoryRepository.findByCardIdAndUserId(other.getId(), user.getId()).orElseThrow();
+    assertThat(first.getViewCount()).isEqualTo(3);
+    assertThat(first.getAvgRating()).isEqualTo(3.0);
+    assertThat(first.getPreviousRating()).isNull();
+    assertThat(first.getLastRating()).isEqualTo(4);
+    assertThat(first.getSubjectId()).isEqualTo(subject.getId());
+    assertThat(first.getDueAt()).isEqualTo(ratedAt.plusDays(1));
+
+    cardHistoryRepository.deleteAll();
+    cardRepository.delete(other);
+  }
+
+  @Test
+  void upsertSchedulesLikeSpacedRepetition() {
+    Schedule expected = Schedule.initial();
+    for (int rating : new int[] {2, 1, 3, 2, 5, 1}) {
+      cardHistoryService.recordRatingForUser(card.getId(), rating, user);
+      CardHistory history =
+          cardHistoryRepository.findByCardIdAndUserId(card.getId(), user.getId()).orElseThrow();
+      expected = SpacedRepetition.next(expected, rating, history.getLastViewed());
+
+      assertThat(history.getEaseFactor()).isCloseTo(expected.easeFactor(), within(1e-9));
+      assertThat(history.getIntervalDays()).isEqualTo(expected.intervalDays());
+      assertThat(history.getRepetitions()).isEqualTo(expected.repetitions());
+      assertThat(history.getDueAt()).isEqualTo(expected.dueAt());
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package com.example.flashcards_backend.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.flashcards_backend.dto.SyncResponse;
+import com.example.flashcards_backend.dto.SyncResponse.CardChange;
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.SubjectRepository;
+import com.example.flashcards_backend.repository.UserRepository;
+import com.example.flashcards_backend.service.SyncService;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * A card stamped inside a transaction that commits after a sync must still reach the next sync,
+ * with no overlap to fall back on. PostgreSQL only, as the token is held back by pg_stat_activity.
+ */
+@SpringBootTest(
+    properties = {
+      "spring.datasource.driver-class-name=org.postgresql.Driver",
+      "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+      "spring.jpa.hibernate.ddl-auto=none",
+      "spring.liquibase.enabled=true",
+      "app.decks.membership-sql=postgres",
+      "app.sync.hold-back-for-open-transactions=true",
+      "app.sync.overlap=PT0S"
+    })
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class SyncTokenIT {
+
+  @Container @ServiceConnection
+  static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @Autowired private SyncService syncService;
+  @Autowired private CardRepository cardRepository;
+  @Autowired private SubjectRepository subjectRepository;
+  @Autowired private UserRepository userRepository;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private User user;
+  private Subject subject;
+
+  @BeforeEach
+  void setUp() {
+    user =
+        userRepository.saveAndFlush(
+            User.builder()
+                .id(UUID.randomUUID())
+                .username("syncer")
+                .auth0Id("auth0|syncer")
+                .isActive(true)
+                .build());
+    subject = subjectRepository.saveAndFlush(Subject.builder().name("Sync").user(user).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    cardRepository.deleteAll();
+    subjectRepository.delete(subject);
+    userRepository.delete(user);
+  }
+
+  @Test
+  void cardCommittedAfterSync_isInTheNextSync() throws Exception {
+    CountDownLatch stamped = new CountDownLatch(1);
+    CountDownLatch synced = new CountDownLatch(1);
+    try (ExecutorService pool = Executors.newSingleThreadExecutor()) {
+      Future<Long> slowWrite =
+          pool.submit(
+              () ->
+                  transactionTemplate.execute(
+                      status -> {
+                        Card card =
+                            cardRepository.saveAndFlush(
+                                Card.builder()
+                                    .front("late")
+                                    .back("commit")
+                                    .subject(subject)
+                                    .user(user)
+                                    .build());
+                        stamped.countDown();
+                        await(synced);
+                        return card.getId();
+                      }));
+      assertThat(stamped.await(30, TimeUnit.SECONDS)).isTrue();
+
+      SyncResponse first = syncService.changesSince(user, subject.getId(), null);
+      synced.countDown();
+      Long cardId = slowWrite.get(30, TimeUnit.SECONDS);
+
+      assertThat(first.cards()).isEmpty();
+      SyncResponse next = syncService.changesSince(user, subject.getId(), first.token());
+      assertThat(next.reset()).isFalse();
+      assertThat(next.cards()).extracting(CardChange::id).containsExactly(cardId);
+    }
+  }
+
+  @Test
+  void readOnlyTransactionLeftOpen_doesNotHoldTheTokenBack() throws Exception {
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch synced = new CountDownLatch(1);
+    try (ExecutorService pool = Executors.newSingleThreadExecutor()) {
+      Future<?> idleReader =
+          pool.submit(
+              () ->
+                  transactionTemplate.execute(
+                      status -> {
+                        subjectRepository.findById(subject.getId());
+                        reading.countDown();
+                        await(synced);
+                        return null;
+                      }));
+      assertThat(reading.await(30, TimeUnit.SECONDS)).isTrue();
+      Card card =
+          cardRepository.saveAndFlush(
+              Card.builder().front("early").back("commit").subject(subject).user(user).build());
+
+      SyncResponse first = syncService.changesSince(user, subject.getId(), null);
+      SyncResponse next = syncService.changesSince(user, subject.getId(), first.token());
+      synced.countDown();
+      idleReader.get(30, TimeUnit.SECONDS);
+
+      assertThat(first.cards()).extracting(CardChange::id).containsExactly(card.getId());
+      assertThat(next.cards()).isEmpty();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.example.flashcards_backend.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.model.UserStats;
+import com.example.flashcards_backend.repository.SubjectRepository;
+import com.example.flashcards_backend.repository.UserRepository;
+import com.example.flashcards_backend.service.UserStatsService;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Compares the single-statement stats rebuild with the query-per-figure one against a real
+ * PostgreSQL, at 1k, 10k and 100k cards. Run with {@code -Dbenchmarks=true}; the timed rounds per
+ * size can be changed with {@code -Dbenchmarks.rounds}.
+ */
+@Slf4j
+@SpringBootTest(
+    properties = {
+      "spring.datasource.driver-class-name=org.postgresql.Driver",
+      "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+      "spring.jpa.hibernate.ddl-auto=none",
+      "spring.jpa.show-sql=false",
+      "spring.liquibase.enabled=true"
+    })
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@Testcontainers(disabledWithoutDocker = true)
+class UserStatsRebuildBenchmarkIT {
+
+  private static final int WARMUP_ROUNDS = 5;
+
+  @Container @ServiceConnection
+  static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @Autowired private UserStatsService userStatsService;
+  @Autowired private UserRepository userRepository;
+  @Autowired private SubjectRepository subjectRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @ParameterizedTest
+  @ValueSource(ints = {1_000, 10_000, 100_000})
+  void rebuild_singleQueryVersusQueryPerFigure(int cards) {
+    UUID userId = seed(cards);
+    int rounds = Integer.getInteger("benchmarks.rounds", 20);
+
+    UserStats perQuery = rebuild(userId, false);
+    UserStats singleQuery = rebuild(userId, true);
+    // Ties on the top cards may resolve to different ids, so only their figures are compared
+    assertThat(singleQuery)
+        .usingRecursiveComparison()
+        .ignoringFields("rebuiltAt", "hardestCardId", "mostViewedCardId")
+        .isEqualTo(perQuery);
+
+    double perQueryMillis = time(userId, false, rounds);
+    double singleQueryMillis = time(userId, true, rounds);
+    log.info(
+        "Stats rebuild for {} cards: query per figure {} ms, single query {} ms",
+        cards,
+        String.format("%.2f", perQueryMillis),
+        String.format("%.2f", singleQueryMillis));
+  }
+
+  private double time(UUID userId, boolean singleQuery, int rounds) {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      rebuild(userId, singleQuery);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      rebuild(userId, singleQuery);
+    }
+    return (System.nanoTime() - start) / 1_000_000.0 / rounds;
+  }
+
+  private UserStats rebuild(UUID userId, boolean singleQuery) {
+    ReflectionTestUtils.setField(
+        AopTestUtils.getUltimateTargetObject(userStatsService), "singleQuery", singleQuery);
+    return userStatsService.rebuild(userId);
+  }
+
+  /** Creates a user with {@code cards} cards, nine in ten of them rated. */
+  private UUID seed(int cards) {
+    User user =
+        userRepository.saveAndFlush(
+            User.builder()
+                .id(UUID.randomUUID())
+                .username("stats-" + cards)
+                .auth0Id("auth0|stats-" + UUID.randomUUID())
+                .isActive(true)
+                .build());
+    Subject subject =
+        subjectRepository.saveAndFlush(Subject.builder().name("Stats").user(user).build());
+    jdbcTemplate.update(
+        """
+        INSERT INTO card (id, front, back, subject_id, user_id)
+        SELECT nextval('card_seq'), 'front ' || g, 'back ' || g, ?, ?
+        FROM generate_series(1, ?) g
+        """,
+        subject.getId(),
+        user.getId(),
+        cards);
+    jdbcTemplate.update(
+        """
+        INSERT INTO card_history
+            (card_id, user_id, subject_id, view_count, avg_rating, last_rating, last_viewed)
+        SELECT id, user_id, subject_id, 1 + n % 40, 1 + (n % 41) / 10.0, 1 + n % 5, now()
+        FROM (SELECT c.*, ROW_NUMBER() OVER (ORDER BY c.id) AS n FROM card c WHERE c.user_id = ?) numbered
+        WHERE n % 10 <> 0
+        """,
+        user.getId());
+    jdbcTemplate.execute("ANALYZE card");
+    jdbcTemplate.execute("ANALYZE card_history");
+    return user.getId();
+  }
+}
@@ -0,0 +1,227 @@
+package com.example.flashcards_backend.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.flashcards_backend.FlashcardsBackendApplication;
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.SubjectRepository;
+import com.example.flashcards_backend.repository.UserRepository;
+import com.example.flashcards_backend.service.UserStatsService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+/**
+ * Runs the application on a real Tomcat twice, once on platform threads and once on virtual
+ * threads, and has 1k concurrent raters hammer {@code PATCH /cards/{id}/rate} against each. Reports
+ * throughput and latency side by side. Run with {@code -Dbenchmarks=true}; load is set with {@code
+ * benchmarks.raters}, {@code benchmarks.warmup} and {@code benchmarks.duration}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class VirtualThreadRatingBenchmarkIT {
+
+  private static final int RATERS = Integer.getInteger("benchmarks.raters", 1_000);
+  private static final int USERS = 100;
+  private static final int CARDS_PER_USER = 20;
+  private static final Duration WARMUP =
+      Duration.parse(System.getProperty("benchmarks.warmup", "PT5S"));
+  private static final Duration DURATION =
+      Duration.parse(System.getProperty("benchmarks.duration", "PT30S"));
+
+  private record Rater(String token, List<Long> cardIds) {}
+
+  private record Result(String mode, long requests, long errors, double seconds, Timer timer) {}
+
+  @Test
+  void ratingUnderLoad_platformVersusVirtualThreads() throws Exception {
+    Result platform = run(false);
+    Result virtual = run(true);
+
+    StringBuilder out = new StringBuilder("\nRating benchmark: ").append(RATERS);
+    out.append(" concurrent raters for ").append(DURATION).append('\n');
+    out.append(
+        String.format(
+            "%-9s %9s %7s %9s %9s %9s %9s %9s%n",
+            "threads", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+    for (Result result : List.of(platform, virtual)) {
+      HistogramSnapshot snapshot = result.timer().takeSnapshot();
+      ValueAtPercentile[] percentiles = snapshot.percentileValues();
+      out.append(
+          String.format(
+              "%-9s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+              result.mode(),
+              result.requests(),
+              result.errors(),
+              result.requests() / result.seconds(),
+              percentiles[0].value(TimeUnit.MILLISECONDS),
+              percentiles[1].value(TimeUnit.MILLISECONDS),
+              percentiles[2].value(TimeUnit.MILLISECONDS),
+              snapshot.max(TimeUnit.MILLISECONDS)));
+    }
+    log.info(out.toString());
+
+    assertThat(platform.requests()).isPositive();
+    assertThat(virtual.requests()).isPositive();
+  }
+
+  private Result run(boolean virtualThreads) throws Exception {
+    String mode = virtualThreads ? "virtual" : "platform";
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(FlashcardsBackendApplication.class)
+            .profiles("test")
+            .properties(
+                "server.port=0",
+                "management.server.port=-1",
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "spring.datasource.url=jdbc:h2:mem:raters-" + mode + ";DB_CLOSE_DELAY=-1",
+                "spring.datasource.hikari.maximum-pool-size=5",
+                "spring.jpa.show-sql=false",
+                "logging.level.com.example.flashcards_backend=WARN")
+            .initializers(new RaterJwtDecoder())
+            .run()) {
+      List<Rater> raters = seed(context);
+      int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+      HttpClient client =
+          HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+
+      drive(client, port, raters, WARMUP, null, null);
+      Timer timer =
+          Timer.builder("benchmark.rate")
+              .publishPercentiles(0.5, 0.9, 0.99)
+              .distributionStatisticExpiry(DURATION.multipliedBy(2))
+              .register(new SimpleMeterRegistry());
+      LongAdder errors = new LongAdder();
+      long start = System.nanoTime();
+      drive(client, port, raters, DURATION, timer, errors);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      return new Result(mode, timer.count(), errors.sum(), seconds, timer);
+    }
+  }
+
+  private static void drive(
+      HttpClient client,
+      int port,
+      List<Rater> raters,
+      Duration duration,
+      Timer timer,
+      LongAdder errors) {
+    long deadline = System.nanoTime() + duration.toNanos();
+    // One virtual thread per rater, so the client side never limits concurrency
+    try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < RATERS; i++) {
+        Rater rater = raters.get(i % raters.size());
+        workers.submit(
+            () -> {
+              while (System.nanoTime() < deadline) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Long cardId = rater.cardIds().get(random.nextInt(rater.cardIds().size()));
+                HttpRequest request =
+                    HttpRequest.newBuilder(
+                            URI.create(
+                                "http://localhost:%d/cards/%d/rate?rating=%d"
+                                    .formatted(port, cardId, random.nextInt(1, 6))))
+                        .header("Authorization", "Bearer " + rater.token())
+                        .method("PATCH", HttpRequest.BodyPublishers.noBody())
+                        .build();
+                long started = System.nanoTime();
+                int status;
+                try {
+                  status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (Exception e) {
+                  status = 599;
+                }
+                if (timer != null) {
+                  timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                  if (status >= 400) {
+                    errors.increment();
+                  }
+                }
+              }
+              return null;
+            });
+      }
+    }
+  }
+
+  private static List<Rater> seed(ConfigurableApplicationContext context) {
+    UserRepository userRepository = context.getBean(UserRepository.class);
+    SubjectRepository subjectRepository = context.getBean(SubjectRepository.class);
+    CardRepository cardRepository = context.getBean(CardRepository.class);
+    UserStatsService userStatsService = context.getBean(UserStatsService.class);
+    List<Rater> raters = new ArrayList<>(USERS);
+    for (int u = 0; u < USERS; u++) {
+      User user =
+          userRepository.save(
+              User.builder()
+                  .id(UUID.randomUUID())
+                  .username("rater-" + u)
+                  .auth0Id("auth0|rater-" + u)
+                  .isActive(true)
+                  .build());
+      Subject subject =
+          subjectRepository.save(Subject.builder().name("Rater " + u).user(user).build());
+      List<Card> cards = new ArrayList<>(CARDS_PER_USER);
+      for (int c = 0; c < CARDS_PER_USER; c++) {
+        cards.add(
+            Card.builder()
+                .front("rater " + u + " front " + c)
+                .back("rater " + u + " back " + c)
+                .subject(subject)
+                .user(user)
+                .build());
+      }
+      List<Long> cardIds = cardRepository.saveAll(cards).stream().map(Card::getId).toList();
+      userStatsService.rebuild(user.getId());
+      raters.add(new Rater("rater-" + u, cardIds));
+    }
+    return raters;
+  }
+
+  /** Accepts {@code rater-N} bearer tokens as the seeded user {@code auth0|rater-N}. */
+  private static final class RaterJwtDecoder
+      implements ApplicationContextInitializer<GenericApplicationContext> {
+
+    @Override
+    public void initialize(GenericApplicationContext context) {
+      context.registerBean(
+          JwtDecoder.class,
+          () ->
+              token ->
+                  Jwt.withTokenValue(token)
+                      .header("alg", "none")
+                      .subject("auth0|" + token)
+                      .claim("preferred_username", token)
+                      .issuedAt(Instant.now())
+                      .expiresAt(Instant.now().plusSeconds(3600))
+                      .build());
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package com.example.flashcards_backend.repository;
+
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.Deck;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.service.DeckMembershipStatements;
+import com.example.flashcards_backend.service.PortableDeckMembershipStatements;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Runs the deck membership statements against H2, including requests spanning several chunks. */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(PortableDeckMembershipStatements.class)
+class DeckMembershipStatementsTest {
+
+    // More than two of the statements' chunks
+    private static final int MANY_CARDS = 2_500;
+
+    @Autowired
+    DeckMembershipStatements deckMembershipStatements;
+
+    @Autowired
+    CardRepository cardRepository;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    User user;
+    Subject subject;
+    Subject otherSubject;
+    Deck deck;
+    Card inDeck;
+    Card notInDeck;
+    Card otherSubjectCard;
+
+    @BeforeEach
+    void setUp() {
+        user = User.builder().username("me").id(UUID.randomUUID()).build();
+        entityManager.persist(user);
+        subject = Subject.builder().name("Subject 1").user(user).build();
+        otherSubject = Subject.builder().name("Subject 2").user(user).build();
+        entityManager.persist(subject);
+        entityManager.persist(otherSubject);
+        deck = Deck.builder().name("Deck 1").subject(subject).user(user).build();
+        entityManager.persist(deck);
+
+        inDeck = card(subject, "in");
+        inDeck.addDeck(deck);
+        notInDeck = card(subject, "out");
+        otherSubjectCard = card(otherSubject, "other");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void countOutsideSubject_countsCardsOfOtherSubjects() {
+        Set<Long> ids = Set.of(inDeck.getId(), notInDeck.getId(), otherSubjectCard.getId());
+
+        assertThat(deckMembershipStatements.countOutsideSubject(ids, subject.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void addCardsToDeck_linksOnlyTheSubjectsCardsNotYetInTheDeck() {
+        Set<Long> ids = Set.of(inDeck.getId(), notInDeck.getId(), otherSubjectCard.getId(), -1L);
+
+        int added = deckMembershipStatements.addCardsToDeck(deck.getId(), subject.getId(), ids);
+
+        assertThat(added).isEqualTo(1);
+        assertThat(cardRepository.findCardIdsByDeckId(deck.getId(), 10))
+                .containsExactlyInAnyOrder(inDeck.getId(), notInDeck.getId());
+    }
+
+    @Test
+    void touchCardsOutsideDeck_touchesOnlyCardsAboutToBeLinked() {
+        LocalDateTime now = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.MILLIS);
+        Set<Long> ids = Set.of(inDeck.getId(), notInDeck.getId(), otherSubjectCard.getId());
+
+        deckMembershipStatements.touchCardsOutsideDeck(deck.getId(), subject.getId(), ids, now);
+        entityManager.clear();
+
+        assertThat(updatedAt(notInDeck)).isEqualTo(now);
+        assertThat(updatedAt(inDeck)).isBefore(now);
+        assertThat(updatedAt(otherSubjectCard)).isBefore(now);
+    }
+
+    @Test
+    void removeCardsFromDeck_unlinksAndTouchesOnlyCardsInTheDeck() {
+        LocalDateTime now = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.MILLIS);
+        Set<Long> ids = Set.of(inDeck.getId(), notInDeck.getId());
+
+        deckMembershipStatements.touchCardsInDeck(deck.getId(), ids, now);
+        int removed = deckMembershipStatements.removeCardsFromDeck(deck.getId(), ids);
+        entityManager.clear();
+
+        assertThat(removed).isEqualTo(1);
+        assertThat(cardRepository.countByDeckId(deck.getId())).isZero();
+        assertThat(updatedAt(inDeck)).isEqualTo(now);
+        assertThat(updatedAt(notInDeck)).isBefore(now);
+    }
+
+    @Test
+    void manyCards_areLinkedAndUnlinkedAcrossChunks() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < MANY_CARDS; i++) {
+            ids.add(card(subject, "many " + i).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(deckMembershipStatements.countOutsideSubject(ids, subject.getId())).isZero();
+        assertThat(deckMembershipStatements.addCardsToDeck(deck.getId(), subject.getId(), ids))
+                .isEqualTo(MANY_CARDS);
+        assertThat(cardRepository.countByDeckId(deck.getId())).isEqualTo(MANY_CARDS + 1);
+        assertThat(deckMembershipStatements.removeCardsFromDeck(deck.getId(), ids))
+                .isEqualTo(MANY_CARDS);
+        assertThat(cardRepository.countByDeckId(deck.getId())).isEqualTo(1);
+    }
+
+    private Card card(Subject cardSubject, String text) {
+        Card card = Card.builder().user(user).subject(cardSubject).front(text).back(text).build();
+        entityManager.persist(card);
+        return card;
+    }
+
+    private LocalDateTime updatedAt(Card card) {
+        return entityManager.find(Card.class, card.getId()).getUpdatedAt();
+    }
+}
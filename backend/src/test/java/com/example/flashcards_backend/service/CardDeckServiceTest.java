@@ -6,14 +6,18 @@ import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.Mockito.*;
 
 import com.example.flashcards_backend.dto.CreateDeckRequest;
+import com.example.flashcards_backend.dto.DeckMembershipResponse;
 import com.example.flashcards_backend.exception.DeckNotFoundException;
 import com.example.flashcards_backend.exception.DuplicateDeckNameException;
 import com.example.flashcards_backend.model.Card;
 import com.example.flashcards_backend.model.Deck;
 import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.SyncTombstone;
 import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.repository.CardRepository;
 import com.example.flashcards_backend.repository.DeckRepository;
+import com.example.flashcards_backend.repository.SyncTombstoneRepository;
+import java.time.LocalDateTime;
 import java.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,13 +41,21 @@ class CardDeckServiceTest {
     @Mock
     private SubjectService subjectService;
 
+    @Mock
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Mock
+    private DeckMembershipStatements deckMembershipStatements;
+
     private Deck deck1;
     private Deck deck2;
     private Subject subject1;
 
     @BeforeEach
     void setUp() {
-        cardDeckService = new CardDeckService(deckRepository, cardRepository, subjectService);
+        cardDeckService = new CardDeckService(
+                deckRepository, cardRepository, subjectService, syncTombstoneRepository,
+                deckMembershipStatements);
         deck1 = Deck.builder().id(1L).name("Deck 1").build();
         deck2 = Deck.builder().id(2L).name("Deck 2").build();
 
@@ -160,19 +172,29 @@ class CardDeckServiceTest {
 
     @Test
     void testAddDeckToCards() {
-        Card card1 = Card.builder().id(1L).subject(subject1).build();
-        Card card2 = Card.builder().id(2L).subject(subject1).build();
-        Set<Card> cards = Set.of(card1, card2);
-        when(cardRepository.findAllById(anySet())).thenReturn(cards.stream().toList());
+        Set<Long> cardIds = Set.of(1L, 2L, 3L);
         when(deckRepository.findById(deck1.getId())).thenReturn(Optional.of(deck1));
+        when(deckMembershipStatements.addCardsToDeck(deck1.getId(), SUBJECT_ID, cardIds)).thenReturn(2);
 
-        cardDeckService.addDeckToCards(deck1.getId(), Set.of(1L, 2L));
+        DeckMembershipResponse response = cardDeckService.addDeckToCards(deck1.getId(), cardIds);
 
-        verify(deckRepository).findById(deck1.getId());
-        verify(cardRepository).findAllById(anySet());
+        assertThat(response).isEqualTo(new DeckMembershipResponse(2, 1));
+        verify(deckMembershipStatements).countOutsideSubject(cardIds, SUBJECT_ID);
+        verify(deckMembershipStatements)
+                .touchCardsOutsideDeck(eq(deck1.getId()), eq(SUBJECT_ID), eq(cardIds), any(LocalDateTime.class));
+        verify(cardRepository, never()).findAllById(anySet());
+        verify(subjectService).recordContentChange(SUBJECT_ID);
+    }
 
-        assertThat(card1.getDecks()).singleElement().isEqualTo(deck1);
-        assertThat(card2.getDecks()).singleElement().isEqualTo(deck1);
+    @Test
+    void testAddDeckToCards_noCardsAdded_leavesContentVersion() {
+        Set<Long> cardIds = Set.of(1L);
+        when(deckRepository.findById(deck1.getId())).thenReturn(Optional.of(deck1));
+
+        DeckMembershipResponse response = cardDeckService.addDeckToCards(deck1.getId(), cardIds);
+
+        assertThat(response).isEqualTo(new DeckMembershipResponse(0, 1));
+        verify(subjectService, never()).recordContentChange(anyLong());
     }
 
     @Test
@@ -184,42 +206,35 @@ class CardDeckServiceTest {
                 .isInstanceOf(DeckNotFoundException.class)
                 .hasMessageContaining("Deck not found with id: 1");
         verify(deckRepository).findById(deck1Id);
-        verifyNoInteractions(cardRepository);
+        verifyNoInteractions(cardRepository, deckMembershipStatements);
     }
 
     @Test
     void testAddDeckToCards_DifferentSubject() {
-        Card card1 = Card.builder().id(1L).subject(subject1).build();
-        Card card2 = Card.builder().id(2L).subject(subject1).build();
-        Set<Card> cards = Set.of(card1, card2);
-        when(cardRepository.findAllById(anySet())).thenReturn(cards.stream().toList());
-        when(deckRepository.findById(deck1.getId())).thenReturn(Optional.of(deck1));
         Deck deck3 = Deck.builder().id(2L).name("Deck 2").subject(Subject.builder().id(2L).build()).build();
         Long deck3Id = deck3.getId();
         when(deckRepository.findById(deck3Id)).thenReturn(Optional.of(deck3));
         Set<Long> cardIds = Set.of(1L, 2L);
+        when(deckMembershipStatements.countOutsideSubject(cardIds, 2L)).thenReturn(2L);
         assertThatThrownBy(() -> cardDeckService.addDeckToCards(deck3Id, cardIds))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Card ids must belong to the same subject as the deck");
         verify(deckRepository).findById(deck3Id);
-        verify(cardRepository).findAllById(cardIds);
+        verify(deckMembershipStatements, never()).addCardsToDeck(anyLong(), anyLong(), anySet());
     }
 
     @Test
     void testRemoveDeckFromCards() {
-        Card card1 = Card.builder().id(1L).subject(subject1).build();
-        Card card2 = Card.builder().id(2L).subject(subject1).build();
-        Set<Card> cards = Set.of(card1, card2);
-        when(cardRepository.findAllById(anySet())).thenReturn(cards.stream().toList());
+        Set<Long> cardIds = Set.of(1L, 2L);
         when(deckRepository.findById(deck1.getId())).thenReturn(Optional.of(deck1));
+        when(deckMembershipStatements.removeCardsFromDeck(deck1.getId(), cardIds)).thenReturn(1);
 
-        cardDeckService.removeDeckFromCards(deck1.getId(), Set.of(1L, 2L));
+        DeckMembershipResponse response = cardDeckService.removeDeckFromCards(deck1.getId(), cardIds);
 
-        verify(deckRepository).findById(deck1.getId());
-        verify(cardRepository).findAllById(anySet());
-
-        assertThat(card1.getDecks()).isEmpty();
-        assertThat(card2.getDecks()).isEmpty();
+        assertThat(response).isEqualTo(new DeckMembershipResponse(1, 1));
+        verify(deckMembershipStatements).touchCardsInDeck(eq(deck1.getId()), eq(cardIds), any(LocalDateTime.class));
+        verify(cardRepository, never()).findAllById(anySet());
+        verify(subjectService).recordContentChange(SUBJECT_ID);
     }
 
     @Test
@@ -231,40 +246,40 @@ class CardDeckServiceTest {
                 .isInstanceOf(DeckNotFoundException.class)
                 .hasMessageContaining("Deck not found with id: 1");
         verify(deckRepository).findById(deckId);
-        verifyNoInteractions(cardRepository);
+        verifyNoInteractions(cardRepository, deckMembershipStatements);
     }
 
     @Test
     void testDeleteDeck_withCards() {
-        Card card1 = Card.builder().id(1L).subject(subject1).build();
-        Card card2 = Card.builder().id(2L).subject(subject1).build();
-        List<Card> cards = List.of(card1, card2);
-        card1.addDeck(deck1);
-        card2.addDecks(Set.of(deck1, deck2));
         Long deck1Id = deck1.getId();
         when(deckRepository.findById(deck1Id)).thenReturn(Optional.of(deck1));
-        when(cardRepository.findByDeckId(deck1Id)).thenReturn(cards);
+        when(cardRepository.removeAllCardsFromDeck(deck1Id)).thenReturn(2);
 
         cardDeckService.deleteDeck(deck1Id);
 
         verify(deckRepository).findById(deck1Id);
-        verify(cardRepository).findByDeckId(deck1Id);
-        verify(deckRepository).delete(deck1);
-        assertThat(card1.getDecks()).isEmpty();
-        assertThat(card2.getDecks()).containsExactly(deck2);
+        verify(cardRepository).touchAllCardsInDeck(eq(deck1Id), any(LocalDateTime.class));
+        verify(cardRepository).removeAllCardsFromDeck(deck1Id);
+        verify(deckRepository).deleteAllByIdInBatch(List.of(deck1Id));
+        verify(cardRepository, never()).findByDeckId(anyLong());
+        verify(subjectService).recordContentChange(SUBJECT_ID);
+        verify(syncTombstoneRepository).save(argThat(t ->
+                t.getEntityType() == SyncTombstone.EntityType.DECK
+                        && t.getEntityId().equals(deck1Id)
+                        && t.getSubjectId().equals(SUBJECT_ID)));
     }
 
     @Test
     void testDeleteDeck_withNoCards() {
         Long deck1Id = deck1.getId();
         when(deckRepository.findById(deck1Id)).thenReturn(Optional.of(deck1));
-        when(cardRepository.findByDeckId(deck1Id)).thenReturn(Collections.emptyList());
 
         cardDeckService.deleteDeck(deck1Id);
 
         verify(deckRepository).findById(deck1Id);
-        verify(cardRepository).findByDeckId(deck1Id);
-        verify(deckRepository).delete(deck1);
+        verify(cardRepository).touchAllCardsInDeck(eq(deck1Id), any(LocalDateTime.class));
+        verify(cardRepository).removeAllCardsFromDeck(deck1Id);
+        verify(deckRepository).deleteAllByIdInBatch(List.of(deck1Id));
         verifyNoMoreInteractions(deckRepository);
         verifyNoMoreInteractions(cardRepository);
     }
@@ -277,7 +292,28 @@ class CardDeckServiceTest {
                 .isInstanceOf(DeckNotFoundException.class)
                 .hasMessageContaining("Deck not found with id: 1");
         verify(deckRepository).findById(deckId);
-        verify(cardRepository, never()).findByDeckId(deckId);
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void testUnlinkCards_removesOneBatch() {
+        when(deckRepository.findById(deck1.getId())).thenReturn(Optional.of(deck1));
+        when(cardRepository.findCardIdsByDeckId(deck1.getId(), 2)).thenReturn(List.of(1L, 2L));
+        when(deckMembershipStatements.removeCardsFromDeck(deck1.getId(), Set.of(1L, 2L))).thenReturn(2);
+
+        assertThat(cardDeckService.unlinkCards(deck1.getId(), 2)).isEqualTo(2);
+
+        verify(deckMembershipStatements)
+                .touchCardsInDeck(eq(deck1.getId()), eq(Set.of(1L, 2L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testUnlinkCards_noCardsLeft() {
+        when(cardRepository.findCardIdsByDeckId(deck1.getId(), 2)).thenReturn(List.of());
+
+        assertThat(cardDeckService.unlinkCards(deck1.getId(), 2)).isZero();
+
+        verify(deckMembershipStatements, never()).removeCardsFromDeck(anyLong(), anySet());
     }
 
 }
\ No newline at end of file
@@ -4,13 +4,20 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
+import com.example.flashcards_backend.config.ReadYourWrites;
 import com.example.flashcards_backend.dto.RateCardResponse;
 import com.example.flashcards_backend.exception.CardNotFoundException;
 import com.example.flashcards_backend.model.Card;
 import com.example.flashcards_backend.model.CardHistory;
 import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.repository.CardHistoryRepository;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.UserRepository;
+import com.example.flashcards_backend.service.UserStatsService.RatedHistory;
+import com.example.flashcards_backend.utility.SpacedRepetition;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,15 +27,25 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.dao.DataAccessException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @ExtendWith(SpringExtension.class)
 class CardHistoryServiceTest {
 
   private static final UUID TEST_USER_ID = UUID.randomUUID();
   public static final long CARD_ID = 42L;
+  private static final long SUBJECT_ID = 7L;
 
   @Mock private CardHistoryRepository cardHistoryRepo;
 
+  @Mock private CardRepository cardRepository;
+
+  @Mock private UserRepository userRepository;
+
+  @Mock private UserStatsService userStatsService;
+
+  @Mock private ReadYourWrites readYourWrites;
+
   @InjectMocks private CardHistoryService cardHistoryService;
 
   User user;
@@ -41,7 +58,7 @@ class CardHistoryServiceTest {
   @Test
   void recordRating_invokesProcedureWithParameters() throws SQLException {
     CardHistory mockHistory =
-        CardHistory.builder().id(1L).card(new Card()).user(user).lastRating(5).viewCount(1).avgRating(5).build();
+        CardHistory.builder().id(1L).card(new Card()).user(user).subjectId(SUBJECT_ID).lastRating(5).viewCount(1).avgRating(5).build();
     when(cardHistoryRepo.findByCardIdAndUserId(CARD_ID, TEST_USER_ID))
         .thenReturn(Optional.of(mockHistory));
     RateCardResponse rateCardResponse = cardHistoryService.recordRating(CARD_ID, 5, user);
@@ -49,13 +66,15 @@ class CardHistoryServiceTest {
     assertThat(rateCardResponse.lastRating()).isEqualTo(5);
     assertThat(rateCardResponse.viewCount()).isEqualTo(1);
     assertThat(rateCardResponse.avgRating()).isEqualTo(5);
-    verify(cardHistoryRepo).recordCardRating(CARD_ID, 5);
+    verify(cardHistoryRepo).recordCardRating(eq(CARD_ID), eq(5), any(LocalDateTime.class));
   }
 
   @Test
   void recordRating_handlesSQLException() throws SQLException {
     SQLException expectedException = new SQLException("Card with id 42 not found", "P0001");
-    doThrow(expectedException).when(cardHistoryRepo).recordCardRating(CARD_ID, 5);
+    doThrow(expectedException)
+        .when(cardHistoryRepo)
+        .recordCardRating(eq(CARD_ID), eq(5), any(LocalDateTime.class));
     assertThatThrownBy(() -> cardHistoryService.recordRating(CARD_ID, 5, user))
         .isInstanceOf(CardNotFoundException.class)
         .hasMessage("Card not found with id: 42");
@@ -64,7 +83,9 @@ class CardHistoryServiceTest {
   @Test
   void recordRating_handlesOtherSQLException() throws SQLException {
     SQLException expectedException = new SQLException("Some other error", "S0001");
-    doThrow(expectedException).when(cardHistoryRepo).recordCardRating(CARD_ID, 5);
+    doThrow(expectedException)
+        .when(cardHistoryRepo)
+        .recordCardRating(eq(CARD_ID), eq(5), any(LocalDateTime.class));
     assertThatThrownBy(() -> cardHistoryService.recordRating(CARD_ID, 5, user))
         .isInstanceOf(DataAccessException.class)
         .hasMessage("Database error while recording card rating")
@@ -72,4 +93,143 @@ class CardHistoryServiceTest {
         .isInstanceOf(SQLException.class)
         .hasMessage("Some other error");
   }
+
+  @Test
+  void applyCoalescedRatings_foldsCountsIntoExistingHistory_andDropsMissingCards() {
+    Card card = Card.builder().id(CARD_ID).front("f").back("b").build();
+    CardHistory history =
+        CardHistory.builder()
+            .card(card)
+            .user(user)
+            .subjectId(SUBJECT_ID)
+            .viewCount(2)
+            .avgRating(3.0)
+            .lastRating(3)
+            .build();
+    LocalDateTime ratedAt = LocalDateTime.parse("2025-01-01T10:00:00");
+    CoalescedRating existing = new CoalescedRating(CARD_ID, 2, 8, 5, ratedAt);
+    CoalescedRating deleted = CoalescedRating.single(99L, 1, ratedAt);
+    when(userRepository.findById(TEST_USER_ID)).thenReturn(Optional.of(user));
+    when(cardHistoryRepo.findByUserIdAndCardIdIn(TEST_USER_ID, List.of(CARD_ID, 99L)))
+        .thenReturn(List.of(history));
+    when(cardRepository.findAllById(List.of(99L))).thenReturn(List.of());
+
+    int written =
+        cardHistoryService.applyCoalescedRatings(TEST_USER_ID, List.of(existing, deleted));
+
+    assertThat(written).isEqualTo(1);
+    assertThat(history.getViewCount()).isEqualTo(4);
+    assertThat(history.getAvgRating()).isEqualTo(3.5);
+    assertThat(history.getLastRating()).isEqualTo(5);
+    assertThat(history.getLastViewed()).isEqualTo(ratedAt);
+    assertThat(history.getPreviousRating()).isEqualTo(3);
+    verify(cardHistoryRepo).saveAll(List.of(history));
+    verify(userStatsService)
+        .recordRatings(TEST_USER_ID, List.of(new RatedHistory(history, 3, 2)));
+  }
+
+  @Test
+  void applyCoalescedRatings_atomicUpsert_writesTheBatchWithTwoStatements() {
+    ReflectionTestUtils.setField(cardHistoryService, "atomicUpsert", true);
+    Card card = Card.builder().id(CARD_ID).front("f").back("b").build();
+    CardHistory written =
+        CardHistory.builder()
+            .card(card)
+            .user(user)
+            .viewCount(2)
+            .avgRating(4.0)
+            .lastRating(5)
+            .build();
+    LocalDateTime ratedAt = LocalDateTime.parse("2025-01-01T10:00:00");
+    CoalescedRating existing = new CoalescedRating(CARD_ID, 2, 8, 5, ratedAt);
+    CoalescedRating deleted = CoalescedRating.single(99L, 1, ratedAt);
+    when(cardHistoryRepo.applyRatingBatch(
+            eq(TEST_USER_ID),
+            eq(new Long[] {CARD_ID, 99L}),
+            eq(new Integer[] {2, 1}),
+            eq(new Integer[] {8, 1}),
+            eq(new Integer[] {5, 1}),
+            eq(new LocalDateTime[] {ratedAt, ratedAt}),
+            eq(new Boolean[] {SpacedRepetition.recalled(5), SpacedRepetition.recalled(1)}),
+            eq(new Double[] {SpacedRepetition.easeChange(5), SpacedRepetition.easeChange(1)}),
+            any(LocalDateTime.class),
+            eq(SpacedRepetition.INITIAL_EASE),
+            eq(SpacedRepetition.MIN_EASE)))
+        .thenReturn(List.of(written));
+
+    int count = cardHistoryService.applyCoalescedRatings(TEST_USER_ID, List.of(existing, deleted));
+
+    assertThat(count).isEqualTo(1);
+    verify(cardHistoryRepo)
+        .insertMissingHistories(
+            eq(TEST_USER_ID), eq(new Long[] {CARD_ID, 99L}), any(LocalDateTime.class));
+    verify(cardHistoryRepo, never())
+        .upsertRatings(
+            any(), any(), anyInt(), anyInt(), anyInt(), any(), any(), anyBoolean(), anyDouble(),
+            anyDouble(), anyDouble());
+    verify(userStatsService)
+        .recordRatings(TEST_USER_ID, List.of(new RatedHistory(written, null, 2)));
+  }
+
+  @Test
+  void recordRatingForUser_atomicUpsert_returnsRowFromSingleStatement() {
+    ReflectionTestUtils.setField(cardHistoryService, "atomicUpsert", true);
+    Card card = Card.builder().id(CARD_ID).front("f").back("b").build();
+    CardHistory upserted =
+        CardHistory.builder()
+            .card(card)
+            .user(user)
+            .subjectId(SUBJECT_ID)
+            .viewCount(3)
+            .avgRating(3.7)
+            .lastRating(4)
+            .build();
+    when(cardHistoryRepo.upsertRatings(
+            eq(CARD_ID),
+            eq(TEST_USER_ID),
+            eq(1),
+            eq(4),
+            eq(4),
+            any(LocalDateTime.class),
+            any(LocalDateTime.class),
+            eq(false),
+            eq(SpacedRepetition.easeChange(4)),
+            eq(SpacedRepetition.INITIAL_EASE),
+            eq(SpacedRepetition.MIN_EASE)))
+        .thenReturn(Optional.of(upserted));
+
+    RateCardResponse response = cardHistoryService.recordRatingForUser(CARD_ID, 4, user);
+
+    assertThat(response.cardId()).isEqualTo(CARD_ID);
+    assertThat(response.viewCount()).isEqualTo(3);
+    assertThat(response.avgRating()).isEqualTo(3.7);
+    verify(cardHistoryRepo, never()).findByCardIdAndUserId(any(), any());
+    verify(cardHistoryRepo, never()).save(any());
+    verify(userStatsService).recordRatings(TEST_USER_ID, upserted, null, 1);
+    // Scheduled by the statement; touching the managed row would cause a second UPDATE
+    assertThat(upserted.getEaseFactor()).isNull();
+    assertThat(upserted.getDueAt()).isNull();
+  }
+
+  @Test
+  void recordRatingForUser_atomicUpsert_missingCard_throws() {
+    ReflectionTestUtils.setField(cardHistoryService, "atomicUpsert", true);
+    when(cardHistoryRepo.upsertRatings(
+            any(),
+            any(),
+            anyInt(),
+            anyInt(),
+            anyInt(),
+            any(),
+            any(),
+            anyBoolean(),
+            anyDouble(),
+            anyDouble(),
+            anyDouble()))
+        .thenReturn(Optional.empty());
+
+    assertThatThrownBy(() -> cardHistoryService.recordRatingForUser(CARD_ID, 4, user))
+        .isInstanceOf(CardNotFoundException.class)
+        .hasMessage("Card not found with id: 42");
+  }
 }
@@ -4,24 +4,31 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
+import com.example.flashcards_backend.dto.CardPageResponse;
 import com.example.flashcards_backend.dto.CardRequest;
 import com.example.flashcards_backend.dto.CardSummary;
 import com.example.flashcards_backend.dto.CreateCardResponse;
+import com.example.flashcards_backend.dto.DeckSummary;
 import com.example.flashcards_backend.dto.HintRequest;
 import com.example.flashcards_backend.exception.CardNotFoundException;
 import com.example.flashcards_backend.model.Card;
 import com.example.flashcards_backend.model.Deck;
 import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.repository.CardDeckRowProjection;
+import com.example.flashcards_backend.repository.CardKey;
 import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.SyncTombstoneRepository;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @ExtendWith(SpringExtension.class)
@@ -46,6 +53,12 @@ class CardServiceTest {
 
   @Mock private SubjectService subjectService;
 
+  @Mock private UserStatsService userStatsService;
+
+  @Mock private SyncTombstoneRepository syncTombstoneRepository;
+
+  @Mock private FrontAutocompleteIndex frontAutocompleteIndex;
+
   @Mock private CardDeckRowProjection cardDeckRowProjection1;
 
   @Mock private CardDeckRowProjection cardDeckRowProjection2;
@@ -55,7 +68,14 @@ class CardServiceTest {
   @BeforeEach
   void setUp() {
     cardService =
-        new CardService(cardRepository, cardHistoryService, cardDeckService, subjectService);
+        new CardService(
+            cardRepository,
+            cardHistoryService,
+            cardDeckService,
+            subjectService,
+            userStatsService,
+            syncTombstoneRepository,
+            frontAutocompleteIndex);
     subject = Subject.builder().name("Subject 1").id(1L).build();
     deck1 = Deck.builder().id(1L).name("Deck 1").subject(subject).build();
     deck2 = Deck.builder().id(2L).name("Deck 2").subject(subject).build();
@@ -116,8 +136,14 @@ class CardServiceTest {
 
     // verify deck lookup batched once
     verify(cardDeckService).getOrCreateDecksByNamesAndSubjectId(Set.of("Deck 1", "Deck 2"), 1L);
-    // verify saves twice (initial + after linking)
-    verify(cardRepository, times(2)).saveAllAndFlush(anyList());
+    // verify decks are linked before the single save
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Card>> saved = ArgumentCaptor.forClass(List.class);
+    verify(cardRepository, times(1)).saveAllAndFlush(saved.capture());
+    assertThat(saved.getValue())
+        .extracting(Card::getFront)
+        .containsExactly("F1", "F2");
+    assertThat(saved.getValue().getFirst().getDecks()).containsExactlyInAnyOrder(deck1, deck2);
 
     assertThat(responses).hasSize(2).allSatisfy(r -> assertThat(r.alreadyExisted()).isFalse());
   }
@@ -136,8 +162,12 @@ class CardServiceTest {
     // create ONE spy instance
     CardService spy = spyService();
 
-    // Simulate getExistingCard returning for first request
-    doReturn(Optional.of(existingCard)).when(spy).getExistingCard(req1);
+    // The key lookup finds the first request's card already in the subject; only it is loaded
+    when(cardRepository.findCardKeysBySubjectId(
+            eq(SUBJECT_ID), anyCollection(), anyCollection()))
+        .thenReturn(List.of(new CardKey("F1", "B1"), new CardKey("F1", "B2")));
+    when(cardRepository.findBySubjectIdAndFrontInAndBackIn(SUBJECT_ID, Set.of("F1"), Set.of("B1")))
+        .thenReturn(List.of(existingCard));
 
     List<CreateCardResponse> responses = spy.createCards(requests);
 
@@ -146,6 +176,32 @@ class CardServiceTest {
     assertThat(responses.get(1).alreadyExisted()).isFalse();
   }
 
+  @Test
+  void createCards_looksUpExistingCardsOnce_andCreatesRepeatedRequestsOnce() {
+    CardRequest req1 = new CardRequest("F1", "B1", null, null, 1L, null);
+    CardRequest req2 = new CardRequest("F1", "B1", null, null, 1L, null);
+    CardRequest req3 = new CardRequest("F2", "B2", null, null, 1L, null);
+
+    when(cardRepository.saveAllAndFlush(anyList())).thenAnswer(inv -> inv.getArgument(0));
+    when(subjectService.findById(1L)).thenReturn(subject);
+
+    List<CreateCardResponse> responses = cardService.createCards(List.of(req1, req2, req3));
+
+    verify(cardRepository)
+        .findCardKeysBySubjectId(SUBJECT_ID, Set.of("F1", "F2"), Set.of("B1", "B2"));
+    // Nothing exists yet, so no card entities are loaded
+    verify(cardRepository, never())
+        .findBySubjectIdAndFrontInAndBackIn(any(), anyCollection(), anyCollection());
+    verify(cardRepository, never()).findBySubjectIdAndFrontAndBack(any(), any(), any());
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<Card>> saved = ArgumentCaptor.forClass(List.class);
+    verify(cardRepository).saveAllAndFlush(saved.capture());
+    assertThat(saved.getValue()).extracting(Card::getFront).containsExactly("F1", "F2");
+    assertThat(responses)
+        .extracting(CreateCardResponse::alreadyExisted)
+        .containsExactly(false, true, false);
+  }
+
   @Test
   void createCards_emptyListThrows() {
     List<CardRequest> empty = List.of();
@@ -254,6 +310,87 @@ class CardServiceTest {
     assertThat(cards).isEmpty();
   }
 
+  @Test
+  void getCardPage_returnsLimitAndCursor_whenMoreCardsFollow() {
+    User owner = User.builder().id(UUID.randomUUID()).username("owner").build();
+    subject.setUser(owner);
+    when(subjectService.findById(SUBJECT_ID)).thenReturn(subject);
+    when(cardRepository.findCardIdsBySubjectIdAfter(SUBJECT_ID, 0L, PageRequest.of(0, 2)))
+        .thenReturn(List.of(CARD_1_ID, CARD_2_ID));
+    when(cardRepository.findCardDeckRowsByCardIds(List.of(CARD_1_ID)))
+        .thenReturn(List.of(cardDeckRowProjection1, cardDeckRowProjection2));
+
+    CardPageResponse page = cardService.getCardPageForUserAndSubject(owner, SUBJECT_ID, null, 1);
+
+    assertThat(page.cards()).extracting(CardSummary::id).containsExactly(CARD_1_ID);
+    assertThat(page.cards().getFirst().decks()).hasSize(2);
+    assertThat(page.nextCursor()).isEqualTo(CARD_1_ID);
+  }
+
+  @Test
+  void getCardPage_lastPage_hasNoCursor() {
+    User owner = User.builder().id(UUID.randomUUID()).username("owner").build();
+    subject.setUser(owner);
+    when(subjectService.findById(SUBJECT_ID)).thenReturn(subject);
+    when(cardRepository.findCardIdsBySubjectIdAfter(SUBJECT_ID, CARD_1_ID, PageRequest.of(0, 11)))
+        .thenReturn(List.of(CARD_2_ID));
+    when(cardRepository.findCardDeckRowsByCardIds(List.of(CARD_2_ID)))
+        .thenReturn(List.of(cardDeckRowProjection3));
+
+    CardPageResponse page =
+        cardService.getCardPageForUserAndSubject(owner, SUBJECT_ID, CARD_1_ID, 10);
+
+    assertThat(page.cards()).extracting(CardSummary::id).containsExactly(CARD_2_ID);
+    assertThat(page.nextCursor()).isNull();
+  }
+
+  @Test
+  void getCardPage_otherUsersSubject_throws() {
+    subject.setUser(User.builder().id(UUID.randomUUID()).username("owner").build());
+    when(subjectService.findById(SUBJECT_ID)).thenReturn(subject);
+    User other = User.builder().id(UUID.randomUUID()).username("other").build();
+
+    assertThatThrownBy(() -> cardService.getCardPageForUserAndSubject(other, SUBJECT_ID, null, 10))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("User does not own subject");
+    verify(cardRepository, never()).findCardIdsBySubjectIdAfter(any(), any(), any());
+  }
+
+  @Test
+  void getDueCards_keepsDueOrder_andFillsWithUnseenCards() {
+    User owner = User.builder().id(UUID.randomUUID()).username("owner").build();
+    subject.setUser(owner);
+    when(subjectService.findById(SUBJECT_ID)).thenReturn(subject);
+    when(cardHistoryService.findDueCardIds(owner.getId(), SUBJECT_ID, 3))
+        .thenReturn(List.of(CARD_2_ID));
+    when(cardRepository.findUnseenCardIds(SUBJECT_ID, owner.getId(), PageRequest.of(0, 2)))
+        .thenReturn(List.of(CARD_1_ID));
+    when(cardRepository.findCardDeckRowsByCardIds(List.of(CARD_2_ID, CARD_1_ID)))
+        .thenReturn(
+            List.of(cardDeckRowProjection1, cardDeckRowProjection2, cardDeckRowProjection3));
+
+    List<CardSummary> due = cardService.getDueCardsForUserAndSubject(owner, SUBJECT_ID, 3, true);
+
+    assertThat(due).extracting(CardSummary::id).containsExactly(CARD_2_ID, CARD_1_ID);
+  }
+
+  @Test
+  void streamCards_groupsConsecutiveRowsPerCard() {
+    when(cardRepository.streamCardDeckRowsBySubjectId(SUBJECT_ID))
+        .thenReturn(
+            Stream.of(cardDeckRowProjection1, cardDeckRowProjection2, cardDeckRowProjection3));
+
+    List<CardSummary> emitted = new ArrayList<>();
+    int count = cardService.streamCardResponsesFromSubject(SUBJECT_ID, emitted::add);
+
+    assertThat(count).isEqualTo(2);
+    assertThat(emitted).extracting(CardSummary::id).containsExactly(CARD_1_ID, CARD_2_ID);
+    assertThat(emitted.get(0).decks())
+        .extracting(DeckSummary::name)
+        .containsExactlyInAnyOrder("Deck 1", "Deck 2");
+    assertThat(emitted.get(1).decks()).extracting(DeckSummary::name).containsExactly("Deck 1");
+  }
+
   @Test
   void createCard_whenCardAlreadyExists_returnsExistingCard() {
     // given
@@ -313,6 +450,7 @@ class CardServiceTest {
     assertThat(result.decks()).hasSize(decks.size());
 
     verify(cardRepository).findBySubjectIdAndFrontAndBack(SUBJECT_ID, front, back);
+    verify(frontAutocompleteIndex).cardsSaved(subject.getId(), List.of(saved));
     verify(subjectService).findById(SUBJECT_ID);
     verify(cardDeckService)
         .getOrCreateDecksByNamesAndSubjectId(Set.of(deck1.getName(), deck2.getName()), SUBJECT_ID);
@@ -421,6 +559,8 @@ class CardServiceTest {
     verify(cardRepository).deleteByIds(ids);
     verify(cardRepository).deleteDeckAssociationsByCardIds(ids);
     verify(cardHistoryService).deleteByCardIds(ids);
+    verify(syncTombstoneRepository).recordCardDeletions(eq(ids), any(LocalDateTime.class));
+    verify(frontAutocompleteIndex).cardsDeleted(subject.getId(), List.of(CARD_1_ID));
   }
 
   @Test
@@ -454,6 +594,7 @@ class CardServiceTest {
     verify(cardRepository).deleteByIds(ids);
     verify(cardRepository).deleteDeckAssociationsByCardIds(ids);
     verify(cardHistoryService).deleteByCardIds(ids);
+    verify(syncTombstoneRepository).recordCardDeletions(eq(ids), any(LocalDateTime.class));
   }
 
   @Test
@@ -515,4 +656,13 @@ class CardServiceTest {
     assertThat(card1.getHintFront()).isNull();
     assertThat(card1.getHintBack()).isNull();
   }
+
+  @Test
+  void checkUserOwnsCard_cardOfAnotherUser_isNotFound() {
+    User user = User.builder().id(UUID.randomUUID()).username("rater").build();
+    when(cardRepository.existsByIdAndSubjectUserId(CARD_1_ID, user.getId())).thenReturn(false);
+
+    assertThatThrownBy(() -> cardService.checkUserOwnsCard(user, CARD_1_ID))
+        .isInstanceOf(CardNotFoundException.class);
+  }
 }
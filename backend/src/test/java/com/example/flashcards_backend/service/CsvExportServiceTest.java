@@ -11,8 +11,12 @@ import com.example.flashcards_backend.model.Subject;
 import com.example.flashcards_backend.repository.CardExportRowProjection;
 import com.example.flashcards_backend.repository.CardExportRowProjectionImpl;
 import com.example.flashcards_backend.repository.CardRepository;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -102,4 +106,43 @@ class CsvExportServiceTest {
         .isEqualTo("Deck not found with id: 1");
   }
 
+  @Test
+  void writeCards_fromSubject_streamsGroupedCardsInRowOrder_andClosesCursor() throws IOException {
+    CardExportRowProjection laterRow =
+        new CardExportRowProjectionImpl(17L, "Front 17", "Back 17", null, null, null);
+    AtomicBoolean closed = new AtomicBoolean();
+    when(subjectService.findById(1L)).thenReturn(subject);
+    when(cardRepository.streamExportRowsBySubjectId(1L))
+        .thenReturn(
+            Stream.of(cardRow1, cardRow2, cardRow3, laterRow).onClose(() -> closed.set(true)));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int written = csvExportService.writeCards(CsvExportService.CardSource.SUBJECT, 1L, out);
+
+    String csvContent = out.toString(StandardCharsets.UTF_8).replace("\r\n", "\n").trim();
+    String expectedContents =
+        """
+        front,back,hint_front,hint_back,decks
+        Front 1,Back 1,Hint Front 1,Hint Back 1,Deck 1;Deck 2
+        Front 2,Back 2,,,Deck 1
+        Front 17,Back 17,,,
+        """
+            .trim();
+    assertThat(written).isEqualTo(3);
+    assertThat(csvContent).isEqualTo(expectedContents);
+    assertThat(closed).isTrue();
+  }
+
+  @Test
+  void writeCards_fromDeck_listsOnlyThatDeck() throws IOException {
+    when(deckService.getDeckById(1L)).thenReturn(deck);
+    when(cardRepository.streamExportRowsByDeckId(1L)).thenReturn(Stream.of(cardRow1, cardRow3));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    csvExportService.writeCards(CsvExportService.CardSource.DECK, 1L, out);
+
+    assertThat(out.toString(StandardCharsets.UTF_8))
+        .contains("Front 1,Back 1,Hint Front 1,Hint Back 1,Deck 1")
+        .doesNotContain("Deck 2");
+  }
 }
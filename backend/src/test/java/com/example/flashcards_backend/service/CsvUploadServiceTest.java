@@ -1,11 +1,15 @@
 package com.example.flashcards_backend.service;
 
 import com.example.flashcards_backend.dto.*;
+import com.example.flashcards_backend.exception.InvalidCsvFormatException;
 import com.example.flashcards_backend.model.Card;
 import com.example.flashcards_backend.model.Deck;
 import com.example.flashcards_backend.model.Subject;
 import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardKey;
 import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.CardText;
+import jakarta.persistence.EntityManager;
 import nl.altindag.log.LogCaptor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +17,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -36,6 +42,12 @@ class CsvUploadServiceTest {
     @Mock
     private CardService cardService;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private CsvUploadServiceImpl service;
 
@@ -66,8 +78,8 @@ class CsvUploadServiceTest {
         InputStream csvInputStream = new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
 
         // Duplicate detection
-        when(cardRepository.existsByFrontAndBackAndSubjectId("f3", "b3", 1L)).thenReturn(false);
-        when(cardRepository.existsByFrontAndBackAndSubjectId("f4", "b4", 1L)).thenReturn(true);
+        when(cardRepository.findCardKeysBySubjectId(1L, Set.of("f3", "f4"), Set.of("b3", "b4")))
+                .thenReturn(List.of(new CardKey("f4", "b4")));
 
         // Decks resolved up‑front
         Deck deck1 = Deck.builder().id(1L).name("d1").subject(subject).user(user).build();
@@ -114,6 +126,9 @@ class CsvUploadServiceTest {
         });
         assertThat(result.duplicates())
                 .containsExactly(CardSummary.builder().front("f4").back("b4").build());
+        assertThat(result.savedCount()).isEqualTo(1);
+        assertThat(result.duplicateCount()).isEqualTo(1);
+        assertThat(result.invalidCount()).isEqualTo(2);
 
         // CardService invoked once with the correct request list
         verify(cardService).createCards(argThat(reqs ->
@@ -140,4 +155,113 @@ class CsvUploadServiceTest {
                 .singleElement()
                 .isEqualTo("CSV processing error");
     }
+
+    @Test
+    void uploadCsv_commitsEachChunk_andClearsPersistenceContextBetweenThem() throws Exception {
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        when(subjectService.findById(1L)).thenReturn(subject);
+        when(cardService.createCards(anyList())).thenAnswer(inv -> {
+            List<CardRequest> requests = inv.getArgument(0);
+            return requests.stream()
+                    .map(r -> CreateCardResponse.builder()
+                            .front(r.front())
+                            .back(r.back())
+                            .decks(List.of())
+                            .build())
+                    .toList();
+        });
+
+        String csv = """
+                front,back,hint_front,hint_back,decks
+                f1,b1,,,
+                f2,b2,,,
+                f3,b3,,,
+                """;
+
+        CsvUploadResponseDto result = service.uploadCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 1L, false);
+
+        verify(cardService).createCards(argThat(reqs -> reqs != null && reqs.size() == 2));
+        verify(cardService).createCards(argThat(reqs -> reqs != null && reqs.size() == 1));
+        verify(entityManager, times(2)).clear();
+        verify(transactionManager, times(2)).commit(any());
+        assertThat(result.savedCount()).isEqualTo(3);
+        assertThat(result.saved()).isEmpty();
+        assertThat(result.duplicates()).isEmpty();
+    }
+
+    @Test
+    void uploadCsv_rowsRepeatedInFile_areReportedAsDuplicates() throws Exception {
+        when(subjectService.findById(1L)).thenReturn(subject);
+        when(cardService.createCards(anyList())).thenReturn(List.of(
+                CreateCardResponse.builder().front("f1").back("b1").decks(List.of()).build()));
+
+        String csv = """
+                front,back,hint_front,hint_back,decks
+                f1,b1,,,
+                f1,b1,,,
+                """;
+
+        CsvUploadResponseDto result = service.uploadCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 1L);
+
+        verify(cardRepository, times(1)).findCardKeysBySubjectId(anyLong(), anySet(), anySet());
+        verify(cardService).createCards(argThat(reqs -> reqs != null && reqs.size() == 1));
+        assertThat(result.duplicateCount()).isEqualTo(1);
+        assertThat(result.duplicates())
+                .containsExactly(CardSummary.builder().front("f1").back("b1").build());
+    }
+
+    @Test
+    void uploadCsv_detectingNearDuplicates_reportsThemInsteadOfSaving() throws Exception {
+        when(subjectService.findById(1L)).thenReturn(subject);
+        when(cardRepository.findCardTextsBySubjectId(1L))
+                .thenReturn(List.of(new CardText(7L, "der Hund", "dog")));
+        when(cardService.createCards(anyList())).thenAnswer(inv -> {
+            List<CardRequest> requests = inv.getArgument(0);
+            return requests.stream()
+                    .map(r -> CreateCardResponse.builder()
+                            .front(r.front())
+                            .back(r.back())
+                            .decks(List.of())
+                            .build())
+                    .toList();
+        });
+
+        String csv = """
+                front,back,hint_front,hint_back,decks
+                der hund,Dog,,,
+                die Katze,cat,,,
+                Die Katze!,cat,,,
+                """;
+
+        CsvUploadResponseDto result = service.uploadCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 1L, true, true);
+
+        verify(cardService).createCards(argThat(reqs ->
+                reqs != null && reqs.size() == 1 && reqs.getFirst().front().equals("die Katze")));
+        assertThat(result.savedCount()).isEqualTo(1);
+        assertThat(result.duplicateCount()).isZero();
+        assertThat(result.nearDuplicateCount()).isEqualTo(2);
+        assertThat(result.nearDuplicates()).containsExactly(
+                new NearDuplicate(
+                        CardSummary.builder().front("der hund").back("Dog").build(),
+                        CardSummary.builder().id(7L).front("der Hund").back("dog").build(),
+                        1.0),
+                new NearDuplicate(
+                        CardSummary.builder().front("Die Katze!").back("cat").build(),
+                        CardSummary.builder().front("die Katze").back("cat").build(),
+                        1.0));
+    }
+
+    @Test
+    void uploadCsv_headerOnly_isRejected() {
+        when(subjectService.findById(1L)).thenReturn(subject);
+        InputStream csv = new ByteArrayInputStream(
+                "front,back,hint_front,hint_back,decks\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> service.uploadCsv(csv, 1L))
+                .isInstanceOf(InvalidCsvFormatException.class);
+        verifyNoInteractions(cardService);
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.flashcards_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import com.example.flashcards_backend.exception.UserNotFoundException;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class CurrentUserServiceTest {
+
+  private static final String AUTH0_ID = "auth0|abc";
+
+  @Mock private UserRepository userRepository;
+  @Mock private EntityManager entityManager;
+
+  private CurrentUserService currentUserService;
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    currentUserService =
+        new CurrentUserService(userRepository, entityManager, 100, Duration.ofMinutes(5));
+    user =
+        User.builder().id(UUID.randomUUID()).username("bob").auth0Id(AUTH0_ID).isActive(true).build();
+  }
+
+  @Test
+  void getCurrentUser_repeatedCalls_hitDatabaseOnce() {
+    when(userRepository.findByAuth0Id(AUTH0_ID)).thenReturn(Optional.of(user));
+    User firstReference = User.builder().id(user.getId()).build();
+    User secondReference = User.builder().id(user.getId()).build();
+    when(entityManager.getReference(User.class, user.getId()))
+        .thenReturn(firstReference, secondReference);
+
+    User first = currentUserService.getCurrentUser(jwtWithSub(AUTH0_ID));
+    User second = currentUserService.getCurrentUser(jwtWithSub(AUTH0_ID));
+
+    assertThat(first).isSameAs(firstReference);
+    assertThat(second).isSameAs(secondReference);
+    verify(userRepository, times(1)).findByAuth0Id(AUTH0_ID);
+    assertThat(currentUserService.cacheStats().hitCount()).isEqualTo(1);
+    assertThat(currentUserService.cacheStats().missCount()).isEqualTo(1);
+  }
+
+  @Test
+  void getCurrentUser_afterEvict_reloadsUser() {
+    when(userRepository.findByAuth0Id(AUTH0_ID)).thenReturn(Optional.of(user));
+
+    currentUserService.getCurrentUser(jwtWithSub(AUTH0_ID));
+    currentUserService.evict(AUTH0_ID);
+    currentUserService.getCurrentUser(jwtWithSub(AUTH0_ID));
+
+    verify(userRepository, times(2)).findByAuth0Id(AUTH0_ID);
+  }
+
+  @Test
+  void getCurrentUser_deactivatedUser_isDenied() {
+    user.setActive(false);
+    when(userRepository.findByAuth0Id(AUTH0_ID)).thenReturn(Optional.of(user));
+    Jwt jwt = jwtWithSub(AUTH0_ID);
+
+    assertThatThrownBy(() -> currentUserService.getCurrentUser(jwt))
+        .isInstanceOf(AccessDeniedException.class);
+    verify(entityManager, never()).getReference(eq(User.class), any());
+  }
+
+  @Test
+  void getCurrentUser_deactivatedAfterCaching_isDeniedOnceEvicted() {
+    when(userRepository.findByAuth0Id(AUTH0_ID)).thenReturn(Optional.of(user));
+    currentUserService.getCurrentUser(jwtWithSub(AUTH0_ID));
+
+    user.setActive(false);
+    currentUserService.evict(AUTH0_ID);
+    Jwt jwt = jwtWithSub(AUTH0_ID);
+
+    assertThatThrownBy(() -> currentUserService.getCurrentUser(jwt))
+        .isInstanceOf(AccessDeniedException.class);
+  }
+
+  @Test
+  void getCurrentUser_unknownUser_isNotCached() {
+    when(userRepository.findByAuth0Id(AUTH0_ID)).thenReturn(Optional.empty());
+    Jwt jwt = jwtWithSub(AUTH0_ID);
+
+    assertThatThrownBy(() -> currentUserService.getCurrentUser(jwt))
+        .isInstanceOf(UserNotFoundException.class);
+    assertThatThrownBy(() -> currentUserService.getCurrentUser(jwt))
+        .isInstanceOf(UserNotFoundException.class);
+
+    verify(userRepository, times(2)).findByAuth0Id(AUTH0_ID);
+  }
+
+  @Test
+  void getCurrentUser_missingSub_throws() {
+    Jwt jwt = jwtWithSub(" ");
+
+    assertThatThrownBy(() -> currentUserService.getCurrentUser(jwt))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("JWT is missing 'sub' claim");
+    verifyNoInteractions(userRepository);
+  }
+
+  private static Jwt jwtWithSub(String sub) {
+    return Jwt.withTokenValue("token")
+        .header("alg", "none")
+        .claim("sub", sub)
+        .issuedAt(Instant.now())
+        .expiresAt(Instant.now().plusSeconds(60))
+        .build();
+  }
+}
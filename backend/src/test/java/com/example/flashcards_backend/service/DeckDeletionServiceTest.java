@@ -0,0 +1,91 @@
+package com.example.flashcards_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import com.example.flashcards_backend.dto.DeckDeletionStatus;
+import com.example.flashcards_backend.dto.DeckDeletionStatus.State;
+import com.example.flashcards_backend.exception.DeckDeletionNotFoundException;
+import com.example.flashcards_backend.exception.DeckNotFoundException;
+import com.example.flashcards_backend.model.User;
+import java.time.Duration;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class DeckDeletionServiceTest {
+
+  private static final Long DECK_ID = 1L;
+
+  @Mock private CardDeckService cardDeckService;
+
+  private DeckDeletionService deckDeletionService;
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    deckDeletionService = new DeckDeletionService(cardDeckService, 2, Duration.ofMinutes(5));
+    user = User.builder().id(UUID.randomUUID()).username("me").build();
+    when(cardDeckService.countCardsInDeck(DECK_ID)).thenReturn(5L);
+  }
+
+  @Test
+  void run_unlinksInBatchesThenDeletesTheDeck() {
+    when(cardDeckService.unlinkCards(DECK_ID, 2)).thenReturn(2, 2, 1, 0);
+    DeckDeletionStatus started = deckDeletionService.start(user, DECK_ID);
+
+    assertThat(started.state()).isEqualTo(State.RUNNING);
+    assertThat(started.cardsTotal()).isEqualTo(5);
+    assertThat(deckDeletionService.get(user, started.id())).isEqualTo(started);
+
+    deckDeletionService.run(started);
+
+    verify(cardDeckService, times(4)).unlinkCards(DECK_ID, 2);
+    verify(cardDeckService).deleteDeck(DECK_ID);
+    DeckDeletionStatus finished = deckDeletionService.get(user, started.id());
+    assertThat(finished.state()).isEqualTo(State.COMPLETED);
+    assertThat(finished.cardsUnlinked()).isEqualTo(5);
+    assertThat(finished.error()).isNull();
+  }
+
+  @Test
+  void run_failure_isReportedWithProgressSoFar() {
+    when(cardDeckService.unlinkCards(DECK_ID, 2))
+        .thenReturn(2)
+        .thenThrow(new IllegalStateException("connection lost"));
+    DeckDeletionStatus started = deckDeletionService.start(user, DECK_ID);
+
+    deckDeletionService.run(started);
+
+    verify(cardDeckService, never()).deleteDeck(anyLong());
+    DeckDeletionStatus failed = deckDeletionService.get(user, started.id());
+    assertThat(failed.state()).isEqualTo(State.FAILED);
+    assertThat(failed.cardsUnlinked()).isEqualTo(2);
+    assertThat(failed.error()).isEqualTo("connection lost");
+  }
+
+  @Test
+  void start_unknownDeck_throwsNotFound() {
+    when(cardDeckService.countCardsInDeck(2L)).thenThrow(new DeckNotFoundException(2L));
+
+    assertThatThrownBy(() -> deckDeletionService.start(user, 2L))
+        .isInstanceOf(DeckNotFoundException.class);
+  }
+
+  @Test
+  void get_otherUsersDeletion_throwsNotFound() {
+    DeckDeletionStatus started = deckDeletionService.start(user, DECK_ID);
+    User other = User.builder().id(UUID.randomUUID()).username("other").build();
+    UUID id = started.id();
+
+    assertThatThrownBy(() -> deckDeletionService.get(other, id))
+        .isInstanceOf(DeckDeletionNotFoundException.class);
+    assertThatThrownBy(() -> deckDeletionService.get(user, UUID.randomUUID()))
+        .isInstanceOf(DeckDeletionNotFoundException.class);
+  }
+}
@@ -26,6 +26,7 @@ class DeckServiceTest {
   private DeckService deckService;
 
   @Mock private DeckRepository deckRepository;
+  @Mock private SubjectService subjectService;
 
   private Deck deck1;
   private Deck deck2;
@@ -33,7 +34,7 @@ class DeckServiceTest {
 
   @BeforeEach
   void setUp() {
-    deckService = new DeckService(deckRepository);
+    deckService = new DeckService(deckRepository, subjectService);
 
     // Initialize test data
     subject1 = Subject.builder().id(1L).name("Subject 1").build();
@@ -92,6 +93,7 @@ class DeckServiceTest {
     Deck updatedDeck = deckService.renameDeck(1L, newName);
 
     assertThat(updatedDeck.getName()).isEqualTo(newName);
+    verify(subjectService).recordContentChange(1L);
   }
 
   @Test
@@ -0,0 +1,116 @@
+package com.example.flashcards_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import com.example.flashcards_backend.dto.FrontSuggestion;
+import com.example.flashcards_backend.exception.SubjectNotFoundException;
+import com.example.flashcards_backend.model.Card;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardFront;
+import com.example.flashcards_backend.repository.CardRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class FrontAutocompleteIndexTest {
+
+  private static final Long SUBJECT_ID = 1L;
+
+  @Mock private CardRepository cardRepository;
+  @Mock private SubjectService subjectService;
+
+  private FrontAutocompleteIndex index;
+  private User owner;
+
+  @BeforeEach
+  void setUp() {
+    index = new FrontAutocompleteIndex(cardRepository, subjectService, 1 << 20, Duration.ofMinutes(5));
+    owner = User.builder().id(UUID.randomUUID()).username("owner").build();
+    Subject subject = Subject.builder().id(SUBJECT_ID).name("Subject").user(owner).build();
+    when(subjectService.findById(SUBJECT_ID)).thenReturn(subject);
+    when(cardRepository.findFrontsBySubjectId(SUBJECT_ID))
+        .thenReturn(
+            List.of(
+                new CardFront(1L, "Haus"),
+                new CardFront(2L, "hand"),
+                new CardFront(3L, "Baum"),
+                new CardFront(4L, "  Hase"),
+                new CardFront(5L, "Haus")));
+  }
+
+  @Test
+  void suggest_matchesPrefixIgnoringCaseInFrontOrder() {
+    assertThat(index.suggest(owner, SUBJECT_ID, "HA", 10))
+        .containsExactly(
+            new FrontSuggestion(2L, "hand"),
+            new FrontSuggestion(4L, "  Hase"),
+            new FrontSuggestion(1L, "Haus"),
+            new FrontSuggestion(5L, "Haus"));
+    assertThat(index.suggest(owner, SUBJECT_ID, "hau", 1)).containsExactly(new FrontSuggestion(1L, "Haus"));
+    assertThat(index.suggest(owner, SUBJECT_ID, "x", 10)).isEmpty();
+  }
+
+  @Test
+  void suggest_loadsSubjectOnce() {
+    index.suggest(owner, SUBJECT_ID, "h", 10);
+    index.suggest(owner, SUBJECT_ID, "ha", 10);
+    index.suggest(owner, SUBJECT_ID, "hau", 10);
+
+    verify(cardRepository, times(1)).findFrontsBySubjectId(SUBJECT_ID);
+  }
+
+  @Test
+  void suggest_otherUsersSubject_throwsNotFound() {
+    User other = User.builder().id(UUID.randomUUID()).username("other").build();
+
+    assertThatThrownBy(() -> index.suggest(other, SUBJECT_ID, "h", 10))
+        .isInstanceOf(SubjectNotFoundException.class);
+  }
+
+  @Test
+  void cardsSaved_addsNewAndReplacesChangedFronts() {
+    index.suggest(owner, SUBJECT_ID, "h", 10);
+
+    index.cardsSaved(
+        SUBJECT_ID,
+        List.of(
+            Card.builder().id(6L).front("Hals").build(), Card.builder().id(2L).front("Bank").build()));
+
+    assertThat(index.suggest(owner, SUBJECT_ID, "ha", 10))
+        .extracting(FrontSuggestion::cardId)
+        .containsExactly(6L, 4L, 1L, 5L);
+    assertThat(index.suggest(owner, SUBJECT_ID, "ba", 10))
+        .extracting(FrontSuggestion::cardId)
+        .containsExactly(2L, 3L);
+    verify(cardRepository, times(1)).findFrontsBySubjectId(SUBJECT_ID);
+  }
+
+  @Test
+  void cardsDeleted_removesCards() {
+    index.suggest(owner, SUBJECT_ID, "h", 10);
+
+    index.cardsDeleted(SUBJECT_ID, List.of(1L, 4L));
+
+    assertThat(index.suggest(owner, SUBJECT_ID, "ha", 10))
+        .extracting(FrontSuggestion::cardId)
+        .containsExactly(2L, 5L);
+  }
+
+  @Test
+  void changesToUnloadedSubjects_areLeftToTheLoad() {
+    index.cardsDeleted(SUBJECT_ID, List.of(1L));
+
+    assertThat(index.suggest(owner, SUBJECT_ID, "haus", 10))
+        .extracting(FrontSuggestion::cardId)
+        .containsExactly(1L, 5L);
+  }
+}
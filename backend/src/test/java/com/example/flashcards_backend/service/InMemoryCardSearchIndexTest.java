@@ -0,0 +1,105 @@
+package com.example.flashcards_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.*;
+
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.StudyCardProjection;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class InMemoryCardSearchIndexTest {
+
+  private static final Long SUBJECT_ID = 1L;
+  private static final UUID USER_ID = UUID.randomUUID();
+
+  @Mock private CardRepository cardRepository;
+
+  private InMemoryCardSearchIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new InMemoryCardSearchIndex(cardRepository, 10);
+    List<StudyCardProjection> cards =
+        List.of(
+            card(1L, "category", "kategorie", null),
+            card(2L, "cat", "Katze", null),
+            card(3L, "dog", "Hund", "not a cat"),
+            card(4L, "black cat", "schwarze Katze", null),
+            card(5L, "elephant", "Elefant", null));
+    when(cardRepository.findStudyCardsBySubjectId(SUBJECT_ID)).thenReturn(cards);
+  }
+
+  @Test
+  void search_ranksExactAbovePrefixAndFrontAboveHints() {
+    assertThat(search("cat")).containsExactly(2L, 4L, 1L, 3L);
+  }
+
+  @Test
+  void search_everyWordMustMatch() {
+    assertThat(search("black cat")).containsExactly(4L);
+    assertThat(search("black dog")).isEmpty();
+  }
+
+  @Test
+  void search_isCaseInsensitiveAndMatchesPrefixes() {
+    assertThat(search("KAT")).containsExactly(1L, 2L, 4L);
+  }
+
+  @Test
+  void search_matchesTyposFuzzily() {
+    assertThat(search("elephnt")).containsExactly(5L);
+  }
+
+  @Test
+  void search_appliesOffsetAndLimit() {
+    assertThat(index.search(USER_ID, SUBJECT_ID, 0, List.of("cat"), 1, 2)).containsExactly(4L, 1L);
+  }
+
+  @Test
+  void search_rebuildsOnlyWhenContentVersionChanges() {
+    search("cat");
+    search("dog");
+    verify(cardRepository, times(1)).findStudyCardsBySubjectId(SUBJECT_ID);
+
+    List<StudyCardProjection> changed = List.of(card(6L, "cattle", "Rind", null));
+    when(cardRepository.findStudyCardsBySubjectId(SUBJECT_ID)).thenReturn(changed);
+    assertThat(index.search(USER_ID, SUBJECT_ID, 1, List.of("cat"), 0, 10)).containsExactly(6L);
+    verify(cardRepository, times(2)).findStudyCardsBySubjectId(SUBJECT_ID);
+  }
+
+  @Test
+  void similarity_matchesPgTrgm() {
+    assertThat(InMemoryCardSearchIndex.similarity("word", "word")).isEqualTo(1.0);
+    // Same as pg_trgm's similarity('word', 'words'): 4 shared trigrams out of 7
+    assertThat(InMemoryCardSearchIndex.similarity("word", "words"))
+        .isCloseTo(4 / 7.0, within(1e-9));
+  }
+
+  @Test
+  void terms_splitsOnNonLettersAndLowerCases() {
+    assertThat(CardSearchIndex.terms("Straße, e-mail & 42!"))
+        .containsExactly("straße", "e", "mail", "42");
+    assertThat(CardSearchIndex.terms("  ")).isEmpty();
+  }
+
+  private List<Long> search(String query) {
+    return index.search(USER_ID, SUBJECT_ID, 0, CardSearchIndex.terms(query), 0, 10);
+  }
+
+  private static StudyCardProjection card(Long id, String front, String back, String hintFront) {
+    StudyCardProjection card = mock(StudyCardProjection.class);
+    when(card.getId()).thenReturn(id);
+    when(card.getFront()).thenReturn(front);
+    when(card.getBack()).thenReturn(back);
+    when(card.getHintFront()).thenReturn(hintFront);
+    return card;
+  }
+}
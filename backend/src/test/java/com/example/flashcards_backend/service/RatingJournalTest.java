@@ -0,0 +1,69 @@
+package com.example.flashcards_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RatingJournalTest {
+
+  private static final UUID USER_ID = UUID.randomUUID();
+
+  @TempDir Path journalDir;
+
+  @Test
+  void awaitDurable_concurrentAppendsAllBecomeDurable() throws Exception {
+    int threads = 8;
+    int perThread = 200;
+    try (RatingJournal journal = new RatingJournal(journalDir, true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        long cardId = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < perThread; i++) {
+                    journal.awaitDurable(journal.append(entry(cardId)));
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+
+      Path sealed = journal.rotate().orElseThrow();
+      assertThat(RatingJournal.read(sealed)).hasSize(threads * perThread);
+    }
+  }
+
+  @Test
+  void rotate_marksEverythingWrittenDurable() throws IOException {
+    try (RatingJournal journal = new RatingJournal(journalDir, true)) {
+      long position = journal.append(entry(1L));
+      Path sealed = journal.rotate().orElseThrow();
+
+      // Returns at once because the rotation already forced the segment
+      journal.awaitDurable(position);
+
+      long next = journal.append(entry(2L));
+      journal.awaitDurable(next);
+      assertThat(RatingJournal.read(sealed)).hasSize(1);
+      assertThat(journal.rotate()).isPresent().get().isNotEqualTo(sealed);
+    }
+  }
+
+  private static RatingJournal.Entry entry(long cardId) {
+    return new RatingJournal.Entry(USER_ID, CoalescedRating.single(cardId, 3, LocalDateTime.now()));
+  }
+}
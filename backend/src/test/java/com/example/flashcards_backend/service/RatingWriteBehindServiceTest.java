@@ -0,0 +1,189 @@
+package com.example.flashcards_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.example.flashcards_backend.exception.RatingQueueFullException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class RatingWriteBehindServiceTest {
+
+  private static final UUID USER_ID = UUID.randomUUID();
+  private static final int MAX_ATTEMPTS = 3;
+
+  @TempDir Path journalDir;
+
+  @Mock private CardHistoryService cardHistoryService;
+
+  private RatingWriteBehindService service;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    service = newService(2);
+    service.start();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    service.stop();
+  }
+
+  @Test
+  void flush_coalescesRatingsPerCard() throws IOException {
+    when(cardHistoryService.applyCoalescedRatings(eq(USER_ID), any()))
+        .thenAnswer(inv -> inv.<List<?>>getArgument(1).size());
+
+    service.enqueue(USER_ID, 1L, 5);
+    service.enqueue(USER_ID, 1L, 3);
+    service.enqueue(USER_ID, 2L, 1);
+
+    assertThat(service.pendingCount()).isEqualTo(2);
+    assertThat(service.flush()).isEqualTo(2);
+
+    ArgumentCaptor<List<CoalescedRating>> captor = ArgumentCaptor.forClass(List.class);
+    verify(cardHistoryService).applyCoalescedRatings(eq(USER_ID), captor.capture());
+    assertThat(captor.getValue())
+        .extracting(
+            CoalescedRating::cardId,
+            CoalescedRating::count,
+            CoalescedRating::sum,
+            CoalescedRating::lastRating)
+        .containsExactly(tuple(1L, 2, 8, 3), tuple(2L, 1, 1, 1));
+    assertThat(service.pendingCount()).isZero();
+    assertThat(journalFiles()).isEmpty();
+  }
+
+  @Test
+  void enqueue_whenUserQueueFull_rejectsNewCards() {
+    service.enqueue(USER_ID, 1L, 1);
+    service.enqueue(USER_ID, 2L, 2);
+
+    assertThatThrownBy(() -> service.enqueue(USER_ID, 3L, 3))
+        .isInstanceOf(RatingQueueFullException.class);
+
+    // Ratings for a card already queued coalesce and still fit
+    service.enqueue(USER_ID, 2L, 4);
+    assertThat(service.pendingCount()).isEqualTo(2);
+  }
+
+  @Test
+  void start_replaysRatingsJournaledBeforeACrash() throws Exception {
+    service.enqueue(USER_ID, 7L, 4);
+    assertThat(journalFiles()).hasSize(1);
+
+    // A second instance over the same journal stands in for the restarted process
+    RatingWriteBehindService restarted = newService(10);
+    restarted.start();
+    when(cardHistoryService.applyCoalescedRatings(eq(USER_ID), any())).thenReturn(1);
+
+    assertThat(restarted.pendingCount()).isEqualTo(1);
+    assertThat(restarted.flush()).isEqualTo(1);
+    verify(cardHistoryService)
+        .applyCoalescedRatings(
+            eq(USER_ID), argThat(ratings -> ratings.iterator().next().cardId() == 7L));
+    restarted.stop();
+  }
+
+  @Test
+  void flush_whenWriteFails_keepsRatingsForNextFlush() throws IOException {
+    when(cardHistoryService.applyCoalescedRatings(eq(USER_ID), any()))
+        .thenThrow(new IllegalStateException("db down"))
+        .thenReturn(1);
+
+    service.enqueue(USER_ID, 1L, 5);
+
+    assertThat(service.flush()).isZero();
+    assertThat(service.pendingCount()).isEqualTo(1);
+    assertThat(journalFiles()).hasSize(1);
+
+    assertThat(service.flush()).isEqualTo(1);
+    assertThat(service.pendingCount()).isZero();
+    assertThat(journalFiles()).isEmpty();
+  }
+
+  @Test
+  void flush_isolatesAFailingRating_andParksItAfterMaxAttempts() throws IOException {
+    when(cardHistoryService.applyCoalescedRatings(eq(USER_ID), any()))
+        .thenAnswer(
+            inv -> {
+              List<CoalescedRating> batch = inv.getArgument(1);
+              if (batch.stream().anyMatch(r -> r.cardId() == 99L)) {
+                throw new DataIntegrityViolationException("poison");
+              }
+              return batch.size();
+            });
+
+    service.enqueue(USER_ID, 1L, 5);
+    service.enqueue(USER_ID, 99L, 3);
+
+    // The good rating is written on the first flush despite sharing a batch with the bad one
+    assertThat(service.flush()).isEqualTo(1);
+    for (int attempt = 2; attempt <= MAX_ATTEMPTS; attempt++) {
+      assertThat(service.pendingCount()).isEqualTo(1);
+      assertThat(service.flush()).isZero();
+    }
+
+    assertThat(service.pendingCount()).isZero();
+    Path parked = journalDir.resolve(RatingJournal.PARKED);
+    assertThat(journalFiles()).containsExactly(parked);
+    assertThat(RatingJournal.read(parked))
+        .singleElement()
+        .satisfies(
+            entry -> {
+              assertThat(entry.rating().cardId()).isEqualTo(99L);
+              assertThat(entry.attempts()).isEqualTo(MAX_ATTEMPTS);
+            });
+  }
+
+  @Test
+  void flush_whenDatabaseUnreachable_retriesWithoutParking() throws IOException {
+    when(cardHistoryService.applyCoalescedRatings(eq(USER_ID), any()))
+        .thenThrow(new DataAccessResourceFailureException("no connection"));
+
+    service.enqueue(USER_ID, 1L, 5);
+    for (int attempt = 0; attempt < MAX_ATTEMPTS * 2; attempt++) {
+      assertThat(service.flush()).isZero();
+    }
+
+    assertThat(service.pendingCount()).isEqualTo(1);
+    assertThat(journalDir.resolve(RatingJournal.PARKED)).doesNotExist();
+  }
+
+  private RatingWriteBehindService newService(int maxPendingPerUser) throws IOException {
+    return new RatingWriteBehindService(
+        cardHistoryService,
+        journalDir,
+        false,
+        Duration.ofHours(1),
+        100,
+        1000,
+        maxPendingPerUser,
+        MAX_ATTEMPTS);
+  }
+
+  private List<Path> journalFiles() throws IOException {
+    try (var files = Files.list(journalDir)) {
+      return files.toList();
+    }
+  }
+}
@@ -0,0 +1,274 @@
+package com.example.flashcards_backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import com.example.flashcards_backend.dto.StudyCardResponse;
+import com.example.flashcards_backend.dto.StudySessionRequest;
+import com.example.flashcards_backend.dto.StudySessionResponse;
+import com.example.flashcards_backend.exception.CardNotFoundException;
+import com.example.flashcards_backend.exception.StudySessionNotFoundException;
+import com.example.flashcards_backend.model.Subject;
+import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.StudyCardProjection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class StudySessionServiceTest {
+
+  private static final Long SUBJECT_ID = 1L;
+
+  @Mock private CardRepository cardRepository;
+  @Mock private SubjectService subjectService;
+  @Mock private CardHistoryService cardHistoryService;
+  @Mock private ObjectProvider<RatingWriteBehindService> writeBehindProvider;
+  @Mock private RatingWriteBehindService writeBehindService;
+
+  private StudySessionService studySessionService;
+  private User user;
+  private Subject subject;
+
+  @BeforeEach
+  void setUp() {
+    studySessionService =
+        new StudySessionService(
+            cardRepository,
+            subjectService,
+            cardHistoryService,
+            writeBehindProvider,
+            Duration.ofMinutes(30),
+            1000,
+            5000);
+    user = User.builder().id(UUID.randomUUID()).username("me").build();
+    subject =
+        Subject.builder()
+            .id(SUBJECT_ID)
+            .name("Subject")
+            .user(user)
+            .cardOrder(Subject.CardOrder.OLDEST)
+            .defaultSide(Subject.Side.BACK)
+            .build();
+    when(subjectService.findById(SUBJECT_ID)).thenReturn(subject);
+    List<StudyCardProjection> cards = List.of(card(1L), card(2L), card(3L));
+    when(cardRepository.findStudyCardsBySubjectId(eq(SUBJECT_ID), any(Pageable.class)))
+        .thenReturn(cards);
+  }
+
+  @Test
+  void start_loadsCardsOnce_andServesThemInSubjectOrder() {
+    StudySessionResponse session = start(null);
+
+    assertThat(session.totalCards()).isEqualTo(3);
+    StudyCardResponse next = studySessionService.next(user, session.sessionId()).orElseThrow();
+    assertThat(next.cardId()).isEqualTo(1L);
+    assertThat(next.side()).isEqualTo(Subject.Side.BACK);
+    assertThat(next.remaining()).isEqualTo(3);
+
+    studySessionService.next(user, session.sessionId());
+    // The store's cap of 1000 queued cards leaves room for 999 in one session
+    verify(cardRepository, times(1))
+        .findStudyCardsBySubjectId(SUBJECT_ID, PageRequest.of(0, 999, Sort.by("id")));
+  }
+
+  @Test
+  void start_newestOrder_fetchesOnlyTheMostRecentCards() {
+    subject.setCardOrder(Subject.CardOrder.NEWEST);
+    when(cardRepository.findStudyCardsBySubjectId(
+            SUBJECT_ID, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id"))))
+        .thenReturn(List.of(card(3L), card(2L)));
+
+    StudySessionResponse session = start(2);
+
+    assertThat(session.totalCards()).isEqualTo(2);
+    assertThat(studySessionService.next(user, session.sessionId()).orElseThrow().cardId())
+        .isEqualTo(3L);
+  }
+
+  @Test
+  void start_randomOrder_shufflesEveryCard_thenAppliesLimit() {
+    subject.setCardOrder(Subject.CardOrder.RANDOM);
+
+    StudySessionResponse session = start(2);
+
+    assertThat(session.totalCards()).isEqualTo(2);
+    verify(cardRepository).findStudyCardsBySubjectId(SUBJECT_ID, Pageable.unpaged());
+  }
+
+  @Test
+  void start_withDecks_usesDeckFilteredQuery() {
+    when(cardRepository.findStudyCardsBySubjectIdAndDeckIds(
+            eq(SUBJECT_ID), eq(Set.of(7L)), any(Pageable.class)))
+        .thenReturn(List.of(card(2L)));
+
+    StudySessionResponse session =
+        studySessionService.start(user, new StudySessionRequest(SUBJECT_ID, Set.of(7L), null));
+
+    assertThat(session.totalCards()).isEqualTo(1);
+    verify(cardRepository, never()).findStudyCardsBySubjectId(any(), any());
+  }
+
+  @Test
+  void start_rejectsSubjectOwnedByAnotherUser() {
+    User other = User.builder().id(UUID.randomUUID()).build();
+    StudySessionRequest request = new StudySessionRequest(SUBJECT_ID, null, null);
+
+    assertThatThrownBy(() -> studySessionService.start(other, request))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void rateAndAdvance_recordsRating_andReturnsFollowingCard() {
+    StudySessionResponse session = start(null);
+
+    StudyCardResponse next = studySessionService.rateAndAdvance(user, session.sessionId(), 2, null).get();
+
+    verify(cardHistoryService).recordRatingForUser(1L, 2, user);
+    assertThat(next.cardId()).isEqualTo(2L);
+    assertThat(next.remaining()).isEqualTo(2);
+    assertThat(studySessionService.get(user, session.sessionId()).remaining()).isEqualTo(2);
+  }
+
+  @Test
+  void rateAndAdvance_usesWriteBehindWhenEnabled() {
+    when(writeBehindProvider.getIfAvailable()).thenReturn(writeBehindService);
+    StudySessionResponse session = start(null);
+
+    studySessionService.rateAndAdvance(user, session.sessionId(), 3, null);
+
+    verify(writeBehindService).enqueue(user.getId(), 1L, 3);
+    verifyNoInteractions(cardHistoryService);
+  }
+
+  @Test
+  void rateAndAdvance_lastCard_returnsEmpty_andFurtherRatingsAreRejected() {
+    StudySessionResponse session = start(1);
+    UUID id = session.sessionId();
+
+    assertThat(studySessionService.rateAndAdvance(user, id, 1, null)).isEmpty();
+    assertThatThrownBy(() -> studySessionService.rateAndAdvance(user, id, 1, null))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void rateAndAdvance_retriedForSameCard_recordsOnce() {
+    StudySessionResponse session = start(null);
+    UUID id = session.sessionId();
+
+    studySessionService.rateAndAdvance(user, id, 4, 1L);
+    StudyCardResponse next = studySessionService.rateAndAdvance(user, id, 4, 1L).orElseThrow();
+
+    verify(cardHistoryService, times(1)).recordRatingForUser(1L, 4, user);
+    assertThat(next.cardId()).isEqualTo(2L);
+    assertThat(next.remaining()).isEqualTo(2);
+  }
+
+  @Test
+  void rateAndAdvance_concurrentCallsForSameCard_recordOnce() throws Exception {
+    StudySessionResponse session = start(null);
+    UUID id = session.sessionId();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+      for (int i = 0; i < 8; i++) {
+        futures.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  return studySessionService.rateAndAdvance(user, id, 5, 1L);
+                }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+
+    verify(cardHistoryService, times(1)).recordRatingForUser(1L, 5, user);
+    assertThat(studySessionService.get(user, id).remaining()).isEqualTo(2);
+  }
+
+  @Test
+  void rateAndAdvance_failedRating_leavesCardAtHead() {
+    StudySessionResponse session = start(null);
+    UUID id = session.sessionId();
+    when(cardHistoryService.recordRatingForUser(1L, 3, user))
+        .thenThrow(new CardNotFoundException(1L));
+
+    assertThatThrownBy(() -> studySessionService.rateAndAdvance(user, id, 3, null))
+        .isInstanceOf(CardNotFoundException.class);
+
+    StudyCardResponse head = studySessionService.next(user, id).orElseThrow();
+    assertThat(head.cardId()).isEqualTo(1L);
+    assertThat(head.remaining()).isEqualTo(3);
+  }
+
+  @Test
+  void start_capsQueueBelowStoreCapacity_soSessionIsKept() {
+    studySessionService =
+        new StudySessionService(
+            cardRepository,
+            subjectService,
+            cardHistoryService,
+            writeBehindProvider,
+            Duration.ofMinutes(30),
+            3,
+            5000);
+
+    StudySessionResponse session = start(null);
+
+    assertThat(session.totalCards()).isEqualTo(2);
+    assertThat(studySessionService.get(user, session.sessionId()).remaining()).isEqualTo(2);
+  }
+
+  @Test
+  void sessionOfAnotherUser_isReportedAsNotFound() {
+    StudySessionResponse session = start(null);
+    User other = User.builder().id(UUID.randomUUID()).build();
+    UUID id = session.sessionId();
+
+    assertThatThrownBy(() -> studySessionService.next(other, id))
+        .isInstanceOf(StudySessionNotFoundException.class);
+  }
+
+  @Test
+  void end_discardsSession() {
+    StudySessionResponse session = start(null);
+    UUID id = session.sessionId();
+
+    studySessionService.end(user, id);
+
+    assertThatThrownBy(() -> studySessionService.get(user, id))
+        .isInstanceOf(StudySessionNotFoundException.class);
+  }
+
+  private StudySessionResponse start(Integer limit) {
+    return studySessionService.start(user, new StudySessionRequest(SUBJECT_ID, null, limit));
+  }
+
+  private static StudyCardProjection card(Long id) {
+    StudyCardProjection card = mock(StudyCardProjection.class);
+    when(card.getId()).thenReturn(id);
+    when(card.getFront()).thenReturn("Front " + id);
+    when(card.getBack()).thenReturn("Back " + id);
+    return card;
+  }
+}
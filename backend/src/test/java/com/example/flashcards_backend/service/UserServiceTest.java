@@ -1,6 +1,8 @@
 package com.example.flashcards_backend.service;
 
 import com.example.flashcards_backend.dto.UserDto;
+import com.example.flashcards_backend.exception.UserNotFoundException;
+import com.example.flashcards_backend.model.User;
 import com.example.flashcards_backend.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,9 +11,14 @@ import org.mockito.Mock;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
@@ -22,9 +29,12 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CurrentUserService currentUserService;
+
     @BeforeEach
     void setUp() {
-        userService = new UserService(userRepository);
+        userService = new UserService(userRepository, currentUserService);
     }
 
     @Test
@@ -37,4 +47,24 @@ class UserServiceTest {
         assertThat(all).singleElement().isEqualTo(user);
     }
 
-}
\ No newline at end of file
+    @Test
+    void deactivate_marksUserInactive_andEvictsCachedUser() {
+        UUID id = UUID.randomUUID();
+        User user = User.builder().id(id).username("Bob").auth0Id("auth0|bob").isActive(true).build();
+        when(userRepository.findById(id)).thenReturn(Optional.of(user));
+
+        userService.deactivate(id);
+
+        assertThat(user.isActive()).isFalse();
+        verify(currentUserService).evict("auth0|bob");
+    }
+
+    @Test
+    void deactivate_unknownUser_throws() {
+        UUID id = UUID.randomUUID();
+        when(userRepository.findById(id)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> userService.deactivate(id)).isInstanceOf(UserNotFoundException.class);
+        verify(currentUserService, never()).evict(anyString());
+    }
+}
@@ -6,13 +6,20 @@ import com.example.flashcards_backend.model.Card;
 import com.example.flashcards_backend.model.CardHistory;
 import com.example.flashcards_backend.model.Subject;
 import com.example.flashcards_backend.model.User;
+import com.example.flashcards_backend.model.UserStats;
+import com.example.flashcards_backend.repository.CardDeckRowProjection;
 import com.example.flashcards_backend.repository.CardHistoryRepository;
 import com.example.flashcards_backend.repository.CardRepository;
+import com.example.flashcards_backend.repository.UserStatsProjection;
+import com.example.flashcards_backend.repository.UserStatsRepository;
+import com.example.flashcards_backend.repository.UserStatsRowProjection;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,6 +27,12 @@ import java.util.UUID;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 
@@ -35,6 +48,9 @@ class UserStatsServiceTest {
     @Mock
     CardHistoryRepository cardHistoryRepository;
 
+    @Mock
+    UserStatsRepository userStatsRepository;
+
     Card hardestCard;
     Card mostViewedCard;
     User user;
@@ -44,7 +60,8 @@ class UserStatsServiceTest {
 
     @BeforeEach
     void setUp() {
-        service = new UserStatsService(cardRepository, cardHistoryRepository);
+        service = new UserStatsService(cardRepository, cardHistoryRepository, userStatsRepository);
+        when(userStatsRepository.save(any(UserStats.class))).thenAnswer(i -> i.getArgument(0));
 
         subject = Subject.builder().id(1L).name("Subject 1").build();
         user = User.builder().id(USER_ID).build();
@@ -79,7 +96,7 @@ class UserStatsServiceTest {
     }
 
     @Test
-    void testGetForUserId_returnsUserStatsResponse() {
+    void testGetForUserId_withoutStatsRow_computesFiguresWithoutStoringThem() {
         when(cardRepository.countByUserId(USER_ID)).thenReturn(100L);
         when(cardRepository.findHardestByUserId(USER_ID)).thenReturn(Optional.of(hardestCard));
         when(cardRepository.findMostViewedByUserId(USER_ID)).thenReturn(Optional.of(mostViewedCard));
@@ -98,11 +115,15 @@ class UserStatsServiceTest {
                 .thenReturn(Optional.of(hardestCardHistory));
         when(cardHistoryRepository.findByCardIdAndUserId(mostViewedCard.getId(), USER_ID))
                 .thenReturn(Optional.of(mostViewedCardHistory));
+        when(cardRepository.findCardDeckRowsByCardIds(List.of(hardestCard.getId(), mostViewedCard.getId())))
+                .thenReturn(List.of(
+                        cardRow(mock(CardDeckRowProjection.class), hardestCardHistory),
+                        cardRow(mock(CardDeckRowProjection.class), mostViewedCardHistory)));
 
         UserStatsResponse response = service.getForUserId(USER_ID);
 
-        assertThat(response.hardestCard()).isEqualTo(CardSummary.fromEntity(hardestCard, hardestCardHistory));
-        assertThat(response.mostViewedCard()).isEqualTo(CardSummary.fromEntity(mostViewedCard, mostViewedCardHistory));
+        assertThat(response.hardestCard()).isEqualTo(expectedSummary(hardestCardHistory));
+        assertThat(response.mostViewedCard()).isEqualTo(expectedSummary(mostViewedCardHistory));
         assertThat(response.totalCards()).isEqualTo(100L);
         assertThat(response.totalCardViews()).isEqualTo(250L);
         assertThat(response.totalLastRating1()).isEqualTo(50L);
@@ -111,6 +132,219 @@ class UserStatsServiceTest {
         assertThat(response.totalLastRating4()).isEqualTo(5L);
         assertThat(response.totalLastRating5()).isEqualTo(1L);
         assertThat(response.totalUnviewedCards()).isEqualTo(99L);
+        verify(userStatsRepository, never()).save(any(UserStats.class));
+        verify(userStatsRepository, never()).insertIfAbsent(any());
+    }
+
+    @Test
+    void testGetForUserId_readsStatsRowAndCardsInOneStatement() {
+        when(userStatsRepository.findRowsByUserId(USER_ID)).thenReturn(List.of(
+                statsRow(hardestCardHistory),
+                statsRow(mostViewedCardHistory)));
+
+        UserStatsResponse response = service.getForUserId(USER_ID);
+
+        assertThat(response.hardestCard()).isEqualTo(expectedSummary(hardestCardHistory));
+        assertThat(response.mostViewedCard()).isEqualTo(expectedSummary(mostViewedCardHistory));
+        assertThat(response.totalCards()).isEqualTo(100L);
+        assertThat(response.totalCardViews()).isEqualTo(250L);
+        assertThat(response.totalLastRating1()).isEqualTo(50L);
+        assertThat(response.totalUnviewedCards()).isEqualTo(99L);
+        verify(cardRepository, never()).countByUserId(any());
+        verify(cardRepository, never()).findCardDeckRowsByCardIds(any());
+        verify(cardHistoryRepository, never()).countByLastRatingForUser(any());
+    }
+
+    @Test
+    void testGetForUserId_statsRowWithoutCards_hasNoSummaries() {
+        UserStatsRowProjection row = mock(UserStatsRowProjection.class);
+        when(row.getTotalCards()).thenReturn(0L);
+        when(row.getTotalCardViews()).thenReturn(0L);
+        when(row.getTotalUnviewedCards()).thenReturn(0L);
+        when(row.getTotalLastRating1()).thenReturn(0L);
+        when(row.getTotalLastRating2()).thenReturn(0L);
+        when(row.getTotalLastRating3()).thenReturn(0L);
+        when(row.getTotalLastRating4()).thenReturn(0L);
+        when(row.getTotalLastRating5()).thenReturn(0L);
+        when(userStatsRepository.findRowsByUserId(USER_ID)).thenReturn(List.of(row));
+
+        UserStatsResponse response = service.getForUserId(USER_ID);
+
+        assertThat(response.totalCards()).isZero();
+        assertThat(response.hardestCard()).isNull();
+        assertThat(response.mostViewedCard()).isNull();
+    }
+
+    @Test
+    void testRebuild_atomicInsert_createsRowBeforeLockingIt() {
+        ReflectionTestUtils.setField(service, "atomicInsert", true);
+        UserStats row = UserStats.builder().userId(USER_ID).build();
+        when(userStatsRepository.findByUserIdForUpdate(USER_ID)).thenReturn(Optional.of(row));
+        when(cardRepository.countByUserId(USER_ID)).thenReturn(3L);
+        when(cardHistoryRepository.totalViewCountByUserId(USER_ID)).thenReturn(0L);
+        when(cardRepository.countUnviewedByUserId(USER_ID)).thenReturn(3L);
+
+        UserStats stats = service.rebuild(USER_ID);
+
+        InOrder inOrder = inOrder(userStatsRepository);
+        inOrder.verify(userStatsRepository).insertIfAbsent(USER_ID);
+        inOrder.verify(userStatsRepository).findByUserIdForUpdate(USER_ID);
+        inOrder.verify(userStatsRepository).save(row);
+        assertThat(stats.getTotalCards()).isEqualTo(3L);
+        assertThat(stats.getRebuiltAt()).isNotNull();
+    }
+
+    @Test
+    void testRebuild_singleQuery_takesEveryFigureFromOneStatement() {
+        ReflectionTestUtils.setField(service, "singleQuery", true);
+        UserStatsProjection aggregates = mock(UserStatsProjection.class);
+        when(aggregates.getTotalCards()).thenReturn(100L);
+        when(aggregates.getTotalCardViews()).thenReturn(250L);
+        when(aggregates.getTotalUnviewedCards()).thenReturn(99L);
+        when(aggregates.getTotalLastRating1()).thenReturn(50L);
+        when(aggregates.getTotalLastRating2()).thenReturn(20L);
+        when(aggregates.getTotalLastRating3()).thenReturn(10L);
+        when(aggregates.getTotalLastRating4()).thenReturn(5L);
+        when(aggregates.getTotalLastRating5()).thenReturn(1L);
+        when(aggregates.getHardestCardId()).thenReturn(hardestCard.getId());
+        when(aggregates.getHardestAvgRating()).thenReturn(2.0);
+        when(aggregates.getMostViewedCardId()).thenReturn(mostViewedCard.getId());
+        when(aggregates.getMostViewedCount()).thenReturn(50);
+        when(userStatsRepository.computeByUserId(USER_ID)).thenReturn(aggregates);
+
+        UserStats stats = service.rebuild(USER_ID);
+
+        assertThat(stats.getTotalCards()).isEqualTo(100L);
+        assertThat(stats.getTotalCardViews()).isEqualTo(250L);
+        assertThat(stats.getTotalUnviewedCards()).isEqualTo(99L);
+        assertThat(stats.getTotalLastRating1()).isEqualTo(50L);
+        assertThat(stats.getTotalLastRating5()).isEqualTo(1L);
+        assertThat(stats.getHardestCardId()).isEqualTo(hardestCard.getId());
+        assertThat(stats.getMostViewedCardId()).isEqualTo(mostViewedCard.getId());
+        assertThat(stats.getMostViewedCount()).isEqualTo(50);
+        verifyNoInteractions(cardRepository, cardHistoryRepository);
+    }
+
+    @Test
+    void testRecordRatings_movesCardBetweenRatingBuckets() {
+        UserStats stats = existingStats();
+        when(userStatsRepository.findByUserIdForUpdate(USER_ID)).thenReturn(Optional.of(stats));
+        // Card 2 rated 4 again after last being rated 2
+        mostViewedCardHistory.setViewCount(51);
+        mostViewedCardHistory.setLastRating(4);
+        mostViewedCardHistory.setAvgRating(4.6);
+
+        service.recordRatings(USER_ID, mostViewedCardHistory, 2, 1);
+
+        assertThat(stats.getTotalCardViews()).isEqualTo(11L);
+        assertThat(stats.getTotalUnviewedCards()).isEqualTo(5L);
+        assertThat(stats.getTotalLastRating2()).isEqualTo(2L);
+        assertThat(stats.getTotalLastRating4()).isEqualTo(2L);
+        assertThat(stats.getMostViewedCount()).isEqualTo(51);
+        assertThat(stats.getHardestCardId()).isEqualTo(mostViewedCard.getId());
+        assertThat(stats.getHardestAvgRating()).isEqualTo(4.6);
+    }
+
+    @Test
+    void testRecordRatings_firstRatingOfCard_countsItAsViewed() {
+        UserStats stats = existingStats();
+        when(userStatsRepository.findByUserIdForUpdate(USER_ID)).thenReturn(Optional.of(stats));
+        CardHistory firstRating = CardHistory.builder()
+                .card(Card.builder().id(3L).build())
+                .avgRating(1.5)
+                .viewCount(2)
+                .lastRating(1)
+                .build();
+
+        service.recordRatings(USER_ID, firstRating, null, 2);
+
+        assertThat(stats.getTotalCardViews()).isEqualTo(12L);
+        assertThat(stats.getTotalUnviewedCards()).isEqualTo(4L);
+        assertThat(stats.getTotalLastRating1()).isEqualTo(2L);
+        assertThat(stats.getMostViewedCardId()).isEqualTo(mostViewedCard.getId());
+        assertThat(stats.getHardestCardId()).isEqualTo(hardestCard.getId());
+    }
+
+    @Test
+    void testRecordRatings_hardestCardGetsEasier_recomputesHardest() {
+        UserStats stats = existingStats();
+        when(userStatsRepository.findByUserIdForUpdate(USER_ID)).thenReturn(Optional.of(stats));
+        when(cardRepository.findHardestByUserId(USER_ID)).thenReturn(Optional.of(mostViewedCard));
+        when(cardHistoryRepository.findByCardIdAndUserId(mostViewedCard.getId(), USER_ID))
+                .thenReturn(Optional.of(mostViewedCardHistory));
+        hardestCardHistory.setViewCount(6);
+        hardestCardHistory.setAvgRating(1.8);
+
+        service.recordRatings(USER_ID, hardestCardHistory, 1, 1);
+
+        assertThat(stats.getHardestCardId()).isEqualTo(mostViewedCard.getId());
+        assertThat(stats.getHardestAvgRating()).isEqualTo(4.5);
+    }
+
+    @Test
+    void testRecordRatings_withoutStatsRow_isSkipped() {
+        service.recordRatings(USER_ID, hardestCardHistory, 1, 1);
+
+        verifyNoInteractions(cardRepository);
+        verify(userStatsRepository, never()).save(any(UserStats.class));
+    }
+
+    @Test
+    void testRecordCardsCreated_addsUnviewedCards() {
+        UserStats stats = existingStats();
+        when(userStatsRepository.findByUserIdForUpdate(USER_ID)).thenReturn(Optional.of(stats));
+
+        service.recordCardsCreated(USER_ID, 3);
+
+        assertThat(stats.getTotalCards()).isEqualTo(23L);
+        assertThat(stats.getTotalUnviewedCards()).isEqualTo(8L);
+    }
+
+    private UserStats existingStats() {
+        return UserStats.builder()
+                .userId(USER_ID)
+                .totalCards(20L)
+                .totalCardViews(10L)
+                .totalUnviewedCards(5L)
+                .totalLastRating1(1L)
+                .totalLastRating2(3L)
+                .totalLastRating4(1L)
+                .hardestCardId(hardestCard.getId())
+                .hardestAvgRating(2.0)
+                .mostViewedCardId(mostViewedCard.getId())
+                .mostViewedCount(50)
+                .build();
+    }
+
+    private UserStatsRowProjection statsRow(CardHistory history) {
+        UserStatsRowProjection row = cardRow(mock(UserStatsRowProjection.class), history);
+        when(row.getTotalCards()).thenReturn(100L);
+        when(row.getTotalCardViews()).thenReturn(250L);
+        when(row.getTotalUnviewedCards()).thenReturn(99L);
+        when(row.getTotalLastRating1()).thenReturn(50L);
+        when(row.getTotalLastRating2()).thenReturn(0L);
+        when(row.getTotalLastRating3()).thenReturn(0L);
+        when(row.getTotalLastRating4()).thenReturn(0L);
+        when(row.getTotalLastRating5()).thenReturn(0L);
+        when(row.getHardestCardId()).thenReturn(hardestCard.getId());
+        when(row.getMostViewedCardId()).thenReturn(mostViewedCard.getId());
+        return row;
+    }
+
+    private static <T extends CardDeckRowProjection> T cardRow(T row, CardHistory history) {
+        Card card = history.getCard();
+        when(row.getCardId()).thenReturn(card.getId());
+        when(row.getFront()).thenReturn(card.getFront());
+        when(row.getBack()).thenReturn(card.getBack());
+        when(row.getAvgRating()).thenReturn(history.getAvgRating());
+        when(row.getViewCount()).thenReturn(history.getViewCount());
+        when(row.getLastRating()).thenReturn(history.getLastRating());
+        when(row.getSubjectId()).thenReturn(card.getSubject().getId());
+        return row;
+    }
+
+    private static CardSummary expectedSummary(CardHistory history) {
+        return CardSummary.fromEntity(history.getCard(), history);
     }
 
     @Test
@@ -0,0 +1,70 @@
+package com.example.flashcards_backend.utility;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.flashcards_backend.utility.MinHashIndex.Match;
+import org.junit.jupiter.api.Test;
+
+class MinHashIndexTest {
+
+  @Test
+  void normalize_ignoresCasePunctuationAndSpacing() {
+    assertThat(MinHashIndex.normalize("  Der  Hund! ")).isEqualTo("der hund");
+    assertThat(MinHashIndex.normalize("Straße, groß")).isEqualTo("straße groß");
+  }
+
+  @Test
+  void findSimilar_matchesTextsThatOnlyDifferInCaseAndSpacing() {
+    MinHashIndex<String> index = new MinHashIndex<>(0.8);
+    index.add("hund", "der Hund \ndog");
+    index.add("katze", "die Katze\ncat");
+
+    assertThat(index.findSimilar("der hund\nDog.")).contains(new Match<>("hund", 1.0));
+  }
+
+  @Test
+  void findSimilar_ignoresUnrelatedTexts() {
+    MinHashIndex<String> index = new MinHashIndex<>(0.8);
+    index.add("hund", "der Hund\ndog");
+
+    assertThat(index.findSimilar("das Haus\nhouse")).isEmpty();
+    assertThat(new MinHashIndex<String>(0.8).findSimilar("der Hund\ndog")).isEmpty();
+  }
+
+  @Test
+  void findSimilar_findsEveryTextOfALargeIndex() {
+    MinHashIndex<Integer> index = new MinHashIndex<>(0.8);
+    for (int i = 0; i < 5_000; i++) {
+      index.add(i, text(i));
+    }
+
+    assertThat(index.size()).isEqualTo(5_000);
+    for (int i = 0; i < 5_000; i += 7) {
+      assertThat(index.findSimilar(text(i).toUpperCase()))
+          .hasValueSatisfying(match -> assertThat(match.similarity()).isEqualTo(1.0));
+    }
+  }
+
+  @Test
+  void similarity_isTheShareOfEqualSignatureValues() {
+    int[] signature = MinHashIndex.signature("der Hund");
+
+    assertThat(MinHashIndex.similarity(signature, MinHashIndex.signature("DER HUND?")))
+        .isEqualTo(1.0);
+    assertThat(MinHashIndex.similarity(signature, MinHashIndex.signature("die Katze")))
+        .isLessThan(0.5);
+  }
+
+  @Test
+  void constructor_rejectsThresholdsOutsideUnitInterval() {
+    assertThatThrownBy(() -> new MinHashIndex<String>(0))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new MinHashIndex<String>(1.5))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static String text(int i) {
+    return "front " + Integer.toHexString(i * 0x9E3779B1) + "\nback " + i;
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.flashcards_backend.utility;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import com.example.flashcards_backend.utility.SpacedRepetition.Schedule;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+class SpacedRepetitionTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.parse("2025-03-01T09:00:00");
+
+  @Test
+  void recalledCards_followOneSixThenEaseMultipliedIntervals() {
+    Schedule first = SpacedRepetition.next(Schedule.initial(), 2, NOW);
+    Schedule second = SpacedRepetition.next(first, 2, NOW);
+    Schedule third = SpacedRepetition.next(second, 2, NOW);
+
+    assertThat(first.intervalDays()).isEqualTo(1);
+    assertThat(first.dueAt()).isEqualTo(NOW.plusDays(1));
+    assertThat(second.intervalDays()).isEqualTo(6);
+    assertThat(third.intervalDays()).isEqualTo((int) Math.round(6 * second.easeFactor()));
+    assertThat(third.repetitions()).isEqualTo(3);
+  }
+
+  @Test
+  void easyRating_raisesEase_andHardRecall_lowersIt() {
+    assertThat(SpacedRepetition.next(Schedule.initial(), 1, NOW).easeFactor())
+        .isCloseTo(2.6, within(1e-9));
+    assertThat(SpacedRepetition.next(Schedule.initial(), 3, NOW).easeFactor())
+        .isCloseTo(2.36, within(1e-9));
+  }
+
+  @Test
+  void lapse_resetsRepetitions_andNeverDropsEaseBelowMinimum() {
+    Schedule schedule = new Schedule(1.35, 30, 5, NOW);
+
+    Schedule lapsed = SpacedRepetition.next(schedule, 5, NOW);
+
+    assertThat(lapsed.repetitions()).isZero();
+    assertThat(lapsed.intervalDays()).isEqualTo(1);
+    assertThat(lapsed.easeFactor()).isEqualTo(SpacedRepetition.MIN_EASE);
+    assertThat(lapsed.dueAt()).isEqualTo(NOW.plusDays(1));
+  }
+
+  @Test
+  void next_rejectsRatingsOutsideScale() {
+    Schedule initial = Schedule.initial();
+    assertThatThrownBy(() -> SpacedRepetition.next(initial, 0, NOW))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}